@@ -146,6 +146,9 @@ public abstract class AbstractImageMetadata implements ImageMetadata {
 	@Field(label = "thumbnail")
 	private boolean thumbnail;
 
+	/** {X, Y} lengths of each reduced resolution level, largest first. */
+	private long[][] resolutionLengths = new long[0][];
+
 	/** The name of the image. */
 	private String name;
 
@@ -227,6 +230,14 @@ public abstract class AbstractImageMetadata implements ImageMetadata {
 		this.thumbnail = thumbnail;
 	}
 
+	@Override
+	public void setResolutionLengths(final long[]... lengths) {
+		resolutionLengths = new long[lengths.length][];
+		for (int i = 0; i < lengths.length; i++) {
+			resolutionLengths[i] = lengths[i].clone();
+		}
+	}
+
 	@Override
 	public void setAxes(final CalibratedAxis[] axes, final long[] axisLengths) {
 		setAxes(axes);
@@ -440,6 +451,21 @@ public abstract class AbstractImageMetadata implements ImageMetadata {
 		return getAxesLengths(getAxesNonPlanar());
 	}
 
+	@Override
+	public int getResolutionCount() {
+		return resolutionLengths.length + 1;
+	}
+
+	@Override
+	public long[] getAxesLengths(final int resolution) {
+		return getAxesLengths(getAxes(), resolution);
+	}
+
+	@Override
+	public long[] getAxesLengthsPlanar(final int resolution) {
+		return getAxesLengths(getAxesPlanar(), resolution);
+	}
+
 	@Override
 	public boolean isOrderCertain() {
 		return orderCertain;
@@ -570,6 +596,13 @@ public abstract class AbstractImageMetadata implements ImageMetadata {
 		this.thumbSizeX = toCopy.getThumbSizeX();
 		this.thumbSizeY = toCopy.getThumbSizeY();
 		this.planarAxisCount = toCopy.getPlanarAxisCount();
+		final int xIndex = toCopy.getAxisIndex(Axes.X);
+		final int yIndex = toCopy.getAxisIndex(Axes.Y);
+		this.resolutionLengths = new long[toCopy.getResolutionCount() - 1][];
+		for (int i = 0; i < resolutionLengths.length; i++) {
+			final long[] lengths = toCopy.getAxesLengths(i + 1);
+			resolutionLengths[i] = new long[] { lengths[xIndex], lengths[yIndex] };
+		}
 	}
 
 	@Override
@@ -676,6 +709,29 @@ public abstract class AbstractImageMetadata implements ImageMetadata {
 		return index;
 	}
 
+	/**
+	 * Returns the lengths of the given axes, substituting the X and Y lengths of
+	 * the given resolution level.
+	 */
+	private long[] getAxesLengths(final List<CalibratedAxis> axisList,
+		final int resolution)
+	{
+		if (resolution < 0 || resolution > resolutionLengths.length) {
+			throw new IllegalArgumentException("Invalid resolution: " + resolution +
+				" (image has " + getResolutionCount() + " resolutions)");
+		}
+		final long[] lengths = getAxesLengths(axisList);
+		if (resolution == 0) return lengths;
+
+		final long[] xy = resolutionLengths[resolution - 1];
+		for (int i = 0; i < lengths.length; i++) {
+			final AxisType type = axisList.get(i).type();
+			if (type == Axes.X) lengths[i] = xy[0];
+			else if (type == Axes.Y) lengths[i] = xy[1];
+		}
+		return lengths;
+	}
+
 	/**
 	 * Resets the cached planar and non-planar axes. Used after the axes or
 	 * planarAxisCount are modified.
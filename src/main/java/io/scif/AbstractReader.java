@@ -81,6 +81,24 @@ public abstract class AbstractReader<M extends TypedMetadata, P extends DataPlan
 	 */
 	protected abstract String[] createDomainArray();
 
+	/**
+	 * Ensures the resolution level requested by the given configuration exists
+	 * for the given image, so that readers which only read full resolution never
+	 * silently return it for a reduced level.
+	 *
+	 * @throws IllegalArgumentException If the resolution level does not exist.
+	 */
+	protected void checkResolution(final int imageIndex,
+		final SCIFIOConfig config)
+	{
+		final int resolution = config.imgOpenerGetResolution();
+		final int count = metadata.get(imageIndex).getResolutionCount();
+		if (resolution < 0 || resolution >= count) {
+			throw new IllegalArgumentException("Invalid resolution: " + resolution +
+				" (image has " + count + " resolutions)");
+		}
+	}
+
 	// -- Reader API Methods --
 
 	// TODO Merge common Reader and Writer API methods
@@ -117,11 +135,21 @@ public abstract class AbstractReader<M extends TypedMetadata, P extends DataPlan
 			planeMin, planeMax);
 	}
 
+	@Override
+	public P openPlane(final int imageIndex, final long planeIndex,
+		final int resolution, final long[] planeMin, final long[] planeMax)
+		throws FormatException, IOException
+	{
+		return openPlane(imageIndex, planeIndex, planeMin, planeMax,
+			new SCIFIOConfig().imgOpenerSetResolution(resolution));
+	}
+
 	@Override
 	public P openPlane(final int imageIndex, final long planeIndex,
 		final SCIFIOConfig config) throws FormatException, IOException
 	{
-		final long[] planeMax = metadata.get(imageIndex).getAxesLengthsPlanar();
+		final long[] planeMax = metadata.get(imageIndex).getAxesLengthsPlanar(
+			config.imgOpenerGetResolution());
 		final long[] planeMin = new long[planeMax.length];
 		return openPlane(imageIndex, planeIndex, planeMin, planeMax, config);
 	}
@@ -131,6 +159,7 @@ public abstract class AbstractReader<M extends TypedMetadata, P extends DataPlan
 		final long[] planeMin, final long[] planeMax, final SCIFIOConfig config)
 		throws FormatException, IOException
 	{
+		checkResolution(imageIndex, config);
 		P plane = null;
 
 		try {
@@ -164,6 +193,7 @@ public abstract class AbstractReader<M extends TypedMetadata, P extends DataPlan
 		final Plane plane, final long[] planeMin, final long[] planeMax,
 		final SCIFIOConfig config) throws FormatException, IOException
 	{
+		checkResolution(imageIndex, config);
 		return openPlane(imageIndex, planeIndex, this.<P> castToTypedPlane(plane),
 			planeMin, planeMax, config);
 	}
@@ -349,7 +349,7 @@ public abstract class AbstractWriter<M extends TypedMetadata> extends
 	public void isSupportedCompression(final String compression)
 		throws FormatException
 	{
-		for (final String compressionType : compressionTypes) {
+		for (final String compressionType : getCompressionTypes()) {
 			if (compressionType.equals(compression)) {
 				this.compression = compression;
 				return;
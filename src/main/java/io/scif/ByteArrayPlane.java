@@ -30,9 +30,11 @@
 
 package io.scif;
 
+import io.scif.services.BufferPoolService;
 import io.scif.util.FormatTools;
 
 import org.scijava.Context;
+import org.scijava.plugin.Parameter;
 import org.scijava.util.ArrayUtils;
 
 /**
@@ -45,6 +47,14 @@ import org.scijava.util.ArrayUtils;
  */
 public class ByteArrayPlane extends AbstractPlane<byte[], ByteArrayPlane> {
 
+	// -- Fields --
+
+	@Parameter(required = false)
+	private BufferPoolService bufferPoolService;
+
+	/** Blank data allocated from the pool, which this plane may release. */
+	private byte[] pooled;
+
 	// -- Constructor --
 
 	public ByteArrayPlane(final Context context) {
@@ -64,14 +74,27 @@ public class ByteArrayPlane extends AbstractPlane<byte[], ByteArrayPlane> {
 		return getData();
 	}
 
+	// -- ByteArrayPlane API --
+
+	/**
+	 * Returns the data of this plane to the {@link BufferPoolService}, if it is
+	 * still the blank data the plane was created with. The plane has no data
+	 * afterwards; neither it nor its former data may be used again.
+	 */
+	public void release() {
+		if (pooled != null && getData() == pooled) {
+			setData(null);
+			bufferPoolService.release(pooled);
+		}
+		pooled = null;
+	}
+
 	// -- AbstractPlane API --
 
 	@Override
 	protected byte[] blankPlane(final long[] planeOffsets,
 		final long[] planeBounds)
 	{
-		byte[] buf = null;
-
 		final long[] lengths = new long[planeOffsets.length + 1];
 		for (int i = 0; i < lengths.length - 1; i++) {
 			lengths[i] = planeBounds[i];
@@ -79,7 +102,8 @@ public class ByteArrayPlane extends AbstractPlane<byte[], ByteArrayPlane> {
 		lengths[lengths.length - 1] =
 			FormatTools.getBytesPerPixel(getImageMetadata().getPixelType());
 
-		buf = ArrayUtils.allocate(lengths);
-		return buf;
+		if (bufferPoolService == null) return ArrayUtils.allocate(lengths);
+		pooled = bufferPoolService.allocate(ArrayUtils.safeMultiply32(lengths));
+		return pooled;
 	}
 }
@@ -30,12 +30,15 @@
 
 package io.scif;
 
+import io.scif.services.ThumbnailService;
 import io.scif.util.FormatTools;
 
 import java.io.IOException;
 
 import net.imagej.axis.Axes;
 
+import org.scijava.plugin.Parameter;
+
 /**
  * Abstract superclass for all {@link io.scif.Reader} implementations that
  * return a {@link io.scif.ByteArrayPlane} when reading datasets.
@@ -49,6 +52,11 @@ public abstract class ByteArrayReader<M extends TypedMetadata> extends
 	AbstractReader<M, ByteArrayPlane>
 {
 
+	// -- Fields --
+
+	@Parameter(required = false)
+	private ThumbnailService thumbnailService;
+
 	// -- Constructor --
 
 	public ByteArrayReader() {
@@ -69,11 +77,13 @@ public abstract class ByteArrayReader<M extends TypedMetadata> extends
 		planeBounds[meta.get(imageIndex).getAxisIndex(Axes.X)] =
 			meta.get(imageIndex).getThumbSizeX();
 		planeBounds[meta.get(imageIndex).getAxisIndex(Axes.Y)] =
-			meta.get(imageIndex).getThumbSizeX();
+			meta.get(imageIndex).getThumbSizeY();
 
 		final ByteArrayPlane plane = createPlane(planeOffsets, planeBounds);
 
-		plane.setData(FormatTools.openThumbBytes(this, imageIndex, planeIndex));
+		plane.setData(thumbnailService == null ? FormatTools.openThumbBytes(this,
+			imageIndex, planeIndex) : thumbnailService.openThumbBytes(this,
+				imageIndex, planeIndex));
 
 		return plane;
 	}
@@ -120,6 +120,26 @@ public interface ImageMetadata extends Named, HasMetaTable {
 	 */
 	void setThumbnail(boolean thumbnail);
 
+	/**
+	 * Sets the X and Y lengths of the reduced resolution levels of this image,
+	 * starting with the largest. The full resolution level is implied and must
+	 * not be included.
+	 *
+	 * <p>
+	 * The default implementation only supports full resolution images.
+	 * </p>
+	 *
+	 * @param lengths {X, Y} length pairs of each reduced resolution level.
+	 * @throws UnsupportedOperationException If reduced resolution levels are
+	 *           given but not supported.
+	 */
+	default void setResolutionLengths(final long[]... lengths) {
+		if (lengths.length > 0) {
+			throw new UnsupportedOperationException(getClass().getName() +
+				" does not support reduced resolution levels");
+		}
+	}
+
 	/**
 	 * Convenience method to set both the axis types and lengths for this
 	 * ImageMetadata.
@@ -358,6 +378,48 @@ public interface ImageMetadata extends Named, HasMetaTable {
 	 */
 	long[] getAxesLengthsPlanar();
 
+	/**
+	 * Returns the number of resolution levels of this image, including the full
+	 * resolution level 0.
+	 *
+	 * @return 1 if this image only exists at full resolution
+	 */
+	default int getResolutionCount() {
+		return 1;
+	}
+
+	/**
+	 * As {@link #getAxesLengths()}, with the X and Y lengths of the given
+	 * resolution level.
+	 *
+	 * @param resolution the resolution level, 0 being full resolution.
+	 * @return Sorted axis length array
+	 * @throws IllegalArgumentException If the resolution level does not exist.
+	 */
+	default long[] getAxesLengths(final int resolution) {
+		if (resolution != 0) {
+			throw new IllegalArgumentException("Invalid resolution: " + resolution +
+				" (image has 1 resolution)");
+		}
+		return getAxesLengths();
+	}
+
+	/**
+	 * As {@link #getAxesLengthsPlanar()}, with the X and Y lengths of the given
+	 * resolution level.
+	 *
+	 * @param resolution the resolution level, 0 being full resolution.
+	 * @return Sorted axis length array
+	 * @throws IllegalArgumentException If the resolution level does not exist.
+	 */
+	default long[] getAxesLengthsPlanar(final int resolution) {
+		if (resolution != 0) {
+			throw new IllegalArgumentException("Invalid resolution: " + resolution +
+				" (image has 1 resolution)");
+		}
+		return getAxesLengthsPlanar();
+	}
+
 	/**
 	 * Returns an array of the lengths for the non-planar axes in this image.
 	 *
@@ -82,6 +82,32 @@ public interface Reader extends HasFormat, HasSource, Groupable {
 	Plane openPlane(int imageIndex, long planeIndex, long[] planeMin,
 		long[] planeMax) throws FormatException, IOException;
 
+	/**
+	 * As {@link #openPlane(int, long, long[], long[])} at a reduced resolution
+	 * level. The bounds are given in the coordinates of that level, as returned
+	 * by {@link ImageMetadata#getAxesLengthsPlanar(int)}.
+	 *
+	 * @param imageIndex the image index within the dataset.
+	 * @param planeIndex the plane index within the image.
+	 * @param resolution the resolution level, 0 being full resolution.
+	 * @param planeMin minimal bounds of the planar axes
+	 * @param planeMax maximum bounds of the planar axes
+	 * @return The desired sub-region at the specified indices and resolution.
+	 * @throws IllegalArgumentException If the resolution level does not exist,
+	 *           e.g. because this reader only supports full resolution.
+	 * @see SCIFIOConfig#imgOpenerSetResolution(int)
+	 */
+	default Plane openPlane(final int imageIndex, final long planeIndex,
+		final int resolution, final long[] planeMin, final long[] planeMax)
+		throws FormatException, IOException
+	{
+		if (resolution != 0) {
+			throw new IllegalArgumentException("Invalid resolution: " + resolution +
+				" (" + getClass().getName() + " only reads full resolution)");
+		}
+		return openPlane(imageIndex, planeIndex, planeMin, planeMax);
+	}
+
 	/**
 	 * Allows a single {@code Plane} object to be reused by reference when opening
 	 * complete planes.
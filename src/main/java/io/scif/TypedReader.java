@@ -85,6 +85,18 @@ public interface TypedReader<M extends TypedMetadata, P extends DataPlane<?>>
 	P openPlane(int imageIndex, long planeIndex, P plane, long[] planeMin,
 		long[] planeMax) throws FormatException, IOException;
 
+	@Override
+	default P openPlane(final int imageIndex, final long planeIndex,
+		final int resolution, final long[] planeMin, final long[] planeMax)
+		throws FormatException, IOException
+	{
+		if (resolution != 0) {
+			throw new IllegalArgumentException("Invalid resolution: " + resolution +
+				" (" + getClass().getName() + " only reads full resolution)");
+		}
+		return openPlane(imageIndex, planeIndex, planeMin, planeMax);
+	}
+
 	@Override
 	P openPlane(int imageIndex, long planeIndex, SCIFIOConfig config)
 		throws FormatException, IOException;
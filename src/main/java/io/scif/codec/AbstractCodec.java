@@ -33,10 +33,13 @@ package io.scif.codec;
 import io.scif.AbstractSCIFIOPlugin;
 import io.scif.FormatException;
 import io.scif.io.RandomAccessInputStream;
+import io.scif.services.MetricsService;
 
 import java.io.IOException;
 import java.util.Random;
 
+import org.scijava.plugin.Parameter;
+
 /**
  * BaseCodec contains default implementation and testing for classes
  * implementing the Codec interface, and acts as a base class for any of the
@@ -50,6 +53,11 @@ public abstract class AbstractCodec extends AbstractSCIFIOPlugin implements
 	Codec
 {
 
+	// -- Parameters --
+
+	@Parameter
+	private MetricsService metricsService;
+
 	// -- BaseCodec API methods --
 
 	/**
@@ -162,11 +170,16 @@ public abstract class AbstractCodec extends AbstractSCIFIOPlugin implements
 	public byte[] decompress(final byte[] data, final CodecOptions options)
 		throws FormatException
 	{
+		final long start = System.nanoTime();
 		try {
 			final RandomAccessInputStream r =
 				new RandomAccessInputStream(getContext(), data);
 			final byte[] t = decompress(r, options);
 			r.close();
+			if (metricsService.isEnabled()) {
+				metricsService.record(MetricsService.DECOMPRESS + getClass()
+					.getSimpleName(), System.nanoTime() - start, t.length);
+			}
 			return t;
 		}
 		catch (final IOException e) {
@@ -66,6 +66,9 @@ public class BitBuffer {
 		0x00FE // 11111110
 		};
 
+	/** Number of bytes held in the bit accumulator. */
+	private static final int WINDOW_BYTES = 8;
+
 	private final byte[] byteBuffer;
 
 	private int currentByte;
@@ -76,6 +79,15 @@ public class BitBuffer {
 
 	private boolean eofFlag;
 
+	/**
+	 * 64-bit accumulator holding the bytes starting at {@link #windowStart};
+	 * bytes past the end of the buffer are read as zero.
+	 */
+	private long window;
+
+	/** Index of the first byte held in {@link #window}, or -1 if empty. */
+	private int windowStart = -1;
+
 	/** Default constructor. */
 	public BitBuffer(final byte[] byteBuffer) {
 		this.byteBuffer = byteBuffer;
@@ -84,6 +96,33 @@ public class BitBuffer {
 		eofByte = byteBuffer.length;
 	}
 
+	/**
+	 * Gets the number of bits remaining between the current position and the
+	 * end of the buffer.
+	 */
+	public long getBitsRemaining() {
+		if (eofFlag) return 0;
+		return (long) (eofByte - currentByte) * 8 - currentBit;
+	}
+
+	/**
+	 * Returns the value of the next bits in the buffer, without modifying the
+	 * current position. Bits are extracted in the same order as
+	 * {@link #getBits(int)}.
+	 *
+	 * @param bitsToPeek the number of bits to examine; must be between 1 and 32
+	 * @return the value of the bits, or -1 if fewer than {@code bitsToPeek} bits
+	 *         remain in the buffer
+	 */
+	public int peekBits(final int bitsToPeek) {
+		if (bitsToPeek < 1 || bitsToPeek > 32) {
+			throw new IllegalArgumentException("Bits to peek must be between 1 " +
+				"and 32");
+		}
+		if (getBitsRemaining() < bitsToPeek) return -1;
+		return windowBits(bitsToPeek);
+	}
+
 	/**
 	 * Skips a number of bits in the BitBuffer.
 	 *
@@ -140,6 +179,17 @@ public class BitBuffer {
 		}
 		if (bitsToRead == 0) return 0;
 		if (eofFlag) return -1; // Already at end of file
+
+		// fast path: the read does not reach the end of the buffer, so the bits
+		// can be extracted from the accumulator in one step
+		if (bitsToRead <= 32 && getBitsRemaining() > bitsToRead) {
+			final int value = windowBits(bitsToRead);
+			currentBit += bitsToRead;
+			currentByte += currentBit >> 3;
+			currentBit &= 7;
+			return value;
+		}
+
 		int toStore = 0;
 		while (bitsToRead != 0 && !eofFlag) {
 			if (currentBit < 0 || currentBit > 7) {
@@ -190,6 +240,34 @@ public class BitBuffer {
 		return toStore;
 	}
 
+	// -- Helper methods --
+
+	/**
+	 * Extracts the given number of bits (1-32) at the current position from the
+	 * accumulator, refilling it first if necessary. Does not check for EOF.
+	 */
+	private int windowBits(final int bits) {
+		if (windowStart < 0 || currentByte < windowStart ||
+			(currentByte - windowStart) * 8 + currentBit + bits > WINDOW_BYTES * 8)
+		{
+			fillWindow();
+		}
+		final int shift = (currentByte - windowStart) * 8 + currentBit;
+		return (int) ((window << shift) >>> (64 - bits));
+	}
+
+	/** Loads the accumulator with the bytes starting at the current byte. */
+	private void fillWindow() {
+		long w = 0;
+		final int end = Math.min(currentByte + WINDOW_BYTES, eofByte);
+		for (int i = currentByte; i < end; i++) {
+			w = (w << 8) | (byteBuffer[i] & 0xff);
+		}
+		w <<= 8 * (currentByte + WINDOW_BYTES - end);
+		window = w;
+		windowStart = currentByte;
+	}
+
 	/**
 	 * Testing method.
 	 *
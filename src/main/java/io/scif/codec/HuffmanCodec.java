@@ -35,7 +35,7 @@ import io.scif.UnsupportedCompressionException;
 import io.scif.io.RandomAccessInputStream;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.scijava.plugin.Plugin;
 
@@ -51,12 +51,14 @@ public class HuffmanCodec extends AbstractCodec {
 
 	private static final int LEAVES_OFFSET = 16;
 
-	// -- Fields --
+	/** Number of bits resolved by each lookup table level. */
+	private static final int LOOKUP_BITS = 10;
 
-	private int leafCounter;
+	// -- Fields --
 
-	private final HashMap<short[], Decoder> cachedDecoders =
-		new HashMap<>();
+	/** Decoders built so far, keyed by the identity of their source table. */
+	private final ConcurrentHashMap<short[], Decoder> cachedDecoders =
+		new ConcurrentHashMap<>();
 
 	// -- Codec API methods --
 
@@ -97,9 +99,10 @@ public class HuffmanCodec extends AbstractCodec {
 		if ((huffman.bitsPerSample % 8) != 0) bytesPerSample++;
 
 		final BitWriter out = new BitWriter();
+		final Decoder decoder = getDecoder(huffman.table);
 
 		for (int i = 0; i < nSamples; i++) {
-			final int sample = getSample(bb, options);
+			final int sample = getSample(bb, decoder);
 			out.write(sample, bytesPerSample * 8);
 		}
 
@@ -120,18 +123,24 @@ public class HuffmanCodec extends AbstractCodec {
 		}
 
 		final HuffmanCodecOptions huffman = (HuffmanCodecOptions) options;
-		Decoder decoder = cachedDecoders.get(huffman.table);
-		if (decoder == null) {
-			decoder = new Decoder(huffman.table);
-			cachedDecoders.put(huffman.table, decoder);
-		}
+		return getSample(bb, getDecoder(huffman.table));
+	}
+
+	// -- Helper methods --
 
+	private Decoder getDecoder(final short[] table) {
+		final Decoder decoder = cachedDecoders.get(table);
+		return decoder != null ? decoder : cachedDecoders.computeIfAbsent(table,
+			Decoder::new);
+	}
+
+	private int getSample(final BitBuffer bb, final Decoder decoder) {
 		int bitCount = decoder.decode(bb);
 		if (bitCount == 16) {
 			return 0x8000;
 		}
 		if (bitCount < 0) bitCount = 0;
-		int v = bb.getBits(bitCount) & ((int) Math.pow(2, bitCount) - 1);
+		int v = bb.getBits(bitCount) & ((1 << bitCount) - 1);
 		if ((v & (1 << (bitCount - 1))) == 0) {
 			v -= (1 << bitCount) - 1;
 		}
@@ -139,44 +148,55 @@ public class HuffmanCodec extends AbstractCodec {
 		return v;
 	}
 
-	// -- Helper class --
+	// -- Helper classes --
 
-	class Decoder {
+	/**
+	 * A node of the decoding tree. Decoders are fully built in their
+	 * constructor and never modified afterwards, so one instance may be shared
+	 * by all threads using the codec.
+	 */
+	static class Decoder {
 
-		public Decoder[] branch = new Decoder[2];
+		public final Decoder[] branch = new Decoder[2];
 
 		private int leafValue = -1;
 
-		public Decoder() {}
+		/** Lookup table for decoding from this node, or null for a leaf. */
+		private final LookupTable table;
+
+		public Decoder() {
+			table = null;
+		}
 
 		public Decoder(final short[] source) {
-			leafCounter = 0;
-			createDecoder(this, source, 0, 0);
+			createDecoder(this, source, 0, 0, new int[1]);
+			table = branch[0] != null ? new LookupTable(this) : null;
 		}
 
-		private Decoder createDecoder(final short[] source, final int start,
-			final int level)
+		private static Decoder createDecoder(final short[] source,
+			final int start, final int level, final int[] leafCounter)
 		{
 			final Decoder dest = new Decoder();
-			createDecoder(dest, source, start, level);
+			createDecoder(dest, source, start, level, leafCounter);
 			return dest;
 		}
 
-		private void createDecoder(final Decoder dest, final short[] source,
-			final int start, final int level)
+		private static void createDecoder(final Decoder dest,
+			final short[] source, final int start, final int level,
+			final int[] leafCounter)
 		{
 			int next = 0;
 			int i = 0;
-			while (i <= leafCounter && next < LEAVES_OFFSET) {
+			while (i <= leafCounter[0] && next < LEAVES_OFFSET) {
 				i += source[start + next++] & 0xff;
 			}
 
 			if (level < next && next < LEAVES_OFFSET) {
-				dest.branch[0] = createDecoder(source, start, level + 1);
-				dest.branch[1] = createDecoder(source, start, level + 1);
+				dest.branch[0] = createDecoder(source, start, level + 1, leafCounter);
+				dest.branch[1] = createDecoder(source, start, level + 1, leafCounter);
 			}
 			else {
-				i = start + LEAVES_OFFSET + leafCounter++;
+				i = start + LEAVES_OFFSET + leafCounter[0]++;
 				if (i < source.length) {
 					dest.leafValue = source[i] & 0xff;
 				}
@@ -184,7 +204,26 @@ public class HuffmanCodec extends AbstractCodec {
 		}
 
 		public int decode(final BitBuffer bb) {
-			Decoder d = this;
+			LookupTable t = table;
+			while (t != null) {
+				// near the end of the buffer, fall back to the bitwise walk so that
+				// EOF is handled exactly as before
+				final int code = bb.getBitsRemaining() > t.bits ? bb.peekBits(t.bits)
+					: -1;
+				if (code < 0) return walk(t.root, bb);
+				final int length = t.lengths[code];
+				if (length > 0) {
+					bb.skipBits(length);
+					return t.values[code];
+				}
+				bb.skipBits(t.bits);
+				t = t.subtables[code];
+			}
+			return walk(this, bb);
+		}
+
+		/** Decodes one bit at a time, starting from the given node. */
+		private int walk(Decoder d, final BitBuffer bb) {
 			while (d.branch[0] != null) {
 				final int v = bb.getBits(1);
 				if (v < 0) break; // eof
@@ -193,6 +232,60 @@ public class HuffmanCodec extends AbstractCodec {
 			return d.leafValue;
 		}
 
+		/** Gets the depth of the deepest leaf below this node. */
+		private int depth() {
+			if (branch[0] == null) return 0;
+			return 1 + Math.max(branch[0].depth(), branch[1].depth());
+		}
+
+	}
+
+	/**
+	 * A table mapping the next {@link #bits} bits of the stream to a decoded
+	 * value. Codes longer than {@link #bits} bits are resolved by a second
+	 * table, reached through {@link #subtables}.
+	 */
+	private static class LookupTable {
+
+		private final Decoder root;
+
+		private final int bits;
+
+		/** Code length for each entry, or 0 if a subtable must be consulted. */
+		private final byte[] lengths;
+
+		private final int[] values;
+
+		private final LookupTable[] subtables;
+
+		public LookupTable(final Decoder root) {
+			this.root = root;
+			bits = Math.min(LOOKUP_BITS, root.depth());
+			lengths = new byte[1 << bits];
+			values = new int[1 << bits];
+			subtables = new LookupTable[1 << bits];
+			fill(root, 0, 0);
+		}
+
+		private void fill(final Decoder node, final int code, final int length) {
+			if (node.branch[0] == null) {
+				// leaf: every entry starting with this code decodes to it
+				final int first = code << (bits - length);
+				final int last = first + (1 << (bits - length));
+				for (int i = first; i < last; i++) {
+					lengths[i] = (byte) length;
+					values[i] = node.leafValue;
+				}
+			}
+			else if (length == bits) {
+				subtables[code] = new LookupTable(node);
+			}
+			else {
+				fill(node.branch[0], code << 1, length + 1);
+				fill(node.branch[1], (code << 1) | 1, length + 1);
+			}
+		}
+
 	}
 
 }
@@ -41,7 +41,7 @@ import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 import java.awt.image.DataBufferUShort;
-import java.awt.image.WritableRaster;
+import java.awt.image.Raster;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -206,20 +206,29 @@ public class JPEG2000Codec extends AbstractCodec {
 		if (in == null) {
 			throw new IllegalArgumentException("No data to decompress.");
 		}
-		if (options == null || !(options instanceof JPEG2000CodecOptions)) {
-			options = JPEG2000CodecOptions.getDefaultOptions(options);
-		}
+		return decompress(readCodestream(in, options), options);
+	}
 
-		byte[] buf = null;
-		final long fp = in.getFilePointer();
-		if (options.maxBytes == 0) {
-			buf = new byte[(int) (in.length() - fp)];
-		}
-		else {
-			buf = new byte[(int) (options.maxBytes - fp)];
+	/**
+	 * Decompresses the codestream at the current position of the stream directly
+	 * into the given buffer. If {@link JPEG2000CodecOptions#region} is set, only
+	 * the codestream tiles intersecting the region are decoded, and only the
+	 * region is written. The CodecOptions parameter should have the following
+	 * fields set: {@link CodecOptions#interleaved interleaved}
+	 * {@link CodecOptions#littleEndian littleEndian}
+	 *
+	 * @param dest buffer of at least width * height * channels * bytes per
+	 *          sample of the decoded region
+	 */
+	public void decompress(final RandomAccessInputStream in,
+		final JPEG2000CodecOptions options, final byte[] dest)
+		throws FormatException, IOException
+	{
+		if (in == null) {
+			throw new IllegalArgumentException("No data to decompress.");
 		}
-		in.read(buf);
-		return decompress(buf, options);
+		copyRaster(readRaster(readCodestream(in, options), options), options,
+			dest);
 	}
 
 	/**
@@ -240,20 +249,38 @@ public class JPEG2000Codec extends AbstractCodec {
 			options = new JPEG2000CodecOptions(options);
 		}
 
-		byte[][] single = null;
-		WritableRaster b = null;
-		int bpp = options.bitsPerSample / 8;
+		final Raster raster = readRaster(buf, (JPEG2000CodecOptions) options);
+		final byte[] rtn =
+			new byte[raster.getWidth() * raster.getHeight() * raster.getNumBands() *
+				getBytesPerSample(raster)];
+		copyRaster(raster, options, rtn);
+		return rtn;
+	}
+
+	// -- Helper methods --
 
-		try {
-			final ByteArrayInputStream bis = new ByteArrayInputStream(buf);
-			b =
-				(WritableRaster) jaiIIOService.readRaster(bis,
-					(JPEG2000CodecOptions) options);
-			single = AWTImageTools.getPixelBytes(b, options.littleEndian);
-			bpp = single[0].length / (b.getWidth() * b.getHeight());
+	/** Reads the codestream from the current position of the stream. */
+	private byte[] readCodestream(final RandomAccessInputStream in,
+		final CodecOptions options) throws IOException
+	{
+		final long fp = in.getFilePointer();
+		final byte[] buf;
+		if (options == null || options.maxBytes == 0) {
+			buf = new byte[(int) (in.length() - fp)];
+		}
+		else {
+			buf = new byte[(int) (options.maxBytes - fp)];
+		}
+		in.read(buf);
+		return buf;
+	}
 
-			bis.close();
-			b = null;
+	/** Decodes the given codestream, or the region of it set in the options. */
+	private Raster readRaster(final byte[] buf,
+		final JPEG2000CodecOptions options) throws FormatException
+	{
+		try (final ByteArrayInputStream bis = new ByteArrayInputStream(buf)) {
+			return jaiIIOService.readRaster(bis, options);
 		}
 		catch (final IOException e) {
 			throw new FormatException("Could not decompress JPEG2000 image. Please "
@@ -263,28 +290,68 @@ public class JPEG2000Codec extends AbstractCodec {
 			throw new FormatException("Could not decompress JPEG2000 image. Please "
 				+ "make sure that jai_imageio.jar is installed.", e);
 		}
+	}
+
+	/** Gets the number of bytes of each sample of the given raster. */
+	private int getBytesPerSample(final Raster raster) {
+		return DataBuffer.getDataTypeSize(raster.getTransferType()) / 8;
+	}
+
+	/**
+	 * Writes the samples of the raster into the buffer, row by row, with
+	 * interleaved or planar channels as set in the options.
+	 */
+	private void copyRaster(final Raster raster, final CodecOptions options,
+		final byte[] dest)
+	{
+		final int w = raster.getWidth();
+		final int h = raster.getHeight();
+		final int channels = raster.getNumBands();
+		final int bpp = getBytesPerSample(raster);
+		final int tt = raster.getTransferType();
+		final int[] row = new int[w];
+		final float[] floatRow = tt == DataBuffer.TYPE_FLOAT ? new float[w] : null;
+		final double[] doubleRow =
+			tt == DataBuffer.TYPE_DOUBLE ? new double[w] : null;
 
-		if (single.length == 1) return single[0];
-		final byte[] rtn = new byte[single.length * single[0].length];
-		if (options.interleaved) {
-			int next = 0;
-			for (int i = 0; i < single[0].length / bpp; i++) {
-				for (int j = 0; j < single.length; j++) {
-					for (int bb = 0; bb < bpp; bb++) {
-						rtn[next++] = single[j][i * bpp + bb];
+		// distance between consecutive samples of a channel, in bytes
+		final int step = options.interleaved ? channels * bpp : bpp;
+		for (int c = 0; c < channels; c++) {
+			for (int y = 0; y < h; y++) {
+				int next =
+					options.interleaved ? (y * w * channels + c) * bpp
+						: ((c * h + y) * w) * bpp;
+				final int x0 = raster.getMinX();
+				final int y0 = raster.getMinY() + y;
+				if (floatRow != null) {
+					raster.getSamples(x0, y0, w, 1, c, floatRow);
+					for (int x = 0; x < w; x++, next += step) {
+						Bytes.unpack(Float.floatToIntBits(floatRow[x]), dest, next, bpp,
+							options.littleEndian);
+					}
+				}
+				else if (doubleRow != null) {
+					raster.getSamples(x0, y0, w, 1, c, doubleRow);
+					for (int x = 0; x < w; x++, next += step) {
+						Bytes.unpack(Double.doubleToLongBits(doubleRow[x]), dest, next,
+							bpp, options.littleEndian);
+					}
+				}
+				else {
+					raster.getSamples(x0, y0, w, 1, c, row);
+					if (bpp == 1) {
+						for (int x = 0; x < w; x++, next += step) {
+							dest[next] = (byte) row[x];
+						}
+					}
+					else {
+						for (int x = 0; x < w; x++, next += step) {
+							Bytes.unpack(row[x], dest, next, bpp, options.littleEndian);
+						}
 					}
 				}
 			}
 		}
-		else {
-			for (int i = 0; i < single.length; i++) {
-				System.arraycopy(single[i], 0, rtn, i * single[0].length,
-					single[i].length);
-			}
-		}
-		single = null;
-
-		return rtn;
 	}
 
 }
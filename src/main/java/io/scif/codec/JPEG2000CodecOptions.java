@@ -30,6 +30,8 @@
 
 package io.scif.codec;
 
+import java.awt.Rectangle;
+
 /**
  * Options for compressing and decompressing JPEG-2000 data.
  */
@@ -61,6 +63,14 @@ public class JPEG2000CodecOptions extends CodecOptions {
 	 */
 	public Integer resolution;
 
+	/**
+	 * The region of the image to decode, as would be provided to:
+	 * {@code J2KImageReadParam#setSourceRegion(Rectangle)} (READ). Only the
+	 * codestream tiles intersecting the region are decoded. Leaving this value
+	 * {@code null} decodes the whole image.
+	 */
+	public Rectangle region;
+
 	// -- Constructors --
 
 	/** Creates a new instance. */
@@ -82,6 +92,7 @@ public class JPEG2000CodecOptions extends CodecOptions {
 			}
 			numDecompositionLevels = j2kOptions.numDecompositionLevels;
 			resolution = j2kOptions.resolution;
+			region = j2kOptions.region;
 		}
 	}
 
@@ -31,39 +31,135 @@
 package io.scif.codec;
 
 import io.scif.FormatException;
+import io.scif.UnsupportedCompressionException;
 import io.scif.io.RandomAccessInputStream;
 
-import java.awt.Image;
-import java.awt.Toolkit;
-import java.awt.image.ColorModel;
-import java.awt.image.ImageConsumer;
-import java.awt.image.ImageProducer;
 import java.io.IOException;
-import java.util.Hashtable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.scijava.AbstractContextual;
 import org.scijava.Context;
-import org.scijava.log.LogService;
 import org.scijava.plugin.Parameter;
-import org.scijava.util.IntRect;
+import org.scijava.thread.ThreadService;
 
 /**
- * TODO
+ * Decodes arbitrary regions of baseline JPEG images without decoding the
+ * whole image.
+ * <p>
+ * When the image is initialized, the entropy-coded data is indexed once: if
+ * the image uses short restart intervals, the restart markers are located by
+ * scanning the bytes; otherwise the Huffman codes are walked (without
+ * dequantizing or transforming anything) and the decoder state is recorded
+ * every {@link #ENTRY_SPACING} MCUs. A region is then decoded by starting
+ * each MCU row at the nearest recorded entry, so the cost of reading a tile
+ * is proportional to the tile rather than to the image height. MCU rows are
+ * independent of each other once indexed, and are decoded in parallel; when
+ * chroma is interpolated across MCU rows, each thread decodes a band of
+ * consecutive rows so that the rows around it are decoded only once.
+ * </p>
+ * <p>
+ * Samples are reconstructed as libjpeg does by default, which is what ImageIO
+ * uses: the accurate integer inverse DCT, triangular ("fancy") upsampling of
+ * chroma subsampled by two, and fixed-point YCbCr conversion.
+ * </p>
+ * <p>
+ * Only single-scan, 8-bit Huffman-coded (baseline and extended sequential)
+ * images are supported.
+ * </p>
  *
  * @author Melissa Linkert
  */
 public class JPEGTileDecoder extends AbstractContextual {
 
+	// -- Constants --
+
+	/** Minimum number of MCUs between two entries of the index. */
+	private static final int ENTRY_SPACING = 32;
+
+	/** Number of bytes read at a time while indexing. */
+	private static final int CHUNK_SIZE = 65536;
+
+	private static final int[] ZIGZAG = { 0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32,
+		25, 18, 11, 4, 5, 12, 19, 26, 33, 40, 48, 41, 34, 27, 20, 13, 6, 7, 14, 21,
+		28, 35, 42, 49, 56, 57, 50, 43, 36, 29, 22, 15, 23, 30, 37, 44, 51, 58, 59,
+		52, 45, 38, 31, 39, 46, 53, 60, 61, 54, 47, 55, 62, 63 };
+
+	/** Fixed-point constants of the inverse DCT, as in libjpeg's jidctint.c. */
+	private static final int CONST_BITS = 13, PASS1_BITS = 2;
+
+	private static final int FIX_0_298631336 = 2446, FIX_0_390180644 = 3196,
+			FIX_0_541196100 = 4433, FIX_0_765366865 = 6270,
+			FIX_0_899976223 = 7373, FIX_1_175875602 = 9633,
+			FIX_1_501321110 = 12299, FIX_1_847759065 = 15137,
+			FIX_1_961570560 = 16069, FIX_2_053119869 = 16819,
+			FIX_2_562915447 = 20995, FIX_3_072711026 = 25172;
+
+	/** YCbCr to RGB conversion terms, as in libjpeg's jdcolor.c. */
+	private static final int[] CR_R = new int[256], CB_B = new int[256],
+			CR_G = new int[256], CB_G = new int[256];
+
+	static {
+		final int scaleBits = 16, half = 1 << (scaleBits - 1);
+		for (int i = 0; i < 256; i++) {
+			final int x = i - 128;
+			CR_R[i] = (fix(1.40200, scaleBits) * x + half) >> scaleBits;
+			CB_B[i] = (fix(1.77200, scaleBits) * x + half) >> scaleBits;
+			CR_G[i] = -fix(0.71414, scaleBits) * x;
+			CB_G[i] = -fix(0.34414, scaleBits) * x + half;
+		}
+	}
+
+	/** Ways of upsampling a component to the size of the image. */
+	private static final int COPY = 0, REPLICATE = 1, FANCY_H = 2,
+			FANCY_HV = 3;
+
 	// -- Fields --
 
 	@Parameter
-	private LogService log;
+	private ThreadService threadService;
+
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	private int width, height;
+
+	private Component[] components;
+
+	private final int[][] quantTables = new int[4][];
+
+	private final HuffmanTable[] dcTables = new HuffmanTable[4];
+
+	private final HuffmanTable[] acTables = new HuffmanTable[4];
+
+	private int restartInterval;
+
+	private boolean adobe, jfif;
+
+	private int transform;
 
-	private TileConsumer consumer;
+	private int hMax, vMax, mcuWidth, mcuHeight, mcusPerRow, mcuRows;
 
-	private TileCache tiles;
+	/** Whether upsampling needs the samples of neighbouring MCU rows. */
+	private boolean contextRows;
 
-	private RandomAccessInputStream in;
+	private long scanEnd;
+
+	/** Number of MCUs between two entries of the index. */
+	private int entrySpacing;
+
+	/** Offset of the byte holding the first bit of each entry. */
+	private long[] entryOffsets;
+
+	/** Number of bits of that byte already used by the previous MCU. */
+	private byte[] entryBits;
+
+	/** DC predictors of each component at each entry, or null if all zero. */
+	private int[] entryPreds;
 
 	public JPEGTileDecoder(final Context ctx) {
 		setContext(ctx);
@@ -71,321 +167,905 @@ public class JPEGTileDecoder extends AbstractContextual {
 
 	// -- JPEGTileDecoder API methods --
 
-	public void initialize(final String id, final int imageWidth) {
+	/**
+	 * Reads the headers of the JPEG stream and indexes its entropy-coded data.
+	 * The byte order of the stream is restored afterwards.
+	 */
+	public void initialize(final RandomAccessInputStream in)
+		throws FormatException, IOException
+	{
+		final boolean littleEndian = in.isLittleEndian();
+		in.order(false);
 		try {
-			initialize(new RandomAccessInputStream(getContext(), id), imageWidth);
+			in.seek(0);
+			if (in.readShort() != (short) 0xffd8) {
+				throw new FormatException("Not a JPEG stream");
+			}
+			readHeaders(in);
+			if (restartInterval > 0 && restartInterval <= ENTRY_SPACING) {
+				indexRestarts(in);
+			}
+			else indexMCUs(in);
 		}
-		catch (final IOException e) {
-			log.debug("", e);
+		finally {
+			in.order(littleEndian);
 		}
 	}
 
-	public void
-		initialize(final RandomAccessInputStream in, final int imageWidth)
-	{
-		initialize(in, 0, imageWidth);
+	public int getWidth() {
+		return width;
 	}
 
-	public void initialize(final RandomAccessInputStream in, final int y,
-		final int h)
-	{
-		this.in = in;
-		tiles = new TileCache(getContext(), y, h);
+	public int getHeight() {
+		return height;
+	}
 
-		// pre-process the stream to make sure that the
-		// image width and height are non-zero
+	/** Returns the number of interleaved samples decoded for each pixel. */
+	public int getChannels() {
+		return components.length;
+	}
 
-		try {
-			final long fp = in.getFilePointer();
-			final boolean littleEndian = in.isLittleEndian();
-			in.order(false);
-
-			while (in.getFilePointer() < in.length() - 1) {
-				final int code = in.readShort() & 0xffff;
-				final int length = in.readShort() & 0xffff;
-				final long pointer = in.getFilePointer();
-				if (length > 0xff00 || code < 0xff00) {
-					in.seek(pointer - 3);
-					continue;
-				}
-				if (code == 0xffc0) {
-					in.skipBytes(1);
-					final int height = in.readShort() & 0xffff;
-					final int width = in.readShort() & 0xffff;
-					if (height == 0 || width == 0) {
-						throw new RuntimeException(
-							"Width or height > 65500 is not supported.");
-					}
-					break;
-				}
-				else if (pointer + length - 2 < in.length()) {
-					in.seek(pointer + length - 2);
-				}
-				else {
-					break;
-				}
-			}
+	/** Sets the maximum number of MCU rows decoded concurrently. */
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
 
-			in.seek(fp);
-			in.order(littleEndian);
+	/**
+	 * Decodes the given region into {@code buf}, one byte per channel with
+	 * channels interleaved. Three-channel images are converted to RGB and
+	 * YCCK images to CMYK. Reads from the stream are synchronized on it.
+	 */
+	public void decode(final RandomAccessInputStream in, final byte[] buf,
+		final int x, final int y, final int w, final int h)
+		throws FormatException, IOException
+	{
+		if (entryOffsets == null) {
+			throw new FormatException("Decoder has not been initialized");
+		}
+		if (x < 0 || y < 0 || w <= 0 || h <= 0 || x + w > width ||
+			y + h > height)
+		{
+			throw new FormatException("Invalid region: " + x + ", " + y + ", " +
+				w + ", " + h);
+		}
+		if (buf.length < (long) w * h * getChannels()) {
+			throw new FormatException("Buffer too small");
 		}
-		catch (final IOException e) {}
 
+		final int firstRow = y / mcuHeight;
+		final int rows = (y + h - 1) / mcuHeight - firstRow + 1;
+		final AtomicInteger next = new AtomicInteger();
+		final int workers = Math.max(1, Math.min(threads, rows));
+		// rows are decoded in bands so that neighbouring rows are decoded once
+		final int bandSize = contextRows ? (rows + workers - 1) / workers : 1;
+		if (workers == 1) {
+			decodeRows(in, next, firstRow, rows, bandSize, buf, x, y, w, h);
+			return;
+		}
+		final Callable<Void> decode = () -> {
+			decodeRows(in, next, firstRow, rows, bandSize, buf, x, y, w, h);
+			return null;
+		};
+		final List<Future<Void>> tasks = new ArrayList<>();
+		for (int t = 0; t < workers; t++) {
+			tasks.add(threadService.run(decode));
+		}
 		try {
-			final Toolkit toolkit = Toolkit.getDefaultToolkit();
-			final byte[] data = new byte[this.in.available()];
-			this.in.readFully(data);
-			final Image image = toolkit.createImage(data);
-			final ImageProducer producer = image.getSource();
+			for (final Future<Void> task : tasks) {
+				task.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+		catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof FormatException) throw (FormatException) cause;
+			if (cause instanceof IOException) throw (IOException) cause;
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new FormatException(cause);
+		}
+	}
+
+	/** Discards the index. */
+	public void close() {
+		entryOffsets = null;
+		entryBits = null;
+		entryPreds = null;
+	}
+
+	// -- Helper methods - headers --
 
-			consumer = new TileConsumer(producer, y, h);
-			producer.startProduction(consumer);
-			while (producer.isConsumer(consumer)) { /* Loop over image consumers */}
+	/** Reads the marker segments up to and including the start of scan. */
+	private void readHeaders(final RandomAccessInputStream in)
+		throws FormatException, IOException
+	{
+		while (true) {
+			int marker = in.read();
+			while (marker == 0xff) {
+				marker = in.read();
+			}
+			if (marker < 0) throw new FormatException("No image data found");
+			if (marker == 0xd8 || (marker >= 0xd0 && marker <= 0xd7)) continue;
+			if (marker == 0xd9) throw new FormatException("No image data found");
+
+			final int length = in.readShort() & 0xffff;
+			final long end = in.getFilePointer() + length - 2;
+			switch (marker) {
+				case 0xc0:
+				case 0xc1:
+					readFrame(in);
+					break;
+				case 0xc2:
+				case 0xc3:
+				case 0xc5:
+				case 0xc6:
+				case 0xc7:
+				case 0xc9:
+				case 0xca:
+				case 0xcb:
+				case 0xcd:
+				case 0xce:
+				case 0xcf:
+					throw new UnsupportedCompressionException(
+						"Only baseline and extended sequential JPEG is supported");
+				case 0xc4:
+					while (in.getFilePointer() < end) {
+						readHuffmanTable(in);
+					}
+					break;
+				case 0xdb:
+					while (in.getFilePointer() < end) {
+						readQuantTable(in);
+					}
+					break;
+				case 0xdd:
+					restartInterval = in.readShort() & 0xffff;
+					break;
+				case 0xe0:
+					jfif |= length >= 7 && "JFIF".equals(in.readString(4));
+					break;
+				case 0xee:
+					if (length >= 14 && "Adobe".equals(in.readString(5))) {
+						adobe = true;
+						in.skipBytes(6);
+						transform = in.read();
+					}
+					break;
+				case 0xda:
+					readScan(in);
+					return;
+			}
+			in.seek(end);
 		}
-		catch (final IOException e) {}
 	}
 
-	public byte[] getScanline(final int y) {
-		try {
-			return tiles.get(0, y, consumer.getWidth(), 1);
+	private void readFrame(final RandomAccessInputStream in)
+		throws FormatException, IOException
+	{
+		if (in.read() != 8) {
+			throw new UnsupportedCompressionException(
+				"Only 8-bit JPEG is supported");
+		}
+		height = in.readShort() & 0xffff;
+		width = in.readShort() & 0xffff;
+		if (width == 0 || height == 0) {
+			throw new FormatException("Images with a DNL marker are not supported");
 		}
-		catch (final FormatException e) {
-			log.debug("", e);
+		components = new Component[in.read()];
+		for (int c = 0; c < components.length; c++) {
+			final Component comp = new Component();
+			comp.id = in.read();
+			final int sampling = in.read();
+			comp.h = sampling >> 4;
+			comp.v = sampling & 0xf;
+			comp.quant = in.read() & 3;
+			components[c] = comp;
+		}
+		if (components.length == 1) {
+			// a single component is never interleaved
+			components[0].h = 1;
+			components[0].v = 1;
+		}
+		for (final Component comp : components) {
+			hMax = Math.max(hMax, comp.h);
+			vMax = Math.max(vMax, comp.v);
+		}
+		mcuWidth = 8 * hMax;
+		mcuHeight = 8 * vMax;
+		mcusPerRow = (width + mcuWidth - 1) / mcuWidth;
+		mcuRows = (height + mcuHeight - 1) / mcuHeight;
+		contextRows = false;
+		for (final Component comp : components) {
+			comp.width = (width * comp.h + hMax - 1) / hMax;
+			comp.height = (height * comp.v + vMax - 1) / vMax;
+			// libjpeg only interpolates chroma subsampled by two
+			if (comp.h == hMax && comp.v == vMax) comp.upsampling = COPY;
+			else if (comp.h * 2 != hMax || comp.width <= 2) {
+				comp.upsampling = REPLICATE;
+			}
+			else if (comp.v == vMax) comp.upsampling = FANCY_H;
+			else if (comp.v * 2 == vMax) comp.upsampling = FANCY_HV;
+			else comp.upsampling = REPLICATE;
+			contextRows |= comp.upsampling == FANCY_HV;
 		}
-		return null;
 	}
 
-	public int getWidth() {
-		return consumer.getWidth();
+	private void readHuffmanTable(final RandomAccessInputStream in)
+		throws IOException
+	{
+		final int type = in.read();
+		final int[] counts = new int[17];
+		int total = 0;
+		for (int len = 1; len <= 16; len++) {
+			counts[len] = in.read();
+			total += counts[len];
+		}
+		final int[] values = new int[total];
+		for (int i = 0; i < total; i++) {
+			values[i] = in.read();
+		}
+		final HuffmanTable table = new HuffmanTable(counts, values);
+		if ((type >> 4) == 0) dcTables[type & 3] = table;
+		else acTables[type & 3] = table;
 	}
 
-	public int getHeight() {
-		return consumer.getHeight();
+	private void readQuantTable(final RandomAccessInputStream in)
+		throws IOException
+	{
+		final int type = in.read();
+		final int[] table = new int[64];
+		for (int k = 0; k < 64; k++) {
+			table[k] = (type >> 4) == 0 ? in.read() : in.readShort() & 0xffff;
+		}
+		quantTables[type & 3] = table;
 	}
 
-	public void close() {
-		try {
-			if (in != null) {
-				in.close();
-			}
+	private void readScan(final RandomAccessInputStream in)
+		throws FormatException, IOException
+	{
+		if (components == null) throw new FormatException("Missing frame header");
+		final int count = in.read();
+		if (count != components.length) {
+			throw new UnsupportedCompressionException(
+				"Only single-scan JPEG is supported");
 		}
-		catch (final IOException e) {
-			log.debug("", e);
+		for (int i = 0; i < count; i++) {
+			final int id = in.read();
+			final int tables = in.read();
+			Component comp = null;
+			for (final Component c : components) {
+				if (c.id == id) comp = c;
+			}
+			if (comp == null) throw new FormatException("Unknown component " + id);
+			comp.dc = dcTables[tables >> 4];
+			comp.ac = acTables[tables & 3];
+			comp.quantTable = quantTables[comp.quant];
+			if (comp.dc == null || comp.ac == null || comp.quantTable == null) {
+				throw new FormatException("Missing table for component " + id);
+			}
 		}
-		tiles = null;
-		consumer = null;
+		in.skipBytes(3);
 	}
 
-	// -- Helper classes --
+	// -- Helper methods - indexing --
 
-	class TileConsumer implements ImageConsumer {
+	/** Indexes the entries by locating the restart markers. */
+	private void indexRestarts(final RandomAccessInputStream in)
+		throws IOException
+	{
+		final int stride = (ENTRY_SPACING + restartInterval - 1) / restartInterval;
+		entrySpacing = stride * restartInterval;
+		final int mcus = mcusPerRow * mcuRows;
+		final int entries = (mcus + entrySpacing - 1) / entrySpacing;
+		entryOffsets = new long[entries];
+		entryBits = new byte[entries];
+		entryPreds = null;
+		entryOffsets[0] = in.getFilePointer();
+
+		scanEnd = in.length();
+		final byte[] buf = new byte[CHUNK_SIZE];
+		long base = in.getFilePointer();
+		int restarts = 0, entry = 1;
+		boolean marker = false;
+		scan: for (int n; (n = in.read(buf)) > 0; base += n) {
+			for (int i = 0; i < n; i++) {
+				final int b = buf[i] & 0xff;
+				if (marker) {
+					if (b >= 0xd0 && b <= 0xd7) {
+						if (++restarts % stride == 0 && entry < entries) {
+							entryOffsets[entry++] = base + i + 1;
+						}
+					}
+					else if (b != 0 && b != 0xff) {
+						scanEnd = base + i - 1;
+						break scan;
+					}
+				}
+				marker = b == 0xff;
+			}
+		}
+		// missing restart markers decode as empty data
+		Arrays.fill(entryOffsets, entry, entries, scanEnd);
+	}
 
-		private int width, height;
+	/**
+	 * Indexes the entries by walking the Huffman codes of every MCU, for images
+	 * without restart markers or with restart intervals longer than the
+	 * spacing of the entries.
+	 */
+	private void indexMCUs(final RandomAccessInputStream in)
+		throws FormatException, IOException
+	{
+		entrySpacing = ENTRY_SPACING;
+		final int mcus = mcusPerRow * mcuRows;
+		final int entries = (mcus + entrySpacing - 1) / entrySpacing;
+		entryOffsets = new long[entries];
+		entryBits = new byte[entries];
+		entryPreds = new int[entries * components.length];
+
+		final BitReader reader = new BitReader(in, in.getFilePointer());
+		final int[] preds = new int[components.length];
+		for (int m = 0; m < mcus; m++) {
+			if (restartInterval > 0 && m > 0 && m % restartInterval == 0) {
+				reader.restart();
+				Arrays.fill(preds, 0);
+			}
+			if (m % entrySpacing == 0) {
+				final int entry = m / entrySpacing;
+				entryOffsets[entry] = reader.getOffset();
+				entryBits[entry] = (byte) reader.getUsedBits();
+				System.arraycopy(preds, 0, entryPreds, entry * preds.length,
+					preds.length);
+			}
+			skipMCU(reader, preds);
+		}
+		scanEnd = Math.min(in.length(), reader.getOffset() + 2);
+	}
 
-		private final ImageProducer producer;
+	// -- Helper methods - decoding --
 
-		private int yy = 0, hh = 0;
+	/** Decodes bands of MCU rows of the region until none are left. */
+	private void decodeRows(final RandomAccessInputStream in,
+		final AtomicInteger next, final int firstRow, final int rows,
+		final int bandSize, final byte[] buf, final int x, final int y,
+		final int w, final int h) throws FormatException, IOException
+	{
+		// interpolated chroma needs the samples next to the region
+		final int margin = contextRows || hasUpsampling(FANCY_H) ? hMax : 0;
+		final int firstColumn = Math.max(0, x - margin) / mcuWidth;
+		final int columns =
+			Math.min(width - 1, x + w - 1 + margin) / mcuWidth - firstColumn + 1;
+		for (int b = next.getAndIncrement(); b * bandSize < rows; b = next
+			.getAndIncrement())
+		{
+			final int start = firstRow + b * bandSize;
+			final int end = Math.min(firstRow + rows, start + bandSize);
+			byte[][] above = null;
+			if (contextRows && start > 0 && y <= start * mcuHeight) {
+				above = decodeRow(in, start - 1, firstColumn, columns);
+			}
+			byte[][] current = decodeRow(in, start, firstColumn, columns);
+			for (int row = start; row < end; row++) {
+				byte[][] below = null;
+				if (row + 1 < end || (contextRows && row + 1 < mcuRows &&
+					y + h >= (row + 1) * mcuHeight))
+				{
+					below = decodeRow(in, row + 1, firstColumn, columns);
+				}
+				writeRow(row, above, current, below, firstColumn, columns, buf, x, y,
+					w, h);
+				above = current;
+				current = below;
+			}
+		}
+	}
 
-		public TileConsumer(final ImageProducer producer) {
-			this.producer = producer;
+	/**
+	 * Decodes the samples of the given columns of an MCU row, one plane per
+	 * component.
+	 */
+	private byte[][] decodeRow(final RandomAccessInputStream in, final int row,
+		final int firstColumn, final int columns) throws FormatException,
+		IOException
+	{
+		final int first = row * mcusPerRow + firstColumn;
+		final int last = first + columns - 1;
+
+		// read the entropy-coded bytes from the nearest entry
+		final int entry = first / entrySpacing;
+		final int endEntry = last / entrySpacing + 1;
+		final long start = entryOffsets[entry];
+		final long end = endEntry < entryOffsets.length ? Math.min(scanEnd,
+			entryOffsets[endEntry] + 2) : scanEnd;
+		final byte[] data = new byte[(int) Math.max(0, end - start)];
+		synchronized (in) {
+			in.seek(start);
+			in.readFully(data);
 		}
+		final BitReader reader = new BitReader(data, start);
+		reader.skipBits(entryBits[entry]);
 
-		public TileConsumer(final ImageProducer producer, final int y, final int h)
-		{
-			this(producer);
-			this.yy = y;
-			this.hh = h;
+		final int[] preds = new int[components.length];
+		if (entryPreds != null) {
+			System.arraycopy(entryPreds, entry * preds.length, preds, 0,
+				preds.length);
 		}
 
-		// -- TileConsumer API methods --
+		final byte[][] planes = new byte[components.length][];
+		for (int c = 0; c < components.length; c++) {
+			planes[c] = new byte[stride(c, columns) * components[c].v * 8];
+		}
+		final int[] coefs = new int[64];
+		final int[] workspace = new int[64];
+		for (int m = entry * entrySpacing; m <= last; m++) {
+			if (restartInterval > 0 && m > entry * entrySpacing &&
+				m % restartInterval == 0)
+			{
+				reader.restart();
+				Arrays.fill(preds, 0);
+			}
+			if (m < first) {
+				skipMCU(reader, preds);
+				continue;
+			}
+			final int column = m - first;
+			for (int c = 0; c < components.length; c++) {
+				final Component comp = components[c];
+				final int stride = stride(c, columns);
+				for (int v = 0; v < comp.v; v++) {
+					for (int u = 0; u < comp.h; u++) {
+						Arrays.fill(coefs, 0);
+						preds[c] = decodeBlock(reader, comp, preds[c], coefs);
+						idct(coefs, workspace, planes[c], (v * 8) * stride + (column *
+							comp.h + u) * 8, stride);
+					}
+				}
+			}
+		}
+		return planes;
+	}
 
-		public int getWidth() {
-			return width;
+	/**
+	 * Upsamples and converts the decoded pixels of an MCU row which lie in the
+	 * region. The neighbouring rows are only used by interpolated chroma, and
+	 * are null at the edges of the image or of the region.
+	 */
+	private void writeRow(final int row, final byte[][] above,
+		final byte[][] current, final byte[][] below, final int firstColumn,
+		final int columns, final byte[] buf, final int x, final int y,
+		final int w, final int h)
+	{
+		final int channels = components.length;
+		final int y0 = row * mcuHeight;
+		final int rowStart = Math.max(y, y0);
+		final int rowEnd = Math.min(y + h, y0 + mcuHeight);
+		final boolean ycc = channels == 3 && isYCbCr();
+		final boolean ycck = channels == 4 && adobe && transform == 2;
+		final int[][] lines = new int[channels][w];
+		final int[] sample = new int[channels];
+		for (int py = rowStart; py < rowEnd; py++) {
+			for (int c = 0; c < channels; c++) {
+				upsample(c, row, py, above, current, below, firstColumn, columns,
+					lines[c], x, w);
+			}
+			int index = ((py - y) * w) * channels;
+			for (int i = 0; i < w; i++) {
+				for (int c = 0; c < channels; c++) {
+					sample[c] = lines[c][i];
+				}
+				if (ycc || ycck) toRGB(sample);
+				if (ycck) {
+					for (int c = 0; c < 3; c++) {
+						sample[c] = 255 - sample[c];
+					}
+				}
+				for (int c = 0; c < channels; c++) {
+					buf[index++] = (byte) sample[c];
+				}
+			}
 		}
+	}
 
-		public int getHeight() {
-			return height;
+	/**
+	 * Computes the samples of one component along image row {@code py}, for
+	 * the {@code w} pixels from {@code x}, as libjpeg's jdsample.c does.
+	 */
+	private void upsample(final int c, final int row, final int py,
+		final byte[][] above, final byte[][] current, final byte[][] below,
+		final int firstColumn, final int columns, final int[] line, final int x,
+		final int w)
+	{
+		final Component comp = components[c];
+		final int stride = stride(c, columns);
+		final int rowSamples = comp.v * 8;
+		// offsets are relative to absolute sample columns
+		final int x0 = firstColumn * comp.h * 8;
+		final int sy = py * comp.v / vMax;
+		final byte[] plane = current[c];
+		final int offset = (sy - row * rowSamples) * stride - x0;
+		final int last = comp.width - 1;
+		switch (comp.upsampling) {
+			case FANCY_H:
+				for (int i = 0; i < w; i++) {
+					final int px = x + i, col = px >> 1;
+					final int s = plane[offset + col] & 0xff;
+					if ((px & 1) == 0) {
+						line[i] = col == 0 ? s
+							: (3 * s + (plane[offset + col - 1] & 0xff) + 1) >> 2;
+					}
+					else {
+						line[i] = col == last ? s
+							: (3 * s + (plane[offset + col + 1] & 0xff) + 2) >> 2;
+					}
+				}
+				break;
+			case FANCY_HV: {
+				// the nearer sample row, replicated at the edges of the image
+				final int ny = Math.max(0, Math.min(comp.height - 1,
+					(py & 1) == 0 ? sy - 1 : sy + 1));
+				int local = ny - row * rowSamples;
+				final byte[] nplane;
+				if (local < 0) {
+					nplane = above[c];
+					local += rowSamples;
+				}
+				else if (local >= rowSamples) {
+					nplane = below[c];
+					local -= rowSamples;
+				}
+				else nplane = plane;
+				final int noffset = local * stride - x0;
+				for (int i = 0; i < w; i++) {
+					final int px = x + i, col = px >> 1;
+					final int sum = 3 * (plane[offset + col] & 0xff) +
+						(nplane[noffset + col] & 0xff);
+					if ((px & 1) == 0) {
+						line[i] = col == 0 ? (sum * 4 + 8) >> 4 : (3 * sum + 3 *
+							(plane[offset + col - 1] & 0xff) + (nplane[noffset + col - 1] &
+								0xff) + 8) >> 4;
+					}
+					else {
+						line[i] = col == last ? (sum * 4 + 7) >> 4 : (3 * sum + 3 *
+							(plane[offset + col + 1] & 0xff) + (nplane[noffset + col + 1] &
+								0xff) + 7) >> 4;
+					}
+				}
+				break;
+			}
+			default:
+				for (int i = 0; i < w; i++) {
+					line[i] = plane[offset + (x + i) * comp.h / hMax] & 0xff;
+				}
 		}
+	}
 
-		// -- ImageConsumer API methods --
+	/** Returns the length of a sample row of the given component. */
+	private int stride(final int c, final int columns) {
+		return columns * components[c].h * 8;
+	}
 
-		@Override
-		public void imageComplete(final int status) {
-			producer.removeConsumer(this);
+	private boolean hasUpsampling(final int upsampling) {
+		for (final Component comp : components) {
+			if (comp.upsampling == upsampling) return true;
 		}
+		return false;
+	}
 
-		@Override
-		public void setDimensions(final int width, final int height) {
-			this.width = width;
-			this.height = height;
-			if (hh <= 0) hh = height;
+	/**
+	 * Walks the coefficients of one MCU so that the reader and DC predictors
+	 * advance past it.
+	 */
+	private void skipMCU(final BitReader reader, final int[] preds)
+		throws FormatException, IOException
+	{
+		for (int c = 0; c < components.length; c++) {
+			final Component comp = components[c];
+			for (int b = comp.h * comp.v; b > 0; b--) {
+				preds[c] = decodeBlock(reader, comp, preds[c], null);
+			}
 		}
+	}
 
-		@Override
-		public void setPixels(final int x, final int y, final int w, final int h,
-			final ColorModel model, final byte[] pixels, final int off,
-			final int scanSize)
-		{
-			final double percent = ((double) y / height) * 100.0;
-			log.debug("Storing row " + y + " of " + height + " (" + percent + "%)");
-			if (y >= (yy + hh)) {
-				imageComplete(0);
-				return;
-			}
-			else if (y < yy) return;
-			try {
-				tiles.add(pixels, x, y, w);
-			}
-			catch (final FormatException e) {
-				log.debug("", e);
+	/**
+	 * Decodes one block into dequantized natural-order coefficients, or skips
+	 * it if {@code coefs} is null. Returns the new DC predictor.
+	 */
+	private int decodeBlock(final BitReader reader, final Component comp,
+		final int pred, final int[] coefs) throws FormatException, IOException
+	{
+		final int size = comp.dc.decode(reader);
+		final int dc = pred + extend(reader.getBits(size), size);
+		if (coefs != null) coefs[0] = dc * comp.quantTable[0];
+		for (int k = 1; k < 64;) {
+			final int rs = comp.ac.decode(reader);
+			final int r = rs >> 4, s = rs & 0xf;
+			if (s == 0) {
+				if (r != 15) break;
+				k += 16;
+				continue;
 			}
+			k += r;
+			if (k > 63) throw new FormatException("Corrupt JPEG data");
+			final int value = extend(reader.getBits(s), s);
+			if (coefs != null) coefs[ZIGZAG[k]] = value * comp.quantTable[k];
+			k++;
 		}
+		return dc;
+	}
 
-		@Override
-		public void setPixels(final int x, final int y, final int w, final int h,
-			final ColorModel model, final int[] pixels, final int off,
-			final int scanSize)
-		{
-			final double percent = ((double) y / (yy + hh)) * 100.0;
-			log
-				.debug("Storing row " + y + " of " + (yy + hh) + " (" + percent + "%)");
-			if (y >= (yy + hh)) {
-				imageComplete(0);
-				return;
-			}
-			else if (y < yy) return;
-			try {
-				tiles.add(pixels, x, y, w);
+	private boolean isYCbCr() {
+		if (adobe) return transform != 0;
+		if (jfif) return true;
+		return components[0].id != 'R' || components[1].id != 'G' ||
+			components[2].id != 'B';
+	}
+
+	// -- Helper methods - static --
+
+	private static int extend(final int value, final int size) {
+		if (size == 0) return 0;
+		return value < 1 << (size - 1) ? value - (1 << size) + 1 : value;
+	}
+
+	/**
+	 * Accurate integer inverse DCT of one block into 8 rows of the given plane,
+	 * as in libjpeg's jidctint.c.
+	 */
+	private static void idct(final int[] coefs, final int[] workspace,
+		final byte[] out, final int offset, final int stride)
+	{
+		// columns
+		for (int col = 0; col < 8; col++) {
+			if (coefs[8 + col] == 0 && coefs[16 + col] == 0 &&
+				coefs[24 + col] == 0 && coefs[32 + col] == 0 &&
+				coefs[40 + col] == 0 && coefs[48 + col] == 0 && coefs[56 + col] == 0)
+			{
+				final int dc = coefs[col] << PASS1_BITS;
+				for (int row = 0; row < 8; row++) {
+					workspace[row * 8 + col] = dc;
+				}
+				continue;
 			}
-			catch (final FormatException e) {
-				log.debug("", e);
+			idct1D(coefs, col, 8, workspace, col, 8, CONST_BITS - PASS1_BITS);
+		}
+		// rows, level shifted and clamped
+		final int[] row = new int[8];
+		for (int r = 0; r < 8; r++) {
+			idct1D(workspace, r * 8, 1, row, 0, 1, CONST_BITS + PASS1_BITS + 3);
+			for (int x = 0; x < 8; x++) {
+				out[offset + r * stride + x] = (byte) clamp(row[x] + 128);
 			}
 		}
+	}
 
-		@Override
-		public void setProperties(final Hashtable<?, ?> props) {}
-
-		@Override
-		public void setColorModel(final ColorModel model) {}
+	/** One-dimensional pass of {@link #idct}, descaling by {@code shift}. */
+	private static void idct1D(final int[] in, final int inOffset,
+		final int inStep, final int[] out, final int outOffset, final int outStep,
+		final int shift)
+	{
+		// even part
+		int z2 = in[inOffset + 2 * inStep], z3 = in[inOffset + 6 * inStep];
+		int z1 = (z2 + z3) * FIX_0_541196100;
+		int tmp2 = z1 + z3 * -FIX_1_847759065;
+		int tmp3 = z1 + z2 * FIX_0_765366865;
+		z2 = in[inOffset];
+		z3 = in[inOffset + 4 * inStep];
+		int tmp0 = (z2 + z3) << CONST_BITS;
+		int tmp1 = (z2 - z3) << CONST_BITS;
+		final int tmp10 = tmp0 + tmp3, tmp13 = tmp0 - tmp3;
+		final int tmp11 = tmp1 + tmp2, tmp12 = tmp1 - tmp2;
+
+		// odd part
+		tmp0 = in[inOffset + 7 * inStep];
+		tmp1 = in[inOffset + 5 * inStep];
+		tmp2 = in[inOffset + 3 * inStep];
+		tmp3 = in[inOffset + inStep];
+		z1 = tmp0 + tmp3;
+		z2 = tmp1 + tmp2;
+		z3 = tmp0 + tmp2;
+		int z4 = tmp1 + tmp3;
+		final int z5 = (z3 + z4) * FIX_1_175875602;
+		tmp0 *= FIX_0_298631336;
+		tmp1 *= FIX_2_053119869;
+		tmp2 *= FIX_3_072711026;
+		tmp3 *= FIX_1_501321110;
+		z1 *= -FIX_0_899976223;
+		z2 *= -FIX_2_562915447;
+		z3 = z3 * -FIX_1_961570560 + z5;
+		z4 = z4 * -FIX_0_390180644 + z5;
+		tmp0 += z1 + z3;
+		tmp1 += z2 + z4;
+		tmp2 += z2 + z3;
+		tmp3 += z1 + z4;
+
+		final int round = 1 << (shift - 1);
+		out[outOffset] = (tmp10 + tmp3 + round) >> shift;
+		out[outOffset + 7 * outStep] = (tmp10 - tmp3 + round) >> shift;
+		out[outOffset + outStep] = (tmp11 + tmp2 + round) >> shift;
+		out[outOffset + 6 * outStep] = (tmp11 - tmp2 + round) >> shift;
+		out[outOffset + 2 * outStep] = (tmp12 + tmp1 + round) >> shift;
+		out[outOffset + 5 * outStep] = (tmp12 - tmp1 + round) >> shift;
+		out[outOffset + 3 * outStep] = (tmp13 + tmp0 + round) >> shift;
+		out[outOffset + 4 * outStep] = (tmp13 - tmp0 + round) >> shift;
+	}
 
-		@Override
-		public void setHints(final int hintFlags) {}
+	/** Converts a YCbCr sample to RGB, as in libjpeg's jdcolor.c. */
+	private static void toRGB(final int[] sample) {
+		final int lum = sample[0], cb = sample[1], cr = sample[2];
+		sample[0] = clamp(lum + CR_R[cr]);
+		sample[1] = clamp(lum + ((CB_G[cb] + CR_G[cr]) >> 16));
+		sample[2] = clamp(lum + CB_B[cb]);
 	}
 
-	class TileCache {
+	/** Converts a constant to fixed point with the given fractional bits. */
+	private static int fix(final double value, final int bits) {
+		return (int) (value * (1 << bits) + 0.5);
+	}
 
-		private static final int ROW_COUNT = 128;
+	private static int clamp(final int value) {
+		return value < 0 ? 0 : value > 255 ? 255 : value;
+	}
 
-		private final Hashtable<IntRect, byte[]> compressedTiles =
-			new Hashtable<>();
+	// -- Helper classes --
 
-		private final JPEGCodec codec;
+	private static class Component {
 
-		private final CodecOptions options = new CodecOptions();
+		private int id, h, v, quant;
 
-		private final ByteVector toCompress = new ByteVector();
+		/** Size of the component in samples, without MCU padding. */
+		private int width, height;
 
-		@Parameter
-		private CodecService codecService;
+		private int upsampling;
 
-		private int row = 0;
+		private int[] quantTable;
 
-		private IntRect lastRegion = null;
+		private HuffmanTable dc, ac;
+	}
 
-		private byte[] lastTile = null;
+	/** Canonical Huffman table, decoded one bit at a time. */
+	private static class HuffmanTable {
 
-		private int yy = 0, hh = 0;
+		private final int[] maxCode = new int[17];
 
-		public TileCache(final Context ctx, final int yy, final int hh) {
-			ctx.inject(this);
-			options.interleaved = true;
-			options.littleEndian = false;
-			this.yy = yy;
-			this.hh = hh;
-			codec = codecService.getCodec(JPEGCodec.class);
-		}
+		private final int[] offsets = new int[17];
 
-		public void add(final byte[] pixels, final int x, final int y, final int w)
-			throws FormatException
-		{
-			toCompress.add(pixels);
-			row++;
+		private final int[] values;
 
-			if ((y % ROW_COUNT) == ROW_COUNT - 1 || y == getHeight() - 1 ||
-				y == yy + hh - 1)
-			{
-				final IntRect r = new IntRect(x, y - row + 1, w, row);
-				options.width = w;
-				options.height = row;
-				options.channels = 1;
-				options.bitsPerSample = 8;
-				options.signed = false;
-
-				final byte[] compressed =
-					codec.compress(toCompress.toByteArray(), options);
-				compressedTiles.put(r, compressed);
-				toCompress.clear();
+		private HuffmanTable(final int[] counts, final int[] values) {
+			this.values = values;
+			int code = 0, index = 0;
+			for (int len = 1; len <= 16; len++) {
+				offsets[len] = index - code;
+				code += counts[len];
+				index += counts[len];
+				maxCode[len] = counts[len] == 0 ? -1 : code - 1;
+				code <<= 1;
 			}
 		}
 
-		public void add(final int[] pixels, final int x, final int y, final int w)
-			throws FormatException
+		private int decode(final BitReader reader) throws FormatException,
+			IOException
 		{
-			final byte[] buf = new byte[pixels.length * 3];
-			for (int i = 0; i < pixels.length; i++) {
-				buf[i * 3] = (byte) ((pixels[i] & 0xff0000) >> 16);
-				buf[i * 3 + 1] = (byte) ((pixels[i] & 0xff00) >> 8);
-				buf[i * 3 + 2] = (byte) (pixels[i] & 0xff);
+			int code = 0;
+			for (int len = 1; len <= 16; len++) {
+				code = (code << 1) | reader.getBit();
+				if (code <= maxCode[len]) return values[offsets[len] + code];
 			}
+			throw new FormatException("Corrupt JPEG data");
+		}
+	}
 
-			toCompress.add(buf);
-			row++;
+	/**
+	 * Reads entropy-coded bits, removing stuffed zero bytes. Bits past a marker
+	 * or the end of the data read as zero.
+	 */
+	private static class BitReader {
 
-			if ((y % ROW_COUNT) == ROW_COUNT - 1 || y == getHeight() - 1 ||
-				y == yy + hh - 1)
-			{
-				final IntRect r = new IntRect(x, y - row + 1, w, row);
-				options.width = w;
-				options.height = row;
-				options.channels = 3;
-				options.bitsPerSample = 8;
-				options.signed = false;
-
-				final byte[] compressed =
-					codec.compress(toCompress.toByteArray(), options);
-				compressedTiles.put(r, compressed);
-				toCompress.clear();
-				row = 0;
+		private final RandomAccessInputStream in;
+
+		private byte[] buf;
+
+		private long base;
+
+		private int pos, limit;
+
+		/** Current byte, and the number of its bits not yet read. */
+		private int current, bits;
+
+		/** Offset of the current byte. */
+		private long currentOffset;
+
+		/** Whether a marker was reached. */
+		private boolean marker;
+
+		/** Reads from the stream, starting at the given offset. */
+		private BitReader(final RandomAccessInputStream in, final long offset) {
+			this.in = in;
+			buf = new byte[CHUNK_SIZE];
+			base = offset;
+		}
+
+		/** Reads from the given bytes, located at the given offset. */
+		private BitReader(final byte[] data, final long offset) {
+			in = null;
+			buf = data;
+			base = offset;
+			limit = data.length;
+		}
+
+		/** Returns the offset of the byte holding the next bit. */
+		private long getOffset() {
+			return bits > 0 ? currentOffset : base + pos;
+		}
+
+		/** Returns the number of bits of that byte already read. */
+		private int getUsedBits() {
+			return bits > 0 ? 8 - bits : 0;
+		}
+
+		private void skipBits(final int count) throws IOException {
+			if (count > 0) getBits(count);
+		}
+
+		private int getBit() throws IOException {
+			if (bits == 0) fill();
+			return (current >> --bits) & 1;
+		}
+
+		private int getBits(final int count) throws IOException {
+			int value = 0;
+			for (int i = 0; i < count; i++) {
+				value = (value << 1) | getBit();
 			}
+			return value;
 		}
 
-		public byte[] get(final int x, final int y, final int w, final int h)
-			throws FormatException
-		{
-			final IntRect[] keys = compressedTiles.keySet().toArray(new IntRect[0]);
-			IntRect r = new IntRect(x, y, w, h);
-			for (final IntRect key : keys) {
-				if (key.intersects(r)) {
-					r = key;
-				}
+		/** Discards the remaining bits and skips the next restart marker. */
+		private void restart() throws IOException {
+			bits = 0;
+			if (marker) {
+				marker = false;
+				return;
 			}
-			if (!r.equals(lastRegion)) {
-				lastRegion = r;
-				byte[] compressed = null;
-				compressed = compressedTiles.get(r);
-				if (compressed == null) return null;
-				lastTile = codec.decompress(compressed, options);
+			for (int b = read(); b >= 0; b = read()) {
+				if (b != 0xff) continue;
+				int code = read();
+				while (code == 0xff) {
+					code = read();
+				}
+				if (code >= 0xd0 && code <= 0xd7) return;
 			}
+		}
 
-			final int pixel = options.channels * (options.bitsPerSample / 8);
-			final byte[] buf = new byte[w * h * pixel];
-
-			for (int i = 0; i < h; i++) {
-				System.arraycopy(lastTile, r.width * pixel * (i + y - r.y) + (x - r.x),
-					buf, i * w * pixel, pixel * w);
+		private void fill() throws IOException {
+			bits = 8;
+			current = 0;
+			if (marker) return;
+			currentOffset = base + pos;
+			final int b = read();
+			if (b < 0) return;
+			if (b == 0xff) {
+				final int next = read();
+				if (next != 0) {
+					marker = true;
+					return;
+				}
 			}
+			current = b;
+		}
 
-			return buf;
+		private int read() throws IOException {
+			if (pos == limit) {
+				if (in == null) return -1;
+				base += limit;
+				pos = 0;
+				in.seek(base);
+				limit = Math.max(0, in.read(buf));
+				if (limit == 0) return -1;
+			}
+			return buf[pos++] & 0xff;
 		}
 	}
 
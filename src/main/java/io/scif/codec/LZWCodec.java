@@ -73,6 +73,11 @@ import org.scijava.plugin.Plugin;
  * Thus, we can claim than the number of bytes in compressed output never
  * exceeds 1.41*(number of input bytes)+3.
  * </p>
+ * <p>
+ * The hash table, string table and compressor output buffer are allocated
+ * once per thread and reused for each strip, and byte array input is decoded
+ * without wrapping it in a stream.
+ * </p>
  *
  * @author Mikhail Kovtun
  */
@@ -80,14 +85,17 @@ import org.scijava.plugin.Plugin;
 public class LZWCodec extends AbstractCodec {
 
 	/**
-	 * Size of hash table. Must be greater 3837 (the number of possible codes).
-	 * Bigger size reduces number of rehashing steps -- at expence of
-	 * initialization time.
+	 * Number of bits in a hash table index. The table size must be greater than
+	 * 3837 (the number of possible codes). Bigger size reduces number of
+	 * rehashing steps -- at expence of initialization time.
 	 */
-	private static final int HASH_SIZE = 7349;
+	private static final int HASH_BITS = 13;
 
-	/** Rehashing step. HASH_SIZE and HASH_STEP shoulg be coprime. */
-	private static final int HASH_STEP = 257;
+	/** Size of hash table. */
+	private static final int HASH_SIZE = 1 << HASH_BITS;
+
+	/** Multiplier for Fibonacci hashing of (code,byte) pairs. */
+	private static final int HASH_MULTIPLIER = 0x9e3779b1;
 
 	private static final int CLEAR_CODE = 256;
 
@@ -95,6 +103,9 @@ public class LZWCodec extends AbstractCodec {
 
 	private static final int FIRST_CODE = 258;
 
+	/** Largest compressor output buffer kept for reuse by a thread. */
+	private static final int MAX_RETAINED_OUTPUT = 4 * 1024 * 1024;
+
 	/** Masks for writing bits in compressor. */
 	private static final int[] COMPR_MASKS = { 0xff, 0x7f, 0x3f, 0x1f, 0x0f,
 		0x07, 0x03, 0x01 };
@@ -103,6 +114,18 @@ public class LZWCodec extends AbstractCodec {
 	private static final int[] DECOMPR_MASKS = { 0x00, 0x01, 0x03, 0x07, 0x0f,
 		0x1f, 0x3f, 0x7f };
 
+	// -- Fields --
+
+	private final ThreadLocal<Tables> tables = new ThreadLocal<Tables>() {
+
+		@Override
+		protected Tables initialValue() {
+			return new Tables();
+		}
+	};
+
+	// -- Codec API methods --
+
 	@Override
 	public byte[] compress(final byte[] input, final CodecOptions options)
 		throws FormatException
@@ -114,7 +137,8 @@ public class LZWCodec extends AbstractCodec {
 		if (bufferSize > Integer.MAX_VALUE) {
 			throw new FormatException("Output buffer is greater than 2 GB");
 		}
-		final byte[] output = new byte[(int) bufferSize];
+		final Tables t = tables.get();
+		final byte[] output = t.getOutput((int) bufferSize);
 
 		// Current size of output buffer (and position to write next byte).
 		int outSize = 0;
@@ -131,8 +155,8 @@ public class LZWCodec extends AbstractCodec {
 		// Keys in the table are pairs (code,byte) and values are codes.
 		// Pair (code,byte) is represented as ( (code<<8) | byte ).
 		// Unused table entries have key=-1.
-		final int[] htKeys = new int[HASH_SIZE];
-		final int[] htValues = new int[HASH_SIZE];
+		final int[] htKeys = t.htKeys;
+		final int[] htValues = t.htValues;
 		// Initialize hash table: mark all entries as unused
 		Arrays.fill(htKeys, -1);
 
@@ -150,7 +174,7 @@ public class LZWCodec extends AbstractCodec {
 		for (int currInPos = 1; currInPos < input.length; currInPos++) {
 			tiffK = input[currInPos] & 0xff;
 			final int hashKey = (tiffOmega << 8) | tiffK;
-			int hashCode = hashKey % HASH_SIZE;
+			int hashCode = (hashKey * HASH_MULTIPLIER) >>> (32 - HASH_BITS);
 			do {
 				if (htKeys[hashCode] == hashKey) {
 					// Omega+K in the table
@@ -178,7 +202,7 @@ public class LZWCodec extends AbstractCodec {
 				}
 				else {
 					// we have to rehash
-					hashCode = (hashCode + HASH_STEP) % HASH_SIZE;
+					hashCode = (hashCode + 1) & (HASH_SIZE - 1);
 				}
 			}
 			while (true);
@@ -251,9 +275,24 @@ public class LZWCodec extends AbstractCodec {
 			output[outSize++] = (byte) (currOutByte << freeBits);
 		}
 
-		final byte[] result = new byte[outSize];
-		System.arraycopy(output, 0, result, 0, outSize);
-		return result;
+		return Arrays.copyOf(output, outSize);
+	}
+
+	/**
+	 * The CodecOptions parameter should have the following fields set:
+	 * {@link CodecOptions#maxBytes maxBytes}
+	 *
+	 * @see Codec#decompress(byte[], CodecOptions)
+	 */
+	@Override
+	public byte[] decompress(final byte[] data, CodecOptions options)
+		throws FormatException
+	{
+		if (data == null || data.length == 0) return null;
+		if (options == null) options = CodecOptions.getDefaultOptions();
+		final byte[] output = new byte[options.maxBytes];
+		decompress(data, 0, data.length, output, 0, output.length);
+		return output;
 	}
 
 	/**
@@ -269,10 +308,62 @@ public class LZWCodec extends AbstractCodec {
 		if (in == null || in.length() == 0) return null;
 		if (options == null) options = CodecOptions.getDefaultOptions();
 
-		// Output buffer
+		final long fp = in.getFilePointer();
+		final long available = in.length() - fp;
 		final byte[] output = new byte[options.maxBytes];
+
+		// Each code is at most 12 bits and yields at least one byte, apart from
+		// the occasional clear code, so reading a little more than 1.5 bytes per
+		// output byte is enough for all but pathological data. If the window
+		// runs out first, decode again from a larger one.
+		long window = Math.min(available, output.length + output.length / 2L +
+			output.length / 128 + 16);
+		while (true) {
+			final byte[] input = new byte[(int) Math.min(window,
+				Integer.MAX_VALUE - 8)];
+			in.seek(fp);
+			in.readFully(input);
+			final int consumed =
+				decompress(input, 0, input.length, output, 0, output.length);
+			if (!tables.get().starved || window >= available ||
+				input.length < window)
+			{
+				in.seek(fp + consumed);
+				return output;
+			}
+			window = Math.min(available, 2 * window);
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Decompresses LZW data directly into a region of an existing array.
+	 * Decoding stops at the end of information code, at the end of the input,
+	 * or when the output region is full; whether the input ran out first is
+	 * recorded in the thread's {@link Tables#starved} flag.
+	 *
+	 * @param input The array holding the compressed data.
+	 * @param inOffset Offset of the compressed data in {@code input}.
+	 * @param inLength Number of bytes of compressed data.
+	 * @param output The array to receive the decompressed data.
+	 * @param outOffset Offset in {@code output} at which to write.
+	 * @param maxBytes Maximum number of bytes to write to {@code output}.
+	 * @return The number of bytes of compressed data consumed.
+	 * @throws FormatException If the compressed data is invalid.
+	 */
+	private int decompress(final byte[] input, final int inOffset,
+		final int inLength, final byte[] output, final int outOffset,
+		final int maxBytes) throws FormatException
+	{
+		// End of the output region
+		final int outEnd = outOffset + maxBytes;
 		// Position in output buffer to write next byte to
-		int currOutPos = 0;
+		int currOutPos = outOffset;
+		// End of the input region
+		final int inEnd = inOffset + inLength;
+		// Position in input buffer to read next byte from
+		int currInPos = inOffset;
 
 		// Table mapping codes to strings.
 		// Its structure is based on the fact that a string for a code has form:
@@ -281,14 +372,14 @@ public class LZWCodec extends AbstractCodec {
 		// array
 		// contains 'new byte', and third array contains length of the string.
 		// The length is needed to make retrieving the string faster.
-		final int[] anotherCodes = new int[4096];
-		final byte[] newBytes = new byte[4096];
-		final int[] lengths = new int[4096];
-		// We need to initialize only firt 256 entries in the table
-		for (int i = 0; i < 256; i++) {
-			newBytes[i] = (byte) i;
-			lengths[i] = 1;
-		}
+		// The table is reused across calls; entries written by the previous call
+		// are cleared so that invalid data decodes the same way every time.
+		final Tables t = tables.get();
+		final int[] anotherCodes = t.anotherCodes;
+		final byte[] newBytes = t.newBytes;
+		final int[] lengths = t.lengths;
+		t.clear();
+		t.starved = false;
 
 		// Length of the code to be read from input
 		int currCodeLength = 9;
@@ -313,12 +404,17 @@ public class LZWCodec extends AbstractCodec {
 				// read next code
 				{
 					int bitsLeft = currCodeLength - bitsRead;
+					// truncated data decodes to whatever precedes the cut
+					if (currInPos + (bitsLeft > 8 ? 2 : 1) > inEnd) {
+						t.starved = true;
+						break;
+					}
 					if (bitsLeft > 8) {
-						currRead = (currRead << 8) | (in.read() & 0xff);
+						currRead = (currRead << 8) | (input[currInPos++] & 0xff);
 						bitsLeft -= 8;
 					}
 					bitsRead = 8 - bitsLeft;
-					final int nextByte = in.read() & 0xff;
+					final int nextByte = input[currInPos++] & 0xff;
 					currCode = (currRead << bitsLeft) | (nextByte >> bitsRead);
 					currRead = nextByte & DECOMPR_MASKS[bitsRead];
 				}
@@ -327,18 +423,23 @@ public class LZWCodec extends AbstractCodec {
 
 				if (currCode == CLEAR_CODE) {
 					// initialize table -- nothing to do
+					t.mark(nextCode);
 					nextCode = FIRST_CODE;
 					currCodeLength = 9;
 					// read next code
 					{
 						int bitsLeft = currCodeLength - bitsRead;
+						if (currInPos + (bitsLeft > 8 ? 2 : 1) > inEnd) {
+							t.starved = true;
+							break;
+						}
 						if (bitsLeft > 8) {
-							currRead = (currRead << 8) | (in.read() & 0xff);
+							currRead = (currRead << 8) | (input[currInPos++] & 0xff);
 							bitsLeft -= 8;
 						}
 						bitsRead = 8 - bitsLeft;
 
-						final int nextByte = in.read() & 0xff;
+						final int nextByte = input[currInPos++] & 0xff;
 						currCode = (currRead << bitsLeft) | (nextByte >> bitsRead);
 						currRead = nextByte & DECOMPR_MASKS[bitsRead];
 					}
@@ -346,7 +447,7 @@ public class LZWCodec extends AbstractCodec {
 					// write string[curr_code] to output
 					// -- but here we are sure that string consists of a single
 					// byte
-					if (currOutPos >= output.length - 1) break;
+					if (currOutPos >= outEnd - 1) break;
 					output[currOutPos++] = newBytes[currCode];
 					oldCode = currCode;
 				}
@@ -356,7 +457,7 @@ public class LZWCodec extends AbstractCodec {
 					final int outLength = lengths[currCode];
 					int i = currOutPos + outLength;
 					int tablePos = currCode;
-					if (i > output.length) break;
+					if (i > outEnd) break;
 					while (i > currOutPos) {
 						output[--i] = newBytes[tablePos];
 						tablePos = anotherCodes[tablePos];
@@ -377,14 +478,14 @@ public class LZWCodec extends AbstractCodec {
 					final int outLength = lengths[oldCode];
 					int i = currOutPos + outLength;
 					int tablePos = oldCode;
-					if (i > output.length) break;
+					if (i > outEnd) break;
 					while (i > currOutPos) {
 						output[--i] = newBytes[tablePos];
 						tablePos = anotherCodes[tablePos];
 					}
 					currOutPos += outLength;
 					// 2) Write firstByte(string[old_code]) to output
-					if (currOutPos >= output.length - 1) break;
+					if (currOutPos >= outEnd - 1) break;
 					output[currOutPos++] = output[i];
 					// 3) Add string[old_code]+firstByte(string[old_code]) to
 					// the table
@@ -407,11 +508,76 @@ public class LZWCodec extends AbstractCodec {
 						break;
 				}
 			}
-			while (currOutPos < output.length && in.getFilePointer() < in.length());
+			while (currOutPos < outEnd);
 		}
 		catch (final ArrayIndexOutOfBoundsException e) {
 			throw new FormatException("Invalid LZW data", e);
 		}
-		return output;
+		finally {
+			t.mark(nextCode);
+		}
+		return currInPos - inOffset;
+	}
+
+	// -- Helper classes --
+
+	/** Per-thread working storage for compression and decompression. */
+	private static class Tables {
+
+		/** Compressor hash table keys. */
+		private final int[] htKeys = new int[HASH_SIZE];
+
+		/** Compressor hash table values. */
+		private final int[] htValues = new int[HASH_SIZE];
+
+		/** Decompressor string table: prefix code of each code. */
+		private final int[] anotherCodes = new int[4096];
+
+		/** Decompressor string table: last byte of each code. */
+		private final byte[] newBytes = new byte[4096];
+
+		/** Decompressor string table: string length of each code. */
+		private final int[] lengths = new int[4096];
+
+		/** Compressor output buffer, grown as needed. */
+		private byte[] output = new byte[0];
+
+		/** Upper bound (exclusive) of decompressor entries in use. */
+		private int usedCodes = FIRST_CODE;
+
+		/**
+		 * Whether the last decompression ran out of input before its output was
+		 * full or an end of information code was read.
+		 */
+		private boolean starved;
+
+		public Tables() {
+			// We need to initialize only firt 256 entries in the table
+			for (int i = 0; i < 256; i++) {
+				newBytes[i] = (byte) i;
+				lengths[i] = 1;
+			}
+		}
+
+		/** Records that decompressor entries below the given code are in use. */
+		public void mark(final int nextCode) {
+			usedCodes = Math.max(usedCodes, Math.min(nextCode, lengths.length));
+		}
+
+		/** Resets all decompressor entries added since the last call. */
+		public void clear() {
+			Arrays.fill(anotherCodes, FIRST_CODE, usedCodes, 0);
+			Arrays.fill(newBytes, FIRST_CODE, usedCodes, (byte) 0);
+			Arrays.fill(lengths, FIRST_CODE, usedCodes, 0);
+			usedCodes = FIRST_CODE;
+		}
+
+		/** Gets an output buffer of at least the given size. */
+		public byte[] getOutput(final int size) {
+			if (output.length >= size) return output;
+			if (size > MAX_RETAINED_OUTPUT) return new byte[size];
+			output = new byte[size];
+			return output;
+		}
 	}
 }
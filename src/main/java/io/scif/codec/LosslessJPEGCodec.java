@@ -35,6 +35,7 @@ import io.scif.UnsupportedCompressionException;
 import io.scif.io.RandomAccessInputStream;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
@@ -190,12 +191,15 @@ public class LosslessJPEGCodec extends AbstractCodec {
 
 				// scrub out byte stuffing
 
-				final ByteVector b = new ByteVector();
+				int unstuffed = 0;
 				for (int i = 0; i < toDecode.length; i++) {
-					b.add(toDecode[i]);
-					if (toDecode[i] == (byte) 0xff && toDecode[i + 1] == 0) i++;
+					toDecode[unstuffed++] = toDecode[i];
+					if (toDecode[i] == (byte) 0xff && i + 1 < toDecode.length &&
+						toDecode[i + 1] == 0) i++;
+				}
+				if (unstuffed < toDecode.length) {
+					toDecode = Arrays.copyOf(toDecode, unstuffed);
 				}
-				toDecode = b.toByteArray();
 
 				final BitBuffer bb = new BitBuffer(toDecode);
 				final HuffmanCodec huffman = codecService.getCodec(HuffmanCodec.class);
@@ -214,7 +218,7 @@ public class LosslessJPEGCodec extends AbstractCodec {
 						if (huffmanOptions.table != null) {
 							v = huffman.getSample(bb, huffmanOptions);
 							if (nextSample == 0) {
-								v += (int) Math.pow(2, bitsPerSample - 1);
+								v += 1 << (bitsPerSample - 1);
 							}
 						}
 						else {
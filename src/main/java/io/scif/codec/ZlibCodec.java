@@ -33,55 +33,229 @@ package io.scif.codec;
 import io.scif.FormatException;
 import io.scif.io.RandomAccessInputStream;
 
-import java.io.EOFException;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.Inflater;
 
 import org.scijava.plugin.Plugin;
 
 /**
- * This class implements ZLIB decompression.
+ * This class implements ZLIB compression and decompression.
+ * <p>
+ * Inflaters and deflaters are kept in small pools and reused across calls, so
+ * that compressing or decompressing many small strips does not allocate native
+ * zlib state each time. Each one is released back to its pool when the call
+ * completes; any beyond {@link #MAX_POOLED} are ended instead, so the native
+ * memory held by the codec stays bounded. The compression level can be set by
+ * passing {@link ZlibCodecOptions}.
+ * </p>
  *
  * @author Melissa Linkert
  */
 @Plugin(type = Codec.class)
 public class ZlibCodec extends AbstractCodec {
 
+	// -- Constants --
+
+	/** Size of the per-thread scratch buffers. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** Maximum number of idle inflaters, or deflaters per level, to keep. */
+	private static final int MAX_POOLED = 4;
+
+	// -- Fields --
+
+	/** Idle inflaters, ready for reuse. */
+	private final ArrayDeque<Inflater> inflaters = new ArrayDeque<>();
+
+	/**
+	 * Idle deflaters, indexed by compression level + 1. Each level gets its own
+	 * pool, since changing the level of a deflater changes the stream it
+	 * produces.
+	 */
+	@SuppressWarnings("unchecked")
+	private final ArrayDeque<Deflater>[] deflaters =
+		new ArrayDeque[Deflater.BEST_COMPRESSION + 2];
+
+	/** Scratch buffer for bytes read from a source stream. */
+	private final ThreadLocal<byte[]> inputBuffers = new ThreadLocal<byte[]>() {
+
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+
+	// -- Codec API methods --
+
 	@Override
 	public byte[] compress(final byte[] data, final CodecOptions options)
 		throws FormatException
 	{
 		if (data == null || data.length == 0) throw new IllegalArgumentException(
 			"No data to compress");
-		final Deflater deflater = new Deflater();
-		deflater.setInput(data);
-		deflater.finish();
-		final byte[] buf = new byte[8192];
-		final ByteVector bytes = new ByteVector();
-		int r = 0;
-		// compress until eof reached
-		while ((r = deflater.deflate(buf, 0, buf.length)) > 0) {
-			bytes.add(buf, 0, r);
+		final int level = getLevel(options);
+		final Deflater deflater = acquireDeflater(level);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+			byte[] buf = new byte[deflateBound(data.length)];
+			int n = 0;
+			// compress until eof reached
+			while (!deflater.finished()) {
+				if (n == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+				n += deflater.deflate(buf, n, buf.length - n);
+			}
+			return n == buf.length ? buf : Arrays.copyOf(buf, n);
+		}
+		finally {
+			releaseDeflater(level, deflater);
 		}
-		return bytes.toByteArray();
 	}
 
+	/**
+	 * If {@link CodecOptions#maxBytes maxBytes} is set, the data is inflated
+	 * directly into an array of that size, which is only copied if the actual
+	 * decompressed length differs.
+	 *
+	 * @see Codec#decompress(RandomAccessInputStream, CodecOptions)
+	 */
 	@Override
 	public byte[] decompress(final RandomAccessInputStream in,
 		final CodecOptions options) throws FormatException, IOException
 	{
-		final InflaterInputStream i = new InflaterInputStream(in);
-		final ByteVector bytes = new ByteVector();
-		final byte[] buf = new byte[8192];
-		int r = 0;
-		// read until eof reached
+		final Inflater inflater = acquireInflater();
+		final byte[] input = inputBuffers.get();
+		final int maxBytes = options == null ? 0 : options.maxBytes;
+		byte[] buf = new byte[maxBytes > 0 ? maxBytes : BUFFER_SIZE];
+		int n = 0;
 		try {
-			while ((r = i.read(buf, 0, buf.length)) > 0)
-				bytes.add(buf, 0, r);
+			// read until eof reached
+			while (true) {
+				if (n == buf.length) {
+					// the buffer is full; check whether any data remains before growing
+					final byte[] next = new byte[1];
+					if (inflate(in, inflater, input, next, 0, 1) < 0) return buf;
+					buf = Arrays.copyOf(buf, buf.length * 2);
+					buf[n++] = next[0];
+					continue;
+				}
+				final int r = inflate(in, inflater, input, buf, n, buf.length - n);
+				if (r < 0) break;
+				n += r;
+			}
 		}
-		catch (final EOFException e) {}
-		return bytes.toByteArray();
+		finally {
+			releaseInflater(inflater);
+		}
+		return n == buf.length ? buf : Arrays.copyOf(buf, n);
+	}
+
+	// -- Helper methods --
+
+	/** Gets the compression level requested by the given options. */
+	private int getLevel(final CodecOptions options) {
+		final int level = options instanceof ZlibCodecOptions
+			? ((ZlibCodecOptions) options).compressionLevel
+			: Deflater.DEFAULT_COMPRESSION;
+		if (level < Deflater.DEFAULT_COMPRESSION ||
+			level > Deflater.BEST_COMPRESSION)
+		{
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		return level;
+	}
+
+	/** Takes an idle deflater for the given level, or creates one. */
+	private Deflater acquireDeflater(final int level) {
+		synchronized (deflaters) {
+			final ArrayDeque<Deflater> pool = deflaters[level + 1];
+			if (pool != null && !pool.isEmpty()) return pool.pop();
+		}
+		return new Deflater(level);
+	}
+
+	/** Resets the given deflater and returns it to its pool, or ends it. */
+	private void releaseDeflater(final int level, final Deflater deflater) {
+		deflater.reset();
+		synchronized (deflaters) {
+			if (deflaters[level + 1] == null) {
+				deflaters[level + 1] = new ArrayDeque<>();
+			}
+			if (deflaters[level + 1].size() < MAX_POOLED) {
+				deflaters[level + 1].push(deflater);
+				return;
+			}
+		}
+		deflater.end();
+	}
+
+	/** Takes an idle inflater, or creates one. */
+	private Inflater acquireInflater() {
+		synchronized (inflaters) {
+			if (!inflaters.isEmpty()) return inflaters.pop();
+		}
+		return new Inflater();
+	}
+
+	/** Resets the given inflater and returns it to the pool, or ends it. */
+	private void releaseInflater(final Inflater inflater) {
+		inflater.reset();
+		synchronized (inflaters) {
+			if (inflaters.size() < MAX_POOLED) {
+				inflaters.push(inflater);
+				return;
+			}
+		}
+		inflater.end();
+	}
+
+	/**
+	 * Inflates data into the given region of {@code buf}, feeding the inflater
+	 * from {@code in} as needed.
+	 *
+	 * @return The number of bytes inflated, or -1 if the end of the compressed
+	 *         data (or of the stream) has been reached.
+	 */
+	private int inflate(final RandomAccessInputStream in,
+		final Inflater inflater, final byte[] input, final byte[] buf,
+		final int off, final int len) throws FormatException, IOException
+	{
+		while (true) {
+			final int r;
+			try {
+				r = inflater.inflate(buf, off, len);
+			}
+			catch (final DataFormatException e) {
+				throw new FormatException("Invalid ZLIB data", e);
+			}
+			if (r > 0) return r;
+			if (inflater.finished()) {
+				// hand any bytes past the end of the compressed data back to the stream
+				in.seek(in.getFilePointer() - inflater.getRemaining());
+				return -1;
+			}
+			if (inflater.needsDictionary()) {
+				throw new FormatException("ZLIB preset dictionaries are not supported");
+			}
+			if (!inflater.needsInput()) {
+				throw new FormatException("ZLIB inflater made no progress");
+			}
+			final int n = in.read(input, 0, input.length);
+			// a truncated stream yields whatever could be decompressed
+			if (n <= 0) return -1;
+			inflater.setInput(input, 0, n);
+		}
+	}
+
+	/** Gets an upper bound on the compressed size of the given data length. */
+	private int deflateBound(final int length) {
+		final long bound =
+			(long) length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+		return (int) Math.min(bound, Integer.MAX_VALUE - 8);
 	}
 
 }
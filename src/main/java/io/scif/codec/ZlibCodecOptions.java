@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.codec;
+
+import java.util.zip.Deflater;
+
+/**
+ * Options for compressing and decompressing ZLIB data.
+ */
+public class ZlibCodecOptions extends CodecOptions {
+
+	// -- Fields --
+
+	/**
+	 * Compression level, between {@link Deflater#NO_COMPRESSION} and
+	 * {@link Deflater#BEST_COMPRESSION}, as it would be provided to
+	 * {@link Deflater#setLevel(int)} (WRITE).
+	 */
+	public int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+	// -- Constructors --
+
+	/** Creates a new instance. */
+	public ZlibCodecOptions() {
+		super();
+	}
+
+	/**
+	 * Creates a new instance with options.
+	 *
+	 * @param options The option to set.
+	 */
+	public ZlibCodecOptions(final CodecOptions options) {
+		super(options);
+		if (options instanceof ZlibCodecOptions) {
+			compressionLevel = ((ZlibCodecOptions) options).compressionLevel;
+		}
+	}
+
+	// -- Static methods --
+
+	/** Return ZlibCodecOptions with reasonable default values. */
+	public static ZlibCodecOptions getDefaultOptions() {
+		return new ZlibCodecOptions(CodecOptions.getDefaultOptions());
+	}
+
+}
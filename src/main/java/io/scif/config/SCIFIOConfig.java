@@ -44,6 +44,7 @@ import io.scif.img.Range;
 import io.scif.img.converters.PlaneConverter;
 
 import java.awt.image.ColorModel;
+import java.io.File;
 import java.util.HashMap;
 
 import net.imglib2.img.array.ArrayImgFactory;
@@ -87,6 +88,18 @@ public class SCIFIOConfig extends HashMap<String, Object> {
 
 	private boolean saveOriginalMetadata;
 
+	private File memoDirectory = null;
+
+	// Reader
+	/** Number of frames between decoded checkpoints of inter-frame codecs. */
+	private int checkpointInterval = 32;
+
+	/** Maximum number of bytes of decoded checkpoints held in memory. */
+	private long checkpointMemory = 64L * 1024 * 1024;
+
+	/** Directory for checkpoints evicted from memory, or null to drop them. */
+	private File checkpointDirectory = null;
+
 	// Writer
 	private boolean writeSequential = false;
 
@@ -102,6 +115,15 @@ public class SCIFIOConfig extends HashMap<String, Object> {
 	/** Whether or not to group multi-file formats. */
 	private boolean group = false;
 
+	/** Maximum number of grouped files kept open at once. */
+	private int maxOpenFiles = 64;
+
+	/** Whether grouped files are known to share their dimensions. */
+	private boolean sameDimensions = false;
+
+	/** Number of threads initializing the readers of grouped files. */
+	private int groupThreads = Runtime.getRuntime().availableProcessors();
+
 	// ImgOpener
 
 	/**
@@ -137,6 +159,12 @@ public class SCIFIOConfig extends HashMap<String, Object> {
 	// sub-region specification for opening portions of an image
 	private ImageRegion region = null;
 
+	// Resolution level to open, 0 being full resolution
+	private int resolution = 0;
+
+	// Number of threads reading planes of eagerly loaded images
+	private int threads = 1;
+
 	// Whether or not to use a MinMaxFilter
 	private boolean computeMinMax = false;
 
@@ -167,15 +195,24 @@ public class SCIFIOConfig extends HashMap<String, Object> {
 		level = config.level;
 		filterMetadata = config.filterMetadata;
 		saveOriginalMetadata = config.saveOriginalMetadata;
+		memoDirectory = config.memoDirectory;
+		checkpointInterval = config.checkpointInterval;
+		checkpointMemory = config.checkpointMemory;
+		checkpointDirectory = config.checkpointDirectory;
 		writeSequential = config.writeSequential;
 		model = config.model;
 		fps = config.fps;
 		compression = config.compression;
 		options = config.options;
 		group = config.group;
+		maxOpenFiles = config.maxOpenFiles;
+		sameDimensions = config.sameDimensions;
+		groupThreads = config.groupThreads;
 		imgModes = config.imgModes;
 		range = config.range;
 		region = config.region;
+		resolution = config.resolution;
+		threads = config.threads;
 		computeMinMax = config.computeMinMax;
 		planeConverter = config.planeConverter;
 		imgFactoryHeuristic = config.imgFactoryHeuristic;
@@ -245,6 +282,98 @@ public class SCIFIOConfig extends HashMap<String, Object> {
 		return this;
 	}
 
+	/**
+	 * @return Directory in which parsed metadata is memoized, or null if
+	 *         metadata is always parsed.
+	 */
+	public File parserGetMemoDirectory() {
+		return memoDirectory;
+	}
+
+	/**
+	 * Sets the directory in which readers initialized with this configuration
+	 * memoize their parsed metadata, so that reopening an unchanged file does
+	 * not parse it again. The directory must be owned by, and writable only by,
+	 * the current user; otherwise metadata is always parsed.
+	 *
+	 * @param memoDirectory Directory for memoized metadata, or null to disable
+	 *          memoization.
+	 * @return This SCIFIOConfig for method chaining.
+	 * @see io.scif.filters.Memoizer
+	 */
+	public SCIFIOConfig parserSetMemoDirectory(final File memoDirectory) {
+		this.memoDirectory = memoDirectory;
+		return this;
+	}
+
+	// -- Reader methods --
+
+	/**
+	 * Sets how often readers of inter-frame compressed movies (such as MSRLE AVI
+	 * or RLE QuickTime) keep a decoded frame as a checkpoint, so that opening a
+	 * frame out of order decodes at most this many frames.
+	 *
+	 * @param checkpointInterval Number of frames between two checkpoints, or 0
+	 *          to disable checkpoints.
+	 * @return This SCIFIOConfig for method chaining.
+	 * @see io.scif.util.CheckpointCache
+	 */
+	public SCIFIOConfig readerSetCheckpointInterval(final int checkpointInterval)
+	{
+		if (checkpointInterval < 0) {
+			throw new IllegalArgumentException("Invalid checkpoint interval: " +
+				checkpointInterval);
+		}
+		this.checkpointInterval = checkpointInterval;
+		return this;
+	}
+
+	/**
+	 * @return Number of frames between two decoded checkpoints, or 0 if
+	 *         checkpoints are disabled.
+	 */
+	public int readerGetCheckpointInterval() {
+		return checkpointInterval;
+	}
+
+	/**
+	 * @param checkpointMemory Maximum number of bytes of decoded checkpoints
+	 *          held in memory per reader.
+	 * @return This SCIFIOConfig for method chaining.
+	 */
+	public SCIFIOConfig readerSetCheckpointMemory(final long checkpointMemory) {
+		this.checkpointMemory = checkpointMemory;
+		return this;
+	}
+
+	/**
+	 * @return Maximum number of bytes of decoded checkpoints held in memory per
+	 *         reader.
+	 */
+	public long readerGetCheckpointMemory() {
+		return checkpointMemory;
+	}
+
+	/**
+	 * @param checkpointDirectory Directory to which checkpoints evicted from
+	 *          memory are written, or null to drop them.
+	 * @return This SCIFIOConfig for method chaining.
+	 */
+	public SCIFIOConfig readerSetCheckpointDirectory(
+		final File checkpointDirectory)
+	{
+		this.checkpointDirectory = checkpointDirectory;
+		return this;
+	}
+
+	/**
+	 * @return Directory to which checkpoints evicted from memory are written, or
+	 *         null if they are dropped.
+	 */
+	public File readerGetCheckpointDirectory() {
+		return checkpointDirectory;
+	}
+
 	// -- Writer methods --
 
 	/**
@@ -351,6 +480,71 @@ public class SCIFIOConfig extends HashMap<String, Object> {
 		return group;
 	}
 
+	/**
+	 * @param maxOpenFiles Maximum number of grouped files to keep open at once.
+	 *          The least recently used files are closed beyond this count.
+	 * @return This SCIFIOConfig for method chaining.
+	 * @throws IllegalArgumentException If maxOpenFiles &lt; 1
+	 */
+	public SCIFIOConfig groupableSetMaxOpenFiles(final int maxOpenFiles) {
+		if (maxOpenFiles < 1) {
+			throw new IllegalArgumentException("Invalid file count: " +
+				maxOpenFiles);
+		}
+		this.maxOpenFiles = maxOpenFiles;
+		return this;
+	}
+
+	/**
+	 * @return The maximum number of grouped files kept open at once. Default:
+	 *         64.
+	 */
+	public int groupableGetMaxOpenFiles() {
+		return maxOpenFiles;
+	}
+
+	/**
+	 * @param sameDimensions Whether all grouped files are known to have the same
+	 *          dimensions as the first one. If true, only the first file is
+	 *          parsed when grouping, and the others are parsed when first read.
+	 * @return This SCIFIOConfig for method chaining.
+	 */
+	public SCIFIOConfig groupableSetSameDimensions(final boolean sameDimensions)
+	{
+		this.sameDimensions = sameDimensions;
+		return this;
+	}
+
+	/**
+	 * @return Whether grouped files are known to share the dimensions of the
+	 *         first file. Default: false.
+	 */
+	public boolean groupableIsSameDimensions() {
+		return sameDimensions;
+	}
+
+	/**
+	 * @param threads Number of threads initializing the readers of grouped
+	 *          files, when their dimensions must be read from each file.
+	 * @return This SCIFIOConfig for method chaining.
+	 * @throws IllegalArgumentException If threads &lt; 1
+	 */
+	public SCIFIOConfig groupableSetThreads(final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Invalid thread count: " + threads);
+		}
+		groupThreads = threads;
+		return this;
+	}
+
+	/**
+	 * @return The number of threads initializing the readers of grouped files.
+	 *         Default: the number of available processors.
+	 */
+	public int groupableGetThreads() {
+		return groupThreads;
+	}
+
 	// -- ImgOpener methods --
 
 	/**
@@ -410,6 +604,56 @@ public class SCIFIOConfig extends HashMap<String, Object> {
 		return this;
 	}
 
+	/**
+	 * @return The resolution level to open, where 0 is full resolution and each
+	 *         higher level is a reduced copy of the previous one. Default: 0
+	 * @see io.scif.ImageMetadata#getResolutionCount()
+	 */
+	public int imgOpenerGetResolution() {
+		return resolution;
+	}
+
+	/**
+	 * @param resolution Resolution level to open
+	 * @return This SCIFIOConfig for method chaining.
+	 * @throws IllegalArgumentException If resolution &lt; 0
+	 */
+	public SCIFIOConfig imgOpenerSetResolution(final int resolution) {
+		if (resolution < 0) {
+			throw new IllegalArgumentException("Invalid resolution: " +
+				resolution);
+		}
+		this.resolution = resolution;
+		return this;
+	}
+
+	/**
+	 * @return The number of threads used to read the planes of images that are
+	 *         loaded into memory, each with its own reader. Default: 1
+	 */
+	public int imgOpenerGetThreads() {
+		return threads;
+	}
+
+	/**
+	 * Sets the number of threads to read planes with. Each thread opens the
+	 * source with its own reader, so this only pays off for datasets with many
+	 * large planes. Any custom {@link PlaneConverter} must then tolerate
+	 * concurrent calls for different planes. Images opened as
+	 * {@link ImgMode#CELL} are not affected.
+	 *
+	 * @param threads Number of threads reading planes
+	 * @return This SCIFIOConfig for method chaining.
+	 * @throws IllegalArgumentException If threads &lt; 1
+	 */
+	public SCIFIOConfig imgOpenerSetThreads(final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Invalid thread count: " + threads);
+		}
+		this.threads = threads;
+		return this;
+	}
+
 	/**
 	 * @return A custom plane converter. Default: {@code null}
 	 */
@@ -208,6 +208,15 @@ public abstract class AbstractReaderFilter extends AbstractFilter<Reader>
 			new SCIFIOConfig());
 	}
 
+	@Override
+	public Plane openPlane(final int imageIndex, final long planeIndex,
+		final int resolution, final long[] planeMin, final long[] planeMax)
+		throws FormatException, IOException
+	{
+		return openPlane(imageIndex, planeIndex, planeMin, planeMax,
+			new SCIFIOConfig().imgOpenerSetResolution(resolution));
+	}
+
 	@Override
 	public Plane openPlane(final int imageIndex, final long planeIndex,
 		final SCIFIOConfig config) throws FormatException, IOException
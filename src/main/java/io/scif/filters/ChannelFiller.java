@@ -35,6 +35,7 @@ import io.scif.ByteArrayReader;
 import io.scif.FormatException;
 import io.scif.Plane;
 import io.scif.config.SCIFIOConfig;
+import io.scif.util.ImageTools;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -43,7 +44,6 @@ import net.imagej.axis.Axes;
 import net.imglib2.display.ColorTable;
 
 import org.scijava.plugin.Plugin;
-import org.scijava.util.Bytes;
 
 /**
  * For indexed color data representing true color, factors out the indices,
@@ -57,25 +57,12 @@ public class ChannelFiller extends AbstractReaderFilter {
 	// -- Fields --
 
 	/**
-	 * Last image index opened.
+	 * Cached last plane opened, with the region it was requested for.
 	 */
-	private int lastImageIndex = -1;
+	private volatile LastPlane lastPlane = null;
 
-	/**
-	 * Last plane index opened.
-	 */
-	private long lastPlaneIndex = -1;
-
-	/**
-	 * Cached last plane opened.
-	 */
-	private Plane lastPlane = null;
-
-	/** Offsets of last plane opened. */
-	private long[] lastPlaneOffsets = null;
-
-	/** Lengths of last plane opened. */
-	private long[] lastPlaneLengths = null;
+	/** Lookup tables built from the last color table used. */
+	private volatile Lookup lastLookup = null;
 
 	// -- Constructor --
 
@@ -130,7 +117,8 @@ public class ChannelFiller extends AbstractReaderFilter {
 	{
 		final int planarAxes = getMetadata().get(imageIndex).getPlanarAxisCount();
 		return openPlane(imageIndex, planeIndex, new long[planarAxes],
-			getMetadata().get(imageIndex).getAxesLengthsPlanar(), config);
+			getMetadata().get(imageIndex).getAxesLengthsPlanar(
+				config.imgOpenerGetResolution()), config);
 	}
 
 	@Override
@@ -140,7 +128,8 @@ public class ChannelFiller extends AbstractReaderFilter {
 	{
 		final int planarAxes = getMetadata().get(imageIndex).getPlanarAxisCount();
 		return openPlane(imageIndex, planeIndex, plane, new long[planarAxes],
-			getMetadata().get(imageIndex).getAxesLengthsPlanar(), config);
+			getMetadata().get(imageIndex).getAxesLengthsPlanar(
+				config.imgOpenerGetResolution()), config);
 	}
 
 	@Override
@@ -157,40 +146,58 @@ public class ChannelFiller extends AbstractReaderFilter {
 		Plane plane, final long[] offsets, final long[] lengths,
 		final SCIFIOConfig config) throws FormatException, IOException
 	{
+		final int resolution = config.imgOpenerGetResolution();
+
+		// NB: the last plane is read once into a local, so that concurrent
+		// callers each see a consistent plane and region. Only the parent
+		// reader is locked, while the indices are expanded without locking.
+		LastPlane cached = lastPlane;
+		final boolean haveCached =
+			cached != null &&
+				cached.matches(imageIndex, planeIndex, offsets, lengths, resolution);
+
 		// If the wrapped Metadata wasn't indexed, we can use the parent reader
 		// directly
 		if (getParentMeta().get(imageIndex).isFalseColor() ||
 			!getParentMeta().get(imageIndex).isIndexed())
 		{
-			if (!haveCached(imageIndex, planeIndex, offsets, lengths)) {
-				lastPlaneOffsets = Arrays.copyOf(offsets, offsets.length);
-				lastPlaneLengths = Arrays.copyOf(lengths, lengths.length);
-				lastPlaneIndex = planeIndex;
-				lastImageIndex = imageIndex;
-				lastPlane =
-					getParent().openPlane(imageIndex, planeIndex, plane, offsets,
-						lengths, config);
+			if (!haveCached) {
+				// NB: cache a plane of our own, as the caller may reuse its plane
+				final Plane opened;
+				synchronized (getParent()) {
+					opened =
+						getParent().openPlane(imageIndex, planeIndex, offsets, lengths,
+							config);
+				}
+				cached =
+					new LastPlane(imageIndex, planeIndex, offsets, lengths, resolution,
+						opened);
+				lastPlane = cached;
 			}
-			return lastPlane;
+			return cached.copyTo(plane);
 		}
 
 		// If we have the cached base plane we can use it to expand, otherwise
-		// we'll
-		// have to open the plane still.
+		// we'll have to open the plane still.
 		final int lutLength =
 			((ChannelFillerMetadata) getMetadata()).getLutLength();
 
-		if (!haveCached(imageIndex, planeIndex, offsets, lengths)) {
-			updateLastPlaneInfo(imageIndex, lutLength, offsets, lengths);
+		if (!haveCached) {
+			final long[] parentOffsets = Arrays.copyOf(offsets, offsets.length);
+			final long[] parentLengths = Arrays.copyOf(lengths, lengths.length);
+			toParentRegion(imageIndex, lutLength, parentOffsets, parentLengths);
 
 			// Now we can read the desired plane
-			lastPlane =
-				getParent().openPlane(imageIndex, planeIndex, lastPlaneOffsets,
-					lastPlaneLengths, config);
-			lastPlaneIndex = planeIndex;
-			lastImageIndex = imageIndex;
-			lastPlaneOffsets = Arrays.copyOf(offsets, offsets.length);
-			lastPlaneLengths = Arrays.copyOf(lengths, lengths.length);
+			final Plane opened;
+			synchronized (getParent()) {
+				opened =
+					getParent().openPlane(imageIndex, planeIndex, parentOffsets,
+						parentLengths, config);
+			}
+			cached =
+				new LastPlane(imageIndex, planeIndex, offsets, lengths, resolution,
+					opened);
+			lastPlane = cached;
 		}
 
 		// Make sure we have a compatible plane type
@@ -200,38 +207,14 @@ public class ChannelFiller extends AbstractReaderFilter {
 					offsets, lengths);
 		}
 
-		final byte[] buf = plane.getBytes();
-		int pt = 0;
-
 		final int bytesPerIndex =
 			getParentMeta().get(imageIndex).getBitsPerPixel() / 8;
 
-		final ColorTable lut = lastPlane.getColorTable();
-		final byte[] index = lastPlane.getBytes();
-
 		// Expand the index values to fill the buffer
-		if (getMetadata().get(imageIndex).getInterleavedAxisCount() > 0) {
-			for (int i = 0; i < index.length / bytesPerIndex && pt < buf.length; i++)
-			{
-				final int iVal =
-					Bytes.toInt(index, i * bytesPerIndex, bytesPerIndex,
-						getMetadata().get(imageIndex).isLittleEndian());
-				for (int j = 0; j < lutLength; j++) {
-					buf[pt++] = (byte) lut.get(j, iVal);
-				}
-			}
-		}
-		else {
-			for (int j = 0; j < lutLength; j++) {
-				for (int i = 0; i < index.length / bytesPerIndex && pt < buf.length; i++)
-				{
-					final int iVal =
-						Bytes.toInt(index, i * bytesPerIndex, bytesPerIndex,
-							getMetadata().get(imageIndex).isLittleEndian());
-					buf[pt++] = (byte) lut.get(j, iVal);
-				}
-			}
-		}
+		ImageTools.indexedToRGB(lookup(cached.getPlane().getColorTable(),
+			lutLength), cached.getPlane().getBytes(), bytesPerIndex, getMetadata()
+			.get(imageIndex).isLittleEndian(), getMetadata().get(imageIndex)
+			.getInterleavedAxisCount() > 0, plane.getBytes());
 
 		// Remove the color table for this plane
 		plane.setColorTable(null);
@@ -261,63 +244,60 @@ public class ChannelFiller extends AbstractReaderFilter {
 	}
 
 	// -- Helper Methods --
+
 	/**
 	 * Converts the given plane information using the current metadata to a format
-	 * usable by the wrapped reader, stored in the "lastPlane"... variables.
+	 * usable by the wrapped reader.
 	 */
-	private void updateLastPlaneInfo(final int imageIndex, final int lutLength,
-		final long[] offsets, final long[] lengths)
+	private void toParentRegion(final int imageIndex, final int lutLength,
+		final long[] parentOffsets, final long[] parentLengths)
 	{
-		lastPlaneOffsets = Arrays.copyOf(offsets, offsets.length);
-		lastPlaneLengths = Arrays.copyOf(lengths, lengths.length);
-
 		final int cIndex = getMetadata().get(imageIndex).getAxisIndex(Axes.CHANNEL);
-		lastPlaneOffsets[cIndex] = lastPlaneOffsets[cIndex] / lutLength;
-		lastPlaneLengths[cIndex] = lastPlaneLengths[cIndex] / lutLength;
+		parentOffsets[cIndex] = parentOffsets[cIndex] / lutLength;
+		parentLengths[cIndex] = parentLengths[cIndex] / lutLength;
 	}
 
 	/**
-	 * Returns true if we have a cached copy of the requested plane available.
-	 *
-	 * @param lengths
-	 * @param offsets
+	 * Gets byte lookup tables, one per channel, of the first {@code lutLength}
+	 * components of the given color table. The tables of the last color table
+	 * are reused, as planes usually share theirs.
 	 */
-	private boolean haveCached(final int imageIndex, final long planeIndex,
-		final long[] offsets, final long[] lengths)
-	{
-		boolean matches = planeIndex == lastPlaneIndex;
-		matches = matches && (imageIndex == lastImageIndex);
-
-		if (lastPlane != null && lastPlaneOffsets != null &&
-			lastPlaneLengths != null)
-		{
-			for (int i = 0; i < offsets.length && matches; i++) {
-				// TODO It would be nice to fix up this logic so that we can use
-				// cached
-				// planes when requesting a sub-region of the cached plane.
-				// See https://github.com/scifio/scifio/issues/155
-				// Make sure we have the starting point in each axis
-				matches = matches && offsets[i] == lastPlaneOffsets[i];
-				// make sure we have the last positions in each axis
-				matches =
-					matches &&
-						offsets[i] + lengths[i] == lastPlaneOffsets[i] +
-							lastPlaneLengths[i];
-			}
-		}
-		else {
-			matches = false;
+	private byte[][] lookup(final ColorTable lut, final int lutLength) {
+		Lookup cached = lastLookup;
+		if (cached == null || cached.lut != lut || cached.lutLength != lutLength) {
+			cached = new Lookup(lut, lutLength);
+			lastLookup = cached;
 		}
-		return matches;
+		return cached.table;
 	}
 
 	@Override
 	protected void cleanUp() throws IOException {
 		super.cleanUp();
-		lastPlaneIndex = 0;
-		lastImageIndex = 0;
 		lastPlane = null;
-		lastPlaneLengths = null;
-		lastPlaneOffsets = null;
+		lastLookup = null;
+	}
+
+	// -- Helper classes --
+
+	/** Byte lookup tables copied from a color table. */
+	private static final class Lookup {
+
+		private final ColorTable lut;
+
+		private final int lutLength;
+
+		private final byte[][] table;
+
+		private Lookup(final ColorTable lut, final int lutLength) {
+			this.lut = lut;
+			this.lutLength = lutLength;
+			table = new byte[lutLength][lut.getLength()];
+			for (int j = 0; j < lutLength; j++) {
+				for (int i = 0; i < table[j].length; i++) {
+					table[j][i] = (byte) lut.get(j, i);
+				}
+			}
+		}
 	}
 }
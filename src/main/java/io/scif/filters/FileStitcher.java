@@ -45,17 +45,34 @@ import io.scif.services.LocationService;
 import io.scif.util.FormatTools;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.imagej.axis.Axes;
 
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
+import org.scijava.thread.ThreadService;
 
 /**
  * Logic to stitch together files with similar names. Assumes that all files
  * have the same characteristics (e.g., dimensions).
+ * <p>
+ * The first file is read through the parent reader. The readers of the other
+ * files are initialized in parallel when stitching, or, if
+ * {@link SCIFIOConfig#groupableIsSameDimensions()}, only when first read. At
+ * most {@link SCIFIOConfig#groupableGetMaxOpenFiles()} files are kept open,
+ * closing the least recently used ones. Planes may be opened from several
+ * threads; reads of the same file are serialized.
+ * </p>
  */
 @Plugin(type = Filter.class)
 public class FileStitcher extends AbstractReaderFilter {
@@ -71,6 +88,9 @@ public class FileStitcher extends AbstractReaderFilter {
 	@Parameter
 	private LocationService locationService;
 
+	@Parameter
+	private ThreadService threadService;
+
 	/**
 	 * Whether string ids given should be treated as file patterns rather than
 	 * single file paths.
@@ -84,7 +104,23 @@ public class FileStitcher extends AbstractReaderFilter {
 	 */
 	private int[] imagesPerFile = null;
 
-	private Reader[] readers = null;
+	/**
+	 * Global index of the first image of each file
+	 */
+	private int[] firstImages = null;
+
+	/** The first file, read through the parent reader. */
+	private OpenFile parentFile = null;
+
+	/** Open files other than the first, in least recently used order. */
+	private final Map<Integer, OpenFile> openFiles =
+		new LinkedHashMap<>(16, 0.75f, true);
+
+	/** Maximum number of open files, including the first. */
+	private int maxOpenFiles;
+
+	/** Configuration used to initialize the reader of each file. */
+	private SCIFIOConfig readerConfig;
 
 	private String[] files = null;
 
@@ -131,22 +167,26 @@ public class FileStitcher extends AbstractReaderFilter {
 
 	/**
 	 * Gets the reader appropriate for use with the given image.
+	 * <p>
+	 * The reader is still owned by this stitcher, and must not be closed by the
+	 * caller. Unless it reads the first file, it is only valid until
+	 * {@link SCIFIOConfig#groupableGetMaxOpenFiles()} - 1 other files, not
+	 * counting the first, have been read or had their readers requested: the
+	 * stitcher then closes it to make room for them.
+	 * </p>
 	 */
 	public Reader getReader(final int imageIndex) throws FormatException,
 		IOException
 	{
 		if (noStitch) return getParent();
 		final int[] fileIndex = computeFileIndex(imageIndex);
-		Reader r = readers[fileIndex[0]];
-		if (r == null) {
-			r = initializeService.initializeReader(files[imageIndex]);
-			readers[fileIndex[0]] = r;
-		}
-		return r;
+		return openFile(fileIndex[0]).reader;
 	}
 
 	/**
-	 * Gets the metadata for the given image index.
+	 * Gets the metadata for the given image index. It belongs to the reader
+	 * returned by {@link #getReader(int)}, and is only valid as long as that
+	 * reader is.
 	 *
 	 * @throws IOException
 	 * @throws FormatException
@@ -257,7 +297,6 @@ public class FileStitcher extends AbstractReaderFilter {
 			// Get the individual file ids
 			String[] patterns = findPatterns(source);
 			if (patterns.length == 0) patterns = new String[] { source };
-			readers = new Reader[patterns.length];
 
 			fp = new FilePattern(getContext(), patterns[0]);
 
@@ -306,6 +345,7 @@ public class FileStitcher extends AbstractReaderFilter {
 
 			this.files = files;
 			pattern = fp;
+			initializeReaders(config);
 		}
 		catch (final IOException e) {
 			// TODO Auto-generated catch block
@@ -350,12 +390,19 @@ public class FileStitcher extends AbstractReaderFilter {
 		// If this is a valid image index, get the appropriate reader and
 		// return the corresponding plane
 		final int[] adjustedIndex = computeFileIndex(imageIndex);
-		if (adjustedIndex[0] < readers.length &&
-			adjustedIndex[1] < readers[adjustedIndex[0]].getImageCount())
+		if (adjustedIndex[0] < files.length &&
+			adjustedIndex[1] < imagesPerFile[adjustedIndex[0]])
 		{
-			final Reader r = readers[adjustedIndex[0]];
-			return r.openPlane(adjustedIndex[1], planeIndex, bp, offsets, lengths,
-				config);
+			while (true) {
+				final OpenFile file = openFile(adjustedIndex[0]);
+				synchronized (file) {
+					// retry if the file was closed since it was looked up
+					if (!file.closed) {
+						return file.reader.openPlane(adjustedIndex[1], planeIndex, bp,
+							offsets, lengths, config);
+					}
+				}
+			}
 		}
 
 		// return a blank image to cover for the fact that
@@ -374,11 +421,17 @@ public class FileStitcher extends AbstractReaderFilter {
 		// If this is a valid image index, get the appropriate reader and
 		// return the corresponding plane
 		final int[] adjustedIndex = computeFileIndex(imageIndex);
-		if (adjustedIndex[0] < readers.length &&
-			adjustedIndex[1] < readers[adjustedIndex[0]].getImageCount())
+		if (adjustedIndex[0] < files.length &&
+			adjustedIndex[1] < imagesPerFile[adjustedIndex[0]])
 		{
-			final Reader r = readers[adjustedIndex[0]];
-			return r.openThumbPlane(adjustedIndex[1], planeIndex);
+			while (true) {
+				final OpenFile file = openFile(adjustedIndex[0]);
+				synchronized (file) {
+					if (!file.closed) {
+						return file.reader.openThumbPlane(adjustedIndex[1], planeIndex);
+					}
+				}
+			}
 		}
 
 		// return a blank image to cover for the fact that
@@ -395,7 +448,15 @@ public class FileStitcher extends AbstractReaderFilter {
 
 	@Override
 	public Reader[] getUnderlyingReaders() {
-		return readers;
+		if (parentFile == null) return null;
+		final List<Reader> readers = new ArrayList<>();
+		readers.add(parentFile.reader);
+		synchronized (openFiles) {
+			for (final OpenFile file : openFiles.values()) {
+				readers.add(file.reader);
+			}
+		}
+		return readers.toArray(new Reader[readers.size()]);
 	}
 
 	// -- Prioritized API --
@@ -412,14 +473,134 @@ public class FileStitcher extends AbstractReaderFilter {
 	 * desired global image index - at index 0, the corresponding local image
 	 * index
 	 */
-	private int[] computeFileIndex(int imageIndex) {
+	private int[] computeFileIndex(final int imageIndex) {
 		if (noStitch) return new int[] { imageIndex, 0 };
-		int fileIndex = 0;
-		while (imageIndex >= imagesPerFile[fileIndex]) {
-			imageIndex -= imagesPerFile[fileIndex++];
+		// find the last file starting at or before the image
+		int lo = 0, hi = firstImages.length - 1;
+		while (lo < hi) {
+			final int mid = (lo + hi + 1) >>> 1;
+			if (firstImages[mid] <= imageIndex) lo = mid;
+			else hi = mid - 1;
+		}
+		int fileIndex = lo;
+		// skip back over files without images
+		while (fileIndex > 0 && imagesPerFile[fileIndex] == 0) {
+			fileIndex--;
+		}
+		if (imageIndex - firstImages[fileIndex] >= imagesPerFile[fileIndex]) {
+			return new int[] { files.length, 0 };
+		}
+		return new int[] { fileIndex, imageIndex - firstImages[fileIndex] };
+	}
+
+	/**
+	 * Counts the images of each file. The first file is already open in the
+	 * parent reader; the other files are opened in parallel unless they are
+	 * known to share its dimensions.
+	 */
+	private void initializeReaders(final SCIFIOConfig config)
+		throws FormatException, IOException
+	{
+		readerConfig = new SCIFIOConfig(config).groupableSetGroupFiles(false);
+		maxOpenFiles = config.groupableGetMaxOpenFiles();
+		parentFile = new OpenFile(getParent());
+		imagesPerFile = new int[files.length];
+		imagesPerFile[0] = getParent().getImageCount();
+
+		if (config.groupableIsSameDimensions()) {
+			Arrays.fill(imagesPerFile, imagesPerFile[0]);
+		}
+		else if (files.length > 1) {
+			final AtomicInteger next = new AtomicInteger(1);
+			final int threads =
+				Math.min(config.groupableGetThreads(), files.length - 1);
+			final List<Future<Void>> tasks = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				tasks.add(threadService.run(() -> {
+					for (int f = next.getAndIncrement(); f < files.length; f =
+						next.getAndIncrement())
+					{
+						final Reader r =
+							initializeService.initializeReader(files[f], readerConfig);
+						imagesPerFile[f] = r.getImageCount();
+						pool(f, r);
+					}
+					return null;
+				}));
+			}
+			await(tasks);
 		}
 
-		return new int[] { fileIndex, imageIndex };
+		firstImages = new int[files.length];
+		for (int f = 1; f < files.length; f++) {
+			firstImages[f] = firstImages[f - 1] + imagesPerFile[f - 1];
+		}
+	}
+
+	/** Waits for the given tasks, rethrowing the first failure. */
+	private void await(final List<Future<Void>> tasks) throws FormatException,
+		IOException
+	{
+		try {
+			for (final Future<Void> task : tasks) {
+				task.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+		catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof FormatException) throw (FormatException) cause;
+			if (cause instanceof IOException) throw (IOException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/** Gets the given file, opening it if it is not open. */
+	private OpenFile openFile(final int fileIndex) throws FormatException,
+		IOException
+	{
+		if (fileIndex == 0) return parentFile;
+		synchronized (openFiles) {
+			final OpenFile file = openFiles.get(fileIndex);
+			if (file != null) return file;
+		}
+		return pool(fileIndex, initializeService.initializeReader(files[fileIndex],
+			readerConfig));
+	}
+
+	/**
+	 * Adds the reader of the given file to the open files, closing the least
+	 * recently used files beyond {@link #maxOpenFiles}.
+	 *
+	 * @return The open file, which is a different reader if another thread
+	 *         opened the file first.
+	 */
+	private OpenFile pool(final int fileIndex, final Reader reader)
+		throws IOException
+	{
+		final List<OpenFile> evicted = new ArrayList<>();
+		OpenFile file;
+		synchronized (openFiles) {
+			file = openFiles.get(fileIndex);
+			if (file == null) {
+				file = new OpenFile(reader);
+				openFiles.put(fileIndex, file);
+			}
+			else evicted.add(new OpenFile(reader));
+
+			final Iterator<OpenFile> eldest = openFiles.values().iterator();
+			while (openFiles.size() > Math.max(1, maxOpenFiles - 1)) {
+				evicted.add(eldest.next());
+				eldest.remove();
+			}
+		}
+		for (final OpenFile closing : evicted) {
+			closing.close();
+		}
+		return file;
 	}
 
 	@Override
@@ -430,17 +611,44 @@ public class FileStitcher extends AbstractReaderFilter {
 		doNotChangePattern = false;
 
 		imagesPerFile = null;
+		firstImages = null;
 
-		for (final Reader r : readers) {
-			if (r != null) {
-				r.close();
-			}
+		final List<OpenFile> closing;
+		synchronized (openFiles) {
+			closing = new ArrayList<>(openFiles.values());
+			openFiles.clear();
+		}
+		for (final OpenFile file : closing) {
+			file.close();
 		}
 
-		readers = null;
+		parentFile = null;
+		readerConfig = null;
 		files = null;
 		pattern = null;
 
 		noStitch = false;
 	}
+
+	// -- Helper classes --
+
+	/**
+	 * The reader of a stitched file. Reads lock the file, and check that it was
+	 * not closed after it was looked up.
+	 */
+	private static final class OpenFile {
+
+		private final Reader reader;
+
+		private boolean closed;
+
+		private OpenFile(final Reader reader) {
+			this.reader = reader;
+		}
+
+		private synchronized void close() throws IOException {
+			closed = true;
+			reader.close();
+		}
+	}
 }
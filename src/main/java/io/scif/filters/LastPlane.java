@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.filters;
+
+import io.scif.ByteArrayPlane;
+import io.scif.Plane;
+
+import java.util.Arrays;
+
+/**
+ * The last plane opened by a filter, with the position and region it was
+ * opened for. Instances are immutable, so a filter can publish them through a
+ * volatile field and share the plane between threads without locking. The
+ * plane must be allocated by the filter and never handed out, as callers may
+ * reuse the planes they are given; use {@link #copyTo} instead.
+ *
+ * @author agent
+ */
+final class LastPlane {
+
+	// -- Fields --
+
+	private final int imageIndex;
+
+	private final long planeIndex;
+
+	private final int resolution;
+
+	private final long[] offsets;
+
+	private final long[] lengths;
+
+	private final Plane plane;
+
+	// -- Constructor --
+
+	LastPlane(final int imageIndex, final long planeIndex, final long[] offsets,
+		final long[] lengths, final int resolution, final Plane plane)
+	{
+		this.imageIndex = imageIndex;
+		this.planeIndex = planeIndex;
+		this.offsets = Arrays.copyOf(offsets, offsets.length);
+		this.lengths = Arrays.copyOf(lengths, lengths.length);
+		this.resolution = resolution;
+		this.plane = plane;
+	}
+
+	// -- LastPlane methods --
+
+	/** Gets the cached plane, which must not be modified. */
+	Plane getPlane() {
+		return plane;
+	}
+
+	/**
+	 * Copies the bytes and color table of the cached plane into the given plane.
+	 *
+	 * @return The given plane, or a new {@link ByteArrayPlane} if the given one
+	 *         is not a {@code ByteArrayPlane} of the same size.
+	 */
+	Plane copyTo(final Plane dest) {
+		final byte[] bytes = plane.getBytes();
+		ByteArrayPlane target = null;
+		if (dest instanceof ByteArrayPlane &&
+			((ByteArrayPlane) dest).getBytes().length == bytes.length)
+		{
+			target = (ByteArrayPlane) dest;
+			target.populate(plane.getImageMetadata(), target.getBytes(), plane
+				.getOffsets(), plane.getLengths());
+		}
+		else {
+			target =
+				new ByteArrayPlane(plane.getContext(), plane.getImageMetadata(), plane
+					.getOffsets(), plane.getLengths());
+		}
+		System.arraycopy(bytes, 0, target.getBytes(), 0, bytes.length);
+		target.setColorTable(plane.getColorTable());
+		return target;
+	}
+
+	/**
+	 * Returns true if the cached plane was opened for the given position and
+	 * covers exactly the given region.
+	 */
+	boolean matches(final int imageIndex, final long planeIndex,
+		final long[] offsets, final long[] lengths, final int resolution)
+	{
+		if (imageIndex != this.imageIndex || planeIndex != this.planeIndex ||
+			resolution != this.resolution || offsets.length > this.offsets.length)
+		{
+			return false;
+		}
+		for (int i = 0; i < offsets.length; i++) {
+			// TODO It would be nice to use cached planes when requesting a
+			// sub-region of the cached plane.
+			// See https://github.com/scifio/scifio/issues/155
+			if (offsets[i] != this.offsets[i] ||
+				offsets[i] + lengths[i] != this.offsets[i] + this.lengths[i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.filters;
+
+import io.scif.FormatException;
+import io.scif.Metadata;
+import io.scif.config.SCIFIOConfig;
+import io.scif.io.RandomAccessInputStream;
+import io.scif.services.FormatService;
+import io.scif.util.KeyedFileStore;
+import io.scif.util.MetadataCodec;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.scijava.Priority;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+
+/**
+ * {@link io.scif.filters.Filter} for memoizing parsed {@link Metadata}.
+ * <p>
+ * After a file is first parsed, its fully populated {@code Metadata} - which
+ * includes all format-specific state, such as the IFDs of a TIFF - is written
+ * to a cache directory using the compact {@link MetadataCodec} encoding. Later
+ * {@link #setSource} calls for the same file restore the cached
+ * {@code Metadata} instead of parsing it again.
+ * </p>
+ * <p>
+ * Cache entries are kept in a {@link KeyedFileStore}. Each is named after the
+ * file's canonical path, the SCIFIO version, the {@link io.scif.Format} and
+ * the parser configuration, and records the file's size and modification
+ * time. Entries which are stale or can not be decoded are deleted and the file
+ * is parsed normally; {@code Metadata} which can not be encoded is simply not
+ * cached. Sources which are not local files are always parsed.
+ * </p>
+ * <p>
+ * There is no default cache directory: one must be set with
+ * {@link #setDirectory} or {@link SCIFIOConfig#parserSetMemoDirectory(File)}.
+ * As cache entries are trusted when decoded, the directory must be owned by
+ * the current user and, where POSIX permissions are supported, writable by no
+ * one else; otherwise files are parsed without memoization. A missing
+ * directory is created accessible to its owner only.
+ * </p>
+ * <p>
+ * This filter has a very low priority, so that it sits directly on top of the
+ * wrapped {@link io.scif.Reader}. As it must see the {@code setSource} call,
+ * enable it before setting the source, or pass a memo directory to
+ * {@link io.scif.services.InitializeService#initializeReader(String, SCIFIOConfig)}
+ * with {@link SCIFIOConfig#parserSetMemoDirectory(File)}.
+ * </p>
+ *
+ * @author agent
+ */
+@Plugin(type = Filter.class)
+public class Memoizer extends AbstractReaderFilter {
+
+	// -- Constants --
+
+	private static final String SUFFIX = ".memo";
+
+	// -- Fields --
+
+	@Parameter
+	private FormatService formatService;
+
+	/** Directory holding the cache entries. */
+	private File directory;
+
+	/** Whether the current Metadata was restored from the cache. */
+	private boolean loadedFromMemo;
+
+	// -- Memoizer API Methods --
+
+	/**
+	 * @return The directory holding the cache entries, or null if the directory
+	 *         of the {@link SCIFIOConfig} passed to {@link #setSource} is used.
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @param directory The directory to hold the cache entries. Overrides the
+	 *          directory of the {@link SCIFIOConfig} passed to
+	 *          {@link #setSource}.
+	 */
+	public void setDirectory(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @return True if the current {@link Metadata} was restored from the cache
+	 *         rather than parsed.
+	 */
+	public boolean isLoadedFromMemo() {
+		return loadedFromMemo;
+	}
+
+	/**
+	 * @return The file which holds, or would hold, the cache entry for the given
+	 *         source and configuration, or null if no cache directory is set.
+	 */
+	public File getMemoFile(final String source, final SCIFIOConfig config)
+		throws IOException
+	{
+		final KeyedFileStore store = getStore(config);
+		if (store == null) return null;
+		return store.getFile(key(new File(source), config));
+	}
+
+	// -- Filter API Methods --
+
+	@Override
+	public double getPriority() {
+		return Priority.VERY_LOW_PRIORITY;
+	}
+
+	// -- Reader API Methods --
+
+	@Override
+	public void setSource(final String fileName) throws IOException {
+		setSource(fileName, new SCIFIOConfig());
+	}
+
+	@Override
+	public void setSource(final File file) throws IOException {
+		setSource(file.getAbsolutePath(), new SCIFIOConfig());
+	}
+
+	@Override
+	public void setSource(final File file, final SCIFIOConfig config)
+		throws IOException
+	{
+		setSource(file.getAbsolutePath(), config);
+	}
+
+	@Override
+	public void setSource(final String fileName, final SCIFIOConfig config)
+		throws IOException
+	{
+		loadedFromMemo = false;
+		final File file = new File(fileName);
+		final KeyedFileStore store = getStore(config);
+		if (!file.isFile() || store == null || !store.isTrusted()) {
+			super.setSource(fileName, config);
+			return;
+		}
+
+		final String id = key(file, config);
+		final String state = KeyedFileStore.state(file);
+		final String key = id + "|" + state;
+		loadedFromMemo = load(store, id, key, fileName);
+		if (!loadedFromMemo) {
+			getParent().setSource(fileName, config);
+			// do not cache a file which changed while it was parsed
+			if (state.equals(KeyedFileStore.state(file))) {
+				store.save(id, key, out -> new MetadataCodec(getContext()).write(
+					getParent().getMetadata(), out));
+			}
+		}
+		setSourceHelper(fileName, config);
+	}
+
+	@Override
+	public void setSource(final RandomAccessInputStream stream)
+		throws IOException
+	{
+		setSource(stream, new SCIFIOConfig());
+	}
+
+	@Override
+	public void setSource(final RandomAccessInputStream stream,
+		final SCIFIOConfig config) throws IOException
+	{
+		loadedFromMemo = false;
+		super.setSource(stream, config);
+	}
+
+	@Override
+	public void close(final boolean fileOnly) throws IOException {
+		super.close(fileOnly);
+		if (!fileOnly) loadedFromMemo = false;
+	}
+
+	// -- Helper methods --
+
+	/** @return The cache to use, or null if no cache directory is set. */
+	private KeyedFileStore getStore(final SCIFIOConfig config) {
+		final File dir =
+			directory == null ? config.parserGetMemoDirectory() : directory;
+		return dir == null ? null : new KeyedFileStore(dir, SUFFIX, log());
+	}
+
+	/**
+	 * @return A key identifying the given file, and how it is parsed.
+	 */
+	private String key(final File file, final SCIFIOConfig config)
+		throws IOException
+	{
+		return KeyedFileStore.id(file, formatService.getVersion(), getParent()
+			.getFormat().getClass().getName(), config.parserGetLevel(), config
+				.parserIsFiltered(), config.parserIsSaveOriginalMetadata());
+	}
+
+	/**
+	 * Restores the cached Metadata of the given source into the parent reader.
+	 *
+	 * @return True if the Metadata was restored.
+	 */
+	private boolean load(final KeyedFileStore store, final String id,
+		final String key, final String source)
+	{
+		final Metadata meta;
+		try {
+			meta = getParent().getFormat().createMetadata();
+		}
+		catch (final FormatException e) {
+			log().debug("Unable to restore memo for " + source, e);
+			return false;
+		}
+		return store.load(id, key, in -> {
+			final RandomAccessInputStream stream =
+				new RandomAccessInputStream(getContext(), source);
+			try {
+				new MetadataCodec(getContext()).read(meta, in, stream);
+				getParent().setMetadata(meta);
+				return true;
+			}
+			catch (final IOException | RuntimeException e) {
+				stream.close();
+				throw e;
+			}
+		}) != null;
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.filters;
+
+import io.scif.FormatException;
+import io.scif.ImageMetadata;
+import io.scif.Plane;
+import io.scif.config.SCIFIOConfig;
+import io.scif.io.RandomAccessInputStream;
+import io.scif.metrics.MetricsScope;
+import io.scif.services.MetricsService;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.scijava.Priority;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+
+/**
+ * {@link io.scif.filters.Filter} timing {@code setSource} and
+ * {@code openPlane} for the {@link MetricsService}.
+ * <p>
+ * While a call is in progress, measurements made on the calling thread - by
+ * handles and codecs, for instance - are attributed to the current file and
+ * format. This filter has a very high priority, so that it measures the whole
+ * filter stack. It is enabled by
+ * {@link io.scif.services.InitializeService#initializeReader} while metrics
+ * are enabled.
+ * </p>
+ *
+ * @author agent
+ */
+@Plugin(type = Filter.class)
+public class MetricsFilter extends AbstractReaderFilter {
+
+	// -- Fields --
+
+	@Parameter
+	private MetricsService metricsService;
+
+	// -- Filter API Methods --
+
+	@Override
+	public double getPriority() {
+		return Priority.VERY_HIGH_PRIORITY;
+	}
+
+	// -- Reader API Methods --
+
+	@Override
+	public void setSource(final String fileName) throws IOException {
+		setSource(fileName, new SCIFIOConfig());
+	}
+
+	@Override
+	public void setSource(final File file) throws IOException {
+		setSource(file.getAbsolutePath(), new SCIFIOConfig());
+	}
+
+	@Override
+	public void setSource(final RandomAccessInputStream stream)
+		throws IOException
+	{
+		setSource(stream, new SCIFIOConfig());
+	}
+
+	@Override
+	public void setSource(final File file, final SCIFIOConfig config)
+		throws IOException
+	{
+		setSource(file.getAbsolutePath(), config);
+	}
+
+	@Override
+	public void setSource(final String fileName, final SCIFIOConfig config)
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		try (MetricsScope scope = enter(fileName)) {
+			super.setSource(fileName, config);
+			metricsService.record(MetricsService.PARSE, System.nanoTime() - start,
+				0);
+		}
+	}
+
+	@Override
+	public void setSource(final RandomAccessInputStream stream,
+		final SCIFIOConfig config) throws IOException
+	{
+		final long start = System.nanoTime();
+		try (MetricsScope scope = enter(stream.getFileName())) {
+			super.setSource(stream, config);
+			metricsService.record(MetricsService.PARSE, System.nanoTime() - start,
+				0);
+		}
+	}
+
+	@Override
+	public Plane openPlane(final int imageIndex, final long planeIndex,
+		final SCIFIOConfig config) throws FormatException, IOException
+	{
+		final long start = System.nanoTime();
+		try (MetricsScope scope = enter(getCurrentFile())) {
+			final Plane plane = super.openPlane(imageIndex, planeIndex, config);
+			opened(imageIndex, null, start);
+			return plane;
+		}
+	}
+
+	@Override
+	public Plane openPlane(final int imageIndex, final long planeIndex,
+		final long[] planeMin, final long[] planeMax, final SCIFIOConfig config)
+		throws FormatException, IOException
+	{
+		final long start = System.nanoTime();
+		try (MetricsScope scope = enter(getCurrentFile())) {
+			final Plane plane = super.openPlane(imageIndex, planeIndex, planeMin,
+				planeMax, config);
+			opened(imageIndex, planeMax, start);
+			return plane;
+		}
+	}
+
+	@Override
+	public Plane openPlane(final int imageIndex, final long planeIndex,
+		final Plane plane, final SCIFIOConfig config) throws FormatException,
+		IOException
+	{
+		final long start = System.nanoTime();
+		try (MetricsScope scope = enter(getCurrentFile())) {
+			final Plane p = super.openPlane(imageIndex, planeIndex, plane, config);
+			opened(imageIndex, null, start);
+			return p;
+		}
+	}
+
+	@Override
+	public Plane openPlane(final int imageIndex, final long planeIndex,
+		final Plane plane, final long[] planeMin, final long[] planeMax,
+		final SCIFIOConfig config) throws FormatException, IOException
+	{
+		final long start = System.nanoTime();
+		try (MetricsScope scope = enter(getCurrentFile())) {
+			final Plane p = super.openPlane(imageIndex, planeIndex, plane, planeMin,
+				planeMax, config);
+			opened(imageIndex, planeMax, start);
+			return p;
+		}
+	}
+
+	// -- Helper methods --
+
+	/** @return The entered scope, or null if metrics are disabled. */
+	private MetricsScope enter(final String dataset) {
+		if (!metricsService.isEnabled()) return null;
+		return metricsService.enter(dataset, getFormatName());
+	}
+
+	/** Records an {@code openPlane} call of the given region. */
+	private void opened(final int imageIndex, final long[] lengths,
+		final long start)
+	{
+		final long nanos = System.nanoTime() - start;
+		final ImageMetadata meta = getMetadata().get(imageIndex);
+		long bytes = meta.getBitsPerPixel() / 8;
+		if (lengths == null) bytes = meta.getPlaneSize();
+		else {
+			for (final long length : lengths) {
+				bytes *= length;
+			}
+		}
+		metricsService.record(MetricsService.OPEN_PLANE, nanos, bytes);
+	}
+}
@@ -59,20 +59,11 @@ public class PlaneSeparator extends AbstractReaderFilter {
 
 	// -- Fields --
 
-	/** Last plane opened. */
-	private Plane lastPlane = null;
+	/** Last parent plane opened, with the region it covers. */
+	private volatile LastPlane lastPlane = null;
 
-	/** Index of last plane opened. */
-	private long lastPlaneIndex = -1;
-
-	/** Index of last plane opened. */
-	private int lastImageIndex = -1;
-
-	/** Offsets of last plane opened. */
-	private long[] lastPlaneOffsets = null;
-
-	/** Lengths of last plane opened. */
-	private long[] lastPlaneLengths = null;
+	/** Per-thread buffers for strips of planes too large to read at once. */
+	private ThreadLocal<byte[]> stripBuffers = new ThreadLocal<>();
 
 	// -- Constructor --
 
@@ -187,7 +178,8 @@ public class PlaneSeparator extends AbstractReaderFilter {
 	{
 		final int planarAxes = getMetadata().get(imageIndex).getPlanarAxisCount();
 		return openPlane(imageIndex, planeIndex, new long[planarAxes],
-			getMetadata().get(imageIndex).getAxesLengthsPlanar(), config);
+			getMetadata().get(imageIndex).getAxesLengthsPlanar(
+				config.imgOpenerGetResolution()), config);
 	}
 
 	@Override
@@ -197,7 +189,8 @@ public class PlaneSeparator extends AbstractReaderFilter {
 	{
 		final int planarAxes = getMetadata().get(imageIndex).getPlanarAxisCount();
 		return openPlane(imageIndex, planeIndex, plane, new long[planarAxes],
-			getMetadata().get(imageIndex).getAxesLengthsPlanar(), config);
+			getMetadata().get(imageIndex).getAxesLengthsPlanar(
+				config.imgOpenerGetResolution()), config);
 	}
 
 	@Override
@@ -218,6 +211,7 @@ public class PlaneSeparator extends AbstractReaderFilter {
 		FormatTools.checkPlaneNumber(getMetadata(), imageIndex, planeIndex);
 		final Metadata meta = getMetadata();
 		final Metadata parentMeta = getParentMeta();
+		final int resolution = config.imgOpenerGetResolution();
 
 		// Get the original index
 		final long source = getOriginalIndex(imageIndex, planeIndex);
@@ -227,133 +221,134 @@ public class PlaneSeparator extends AbstractReaderFilter {
 		final boolean interleaved =
 			parentMeta.get(imageIndex).getInterleavedAxisCount() > 0;
 
-		synchronized (this) {
-			if (!parentMeta.get(imageIndex).isIndexed()) {
-				// -> if one or more axes was split out...
-				// dividing current split axis count by parent effective size c
-				// (actual
-				// c
-				// planes).. shouldn't need to do that any more
-				// trying to determine the positions for each converted axis...
-				// should
-				// just be raster to position on just the converted lengths
-
-				// Get the position of the current plane
-				final long[] completePosition =
-					FormatTools.rasterToPosition(imageIndex, planeIndex, meta);
-				// Isolate the position and lengths of the axis (axes) that have
-				// been
-				// split
-				final long[] separatedPosition =
-					Arrays.copyOf(completePosition, splitOffset);
-				final long[] separatedLengths =
-					Arrays.copyOf(meta.get(imageIndex).getAxesLengthsNonPlanar(),
-						splitOffset);
-				final int bpp =
-					FormatTools.getBytesPerPixel(meta.get(imageIndex).getPixelType());
-
-				// Need a byte array plane to copy data into
-				if (!ByteArrayPlane.class.isAssignableFrom(plane.getClass())) {
-					plane =
-						new ByteArrayPlane(getContext(), meta.get(imageIndex), offsets,
-							lengths);
+		// Convert the current positional information to the format of the parent
+		final long[] parentOffsets = new long[offsets.length + splitOffset];
+		final long[] parentLengths = new long[lengths.length + splitOffset];
+		toParentRegion(imageIndex, offsets, lengths, parentOffsets, parentLengths);
+
+		// NB: the last plane is read once into a local, so that concurrent
+		// callers each see a consistent plane and region. Only the parent
+		// reader is locked, while the channels are split without locking.
+		LastPlane cached = lastPlane;
+		final boolean haveCached =
+			cached != null &&
+				cached.matches(imageIndex, source, parentOffsets, parentLengths,
+					resolution);
+
+		if (parentMeta.get(imageIndex).isIndexed()) {
+			if (!haveCached) {
+				// Delegate directly to the parent, caching a plane of our own, as
+				// the caller may reuse its plane
+				final Plane opened;
+				synchronized (getParent()) {
+					opened =
+						getParent().openPlane(imageIndex, planeIndex, parentOffsets,
+							parentLengths, config);
 				}
+				cached =
+					new LastPlane(imageIndex, source, parentOffsets, parentLengths,
+						resolution, opened);
+				lastPlane = cached;
+			}
+			return cached.copyTo(plane);
+		}
 
-				if (!haveCached(source, imageIndex, offsets, lengths)) {
-					int strips = 1;
-
-					// check how big the original image is; if it's larger than
-					// the
-					// available memory, we will need to split it into strips
-					// (of the last
-					// planar axis)
-
-					final long availableMemory = MemoryTools.totalAvailableMemory() / 16;
-					final long planeSize = meta.get(imageIndex).getPlaneSize();
-					// If we make strips, they will be of the Y axis
-					final long h = lengths[meta.get(imageIndex).getAxisIndex(Axes.Y)];
-
-					if (availableMemory < planeSize || planeSize > Integer.MAX_VALUE) {
-						strips = (int) Math.sqrt(h);
-					}
-
-					// Compute strip height, and the height of the last strip
-					// (in case the
-					// plane is not evenly divisible).
-					final long stripHeight = h / strips;
-					final long lastStripHeight =
-						stripHeight + (h - (stripHeight * strips));
-					byte[] strip =
-						strips == 1 ? plane.getBytes() : new byte[(int) (stripHeight *
-							ArrayUtils.safeMultiply32(Arrays.copyOf(lengths,
-								lengths.length - 1)) * bpp)];
-					updateLastPlaneInfo(source, imageIndex, splitOffset, offsets, lengths);
-					final int parentYIndex =
-						parentMeta.get(imageIndex).getAxisIndex(Axes.Y);
-					final int yIndex = meta.get(imageIndex).getAxisIndex(Axes.Y);
-
-					// Populate the strips
-					for (int i = 0; i < strips; i++) {
-						// Update length and offset for current strip
-						lastPlaneOffsets[parentYIndex] =
-							offsets[yIndex] + (i * stripHeight);
-						lastPlaneLengths[parentYIndex] =
-							i == strips - 1 ? lastStripHeight : stripHeight;
-
-						// Open the plane
-						lastPlane =
-							getParent().openPlane(imageIndex, (int) source, lastPlaneOffsets,
-								lastPlaneLengths, config);
-						// store the color table
-						plane.setColorTable(lastPlane.getColorTable());
-
-						// Adjust the strip array if this is the last strip, if
-						// needed
-						if (strips != 1 && lastStripHeight != stripHeight &&
-							i == strips - 1)
-						{
-							strip =
-								new byte[(int) (lastStripHeight *
-									ArrayUtils.safeMultiply32(Arrays.copyOf(lengths,
-										lengths.length - 1)) * bpp)];
-						}
-
-						// Extract the requested channel from the plane
-						ImageTools.splitChannels(lastPlane.getBytes(), strip,
-							separatedPosition, separatedLengths, bpp, false, interleaved,
-							strips == 1 ? bpp * ArrayUtils.safeMultiply32(lengths)
-								: strip.length);
-						if (strips != 1) {
-							System.arraycopy(strip, 0, plane.getBytes(), (int) (i *
-								stripHeight * ArrayUtils.safeMultiply32(Arrays.copyOf(lengths,
-								lengths.length - 1))) *
-								bpp, strip.length);
-						}
-					}
-				}
-				else {
-					// Have a cached instance of the plane containing the
-					// desired region
-					ImageTools.splitChannels(lastPlane.getBytes(), plane.getBytes(),
-						separatedPosition, separatedLengths, bpp, false, interleaved, bpp *
-							ArrayUtils.safeMultiply32(lengths));
-				}
+		// Get the position of the current plane
+		final long[] completePosition =
+			FormatTools.rasterToPosition(imageIndex, planeIndex, meta);
+		// Isolate the position and lengths of the axis (axes) that have been
+		// split
+		final long[] separatedPosition =
+			Arrays.copyOf(completePosition, splitOffset);
+		final long[] separatedLengths =
+			Arrays.copyOf(meta.get(imageIndex).getAxesLengthsNonPlanar(),
+				splitOffset);
+		final int bpp =
+			FormatTools.getBytesPerPixel(meta.get(imageIndex).getPixelType());
 
-				return plane;
-			}
+		// Need a byte array plane to copy data into
+		if (!ByteArrayPlane.class.isAssignableFrom(plane.getClass())) {
+			plane =
+				new ByteArrayPlane(getContext(), meta.get(imageIndex), offsets,
+					lengths);
+		}
+
+		if (haveCached) {
+			// Have a cached instance of the plane containing the desired region
+			ImageTools.splitChannels(cached.getPlane().getBytes(), plane.getBytes(),
+				separatedPosition, separatedLengths, bpp, false, interleaved, bpp *
+					ArrayUtils.safeMultiply32(lengths));
+			plane.setColorTable(cached.getPlane().getColorTable());
+			return plane;
+		}
+
+		int strips = 1;
+
+		// check how big the original image is; if it's larger than the
+		// available memory, we will need to split it into strips (of the last
+		// planar axis)
+
+		final long availableMemory = MemoryTools.totalAvailableMemory() / 16;
+		final long planeSize = meta.get(imageIndex).getPlaneSize();
+		// If we make strips, they will be of the Y axis
+		final long h = lengths[meta.get(imageIndex).getAxisIndex(Axes.Y)];
+
+		if (availableMemory < planeSize || planeSize > Integer.MAX_VALUE) {
+			strips = (int) Math.sqrt(h);
+		}
 
-			if (!haveCached(source, imageIndex, offsets, lengths)) {
-				// Convert the current positional information to the format of
-				// the
-				// parent
-				updateLastPlaneInfo(source, imageIndex, splitOffset, offsets, lengths);
-				// Delegate directly to the parent
+		// Compute strip height, and the height of the last strip (in case the
+		// plane is not evenly divisible).
+		final long stripHeight = h / strips;
+		final long lastStripHeight = stripHeight + (h - (stripHeight * strips));
+		final int rowBytes =
+			ArrayUtils.safeMultiply32(Arrays.copyOf(lengths, lengths.length - 1)) *
+				bpp;
+		final byte[] strip =
+			strips == 1 ? plane.getBytes() : stripBuffer((int) (lastStripHeight *
+				rowBytes));
+		final int parentYIndex = parentMeta.get(imageIndex).getAxisIndex(Axes.Y);
+		final int yIndex = meta.get(imageIndex).getAxisIndex(Axes.Y);
+		final long[] stripOffsets =
+			Arrays.copyOf(parentOffsets, parentOffsets.length);
+		final long[] stripLengths =
+			Arrays.copyOf(parentLengths, parentLengths.length);
+
+		// Populate the strips
+		for (int i = 0; i < strips; i++) {
+			// Update length and offset for current strip
+			stripOffsets[parentYIndex] = offsets[yIndex] + (i * stripHeight);
+			stripLengths[parentYIndex] =
+				i == strips - 1 ? lastStripHeight : stripHeight;
+			final int stripBytes = (int) (stripLengths[parentYIndex] * rowBytes);
+
+			// Open the plane
+			final Plane opened;
+			synchronized (getParent()) {
+				opened =
+					getParent().openPlane(imageIndex, source, stripOffsets,
+						stripLengths, config);
+			}
+			// store the color table
+			plane.setColorTable(opened.getColorTable());
+
+			// Extract the requested channel from the plane
+			ImageTools.splitChannels(opened.getBytes(), strip, separatedPosition,
+				separatedLengths, bpp, false, interleaved, strips == 1 ? bpp *
+					ArrayUtils.safeMultiply32(lengths) : stripBytes);
+			if (strips == 1) {
+				// only a whole plane can be reused for the other channels
 				lastPlane =
-					getParent().openPlane(imageIndex, planeIndex, plane,
-						lastPlaneOffsets, lastPlaneLengths, config);
+					new LastPlane(imageIndex, source, parentOffsets, parentLengths,
+						resolution, opened);
+			}
+			else {
+				System.arraycopy(strip, 0, plane.getBytes(), (int) (i * stripHeight *
+					rowBytes), stripBytes);
 			}
 		}
-		return lastPlane;
+
+		return plane;
 	}
 
 	@Override
@@ -402,20 +397,27 @@ public class PlaneSeparator extends AbstractReaderFilter {
 
 	// -- Helper Methods --
 
+	/** Gets this thread's strip buffer, growing it as needed. */
+	private byte[] stripBuffer(final int size) {
+		byte[] buf = stripBuffers.get();
+		if (buf == null || buf.length < size) {
+			buf = new byte[size];
+			stripBuffers.set(buf);
+		}
+		return buf;
+	}
+
 	/**
 	 * Converts the given plane information using the current metadata to a format
-	 * usable by the wrapped reader, stored in the "lastPlane"... variables.
+	 * usable by the wrapped reader, stored in the given parent offsets and
+	 * lengths.
 	 */
-	private void updateLastPlaneInfo(final long source, final int imageIndex,
-		final int splitOffset, final long[] offsets, final long[] lengths)
+	private void toParentRegion(final int imageIndex, final long[] offsets,
+		final long[] lengths, final long[] parentOffsets,
+		final long[] parentLengths)
 	{
 		final Metadata meta = getMetadata();
 		final Metadata parentMeta = getParentMeta();
-		lastPlaneIndex = source;
-		lastImageIndex = imageIndex;
-		// create the plane offsets and lengths to match the underlying image
-		lastPlaneOffsets = new long[offsets.length + splitOffset];
-		lastPlaneLengths = new long[lengths.length + splitOffset];
 
 		// Create the offset and length arrays to match the underlying,
 		// unsplit dimensions. This is required to pass to the wrapped reader.
@@ -430,62 +432,26 @@ public class PlaneSeparator extends AbstractReaderFilter {
 			if (currentIndex >= 0 &&
 				currentIndex < meta.get(imageIndex).getPlanarAxisCount())
 			{
-				lastPlaneOffsets[parentIndex] = offsets[currentIndex];
-				lastPlaneLengths[parentIndex] = lengths[currentIndex];
+				parentOffsets[parentIndex] = offsets[currentIndex];
+				parentLengths[parentIndex] = lengths[currentIndex];
 			}
 			// This axis is a planar axis in the underlying metadata that was
 			// split out, so we will insert a [0,length] range
 			else if (parentMeta.get(imageIndex).getAxisIndex(axis.type()) < parentMeta
 				.get(imageIndex).getPlanarAxisCount())
 			{
-				lastPlaneOffsets[parentIndex] = 0;
-				lastPlaneLengths[parentIndex] =
+				parentOffsets[parentIndex] = 0;
+				parentLengths[parentIndex] =
 					parentMeta.get(imageIndex).getAxisLength(axis.type());
 			}
 		}
 	}
 
-	/**
-	 * Returns true if we have a cached plane matching the given image and plane
-	 * indices, with extents to cover the desired offsets and lengths
-	 */
-	private boolean haveCached(final long source, final int imageIndex,
-		final long[] offsets, final long[] lengths)
-	{
-		boolean matches = source == lastPlaneIndex;
-		matches = matches && (imageIndex == lastImageIndex);
-
-		if (lastPlane != null && lastPlaneOffsets != null &&
-			lastPlaneLengths != null)
-		{
-			for (int i = 0; i < offsets.length && matches; i++) {
-				// TODO It would be nice to fix up this logic so that we can use
-				// cached
-				// planes when requesting a sub-region of the cached plane.
-				// See https://github.com/scifio/scifio/issues/155
-				// Make sure we have the starting point in each axis
-				matches = matches && offsets[i] == lastPlaneOffsets[i];
-				// make sure we have the last positions in each axis
-				matches =
-					matches &&
-						offsets[i] + lengths[i] == lastPlaneOffsets[i] +
-							lastPlaneLengths[i];
-			}
-		}
-		else {
-			matches = false;
-		}
-		return matches;
-	}
-
 	/* Resets local fields. */
 	@Override
 	protected void cleanUp() throws IOException {
 		super.cleanUp();
 		lastPlane = null;
-		lastPlaneIndex = -1;
-		lastImageIndex = -1;
-		lastPlaneOffsets = null;
-		lastPlaneLengths = null;
+		stripBuffers = new ThreadLocal<>();
 	}
 }
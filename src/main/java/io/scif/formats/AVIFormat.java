@@ -55,6 +55,7 @@ import io.scif.common.Constants;
 import io.scif.config.SCIFIOConfig;
 import io.scif.io.RandomAccessInputStream;
 import io.scif.io.RandomAccessOutputStream;
+import io.scif.util.CheckpointCache;
 import io.scif.util.FormatTools;
 import io.scif.util.ImageTools;
 import io.scif.util.SCIFIOMetadataTools;
@@ -186,6 +187,9 @@ public class AVIFormat extends AbstractFormat {
 
 		private int[] lastDims;
 
+		/** Decoded checkpoint frames of inter-frame compressed movies. */
+		private transient CheckpointCache checkpoints;
+
 		// -- Metadata Accessors --
 
 		public short getBmpBitsPerPixel() {
@@ -272,6 +276,14 @@ public class AVIFormat extends AbstractFormat {
 			this.lastPlaneIndex = lastPlaneIndex;
 		}
 
+		public CheckpointCache getCheckpoints() {
+			return checkpoints;
+		}
+
+		public void setCheckpoints(final CheckpointCache checkpoints) {
+			this.checkpoints = checkpoints;
+		}
+
 		public int getBytesPerPlane() {
 			return bytesPerPlane;
 		}
@@ -413,6 +425,8 @@ public class AVIFormat extends AbstractFormat {
 			if (!fileOnly) {
 				lastPlane = null;
 				lastPlaneIndex = -1;
+				if (checkpoints != null) checkpoints.close();
+				checkpoints = null;
 				bmpColorsUsed = bmpWidth = bmpCompression = bmpScanLineSize = 0;
 				bmpBitsPerPixel = 0;
 				bytesPerPlane = 0;
@@ -882,7 +896,7 @@ public class AVIFormat extends AbstractFormat {
 			getStream().seek(fileOff);
 
 			if (meta.getBmpCompression() != 0 && meta.getBmpCompression() != Y8) {
-				uncompress(imageIndex, planeIndex, plane, x, y, w, h);
+				uncompress(imageIndex, planeIndex, plane, x, y, w, h, config);
 				return plane;
 			}
 
@@ -995,8 +1009,8 @@ public class AVIFormat extends AbstractFormat {
 
 		private ByteArrayPlane uncompress(final int imageIndex,
 			final long planeIndex, final ByteArrayPlane plane, final int x,
-			final int y, final int w, final int h) throws FormatException,
-			IOException
+			final int y, final int w, final int h, final SCIFIOConfig config)
+			throws FormatException, IOException
 		{
 			final Metadata meta = getMetadata();
 			byte[] buf = null;
@@ -1030,6 +1044,7 @@ public class AVIFormat extends AbstractFormat {
 					options.previousImage = meta.getLastPlaneBytes();
 				}
 				if (options.previousImage == null && meta.getBmpCompression() != JPEG) {
+					seekCheckpoint(imageIndex, planeIndex, config);
 					while (meta.getLastPlaneIndex() < planeIndex - 1) {
 						openPlane(imageIndex, meta.getLastPlaneIndex() + 1, tmpPlane);
 					}
@@ -1056,6 +1071,52 @@ public class AVIFormat extends AbstractFormat {
 			return plane;
 		}
 
+		/**
+		 * Moves the last decoded plane to the closest point from which the given
+		 * plane can be decoded: either the last decoded plane itself, the last
+		 * checkpoint before the given plane, or the start of the movie.
+		 */
+		private void seekCheckpoint(final int imageIndex, final long planeIndex,
+			final SCIFIOConfig config) throws IOException
+		{
+			final Metadata meta = getMetadata();
+			final CheckpointCache checkpoints = getCheckpoints(config);
+			final long last =
+				meta.getLastPlaneIndex() < planeIndex ? meta.getLastPlaneIndex() : -1;
+			final long checkpoint =
+				checkpoints == null ? -1 : checkpoints.nearest(planeIndex - 1);
+			if (checkpoint > last) {
+				final long[] lengths =
+					meta.get(imageIndex).getAxesLengthsPlanar();
+				meta.setLastPlane(new ByteArrayPlane(getContext()).populate(meta
+					.get(imageIndex), checkpoints.get(checkpoint),
+					new long[lengths.length], lengths));
+				meta.setLastPlaneIndex(checkpoint);
+				meta.setLastDimensions(new int[] { 0, 0,
+					(int) meta.get(imageIndex).getAxisLength(Axes.X),
+					(int) meta.get(imageIndex).getAxisLength(Axes.Y) });
+			}
+			else if (last < 0) {
+				// decoding must restart from the first plane
+				meta.setLastPlane(null);
+				meta.setLastPlaneIndex(-1);
+				meta.setLastDimensions(null);
+			}
+		}
+
+		/** Gets the checkpoints of the movie, created on first use. */
+		private CheckpointCache getCheckpoints(final SCIFIOConfig config) {
+			final Metadata meta = getMetadata();
+			if (meta.getCheckpoints() == null &&
+				config.readerGetCheckpointInterval() > 0)
+			{
+				meta.setCheckpoints(new CheckpointCache(config
+					.readerGetCheckpointInterval(), config.readerGetCheckpointMemory(),
+					config.readerGetCheckpointDirectory()));
+			}
+			return meta.getCheckpoints();
+		}
+
 		private boolean sufficientRegion(final Metadata meta, final int x,
 			final int y, final int w, final int h)
 		{
@@ -1817,6 +1878,9 @@ public class AVIFormat extends AbstractFormat {
 				stream.read(b);
 				final MSRLECodec codec = codecService.getCodec(MSRLECodec.class);
 				buf = codec.decompress(b, options);
+				if (meta.getCheckpoints() != null) {
+					meta.getCheckpoints().put(planeIndex, buf);
+				}
 				plane.setData(buf);
 				if (updateLastPlane(meta, planeIndex, dims)) {
 					meta.setLastPlane(plane);
@@ -1827,6 +1891,9 @@ public class AVIFormat extends AbstractFormat {
 			else if (bmpCompression == MS_VIDEO) {
 				final MSVideoCodec codec = codecService.getCodec(MSVideoCodec.class);
 				buf = codec.decompress(stream, options);
+				if (meta.getCheckpoints() != null) {
+					meta.getCheckpoints().put(planeIndex, buf);
+				}
 				plane.setData(buf);
 				if (updateLastPlane(meta, planeIndex, dims)) {
 					meta.setLastPlane(plane);
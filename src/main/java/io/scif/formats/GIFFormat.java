@@ -45,6 +45,8 @@ import io.scif.io.RandomAccessInputStream;
 import io.scif.util.FormatTools;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Vector;
 
 import net.imagej.axis.Axes;
@@ -65,6 +67,12 @@ public class GIFFormat extends AbstractFormat {
 
 	public static final String GIF_MAGIC_STRING = "GIF";
 
+	/** Maximum buffer size. */
+	private static final int MAX_STACK_SIZE = 4096;
+
+	/** Number of recently decoded frames kept in memory. */
+	private static final int CACHED_FRAMES = 8;
+
 	// -- AbstractFormat Methods --
 
 	@Override
@@ -119,10 +127,20 @@ public class GIFFormat extends AbstractFormat {
 
 		private byte[] pixels;
 
-		private Vector<byte[]> images;
+		/** Offsets of each frame's image descriptor. */
+		private Vector<Long> offsets;
+
+		/** Disposal method of the frame preceding each frame. */
+		private Vector<Integer> disposes;
 
 		private Vector<int[]> colorTables;
 
+		/** Recently decoded frames, as stored in the file. */
+		private transient Map<Long, byte[]> rawFrames;
+
+		/** Recently decoded frames, with transparent pixels filled in. */
+		private transient Map<Long, byte[]> frames;
+
 		// -- GIFMetadata getters and setters --
 
 		/**
@@ -273,12 +291,37 @@ public class GIFFormat extends AbstractFormat {
 			this.pixels = pixels;
 		}
 
-		public Vector<byte[]> getImages() {
-			return images;
+		public Vector<Long> getOffsets() {
+			return offsets;
+		}
+
+		public void setOffsets(final Vector<Long> offsets) {
+			this.offsets = offsets;
 		}
 
-		public void setImages(final Vector<byte[]> images) {
-			this.images = images;
+		public Vector<Integer> getDisposes() {
+			return disposes;
+		}
+
+		public void setDisposes(final Vector<Integer> disposes) {
+			this.disposes = disposes;
+		}
+
+		/**
+		 * @return Recently decoded frames, as stored in the file
+		 */
+		public Map<Long, byte[]> getRawFrames() {
+			if (rawFrames == null) rawFrames = createFrameCache();
+			return rawFrames;
+		}
+
+		/**
+		 * @return Recently decoded frames, with their transparent pixels filled in
+		 *         from the previous frames
+		 */
+		public Map<Long, byte[]> getFrames() {
+			if (frames == null) frames = createFrameCache();
+			return frames;
 		}
 
 		public Vector<int[]> getColorTables() {
@@ -317,8 +360,10 @@ public class GIFFormat extends AbstractFormat {
 				gct = act;
 				prefix = null;
 				suffix = pixelStack = pixels = null;
-				images = null;
+				offsets = null;
+				disposes = null;
 				colorTables = null;
+				rawFrames = frames = null;
 				dBlock = new byte[length];
 			}
 		}
@@ -344,6 +389,19 @@ public class GIFFormat extends AbstractFormat {
 			return cachedTable;
 		}
 
+		// -- Helper methods --
+
+		private Map<Long, byte[]> createFrameCache() {
+			return new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+
+				@Override
+				protected boolean removeEldestEntry(
+					final Map.Entry<Long, byte[]> eldest)
+				{
+					return size() > CACHED_FRAMES;
+				}
+			};
+		}
 	}
 
 	public static class Checker extends AbstractChecker {
@@ -372,9 +430,6 @@ public class GIFFormat extends AbstractFormat {
 
 		private static final int GRAPHICS = 0xf9;
 
-		/** Maximum buffer size. */
-		private static final int MAX_STACK_SIZE = 4096;
-
 		// -- Parser API Methods --
 
 		@Override
@@ -385,7 +440,8 @@ public class GIFFormat extends AbstractFormat {
 			log().info("Verifying GIF format");
 
 			stream.order(true);
-			meta.setImages(new Vector<byte[]>());
+			meta.setOffsets(new Vector<Long>());
+			meta.setDisposes(new Vector<Integer>());
 			meta.setColorTables(new Vector<int[]>());
 
 			final String ident = getSource().readString(6);
@@ -466,39 +522,181 @@ public class GIFFormat extends AbstractFormat {
 		}
 
 		private void readImageBlock() throws FormatException, IOException {
-			getMetadata().setIx(getSource().readShort());
-			getMetadata().setIy(getSource().readShort());
-			getMetadata().setIw(getSource().readShort());
-			getMetadata().setIh(getSource().readShort());
+			final Metadata meta = getMetadata();
+
+			// record where the frame starts, to decode it when it is opened
+			meta.getOffsets().add(getSource().getFilePointer());
+			meta.getDisposes().add(meta.getLastDispose());
+
+			meta.setIx(getSource().readShort());
+			meta.setIy(getSource().readShort());
+			meta.setIw(getSource().readShort());
+			meta.setIh(getSource().readShort());
 
 			final int packed = getSource().read();
 			final boolean lctFlag = (packed & 0x80) != 0;
-			getMetadata().setInterlace((packed & 0x40) != 0);
+			meta.setInterlace((packed & 0x40) != 0);
 			final int lctSize = 2 << (packed & 7);
 
-			getMetadata().setAct(lctFlag ? readLut(lctSize) : getMetadata().getGct());
+			meta.setAct(lctFlag ? readLut(lctSize) : meta.getGct());
 
-			if (getMetadata().getAct() == null) throw new FormatException(
+			if (meta.getAct() == null) throw new FormatException(
 				"Color table not found.");
 
-			int save = 0;
+			meta.getColorTables().add(meta.getAct());
 
-			if (getMetadata().isTransparency()) {
-				save = getMetadata().getAct()[getMetadata().getTransIndex()];
-				getMetadata().getAct()[getMetadata().getTransIndex()] = 0;
-			}
-
-			decodeImageData();
+			// skip the LZW code size and the image data
+			getSource().skipBytes(1);
 			skipBlocks();
 
 			// Update the plane count
-			getMetadata().get(0).setAxisLength(Axes.TIME,
-				getMetadata().get(0).getAxisLength(Axes.TIME) + 1);
+			meta.get(0).setAxisLength(Axes.TIME,
+				meta.get(0).getAxisLength(Axes.TIME) + 1);
+
+			meta.setLastDispose(meta.getDispose());
+		}
+
+		/** Reads the next variable length block. */
+		private int readBlock() throws IOException {
+			return GIFUtils.readBlock(getSource(), getMetadata());
+		}
+
+		/** Read a color lookup table of the specified size. */
+		private int[] readLut(final int size) throws FormatException {
+			final int nbytes = 3 * size;
+			final byte[] c = new byte[nbytes];
+			int n = 0;
+			try {
+				n = getSource().read(c);
+			}
+			catch (final IOException e) {}
+
+			if (n < nbytes) {
+				throw new FormatException("Color table not found");
+			}
+
+			final int[] lut = new int[256];
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				final int r = c[j++] & 0xff;
+				final int g = c[j++] & 0xff;
+				final int b = c[j++] & 0xff;
+				lut[i] = 0xff000000 | (r << 16) | (g << 8) | b;
+			}
+			return lut;
+		}
+	}
+
+	public static class Reader extends ByteArrayReader<Metadata> {
+
+		// -- AbstractReader API Methods --
+
+		@Override
+		protected String[] createDomainArray() {
+			return new String[] { FormatTools.GRAPHICS_DOMAIN };
+		}
+
+		// -- Reader API Methods --
+
+		@Override
+		public ByteArrayPlane openPlane(final int imageIndex,
+			final long planeIndex, final ByteArrayPlane plane, final long[] planeMin,
+			final long[] planeMax, final SCIFIOConfig config) throws FormatException,
+			IOException
+		{
+			final byte[] buf = plane.getData();
+			final Metadata meta = getMetadata();
+			final int xIndex = meta.get(imageIndex).getAxisIndex(Axes.X);
+			final int yIndex = meta.get(imageIndex).getAxisIndex(Axes.Y);
+			plane.setColorTable(meta.getColorTable(0, 0));
+			FormatTools.checkPlaneForReading(meta, imageIndex, planeIndex,
+				buf.length, planeMin, planeMax);
+			final int x = (int) planeMin[xIndex], y = (int) planeMin[yIndex], w =
+				(int) planeMax[xIndex], h = (int) planeMax[yIndex];
+			final byte[] b = getFrame(planeIndex);
+			for (int row = 0; row < h; row++) {
+				System
+					.arraycopy(b, (row + y) *
+						(int) meta.get(imageIndex).getAxisLength(Axes.X) + x, buf, row * w,
+						w);
+			}
+
+			return plane;
+		}
+
+		// -- Helper methods --
+
+		/**
+		 * Gets the given frame, with its transparent pixels filled in from the
+		 * previous frames. This decodes forward from the last cached frame before
+		 * it, or from the first frame.
+		 */
+		private byte[] getFrame(final long planeIndex) throws IOException {
+			final Metadata meta = getMetadata();
+			if (!meta.isTransparency()) return getRawFrame(planeIndex);
 
-			if (getMetadata().isTransparency()) getMetadata().getAct()[getMetadata()
-				.getTransIndex()] = save;
+			final Map<Long, byte[]> frames = meta.getFrames();
+			byte[] frame = frames.get(planeIndex);
+			if (frame != null) return frame;
 
-			getMetadata().setLastDispose(getMetadata().getDispose());
+			long start = planeIndex;
+			while (start > 0 && !frames.containsKey(start - 1)) {
+				start--;
+			}
+			byte[] prev = start > 0 ? frames.get(start - 1) : null;
+			int idx = meta.getTransIndex();
+			if (idx >= 127) idx = 0;
+			for (long p = start; p <= planeIndex; p++) {
+				frame = getRawFrame(p);
+				if (prev != null) {
+					final int[] act = meta.getColorTables().get((int) p);
+					frame = frame.clone();
+					for (int i = 0; i < frame.length; i++) {
+						if ((act[frame[i] & 0xff] & 0xffffff) == idx) {
+							frame[i] = prev[i];
+						}
+					}
+				}
+				frames.put(p, frame);
+				prev = frame;
+			}
+			return frame;
+		}
+
+		/** Gets the given frame as stored in the file, decoding it if needed. */
+		private byte[] getRawFrame(final long planeIndex) throws IOException {
+			final Metadata meta = getMetadata();
+			byte[] frame = meta.getRawFrames().get(planeIndex);
+			if (frame != null) return frame;
+
+			final int width = (int) meta.get(0).getAxisLength(Axes.X);
+			final int height = (int) meta.get(0).getAxisLength(Axes.Y);
+			frame = new byte[width * height];
+
+			// fill in starting image contents based on last image's dispose
+			// code
+			if (meta.getDisposes().get((int) planeIndex) == 3 && planeIndex > 2) {
+				// use image before last
+				System.arraycopy(getRawFrame(planeIndex - 3), 0, frame, 0,
+					frame.length);
+			}
+
+			getStream().seek(meta.getOffsets().get((int) planeIndex));
+			meta.setIx(getStream().readShort());
+			meta.setIy(getStream().readShort());
+			meta.setIw(getStream().readShort());
+			meta.setIh(getStream().readShort());
+			final int packed = getStream().read();
+			meta.setInterlace((packed & 0x40) != 0);
+			if ((packed & 0x80) != 0) {
+				// skip the local color table, read while parsing
+				getStream().skipBytes(3 * (2 << (packed & 7)));
+			}
+
+			decodeImageData();
+			setPixels(frame);
+			meta.getRawFrames().put(planeIndex, frame);
+			return frame;
 		}
 
 		/** Decodes LZW image data into a pixel array. Adapted from ImageMagick. */
@@ -524,7 +722,7 @@ public class GIFFormat extends AbstractFormat {
 
 			// initialize GIF data stream decoder
 
-			final int dataSize = getSource().read() & 0xff;
+			final int dataSize = getStream().read() & 0xff;
 
 			final int clear = 1 << dataSize;
 			final int eoi = clear + 1;
@@ -616,41 +814,23 @@ public class GIFFormat extends AbstractFormat {
 			for (i = pi; i < npix; i++)
 				pixels[i] = 0;
 			getMetadata().setPixels(pixels);
-			setPixels();
 		}
 
-		private void setPixels() {
-			// expose destination image's pixels as an int array
-			final byte[] dest =
-				new byte[(int) (getMetadata().get(0).getAxisLength(Axes.X) * getMetadata()
-					.get(0).getAxisLength(Axes.Y))];
-			long lastImage = -1;
-
-			// fill in starting image contents based on last image's dispose
-			// code
-			if (getMetadata().getLastDispose() > 0) {
-				if (getMetadata().getLastDispose() == 3) { // use image before last
-					final long n = getMetadata().get(0).getPlaneCount() - 2;
-					if (n > 0) lastImage = n - 1;
-				}
-
-				if (lastImage != -1) {
-					final byte[] prev = getMetadata().getImages().get((int) lastImage);
-					System.arraycopy(prev, 0, dest, 0,
-						(int) (getMetadata().get(0).getAxisLength(Axes.X) * getMetadata()
-							.get(0).getAxisLength(Axes.Y)));
-				}
-			}
+		/** Copies the decoded pixels into the frame's rectangle of the image. */
+		private void setPixels(final byte[] dest) {
+			final Metadata meta = getMetadata();
+			final int width = (int) meta.get(0).getAxisLength(Axes.X);
+			final int height = (int) meta.get(0).getAxisLength(Axes.Y);
 
 			// copy each source line to the appropriate place in the destination
 
 			int pass = 1;
 			int inc = 8;
 			int iline = 0;
-			for (int i = 0; i < getMetadata().getIh(); i++) {
+			for (int i = 0; i < meta.getIh(); i++) {
 				int line = i;
-				if (getMetadata().isInterlace()) {
-					if (iline >= getMetadata().getIh()) {
+				if (meta.isInterlace()) {
+					if (iline >= meta.getIh()) {
 						pass++;
 						switch (pass) {
 							case 2:
@@ -669,125 +849,53 @@ public class GIFFormat extends AbstractFormat {
 					line = iline;
 					iline += inc;
 				}
-				line += getMetadata().getIy();
-				if (line < getMetadata().get(0).getAxisLength(Axes.Y)) {
-					final int k = line * (int) getMetadata().get(0).getAxisLength(Axes.X);
-					int dx = k + getMetadata().getIx(); // start of line in dest
-					int dlim = dx + getMetadata().getIw(); // end of dest line
-					if ((k + getMetadata().get(0).getAxisLength(Axes.X)) < dlim) dlim =
-						k + (int) getMetadata().get(0).getAxisLength(Axes.X);
-					int sx = i * getMetadata().getIw(); // start of line in
-					// source
-					while (dx < dlim) {
-						// map color and insert in destination
-						final int index = getMetadata().getPixels()[sx++] & 0xff;
-						dest[dx++] = (byte) index;
+				line += meta.getIy();
+				if (line < height) {
+					final int k = line * width;
+					final int dx = k + meta.getIx(); // start of line in dest
+					int dlim = dx + meta.getIw(); // end of dest line
+					if ((k + width) < dlim) dlim = k + width;
+					final int sx = i * meta.getIw(); // start of line in source
+					if (dx < dlim) {
+						System.arraycopy(meta.getPixels(), sx, dest, dx, dlim - dx);
 					}
 				}
 			}
-			getMetadata().getColorTables().add(getMetadata().getAct());
-			getMetadata().getImages().add(dest);
 		}
 
 		/** Reads the next variable length block. */
 		private int readBlock() throws IOException {
-			if (getSource().getFilePointer() == getSource().length()) return -1;
-			getMetadata().setBlockSize(getSource().read() & 0xff);
+			return GIFUtils.readBlock(getStream(), getMetadata());
+		}
+	}
+
+	/*
+	 * Utility Helper class
+	 */
+	private static class GIFUtils {
+
+		/** Reads the next variable length block. */
+		public static int readBlock(final RandomAccessInputStream in,
+			final Metadata meta) throws IOException
+		{
+			if (in.getFilePointer() == in.length()) return -1;
+			meta.setBlockSize(in.read() & 0xff);
 			int n = 0;
 			int count;
 
-			if (getMetadata().getBlockSize() > 0) {
+			if (meta.getBlockSize() > 0) {
 				try {
-					while (n < getMetadata().getBlockSize()) {
-						count =
-							getSource().read(getMetadata().getdBlock(), n,
-								getMetadata().getBlockSize() - n);
+					while (n < meta.getBlockSize()) {
+						count = in.read(meta.getdBlock(), n, meta.getBlockSize() - n);
 						if (count == -1) break;
 						n += count;
 					}
 				}
 				catch (final IOException e) {
-					log().trace("Truncated block", e);
+					meta.log().trace("Truncated block", e);
 				}
 			}
 			return n;
 		}
-
-		/** Read a color lookup table of the specified size. */
-		private int[] readLut(final int size) throws FormatException {
-			final int nbytes = 3 * size;
-			final byte[] c = new byte[nbytes];
-			int n = 0;
-			try {
-				n = getSource().read(c);
-			}
-			catch (final IOException e) {}
-
-			if (n < nbytes) {
-				throw new FormatException("Color table not found");
-			}
-
-			final int[] lut = new int[256];
-			int j = 0;
-			for (int i = 0; i < size; i++) {
-				final int r = c[j++] & 0xff;
-				final int g = c[j++] & 0xff;
-				final int b = c[j++] & 0xff;
-				lut[i] = 0xff000000 | (r << 16) | (g << 8) | b;
-			}
-			return lut;
-		}
-	}
-
-	public static class Reader extends ByteArrayReader<Metadata> {
-
-		// -- AbstractReader API Methods --
-
-		@Override
-		protected String[] createDomainArray() {
-			return new String[] { FormatTools.GRAPHICS_DOMAIN };
-		}
-
-		// -- Reader API Methods --
-
-		@Override
-		public ByteArrayPlane openPlane(final int imageIndex,
-			final long planeIndex, final ByteArrayPlane plane, final long[] planeMin,
-			final long[] planeMax, final SCIFIOConfig config) throws FormatException,
-			IOException
-		{
-			final byte[] buf = plane.getData();
-			final Metadata meta = getMetadata();
-			final int xIndex = meta.get(imageIndex).getAxisIndex(Axes.X);
-			final int yIndex = meta.get(imageIndex).getAxisIndex(Axes.Y);
-			plane.setColorTable(meta.getColorTable(0, 0));
-			FormatTools.checkPlaneForReading(meta, imageIndex, planeIndex,
-				buf.length, planeMin, planeMax);
-			final int x = (int) planeMin[xIndex], y = (int) planeMin[yIndex], w =
-				(int) planeMax[xIndex], h = (int) planeMax[yIndex];
-			final int[] act = meta.getColorTables().get((int) planeIndex);
-
-			final byte[] b = meta.getImages().get((int) planeIndex);
-			if (planeIndex > 0 && meta.isTransparency()) {
-				final byte[] prev = meta.getImages().get((int) planeIndex - 1);
-				int idx = meta.getTransIndex();
-				if (idx >= 127) idx = 0;
-				for (int i = 0; i < b.length; i++) {
-					if ((act[b[i] & 0xff] & 0xffffff) == idx) {
-						b[i] = prev[i];
-					}
-				}
-				meta.getImages().setElementAt(b, (int) planeIndex);
-			}
-
-			for (int row = 0; row < h; row++) {
-				System
-					.arraycopy(b, (row + y) *
-						(int) meta.get(imageIndex).getAxisLength(Axes.X) + x, buf, row * w,
-						w);
-			}
-
-			return plane;
-		}
 	}
 }
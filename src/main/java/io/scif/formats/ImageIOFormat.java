@@ -43,20 +43,32 @@ import io.scif.Translator;
 import io.scif.config.SCIFIOConfig;
 import io.scif.gui.AWTImageTools;
 import io.scif.gui.BufferedImageReader;
+import io.scif.io.RandomAccessImageInputStream;
 import io.scif.io.RandomAccessInputStream;
+import io.scif.services.LocationService;
 import io.scif.util.FormatTools;
 import io.scif.util.SCIFIOMetadataTools;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import net.imagej.axis.Axes;
 
 import org.scijava.Priority;
+import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 
 /**
@@ -76,6 +88,9 @@ public abstract class ImageIOFormat extends AbstractFormat {
 
 		private BufferedImage img;
 
+		/** Id of the file decoded by ImageIO, possibly a repaired copy. */
+		private String imageId;
+
 		// -- ImageIOMetadata API methods --
 
 		public BufferedImage getImg() {
@@ -86,6 +101,14 @@ public abstract class ImageIOFormat extends AbstractFormat {
 			this.img = img;
 		}
 
+		public String getImageId() {
+			return imageId;
+		}
+
+		public void setImageId(final String imageId) {
+			this.imageId = imageId;
+		}
+
 		// -- Metadata API Methods --
 
 		@Override
@@ -93,15 +116,7 @@ public abstract class ImageIOFormat extends AbstractFormat {
 			final ImageMetadata iMeta = get(0);
 
 			if (img != null) {
-				iMeta.setAxisLength(Axes.X, img.getWidth());
-				iMeta.setAxisLength(Axes.Y, img.getHeight());
-				iMeta.setPlanarAxisCount(2);
-				final int channels = img.getRaster().getNumBands();
-				if (channels > 1) {
-					iMeta.setPlanarAxisCount(3);
-					iMeta.setAxisLength(Axes.CHANNEL, img.getRaster().getNumBands());
-				}
-				iMeta.setPixelType(AWTImageTools.getPixelType(img));
+				populateDimensions(iMeta, img.getWidth(), img.getHeight(), img);
 			}
 
 			iMeta.setLittleEndian(false);
@@ -115,8 +130,29 @@ public abstract class ImageIOFormat extends AbstractFormat {
 			super.close(fileOnly);
 			if (!fileOnly) {
 				img = null;
+				imageId = null;
 			}
 		}
+
+		// -- Helper methods --
+
+		/**
+		 * Sets the planar dimensions and pixel type of an image, whose storage
+		 * matches the given sample.
+		 */
+		private static void populateDimensions(final ImageMetadata iMeta,
+			final int width, final int height, final BufferedImage sample)
+		{
+			iMeta.setAxisLength(Axes.X, width);
+			iMeta.setAxisLength(Axes.Y, height);
+			iMeta.setPlanarAxisCount(2);
+			final int channels = sample.getRaster().getNumBands();
+			if (channels > 1) {
+				iMeta.setPlanarAxisCount(3);
+				iMeta.setAxisLength(Axes.CHANNEL, channels);
+			}
+			iMeta.setPixelType(AWTImageTools.getPixelType(sample));
+		}
 	}
 
 	public static class Parser<M extends Metadata> extends AbstractParser<M> {
@@ -127,17 +163,56 @@ public abstract class ImageIOFormat extends AbstractFormat {
 			FormatException
 		{
 			log().info("Populating metadata");
-			final DataInputStream dis = new DataInputStream(stream);
-			final BufferedImage img = ImageIO.read(dis);
-			if (img == null) throw new FormatException("Invalid image stream");
-			meta.setImg(img);
-			meta.createImageMetadata(1);
+			final ImageReader reader = createImageReader(stream);
+			try {
+				meta.createImageMetadata(1);
+				if (stream.getFileName() == null) {
+					// no id to reopen the stream by, so decode the whole image now
+					final BufferedImage img = reader.read(0);
+					meta.setImg(img);
+					Metadata.populateDimensions(meta.get(0), img.getWidth(), img
+						.getHeight(), img);
+					return;
+				}
+				// decode a single pixel, to learn the pixel type and to fail
+				// early on streams ImageIO cannot decode
+				final ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceRegion(new Rectangle(0, 0, 1, 1));
+				final BufferedImage sample = reader.read(0, param);
+				meta.setImageId(stream.getFileName());
+				Metadata.populateDimensions(meta.get(0), reader.getWidth(0), reader
+					.getHeight(0), sample);
+			}
+			finally {
+				reader.dispose();
+			}
 		}
 	}
 
 	public static class Reader<M extends Metadata> extends BufferedImageReader<M>
 	{
 
+		// -- Fields --
+
+		@Parameter
+		private LocationService locationService;
+
+		/** ImageIO readers not in use, each reading its own stream. */
+		private final Deque<ImageReader> idleReaders = new ArrayDeque<>();
+
+		/**
+		 * ImageIO readers in use, with the {@link #generation} in which they were
+		 * taken. Guarded by {@link #idleReaders}.
+		 */
+		private final Map<ImageReader, Integer> busyReaders =
+			new IdentityHashMap<>();
+
+		/** Number of ImageIO readers open, idle or not. */
+		private int openReaders;
+
+		/** Number of times this reader was closed. */
+		private int generation;
+
 		// -- AbstractReader API Methods --
 
 		@Override
@@ -154,15 +229,162 @@ public abstract class ImageIOFormat extends AbstractFormat {
 			throws FormatException, IOException
 		{
 			final Metadata meta = getMetadata();
-			plane.setData(AWTImageTools.getSubimage(meta.getImg(), meta.get(
-				imageIndex).isLittleEndian(), planeMin, planeMax));
+			if (meta.getImageId() == null) {
+				// decoded at parse time, or translated metadata
+				plane.setData(AWTImageTools.getSubimage(meta.getImg(), meta.get(
+					imageIndex).isLittleEndian(), planeMin, planeMax));
+				return plane;
+			}
+
+			final ImageReader reader = takeReader();
+			final BufferedImage img;
+			try {
+				final ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceRegion(new Rectangle((int) planeMin[0],
+					(int) planeMin[1], (int) planeMax[0], (int) planeMax[1]));
+				img = reader.read(0, param);
+			}
+			finally {
+				returnReader(reader);
+			}
+			plane.setData(AWTImageTools.getSubimage(img, meta.get(imageIndex)
+				.isLittleEndian(), 0, 0, img.getWidth(), img.getHeight()));
 			return plane;
 		}
 
+		@Override
+		public BufferedImagePlane openThumbPlane(final int imageIndex,
+			final long planeIndex) throws FormatException, IOException
+		{
+			final Metadata meta = getMetadata();
+			if (meta.getImageId() == null) {
+				return super.openThumbPlane(imageIndex, planeIndex);
+			}
+
+			// let ImageIO skip rows and columns down to about the thumbnail size
+			final ImageMetadata iMeta = meta.get(imageIndex);
+			final int thumbX = (int) iMeta.getThumbSizeX();
+			final int thumbY = (int) iMeta.getThumbSizeY();
+			final int step =
+				(int) Math.max(1, Math.min(iMeta.getAxisLength(Axes.X) / thumbX, iMeta
+					.getAxisLength(Axes.Y) /
+					thumbY));
+			final ImageReader reader = takeReader();
+			BufferedImage img;
+			try {
+				final ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(step, step, 0, 0);
+				img = reader.read(0, param);
+			}
+			finally {
+				returnReader(reader);
+			}
+			img = AWTImageTools.makeUnsigned(img);
+			img = AWTImageTools.scale(img, thumbX, thumbY, false);
+
+			final long[] planeBounds = iMeta.getAxesLengthsPlanar();
+			final BufferedImagePlane plane =
+				createPlane(new long[planeBounds.length], planeBounds);
+			plane.setData(img);
+			return plane;
+		}
+
+		@Override
+		public void close(final boolean fileOnly) throws IOException {
+			synchronized (idleReaders) {
+				// readers in use are disposed when they are returned
+				generation++;
+				for (final ImageReader reader : idleReaders) {
+					dispose(reader);
+				}
+				openReaders -= idleReaders.size();
+				idleReaders.clear();
+			}
+			super.close(fileOnly);
+		}
+
 		@Override
 		public long getOptimalTileHeight(final int imageIndex) {
 			return getMetadata().get(imageIndex).getAxisLength(Axes.Y);
 		}
+
+		// -- Helper methods --
+
+		/**
+		 * Takes an idle ImageIO reader, or opens a new one. At most one reader
+		 * per processor is open; when a file is mapped in memory, its handle is
+		 * shared, so only one is.
+		 */
+		private ImageReader takeReader() throws FormatException, IOException {
+			final String id = getMetadata().getImageId();
+			final int maxReaders =
+				locationService.getMappedFile(id) == null ? Runtime.getRuntime()
+					.availableProcessors() : 1;
+			final int taken;
+			synchronized (idleReaders) {
+				while (idleReaders.isEmpty() && openReaders >= maxReaders) {
+					try {
+						idleReaders.wait();
+					}
+					catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException();
+					}
+				}
+				taken = generation;
+				if (!idleReaders.isEmpty()) {
+					final ImageReader reader = idleReaders.pop();
+					busyReaders.put(reader, taken);
+					return reader;
+				}
+				openReaders++;
+			}
+			try {
+				final ImageReader reader =
+					createImageReader(new RandomAccessInputStream(getContext(), id));
+				synchronized (idleReaders) {
+					busyReaders.put(reader, taken);
+				}
+				return reader;
+			}
+			catch (FormatException | IOException e) {
+				synchronized (idleReaders) {
+					openReaders--;
+					idleReaders.notify();
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * Makes the given ImageIO reader available to other requests, or disposes
+		 * of it if this reader was closed while it was in use.
+		 */
+		private void returnReader(final ImageReader reader) {
+			synchronized (idleReaders) {
+				final Integer taken = busyReaders.remove(reader);
+				idleReaders.notify();
+				if (taken != null && taken == generation) {
+					idleReaders.push(reader);
+					return;
+				}
+				openReaders--;
+			}
+			try {
+				dispose(reader);
+			}
+			catch (final IOException e) {
+				log().debug("Could not close an ImageIO reader", e);
+			}
+		}
+
+		/** Disposes the given ImageIO reader and closes its stream. */
+		private void dispose(final ImageReader reader) throws IOException {
+			final RandomAccessImageInputStream in =
+				(RandomAccessImageInputStream) reader.getInput();
+			reader.dispose();
+			in.getStream().close();
+		}
 	}
 
 	public static class Writer<M extends Metadata> extends AbstractWriter<M> {
@@ -221,6 +443,25 @@ public abstract class ImageIOFormat extends AbstractFormat {
 		}
 	}
 
+	// -- Helper methods --
+
+	/**
+	 * Creates an ImageIO reader for the image in the given stream, reading it
+	 * through a {@link RandomAccessImageInputStream}.
+	 */
+	private static ImageReader createImageReader(
+		final RandomAccessInputStream stream) throws FormatException, IOException
+	{
+		final ImageInputStream in = new RandomAccessImageInputStream(stream);
+		final Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+		if (!readers.hasNext()) {
+			throw new FormatException("Invalid image stream");
+		}
+		final ImageReader reader = readers.next();
+		reader.setInput(in, true, true);
+		return reader;
+	}
+
 	@Plugin(type = Translator.class, priority = Priority.LOW_PRIORITY)
 	public static class ImageIOTranslator extends
 		AbstractTranslator<io.scif.Metadata, Metadata>
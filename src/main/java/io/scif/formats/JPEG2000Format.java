@@ -37,7 +37,6 @@ import io.scif.AbstractParser;
 import io.scif.AbstractWriter;
 import io.scif.ByteArrayPlane;
 import io.scif.ByteArrayReader;
-import io.scif.DefaultImageMetadata;
 import io.scif.Format;
 import io.scif.FormatException;
 import io.scif.HasColorTable;
@@ -54,6 +53,7 @@ import io.scif.config.SCIFIOConfig;
 import io.scif.io.RandomAccessInputStream;
 import io.scif.util.FormatTools;
 
+import java.awt.Rectangle;
 import java.io.IOException;
 import java.util.ArrayList;
 
@@ -98,6 +98,12 @@ public class JPEG2000Format extends AbstractFormat {
 		/** The number of JPEG 2000 resolution levels the file has. */
 		private Integer resolutionLevels;
 
+		/** Width of the codestream tiles. */
+		private Integer tileSizeX;
+
+		/** Height of the codestream tiles. */
+		private Integer tileSizeY;
+
 		/** The color lookup table associated with this file. */
 		private int[][] lut;
 
@@ -144,6 +150,32 @@ public class JPEG2000Format extends AbstractFormat {
 			this.resolutionLevels = resolutionLevels;
 		}
 
+		public Integer getTileSizeX() {
+			return tileSizeX;
+		}
+
+		public void setTileSizeX(final Integer tileSizeX) {
+			this.tileSizeX = tileSizeX;
+		}
+
+		public Integer getTileSizeY() {
+			return tileSizeY;
+		}
+
+		public void setTileSizeY(final Integer tileSizeY) {
+			this.tileSizeY = tileSizeY;
+		}
+
+		/**
+		 * Returns true if the codestream is split into several tiles, which can be
+		 * decoded separately.
+		 */
+		public boolean isTiled() {
+			return tileSizeX != null && tileSizeY != null &&
+				(tileSizeX < get(0).getAxisLength(Axes.X) || tileSizeY < get(0)
+					.getAxisLength(Axes.Y));
+		}
+
 		public int[][] getLut() {
 			return lut;
 		}
@@ -162,20 +194,16 @@ public class JPEG2000Format extends AbstractFormat {
 				getLut() != null);
 			iMeta.setPlanarAxisCount(3);
 
-			// New core metadata now that we know how many sub-resolutions we
-			// have.
+			// Each JPEG 2000 resolution level halves the previous one, rounding up
 			if (getResolutionLevels() != null) {
-				final int imageCount = resolutionLevels + 1;
-				// TODO set resolution count get(0).resolutionCount =
-				// imageCount;
-
-				for (int i = 1; i < imageCount; i++) {
-					final ImageMetadata ms = new DefaultImageMetadata(iMeta);
-					add(ms);
-					ms.setAxisLength(Axes.X, iMeta.getAxisLength(Axes.X) / 2);
-					ms.setAxisLength(Axes.Y, iMeta.getAxisLength(Axes.Y) / 2);
-					ms.setThumbnail(true);
+				final long[][] lengths = new long[resolutionLevels][];
+				for (int i = 0; i < lengths.length; i++) {
+					final long divisor = 1L << (i + 1);
+					lengths[i] = new long[] {
+						(iMeta.getAxisLength(Axes.X) + divisor - 1) / divisor,
+						(iMeta.getAxisLength(Axes.Y) + divisor - 1) / divisor };
 				}
+				iMeta.setResolutionLengths(lengths);
 			}
 		}
 
@@ -189,6 +217,8 @@ public class JPEG2000Format extends AbstractFormat {
 			super.close(fileOnly);
 			if (!fileOnly) {
 				resolutionLevels = null;
+				tileSizeX = null;
+				tileSizeY = null;
 				lut = null;
 				byteLut = null;
 				shortLut = null;
@@ -583,11 +613,16 @@ public class JPEG2000Format extends AbstractFormat {
 							// Skipping:
 							// * Horizontal image offset (uint32)
 							// * Vertical image offset (uint32)
-							// * Tile width (uint32)
-							// * Tile height (uint32)
+							getSource().skipBytes(8);
+							meta.setTileSizeX(getSource().readInt());
+							meta.setTileSizeY(getSource().readInt());
+							log().trace(
+								"Read tile size " + meta.getTileSizeX() + "x" +
+									meta.getTileSizeY() + " at " + getSource().getFilePointer());
+							// Skipping:
 							// * Horizontal tile offset (uint32)
 							// * Vertical tile offset (uint32)
-							getSource().skipBytes(24);
+							getSource().skipBytes(8);
 							codestreamSizeC = getSource().readShort();
 							log().trace(
 								"Read total components " + codestreamSizeC + " at " +
@@ -760,7 +795,13 @@ public class JPEG2000Format extends AbstractFormat {
 			FormatTools.checkPlaneForReading(meta, imageIndex, planeIndex,
 				buf.length, planeMin, planeMax);
 
-			if (meta.getLastIndex().getImageIndex() == imageIndex &&
+			final int resolution = config.imgOpenerGetResolution();
+			if (resolution >= meta.get(imageIndex).getResolutionCount()) {
+				throw new FormatException("Invalid resolution: " + resolution);
+			}
+
+			if (resolution == 0 &&
+				meta.getLastIndex().getImageIndex() == imageIndex &&
 				meta.getLastIndex().getPlaneIndex() == planeIndex &&
 				meta.getLastIndexBytes() != null)
 			{
@@ -776,15 +817,27 @@ public class JPEG2000Format extends AbstractFormat {
 			options.interleaved = meta.get(imageIndex).getInterleavedAxisCount() > 0;
 			options.littleEndian = meta.get(imageIndex).isLittleEndian();
 			if (meta.getResolutionLevels() != null) {
-				options.resolution = Math.abs(imageIndex - meta.getResolutionLevels());
-			}
-			else if (meta.getAll().size() > 1) {
-				options.resolution = imageIndex;
+				// discard the highest levels to decode a reduced resolution
+				options.resolution = meta.getResolutionLevels() - resolution;
 			}
 
 			getStream().seek(meta.getPixelsOffset());
 			final JPEG2000Codec codec = codecService.getCodec(JPEG2000Codec.class);
+
+			// decode only the tiles covering a sub-region, straight into the plane
+			final Rectangle region = getRegion(imageIndex, planeMin, planeMax);
+			if (resolution == 0 && region != null && meta.isTiled()) {
+				options.region = region;
+				codec.decompress(getStream(), options, buf);
+				return plane;
+			}
 			final byte[] lastIndexPlane = codec.decompress(getStream(), options);
+			if (resolution > 0) {
+				copyRegion(lastIndexPlane, meta.get(imageIndex).getAxesLengthsPlanar(
+					resolution), planeMin, planeMax, FormatTools.getBytesPerPixel(meta
+						.get(imageIndex).getPixelType()), buf);
+				return plane;
+			}
 			meta.setLastIndexBytes(lastIndexPlane);
 			final RandomAccessInputStream s =
 				new RandomAccessInputStream(getContext(), lastIndexPlane);
@@ -794,6 +847,73 @@ public class JPEG2000Format extends AbstractFormat {
 			return plane;
 		}
 
+		// -- Helper methods --
+
+		/**
+		 * Gets the XY region of a request for all channels of part of the plane.
+		 *
+		 * @return The region, or null if the whole plane or only some of its
+		 *         channels are requested.
+		 */
+		private Rectangle getRegion(final int imageIndex, final long[] planeMin,
+			final long[] planeMax)
+		{
+			final ImageMetadata iMeta = getMetadata().get(imageIndex);
+			final int xIndex = iMeta.getAxisIndex(Axes.X);
+			final int yIndex = iMeta.getAxisIndex(Axes.Y);
+			final int cIndex = iMeta.getAxisIndex(Axes.CHANNEL);
+			if (cIndex >= 0 &&
+				(planeMin[cIndex] != 0 || planeMax[cIndex] != iMeta
+					.getAxisLength(Axes.CHANNEL)))
+			{
+				return null;
+			}
+			if (planeMin[xIndex] == 0 && planeMin[yIndex] == 0 &&
+				planeMax[xIndex] == iMeta.getAxisLength(Axes.X) &&
+				planeMax[yIndex] == iMeta.getAxisLength(Axes.Y))
+			{
+				return null;
+			}
+			return new Rectangle((int) planeMin[xIndex], (int) planeMin[yIndex],
+				(int) planeMax[xIndex], (int) planeMax[yIndex]);
+		}
+
+		/**
+		 * Copies a region of a decoded, interleaved plane with the given planar
+		 * lengths into the destination buffer. Leading axes which are requested
+		 * in full are merged into the next one, so that e.g. all channels of a
+		 * row are copied at once.
+		 */
+		private void copyRegion(final byte[] src, final long[] lengths,
+			final long[] planeMin, final long[] planeMax, final int bpp,
+			final byte[] dest)
+		{
+			int first = 0;
+			long run = planeMax[0] * bpp;
+			while (first < lengths.length - 1 && planeMin[first] == 0 &&
+				planeMax[first] == lengths[first])
+			{
+				run *= planeMax[++first];
+			}
+			final long[] position = new long[lengths.length];
+			int destOffset = 0;
+			while (true) {
+				long srcIndex = 0;
+				for (int i = lengths.length - 1; i > 0; i--) {
+					srcIndex = (srcIndex + planeMin[i] + position[i]) * lengths[i - 1];
+				}
+				srcIndex += planeMin[0];
+				System.arraycopy(src, (int) (srcIndex * bpp), dest, destOffset,
+					(int) run);
+				destOffset += run;
+
+				int axis = first + 1;
+				while (axis < lengths.length && ++position[axis] == planeMax[axis]) {
+					position[axis++] = 0;
+				}
+				if (axis == lengths.length) break;
+			}
+		}
 	}
 
 	public static class Writer extends AbstractWriter<Metadata> {
@@ -38,21 +38,29 @@ import io.scif.ByteArrayReader;
 import io.scif.Format;
 import io.scif.FormatException;
 import io.scif.ImageMetadata;
+import io.scif.UnsupportedCompressionException;
 import io.scif.codec.JPEGTileDecoder;
 import io.scif.config.SCIFIOConfig;
+import io.scif.io.RandomAccessImageInputStream;
 import io.scif.io.RandomAccessInputStream;
 import io.scif.util.FormatTools;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
 import java.io.IOException;
 
+import javax.imageio.ImageIO;
+
 import net.imagej.axis.Axes;
 
 import org.scijava.Priority;
 import org.scijava.plugin.Plugin;
 
 /**
- * Reader for decoding JPEG images using java.awt.Toolkit. This reader is useful
- * for reading very large JPEG images, as it supports tile-based access.
+ * Reader for decoding very large JPEG images. Only the requested region is
+ * decoded, using the index built by {@link JPEGTileDecoder} when the file is
+ * parsed. Images the decoder does not support, such as progressive JPEGs, are
+ * decoded whole with ImageIO instead.
  *
  * @author Melissa Linkert
  * @author Mark Hiner
@@ -76,6 +84,9 @@ public class JPEGTileFormat extends AbstractFormat {
 
 		private JPEGTileDecoder decoder;
 
+		/** The whole image, if it can not be decoded by tiles. */
+		private BufferedImage image;
+
 		// -- JPEGTileMetadata API getters and setters --
 
 		public JPEGTileDecoder getDecoder() {
@@ -86,6 +97,14 @@ public class JPEGTileFormat extends AbstractFormat {
 			this.decoder = decoder;
 		}
 
+		public BufferedImage getImage() {
+			return image;
+		}
+
+		public void setImage(final BufferedImage image) {
+			this.image = image;
+		}
+
 		// -- Metadata API Methods --
 
 		@Override
@@ -96,10 +115,16 @@ public class JPEGTileFormat extends AbstractFormat {
 			iMeta.setAxisTypes(Axes.CHANNEL, Axes.X, Axes.Y);
 			iMeta.setPlanarAxisCount(3);
 			iMeta.setLittleEndian(false);
-			iMeta.setAxisLength(Axes.X, decoder.getWidth());
-			iMeta.setAxisLength(Axes.Y, decoder.getHeight());
-			iMeta.setAxisLength(Axes.CHANNEL, decoder.getScanline(0).length /
-				iMeta.getAxisLength(Axes.X));
+			if (decoder == null) {
+				iMeta.setAxisLength(Axes.X, image.getWidth());
+				iMeta.setAxisLength(Axes.Y, image.getHeight());
+				iMeta.setAxisLength(Axes.CHANNEL, image.getRaster().getNumBands());
+			}
+			else {
+				iMeta.setAxisLength(Axes.X, decoder.getWidth());
+				iMeta.setAxisLength(Axes.Y, decoder.getHeight());
+				iMeta.setAxisLength(Axes.CHANNEL, decoder.getChannels());
+			}
 			iMeta.setPixelType(FormatTools.UINT8);
 			iMeta.setMetadataComplete(true);
 			iMeta.setIndexed(false);
@@ -112,6 +137,7 @@ public class JPEGTileFormat extends AbstractFormat {
 					decoder.close();
 				}
 				decoder = null;
+				image = null;
 			}
 
 			super.close(fileOnly);
@@ -128,8 +154,17 @@ public class JPEGTileFormat extends AbstractFormat {
 			FormatException
 		{
 			final JPEGTileDecoder decoder = new JPEGTileDecoder(getContext());
-			meta.setDecoder(decoder);
-			decoder.initialize(getSource(), 0, 1);
+			try {
+				decoder.initialize(stream);
+				meta.setDecoder(decoder);
+			}
+			catch (final UnsupportedCompressionException e) {
+				log().debug("Decoding whole image: " + e.getMessage());
+				final BufferedImage image = ImageIO.read(
+					new RandomAccessImageInputStream(stream));
+				if (image == null) throw e;
+				meta.setImage(image);
+			}
 		}
 	}
 
@@ -159,16 +194,19 @@ public class JPEGTileFormat extends AbstractFormat {
 			FormatTools.checkPlaneForReading(meta, imageIndex, planeIndex,
 				buf.length, planeMin, planeMax);
 
-			final int c = (int) meta.get(imageIndex).getAxisLength(Axes.CHANNEL);
-
-			for (int ty = y; ty < y + h; ty++) {
-				byte[] scanline = meta.getDecoder().getScanline(ty);
-				if (scanline == null) {
-					meta.getDecoder().initialize(getStream().getFileName(), 0);
-					scanline = meta.getDecoder().getScanline(ty);
+			if (meta.getDecoder() == null) {
+				// copy the region of the whole image, with channels interleaved
+				final Raster raster = meta.getImage().getRaster();
+				final int channels = raster.getNumBands();
+				final int[] row = new int[w * channels];
+				for (int r = 0; r < h; r++) {
+					raster.getPixels(x, y + r, w, 1, row);
+					for (int i = 0; i < row.length; i++) {
+						buf[r * row.length + i] = (byte) row[i];
+					}
 				}
-				System.arraycopy(scanline, c * x, buf, (ty - y) * c * w, c * w);
 			}
+			else meta.getDecoder().decode(getStream(), buf, x, y, w, h);
 
 			return plane;
 		}
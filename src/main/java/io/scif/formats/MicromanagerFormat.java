@@ -42,6 +42,7 @@ import io.scif.FormatException;
 import io.scif.ImageMetadata;
 import io.scif.Translator;
 import io.scif.config.SCIFIOConfig;
+import io.scif.io.JSONPullParser;
 import io.scif.io.Location;
 import io.scif.io.RandomAccessInputStream;
 import io.scif.services.FormatService;
@@ -52,10 +53,16 @@ import io.scif.xml.XMLService;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.StringTokenizer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.function.Predicate;
 
 import net.imagej.axis.Axes;
 
@@ -86,6 +93,14 @@ public class MicromanagerFormat extends AbstractFormat {
 	 */
 	private static final String XML = "Acqusition.xml";
 
+	/** Frame keys which are read for every frame, besides DAC voltages. */
+	private static final Set<String> FRAME_KEYS = new HashSet<>(Arrays.asList(
+		"FileName", "ElapsedTime-ms"));
+
+	/** Selects the entries which are read for every frame. */
+	private static final Predicate<String> FRAME_ENTRIES = key -> FRAME_KEYS
+		.contains(key) || isVoltage(key);
+
 	// -- AbstractFormat Methods --
 
 	@Override
@@ -111,6 +126,38 @@ public class MicromanagerFormat extends AbstractFormat {
 			this.positions = positions;
 		}
 
+		/**
+		 * Reads the complete metadata of one frame. While parsing, only the file
+		 * name, position and time of each frame are kept, so the remaining
+		 * per-frame metadata is read from the metadata file on demand.
+		 *
+		 * @param imageIndex Index of the position.
+		 * @param frame Index of the frame within the metadata file.
+		 * @return The keys and values of the given frame, with nested objects
+		 *         flattened and array elements joined by commas.
+		 */
+		public Map<String, String> getFrameMetadata(final int imageIndex,
+			final int frame) throws IOException
+		{
+			final Position p = positions.get(imageIndex);
+			if (frame < 0 || frame >= p.frameCount) {
+				throw new IllegalArgumentException("Invalid frame: " + frame);
+			}
+			try (final RandomAccessInputStream stream = p.jsonData == null
+				? new RandomAccessInputStream(getContext(), p.metadataFile)
+				: new RandomAccessInputStream(getContext(), p.jsonData))
+			{
+				stream.seek(p.frameOffsets[frame]);
+				final JSONPullParser json = new JSONPullParser(stream);
+				if (json.next() != JSONPullParser.Event.START_OBJECT) {
+					throw new IOException("No frame at offset " + p.frameOffsets[frame]);
+				}
+				final Map<String, String> entries = new LinkedHashMap<>();
+				readEntries(json, null, entries);
+				return entries;
+			}
+		}
+
 		// -- Metadata API methods --
 
 		@Override
@@ -223,11 +270,17 @@ public class MicromanagerFormat extends AbstractFormat {
 		{
 			source.createImageMetadata(jsonData.length);
 			final Vector<Position> positions = new Vector<>();
+			source.setPositions(positions);
 			for (int pos = 0; pos < jsonData.length; pos++) {
 				final Position p = new Position();
 				p.metadataFile = "Position #" + (pos + 1);
+				p.jsonData = jsonData[pos].getBytes(StandardCharsets.UTF_8);
 				positions.add(p);
-				parsePosition(jsonData[pos], source, pos);
+				try (final RandomAccessInputStream stream =
+					new RandomAccessInputStream(getContext(), p.jsonData))
+				{
+					parsePosition(stream, source, pos);
+				}
 			}
 
 			translatorService.translate(source, dest, true);
@@ -333,9 +386,11 @@ public class MicromanagerFormat extends AbstractFormat {
 			throws IOException, FormatException
 		{
 			final Position p = meta.getPositions().get(posIndex);
-			final byte[] bytes = FileUtils.readFile(new File(p.metadataFile));
-			final String s = DigestUtils.string(bytes);
-			parsePosition(s, meta, posIndex);
+			try (final RandomAccessInputStream stream =
+				new RandomAccessInputStream(getContext(), p.metadataFile))
+			{
+				parsePosition(stream, meta, posIndex);
+			}
 
 			buildTIFFList(meta, posIndex);
 		}
@@ -390,232 +445,98 @@ public class MicromanagerFormat extends AbstractFormat {
 			}
 		}
 
-		private void parsePosition(final String jsonData, final Metadata meta,
-			final int posIndex) throws IOException, FormatException
+		private void parsePosition(final RandomAccessInputStream stream,
+			final Metadata meta, final int posIndex) throws IOException,
+			FormatException
 		{
 			final Position p = meta.getPositions().get(posIndex);
 			final ImageMetadata ms = meta.get(posIndex);
 			final String parent =
 				new Location(getContext(), p.metadataFile).getParent();
 
-			// now parse the rest of the metadata
-
 			// metadata.txt looks something like this:
 			//
 			// {
-			// "Section Name": {
+			// "Summary": {
 			// "Key": "Value",
 			// "Array key": [
 			// first array value, second array value
 			// ]
+			// },
+			// "FrameKey-<T>-<C>-<Z>": {
+			// "FileName": "img_000000000_DAPI_000.tif",
+			// ...
 			// }
-			//
 			// }
+			//
+			// As it can reach hundreds of MB, it is streamed: besides the summary,
+			// only the first and last frames are parsed in full. For all other
+			// frames only the file name, position, time and DAC voltages are kept,
+			// and their remaining metadata is read on demand by
+			// Metadata#getFrameMetadata.
 
 			log().info("Populating metadata");
 
-			final Vector<Double> stamps = new Vector<>();
+			final Frames frames = new Frames();
+			final Map<String, String> entries = new LinkedHashMap<>();
 			p.voltage = new Vector<>();
-
-			final StringTokenizer st = new StringTokenizer(jsonData, "\n");
-			final int[] slice = new int[3];
-			while (st.hasMoreTokens()) {
-				String token = st.nextToken().trim();
-				final boolean open = token.contains("[");
-				boolean closed = token.contains("]");
-				if (open ||
-					(!open && !closed && !token.equals("{") && !token.startsWith("}")))
+			final JSONPullParser json = new JSONPullParser(stream);
+			if (json.next() != JSONPullParser.Event.START_OBJECT) {
+				throw new FormatException("Invalid metadata file: " + p.metadataFile);
+			}
+			JSONPullParser.Event event;
+			while ((event = json.next()) == JSONPullParser.Event.NAME) {
+				final String section = json.getText();
+				event = json.next();
+				entries.clear();
+				if (section.startsWith("FrameKey") &&
+					event == JSONPullParser.Event.START_OBJECT)
 				{
-					final int quote = token.indexOf("\"") + 1;
-					final String key = token.substring(quote, token.indexOf("\"", quote));
-					String value = null;
-
-					if (open == closed) {
-						value = token.substring(token.indexOf(":") + 1);
-					}
-					else if (!closed) {
-						final StringBuilder valueBuffer = new StringBuilder();
-						while (!closed) {
-							token = st.nextToken();
-							closed = token.contains("]");
-							valueBuffer.append(token);
-						}
-						value = valueBuffer.toString();
-						value = value.replaceAll("\n", "");
-					}
-					if (value == null) continue;
-
-					final int startIndex = value.indexOf("[");
-					int endIndex = value.indexOf("]");
-					if (endIndex == -1) endIndex = value.length();
-
-					value = value.substring(startIndex + 1, endIndex).trim();
-					if (value.length() == 0) {
-						continue;
-					}
-					value = value.substring(0, value.length() - 1);
-					value = value.replaceAll("\"", "");
-					if (value.endsWith(",")) value =
-						value.substring(0, value.length() - 1);
-					meta.getTable().put(key, value);
-					if (key.equals("Channels")) {
-						ms.setAxisLength(Axes.CHANNEL, Integer.parseInt(value));
-					}
-					else if (key.equals("ChNames")) {
-						p.channels = value.split(",");
-						for (int q = 0; q < p.channels.length; q++) {
-							p.channels[q] = p.channels[q].replaceAll("\"", "").trim();
-						}
-					}
-					else if (key.equals("Frames")) {
-						ms.setAxisLength(Axes.TIME, Integer.parseInt(value));
-					}
-					else if (key.equals("Slices")) {
-						ms.setAxisLength(Axes.Z, Integer.parseInt(value));
-					}
-					else if (key.equals("PixelSize_um")) {
-						p.pixelSize = new Double(value);
-					}
-					else if (key.equals("z-step_um")) {
-						p.sliceThickness = new Double(value);
-					}
-					else if (key.equals("Time")) {
-						p.time = value;
-					}
-					else if (key.equals("Comment")) {
-						p.comment = value;
-					}
-					else if (key.equals("FileName")) {
-						p.fileNameMap.put(new Index(slice), value);
-						if (p.baseTiff == null) {
-							p.baseTiff = value;
-						}
-					}
-					else if (key.equals("Width")) {
-						ms.setAxisLength(Axes.X, Integer.parseInt(value));
-					}
-					else if (key.equals("Height")) {
-						ms.setAxisLength(Axes.Y, Integer.parseInt(value));
-					}
-					else if (key.equals("IJType")) {
-						final int type = Integer.parseInt(value);
-
-						switch (type) {
-							case 0:
-								ms.setPixelType(FormatTools.UINT8);
-								break;
-							case 1:
-								ms.setPixelType(FormatTools.UINT16);
-								break;
-							default:
-								throw new FormatException("Unknown type: " + type);
-						}
-					}
+					final long offset = json.getOffset();
+					readEntries(json, frames.count == 0 ? null : FRAME_ENTRIES,
+						entries);
+					if (frames.count == 0) parseFrame(meta, p, entries, frames);
+					addVoltages(p, entries);
+					frames.add(section, offset, entries);
+					continue;
 				}
 
-				if (token.startsWith("\"FrameKey")) {
-					int dash = token.indexOf("-") + 1;
-					int nextDash = token.indexOf("-", dash);
-					slice[2] = Integer.parseInt(token.substring(dash, nextDash));
-					dash = nextDash + 1;
-					nextDash = token.indexOf("-", dash);
-					slice[1] = Integer.parseInt(token.substring(dash, nextDash));
-					dash = nextDash + 1;
-					slice[0] =
-						Integer.parseInt(token.substring(dash, token.indexOf("\"", dash)));
-
-					token = st.nextToken().trim();
-					String key = "", value = "";
-					boolean valueArray = false;
-					int nestedCount = 0;
-
-					while (!token.startsWith("}") || nestedCount > 0) {
-
-						if (token.trim().endsWith("{")) {
-							nestedCount++;
-							token = st.nextToken().trim();
-							continue;
-						}
-						else if (token.trim().startsWith("}")) {
-							nestedCount--;
-							token = st.nextToken().trim();
-							continue;
-						}
-
-						if (valueArray) {
-							if (token.trim().equals("],")) {
-								valueArray = false;
-							}
-							else {
-								value += token.trim().replaceAll("\"", "");
-								token = st.nextToken().trim();
-								continue;
-							}
-						}
-						else {
-							final int colon = token.indexOf(":");
-							key = token.substring(1, colon).trim();
-							value = token.substring(colon + 1, token.length() - 1).trim();
-
-							key = key.replaceAll("\"", "");
-							value = value.replaceAll("\"", "");
-
-							if (token.trim().endsWith("[")) {
-								valueArray = true;
-								token = st.nextToken().trim();
-								continue;
-							}
-						}
-
-						meta.getTable().put(key, value);
-
-						if (key.equals("Exposure-ms")) {
-							final double t = Double.parseDouble(value);
-							p.exposureTime = new Double(t / 1000);
-						}
-						else if (key.equals("ElapsedTime-ms")) {
-							final double t = Double.parseDouble(value);
-							stamps.add(new Double(t / 1000));
-						}
-						else if (key.equals("Core-Camera")) p.cameraRef = value;
-						else if (key.equals(p.cameraRef + "-Binning")) {
-							if (value.contains("x")) p.binning = value;
-							else p.binning = value + "x" + value;
-						}
-						else if (key.equals(p.cameraRef + "-CameraID")) p.detectorID =
-							value;
-						else if (key.equals(p.cameraRef + "-CameraName")) {
-							p.detectorModel = value;
-						}
-						else if (key.equals(p.cameraRef + "-Gain")) {
-							p.gain = (int) Double.parseDouble(value);
-						}
-						else if (key.equals(p.cameraRef + "-Name")) {
-							p.detectorManufacturer = value;
-						}
-						else if (key.equals(p.cameraRef + "-Temperature")) {
-							p.temperature = Double.parseDouble(value);
-						}
-						else if (key.equals(p.cameraRef + "-CCDMode")) {
-							p.cameraMode = value;
-						}
-						else if (key.startsWith("DAC-") && key.endsWith("-Volts")) {
-							p.voltage.add(new Double(value));
-						}
-						else if (key.equals("FileName")) {
-							p.fileNameMap.put(new Index(slice), value);
-							if (p.baseTiff == null) {
-								p.baseTiff = value;
-							}
-						}
+				if (event == JSONPullParser.Event.START_OBJECT) {
+					readEntries(json, null, entries);
+				}
+				else if (event == JSONPullParser.Event.START_ARRAY) {
+					entries.put(section, readArray(json));
+				}
+				else if (event == JSONPullParser.Event.VALUE) {
+					entries.put(section, json.getText());
+				}
+				else {
+					throw new FormatException("Invalid metadata file: " +
+						p.metadataFile);
+				}
+				for (final Map.Entry<String, String> entry : entries.entrySet()) {
+					parseSummary(meta, ms, p, entry.getKey(), entry.getValue());
+				}
+			}
+			if (event != JSONPullParser.Event.END_OBJECT) {
+				throw new FormatException("Invalid metadata file: " + p.metadataFile);
+			}
 
-						token = st.nextToken().trim();
-					}
+			// the global frame keys hold the values of the last frame, as they did
+			// when every frame was parsed in full
+			if (frames.count > 1) {
+				stream.seek(frames.offsets[frames.count - 1]);
+				final JSONPullParser last = new JSONPullParser(stream);
+				if (last.next() != JSONPullParser.Event.START_OBJECT) {
+					throw new FormatException("Invalid metadata file: " +
+						p.metadataFile);
 				}
+				entries.clear();
+				readEntries(last, null, entries);
+				parseFrame(meta, p, entries, frames);
 			}
 
-			p.timestamps = stamps.toArray(new Double[stamps.size()]);
-			Arrays.sort(p.timestamps);
+			frames.trim(p);
 
 			// look for the optional companion XML file
 
@@ -625,6 +546,119 @@ public class MicromanagerFormat extends AbstractFormat {
 			}
 		}
 
+		/** Handles one key of the summary metadata. */
+		private void parseSummary(final Metadata meta, final ImageMetadata ms,
+			final Position p, final String key, final String value)
+			throws FormatException
+		{
+			if (value.isEmpty()) return;
+			meta.getTable().put(key, value);
+			if (key.equals("Channels")) {
+				ms.setAxisLength(Axes.CHANNEL, Integer.parseInt(value));
+			}
+			else if (key.equals("ChNames")) {
+				p.channels = value.split(",");
+				for (int q = 0; q < p.channels.length; q++) {
+					p.channels[q] = p.channels[q].trim();
+				}
+			}
+			else if (key.equals("Frames")) {
+				ms.setAxisLength(Axes.TIME, Integer.parseInt(value));
+			}
+			else if (key.equals("Slices")) {
+				ms.setAxisLength(Axes.Z, Integer.parseInt(value));
+			}
+			else if (key.equals("PixelSize_um")) {
+				p.pixelSize = new Double(value);
+			}
+			else if (key.equals("z-step_um")) {
+				p.sliceThickness = new Double(value);
+			}
+			else if (key.equals("Time")) {
+				p.time = value;
+			}
+			else if (key.equals("Comment")) {
+				p.comment = value;
+			}
+			else if (key.equals("FileName")) {
+				if (p.baseTiff == null) {
+					p.baseTiff = value;
+				}
+			}
+			else if (key.equals("Width")) {
+				ms.setAxisLength(Axes.X, Integer.parseInt(value));
+			}
+			else if (key.equals("Height")) {
+				ms.setAxisLength(Axes.Y, Integer.parseInt(value));
+			}
+			else if (key.equals("IJType")) {
+				final int type = Integer.parseInt(value);
+
+				switch (type) {
+					case 0:
+						ms.setPixelType(FormatTools.UINT8);
+						break;
+					case 1:
+						ms.setPixelType(FormatTools.UINT16);
+						break;
+					default:
+						throw new FormatException("Unknown type: " + type);
+				}
+			}
+		}
+
+		/**
+		 * Handles the full metadata of the first or last frame, which describes
+		 * the acquisition settings. DAC voltages are kept for every frame by
+		 * {@link #addVoltages}.
+		 */
+		private void parseFrame(final Metadata meta, final Position p,
+			final Map<String, String> entries, final Frames frames)
+		{
+			p.cameraRef = entries.get("Core-Camera");
+			for (final Map.Entry<String, String> entry : entries.entrySet()) {
+				final String key = entry.getKey();
+				final String value = entry.getValue();
+				meta.getTable().put(key, value);
+
+				if (key.equals("Exposure-ms")) {
+					final double t = Double.parseDouble(value);
+					p.exposureTime = new Double(t / 1000);
+				}
+				else if (key.equals(p.cameraRef + "-Binning")) {
+					if (value.contains("x")) p.binning = value;
+					else p.binning = value + "x" + value;
+				}
+				else if (key.equals(p.cameraRef + "-CameraID")) p.detectorID = value;
+				else if (key.equals(p.cameraRef + "-CameraName")) {
+					p.detectorModel = value;
+				}
+				else if (key.equals(p.cameraRef + "-Gain")) {
+					p.gain = (int) Double.parseDouble(value);
+				}
+				else if (key.equals(p.cameraRef + "-Name")) {
+					p.detectorManufacturer = value;
+				}
+				else if (key.equals(p.cameraRef + "-Temperature")) {
+					p.temperature = Double.parseDouble(value);
+				}
+				else if (key.equals(p.cameraRef + "-CCDMode")) {
+					p.cameraMode = value;
+				}
+			}
+		}
+
+		/** Appends the DAC voltages of a frame to those of the position. */
+		private void addVoltages(final Position p,
+			final Map<String, String> entries)
+		{
+			for (final Map.Entry<String, String> entry : entries.entrySet()) {
+				if (isVoltage(entry.getKey())) {
+					p.voltage.add(new Double(entry.getValue()));
+				}
+			}
+		}
+
 		/**
 		 * Populate the list of TIFF files using the given file name as a pattern.
 		 */
@@ -690,6 +724,23 @@ public class MicromanagerFormat extends AbstractFormat {
 			throws IOException
 		{
 			final Position p = meta.getPositions().get(imageIndex);
+
+			// only the entries are needed, so stream them from the file
+			try (final RandomAccessInputStream stream =
+				new RandomAccessInputStream(getContext(), p.xmlFile))
+			{
+				xmlService.extractXML(stream, 0, stream.length(), Collections
+					.singleton("entry"), (name, attributes, text) -> {
+						meta.getTable().put(attributes.get("key"), attributes.get(
+							"value"));
+						return true;
+					});
+				return;
+			}
+			catch (final IOException e) {
+				log().debug("Invalid XML in " + p.xmlFile + ", sanitizing it", e);
+			}
+
 			final byte[] bytes = FileUtils.readFile(new File(p.xmlFile));
 			String xmlData = DigestUtils.string(bytes);
 			xmlData = xmlService.sanitizeXML(xmlData);
@@ -841,6 +892,64 @@ public class MicromanagerFormat extends AbstractFormat {
 		}
 	}
 
+	// -- Helper methods --
+
+	private static boolean isVoltage(final String key) {
+		return key.startsWith("DAC-") && key.endsWith("-Volts");
+	}
+
+	/**
+	 * Reads the entries of the object just started, flattening nested objects
+	 * and joining the elements of arrays with commas.
+	 *
+	 * @param wanted Keys to read, or null for all. The values of other keys are
+	 *          passed over without being decoded.
+	 */
+	private static void readEntries(final JSONPullParser json,
+		final Predicate<String> wanted, final Map<String, String> entries)
+		throws IOException
+	{
+		JSONPullParser.Event event;
+		while ((event = json.next()) == JSONPullParser.Event.NAME) {
+			final String key = json.getText();
+			event = json.next();
+			if (event == JSONPullParser.Event.START_OBJECT) {
+				readEntries(json, wanted, entries);
+			}
+			else if (wanted != null && !wanted.test(key)) {
+				if (event == JSONPullParser.Event.START_ARRAY) json.skipChildren();
+			}
+			else if (event == JSONPullParser.Event.START_ARRAY) {
+				entries.put(key, readArray(json));
+			}
+			else if (event == JSONPullParser.Event.VALUE) {
+				entries.put(key, json.getText());
+			}
+			else break;
+		}
+		if (event != JSONPullParser.Event.END_OBJECT) {
+			throw new IOException("Unexpected " + event + " at offset " +
+				json.getOffset());
+		}
+	}
+
+	/** Reads the array just started, joining its values with commas. */
+	private static String readArray(final JSONPullParser json)
+		throws IOException
+	{
+		final StringBuilder sb = new StringBuilder();
+		JSONPullParser.Event event;
+		while ((event = json.next()) != JSONPullParser.Event.END_ARRAY) {
+			if (event != JSONPullParser.Event.VALUE) {
+				json.skipChildren();
+				continue;
+			}
+			if (sb.length() > 0) sb.append(',');
+			sb.append(json.getText());
+		}
+		return sb.toString();
+	}
+
 	// -- Helper classes --
 
 	public static class Position {
@@ -849,8 +958,6 @@ public class MicromanagerFormat extends AbstractFormat {
 
 		public Vector<String> tiffs;
 
-		public HashMap<Index, String> fileNameMap = new HashMap<>();
-
 		public String metadataFile;
 
 		public String xmlFile;
@@ -861,7 +968,8 @@ public class MicromanagerFormat extends AbstractFormat {
 
 		public Double exposureTime, sliceThickness, pixelSize;
 
-		public Double[] timestamps;
+		/** Sorted elapsed times of all frames, in seconds. */
+		public double[] timestamps;
 
 		public int gain;
 
@@ -875,40 +983,146 @@ public class MicromanagerFormat extends AbstractFormat {
 
 		public String cameraMode;
 
+		/** Number of frames listed in the metadata file. */
+		public int frameCount;
+
+		/** Z, channel and time index of each frame. */
+		public int[] frameZ, frameC, frameT;
+
+		/** Image file name of each frame, or null if not recorded. */
+		public String[] frameFiles;
+
+		/** Offset of the metadata of each frame within the metadata file. */
+		public long[] frameOffsets;
+
+		/** Metadata parsed from memory rather than from the metadata file. */
+		private byte[] jsonData;
+
+		/** Frame of each plane, or -1 if the plane has no named frame. */
+		private int[] planeFrames;
+
+		/** Number of frames with a file name. */
+		private int namedFrames;
+
+		/** TIFF files by file name. */
+		private HashMap<String, String> tiffsByName;
+
 		public String getFile(final Metadata meta, final int imageIndex,
 			final long planeIndex)
 		{
-			final long[] zct =
-				FormatTools.rasterToPosition(imageIndex, planeIndex, meta);
-			for (final Index key : fileNameMap.keySet()) {
-				if (key.z == zct[0] && key.c == zct[1] && key.t == zct[2]) {
-					final String file = fileNameMap.get(key);
-
-					if (tiffs != null) {
-						for (final String tiff : tiffs) {
-							if (tiff.endsWith(File.separator + file)) {
-								return tiff;
-							}
-						}
+			if (planeFrames == null) mapFrames(meta.get(imageIndex));
+			if (namedFrames == 0) return tiffs.get((int) planeIndex);
+
+			final int frame = planeFrames[(int) planeIndex];
+			if (frame < 0 || tiffs == null) return null;
+			final String file = frameFiles[frame];
+			if (file.contains(File.separator)) {
+				for (final String tiff : tiffs) {
+					if (tiff.endsWith(File.separator + file)) {
+						return tiff;
 					}
 				}
+				return null;
+			}
+			if (tiffsByName == null) {
+				tiffsByName = new HashMap<>();
+				for (final String tiff : tiffs) {
+					final String name =
+						tiff.substring(tiff.lastIndexOf(File.separator) + 1);
+					if (!tiffsByName.containsKey(name)) tiffsByName.put(name, tiff);
+				}
 			}
-			return fileNameMap.size() == 0 ? tiffs.get((int) planeIndex) : null;
+			return tiffsByName.get(file);
+		}
+
+		/** Maps each plane to the frame recording its file name. */
+		private void mapFrames(final ImageMetadata ms) {
+			final long sizeZ = ms.getAxisLength(Axes.Z);
+			final long sizeC = ms.getAxisLength(Axes.CHANNEL);
+			final long sizeT = ms.getAxisLength(Axes.TIME);
+			final int[] frames = new int[(int) ms.getPlaneCount()];
+			Arrays.fill(frames, -1);
+			namedFrames = 0;
+			for (int f = 0; f < frameCount; f++) {
+				if (frameFiles[f] == null) continue;
+				namedFrames++;
+				if (frameZ[f] < sizeZ && frameC[f] < sizeC && frameT[f] < sizeT) {
+					frames[(int) ((frameT[f] * sizeC + frameC[f]) * sizeZ + frameZ[f])] =
+						f;
+				}
+			}
+			planeFrames = frames;
 		}
 	}
 
-	private static class Index {
+	/** Growable per-frame arrays, filled while streaming the metadata file. */
+	private static class Frames {
+
+		private int count;
 
-		public int z;
+		private int[] z = new int[16], c = new int[16], t = new int[16];
 
-		public int c;
+		private String[] files = new String[16];
 
-		public int t;
+		private long[] offsets = new long[16];
+
+		private double[] stamps = new double[16];
+
+		private int stampCount;
+
+		/**
+		 * Adds a frame.
+		 *
+		 * @param section Frame key, of the form {@code FrameKey-<T>-<C>-<Z>}.
+		 * @param offset Offset of the frame's metadata.
+		 * @param entries File name and elapsed time of the frame.
+		 */
+		public void add(final String section, final long offset,
+			final Map<String, String> entries) throws FormatException
+		{
+			if (count == offsets.length) {
+				final int length = 2 * count;
+				z = Arrays.copyOf(z, length);
+				c = Arrays.copyOf(c, length);
+				t = Arrays.copyOf(t, length);
+				files = Arrays.copyOf(files, length);
+				offsets = Arrays.copyOf(offsets, length);
+			}
+			final String[] indices = section.split("-");
+			try {
+				t[count] = Integer.parseInt(indices[1]);
+				c[count] = Integer.parseInt(indices[2]);
+				z[count] = Integer.parseInt(indices[3]);
+			}
+			catch (final NumberFormatException | ArrayIndexOutOfBoundsException e) {
+				throw new FormatException("Invalid frame key: " + section, e);
+			}
+			files[count] = entries.get("FileName");
+			offsets[count] = offset;
+			count++;
+
+			final String stamp = entries.get("ElapsedTime-ms");
+			if (stamp != null) {
+				if (stampCount == stamps.length) {
+					stamps = Arrays.copyOf(stamps, 2 * stampCount);
+				}
+				stamps[stampCount++] = Double.parseDouble(stamp) / 1000;
+			}
+		}
 
-		public Index(final int[] zct) {
-			z = zct[0];
-			c = zct[1];
-			t = zct[2];
+		/** Stores the frames in the given position. */
+		public void trim(final Position p) {
+			p.frameCount = count;
+			p.frameZ = Arrays.copyOf(z, count);
+			p.frameC = Arrays.copyOf(c, count);
+			p.frameT = Arrays.copyOf(t, count);
+			p.frameFiles = Arrays.copyOf(files, count);
+			p.frameOffsets = Arrays.copyOf(offsets, count);
+			p.timestamps = Arrays.copyOf(stamps, stampCount);
+			Arrays.sort(p.timestamps);
+			for (int i = 0; i < count && p.baseTiff == null; i++) {
+				p.baseTiff = files[i];
+			}
 		}
 	}
 }
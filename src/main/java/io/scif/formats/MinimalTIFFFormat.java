@@ -105,7 +105,8 @@ public class MinimalTIFFFormat extends AbstractFormat {
 		 */
 		private List<IFDList> subResolutionIFDs;
 
-		private TiffParser tiffParser;
+		/** Parser of the source, recreated on demand when not set. */
+		private transient TiffParser tiffParser;
 
 		private boolean equalStrips = false;
 
@@ -148,6 +149,16 @@ public class MinimalTIFFFormat extends AbstractFormat {
 		}
 
 		public TiffParser getTiffParser() {
+			if (tiffParser == null && getSource() != null) {
+				// e.g., for metadata restored by io.scif.filters.Memoizer
+				tiffParser = new TiffParser(getContext(), getSource());
+				tiffParser.setDoCaching(false);
+				tiffParser.setUse64BitOffsets(use64Bit);
+				tiffParser.setAssumeEqualStrips(equalStrips);
+				if (j2kCodecOptions != null) {
+					tiffParser.setCodecOptions(j2kCodecOptions);
+				}
+			}
 			return tiffParser;
 		}
 
@@ -247,35 +258,20 @@ public class MinimalTIFFFormat extends AbstractFormat {
 				}
 				ms0.setBitsPerPixel(firstIFD.getBitsPerSample()[0]);
 
-				// New core metadata now that we know how many sub-resolutions
-				// we have.
-				if (resolutionLevels != null && subResolutionIFDs.size() > 0) {
-					final IFDList ifds = subResolutionIFDs.get(0);
-
-					// FIXME: support sub resolutions in SCIFIO.. or something..
-					// int seriesCount = ifds.size() + 1;
-					// if (!hasFlattenedResolutions()) {
-					// ms0.resolutionCount = seriesCount;
-					// }
-
-					if (ifds.size() + 1 < ms0.getAxisLength(Axes.TIME)) {
-						ms0.setAxisLength(Axes.TIME, ms0.getAxisLength(Axes.TIME) -
-							(ifds.size() + 1));
+				// Reduced resolutions, from SubIFDs or JPEG 2000 resolution levels,
+				// as far as every plane has them
+				if (subResolutionIFDs.size() == ifds.size()) {
+					int resolutionCount = Integer.MAX_VALUE;
+					for (final IFDList subIFDs : subResolutionIFDs) {
+						resolutionCount = Math.min(resolutionCount, subIFDs.size());
 					}
-
-					for (final IFD ifd : ifds) {
-						final ImageMetadata ms = ms0.copy();
-						add(ms);
-						ms.setAxisLength(Axes.X, (int) ifd.getImageWidth());
-						ms.setAxisLength(Axes.Y, (int) ifd.getImageLength());
-						ms.setAxisLength(Axes.TIME, ms0.getAxisLength(Axes.TIME));
-						ms.setThumbnail(true);
-						ms.setThumbSizeX(ms0.getThumbSizeX());
-						ms.setThumbSizeY(ms0.getThumbSizeY());
-						// TODO subresolutions
-						// ms.resolutionCount = 1;
+					final IFDList subIFDs = subResolutionIFDs.get(0);
+					final long[][] lengths = new long[resolutionCount][];
+					for (int i = 0; i < lengths.length; i++) {
+						lengths[i] = new long[] { subIFDs.get(i).getImageWidth(),
+							subIFDs.get(i).getImageLength() };
 					}
-
+					ms0.setResolutionLengths(lengths);
 				}
 			}
 			catch (final FormatException e) {
@@ -415,9 +411,30 @@ public class MinimalTIFFFormat extends AbstractFormat {
 
 			log().debug("Reading IFDs");
 
-			final IFDList allIFDs = tiffParser.getIFDs();
+			// SubIFDs holding reduced resolutions of their parent are kept out of
+			// the plane and thumbnail lists, as resolution levels of the parent
+			final IFDList allIFDs = new IFDList();
+			final List<IFDList> allSubResolutionIFDs = new ArrayList<>();
+			boolean pyramidal = false;
+			for (final long offset : tiffParser.getIFDOffsets()) {
+				final IFD ifd = tiffParser.getIFD(offset);
+				if (ifd == null) continue;
+				final IFDList subIFDs = tiffParser.getSubIFDs(ifd);
+				final boolean reduced = isReducedResolution(ifd, subIFDs);
+				pyramidal |= reduced;
+				if (ifd.containsKey(IFD.IMAGE_WIDTH)) {
+					allIFDs.add(ifd);
+					allSubResolutionIFDs.add(reduced ? subIFDs : new IFDList());
+				}
+				if (!reduced) {
+					for (final IFD sub : subIFDs) {
+						allIFDs.add(sub);
+						allSubResolutionIFDs.add(new IFDList());
+					}
+				}
+			}
 
-			if (allIFDs == null || allIFDs.size() == 0) {
+			if (allIFDs.size() == 0) {
 				throw new FormatException("No IFDs found");
 			}
 
@@ -427,11 +444,15 @@ public class MinimalTIFFFormat extends AbstractFormat {
 			meta.setIfds(ifds);
 			meta.setThumbnailIFDs(thumbnailIFDs);
 
-			for (final IFD ifd : allIFDs) {
+			for (int i = 0; i < allIFDs.size(); i++) {
+				final IFD ifd = allIFDs.get(i);
 				final Number subfile = (Number) ifd.getIFDValue(IFD.NEW_SUBFILE_TYPE);
 				final int subfileType = subfile == null ? 0 : subfile.intValue();
 				if (subfileType != 1 || allIFDs.size() <= 1) {
 					ifds.add(ifd);
+					if (pyramidal) {
+						meta.getSubResolutionIFDs().add(allSubResolutionIFDs.get(i));
+					}
 				}
 				else if (subfileType == 1) {
 					thumbnailIFDs.add(ifd);
@@ -441,6 +462,11 @@ public class MinimalTIFFFormat extends AbstractFormat {
 			log().debug("Populating metadata");
 
 			tiffParser.setAssumeEqualStrips(meta.isEqualStrips());
+			for (final IFDList subIFDs : meta.getSubResolutionIFDs()) {
+				for (final IFD ifd : subIFDs) {
+					tiffParser.fillInIFD(ifd);
+				}
+			}
 			for (final IFD ifd : ifds) {
 				tiffParser.fillInIFD(ifd);
 				if (ifd.getCompression() == TiffCompression.JPEG_2000 ||
@@ -459,7 +485,9 @@ public class MinimalTIFFFormat extends AbstractFormat {
 							(JPEG2000Format.Metadata) jp2kFormat.createMetadata();
 						((JPEG2000Format.Parser) jp2kFormat.createParser()).parse(stream,
 							jp2kMeta, stripOffset + stripByteCounts[0]);
-						meta.setResolutionLevels(jp2kMeta.getResolutionLevels());
+						if (!pyramidal) {
+							meta.setResolutionLevels(jp2kMeta.getResolutionLevels());
+						}
 						if (meta.getResolutionLevels() != null &&
 							!meta.isNoSubresolutions())
 						{
@@ -528,6 +556,31 @@ public class MinimalTIFFFormat extends AbstractFormat {
 			}
 		}
 
+		// -- Helper methods --
+
+		/**
+		 * Returns true if the given SubIFDs are successively smaller copies of
+		 * their parent IFD, flagged as reduced resolution images.
+		 */
+		private boolean isReducedResolution(final IFD ifd, final IFDList subIFDs)
+			throws FormatException
+		{
+			if (subIFDs.isEmpty() || !ifd.containsKey(IFD.IMAGE_WIDTH)) {
+				return false;
+			}
+			long width = ifd.getImageWidth(), length = ifd.getImageLength();
+			for (final IFD sub : subIFDs) {
+				final Number subfile = (Number) sub.getIFDValue(IFD.NEW_SUBFILE_TYPE);
+				if (subfile == null || (subfile.intValue() & 1) == 0 ||
+					sub.getImageWidth() > width || sub.getImageLength() > length)
+				{
+					return false;
+				}
+				width = sub.getImageWidth();
+				length = sub.getImageLength();
+			}
+			return true;
+		}
 	}
 
 	public static class Reader<M extends Metadata> extends ByteArrayReader<M> {
@@ -608,16 +661,17 @@ public class MinimalTIFFFormat extends AbstractFormat {
 
 			final IFD firstIFD = ifds.get(0);
 			meta.setLastPlane(planeIndex);
-			final IFD ifd = ifds.get((int) planeIndex);
+			final int resolution = config.imgOpenerGetResolution();
+			if (resolution >= meta.get(imageIndex).getResolutionCount()) {
+				throw new FormatException("Invalid resolution: " + resolution);
+			}
+			final IFD ifd = resolution == 0 ? ifds.get((int) planeIndex) : meta
+				.getSubResolutionIFDs().get((int) planeIndex).get(resolution - 1);
 			if ((firstIFD.getCompression() == TiffCompression.JPEG_2000 || firstIFD
 				.getCompression() == TiffCompression.JPEG_2000_LOSSY) &&
 				meta.getResolutionLevels() != null)
 			{
-				// FIXME: resolution levels
-//        if (getCoreIndex() > 0) {
-//          ifd = meta.getSubResolutionIFDs().get(planeIndex).get(getCoreIndex() - 1);
-//        }
-				setResolutionLevel(ifd);
+				setResolutionLevel(ifd, resolution);
 			}
 
 			tiffParser.getSamples(ifd, buf, x, y, w, h);
@@ -706,15 +760,17 @@ public class MinimalTIFFFormat extends AbstractFormat {
 		 * Sets the resolution level when we have JPEG 2000 compressed data.
 		 *
 		 * @param ifd The active IFD that is being used in our current
-		 *          {@code openBytes()} calling context. It will be the
-		 *          sub-resolution IFD if {@code currentSeries > 0}.
+		 *          {@code openPlane()} calling context. It will be the
+		 *          sub-resolution IFD if {@code resolution > 0}.
+		 * @param resolution The requested resolution level, 0 being full
+		 *          resolution.
 		 */
-		protected void setResolutionLevel(final IFD ifd) {
+		protected void setResolutionLevel(final IFD ifd, final int resolution) {
 			final Metadata meta = getMetadata();
 			final JPEG2000CodecOptions j2kCodecOptions = meta.getJ2kCodecOptions();
-			j2kCodecOptions.resolution = 0;
-			// FIXME: resolution levels
-//      j2kCodecOptions.resolution = Math.abs(getCoreIndex() - resolutionLevels);
+			// the codec counts the resolution levels to decode, so discard the
+			// highest ones to get a reduced resolution
+			j2kCodecOptions.resolution = meta.getResolutionLevels() - resolution;
 			log().debug(
 				"Using JPEG 2000 resolution level " + j2kCodecOptions.resolution);
 			meta.getTiffParser().setCodecOptions(j2kCodecOptions);
@@ -0,0 +1,1077 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats;
+
+import io.scif.AbstractChecker;
+import io.scif.AbstractFormat;
+import io.scif.AbstractMetadata;
+import io.scif.AbstractParser;
+import io.scif.AbstractWriter;
+import io.scif.ByteArrayPlane;
+import io.scif.ByteArrayReader;
+import io.scif.DefaultTranslator;
+import io.scif.Field;
+import io.scif.Format;
+import io.scif.FormatException;
+import io.scif.ImageMetadata;
+import io.scif.Plane;
+import io.scif.Translator;
+import io.scif.codec.CodecOptions;
+import io.scif.codec.CodecService;
+import io.scif.codec.ZlibCodec;
+import io.scif.config.SCIFIOConfig;
+import io.scif.io.JSONPullParser;
+import io.scif.io.JSONPullParser.Event;
+import io.scif.io.Location;
+import io.scif.io.RandomAccessInputStream;
+import io.scif.io.RandomAccessOutputStream;
+import io.scif.util.FormatTools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+
+import org.scijava.Priority;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+
+/**
+ * N5Format reads and writes N5 datasets: a directory holding an
+ * {@code attributes.json} header and one file per chunk of the N-dimensional
+ * image, each compressed independently.
+ * <p>
+ * The header gives the {@code dimensions}, {@code blockSize},
+ * {@code dataType} and {@code compression} of the dataset, with the first
+ * dimension varying fastest. The chunk at grid position (i, j, k) is stored
+ * in the file {@code i/j/k} below the dataset directory, as a big-endian
+ * header with the chunk dimensions followed by the compressed samples.
+ * Chunks which have never been written read as zeros.
+ * </p>
+ * <p>
+ * The reader reports the chunk size along X and Y as its optimal tile size,
+ * so the cells of a {@code SCIFIOCellImg} line up with the chunks on disk.
+ * Since every chunk is its own file, the writer stores planes from several
+ * threads without any shared stream; only the pieces of a chunk spanning
+ * several planes or tiles are gathered under a lock on that chunk.
+ * </p>
+ *
+ * @author agent
+ */
+@Plugin(type = Format.class, name = "N5")
+public class N5Format extends AbstractFormat {
+
+	// -- Constants --
+
+	/** Name of the header in each dataset directory. */
+	public static final String ATTRIBUTES_FILE = "attributes.json";
+
+	/** Chunk length along X and Y used by the writer when none is set. */
+	public static final int DEFAULT_BLOCK_SIZE = 256;
+
+	/** Compression types. */
+	public static final String RAW = "raw", GZIP = "gzip", ZLIB = "zlib";
+
+	/** N5 names of the pixel types, indexed by {@link FormatTools} type. */
+	private static final String[] DATA_TYPES = { "int8", "uint8", "int16",
+		"uint16", "int32", "uint32", "float32", "float64" };
+
+	/** Axes of datasets without an {@code axes} attribute. */
+	private static final AxisType[] DEFAULT_AXES = { Axes.X, Axes.Y, Axes.Z,
+		Axes.CHANNEL, Axes.TIME };
+
+	// -- AbstractFormat Methods --
+
+	@Override
+	protected String[] makeSuffixArray() {
+		return new String[] { "json" };
+	}
+
+	// -- Nested classes --
+
+	public static class Metadata extends AbstractMetadata {
+
+		// -- Fields --
+
+		@Field(label = "Dimensions")
+		private long[] dimensions;
+
+		@Field(label = "Block size")
+		private int[] blockSize;
+
+		@Field(label = "Data type")
+		private String dataType;
+
+		@Field(label = "Compression")
+		private String compression;
+
+		@Field(label = "Axes")
+		private String[] axes;
+
+		// -- N5Metadata getters and setters --
+
+		public long[] getDimensions() {
+			return dimensions;
+		}
+
+		public void setDimensions(final long[] dimensions) {
+			this.dimensions = dimensions;
+		}
+
+		public int[] getBlockSize() {
+			return blockSize;
+		}
+
+		/**
+		 * Sets the chunk size along each axis. Writers fill in a default if this
+		 * is unset when the destination is set.
+		 */
+		public void setBlockSize(final int[] blockSize) {
+			this.blockSize = blockSize;
+		}
+
+		public String getDataType() {
+			return dataType;
+		}
+
+		public void setDataType(final String dataType) {
+			this.dataType = dataType;
+		}
+
+		public String getCompression() {
+			return compression;
+		}
+
+		public void setCompression(final String compression) {
+			this.compression = compression;
+		}
+
+		public String[] getAxes() {
+			return axes;
+		}
+
+		public void setAxes(final String[] axes) {
+			this.axes = axes;
+		}
+
+		/** @return The directory holding the header and chunks. */
+		public String getDirectory() {
+			return new Location(getContext(), getDatasetName()).getAbsoluteFile()
+				.getParent();
+		}
+
+		// -- Metadata API Methods --
+
+		@Override
+		public void populateImageMetadata() {
+			// translated metadata already carries its ImageMetadata
+			if (dimensions == null) return;
+
+			final AxisType[] types = new AxisType[dimensions.length];
+			int planarAxisCount = Math.min(2, types.length);
+			for (int d = 0; d < types.length; d++) {
+				if (axes != null && d < axes.length) types[d] = getAxisType(axes[d]);
+				else if (d < DEFAULT_AXES.length) types[d] = DEFAULT_AXES[d];
+				else types[d] = Axes.get("Axis" + d);
+				if (types[d] == Axes.Y) planarAxisCount = d + 1;
+			}
+
+			createImageMetadata(1);
+			final ImageMetadata imageMeta = get(0);
+			final int pixelType = getPixelType(dataType);
+			imageMeta.setAxisTypes(types);
+			imageMeta.setAxisLengths(dimensions.clone());
+			imageMeta.setPlanarAxisCount(planarAxisCount);
+			imageMeta.setPixelType(pixelType);
+			imageMeta.setBitsPerPixel(8 * FormatTools.getBytesPerPixel(pixelType));
+			imageMeta.setLittleEndian(false);
+			imageMeta.setOrderCertain(true);
+		}
+
+		// -- HasSource API Methods --
+
+		@Override
+		public void close(final boolean fileOnly) throws IOException {
+			super.close(fileOnly);
+
+			if (!fileOnly) {
+				dimensions = null;
+				blockSize = null;
+				dataType = null;
+				compression = null;
+				axes = null;
+			}
+		}
+	}
+
+	public static class Checker extends AbstractChecker {
+
+		// -- Checker API Methods --
+
+		@Override
+		public boolean suffixSufficient() {
+			return false;
+		}
+
+		@Override
+		public boolean isFormat(final String name, final SCIFIOConfig config) {
+			return ATTRIBUTES_FILE.equals(new Location(getContext(), name)
+				.getName()) && super.isFormat(name, config);
+		}
+
+		@Override
+		public boolean isFormat(final RandomAccessInputStream stream)
+			throws IOException
+		{
+			final JSONPullParser json = new JSONPullParser(stream);
+			if (json.next() != Event.START_OBJECT) return false;
+			int found = 0;
+			while (json.next() == Event.NAME) {
+				final String name = json.getText();
+				if (name.equals("dimensions") || name.equals("blockSize") || name
+					.equals("dataType")) found++;
+				skipValue(json);
+			}
+			return found == 3;
+		}
+	}
+
+	public static class Parser extends AbstractParser<Metadata> {
+
+		// -- Parser API Methods --
+
+		@Override
+		protected void typedParse(final RandomAccessInputStream stream,
+			final Metadata meta, final SCIFIOConfig config) throws IOException,
+			FormatException
+		{
+			stream.seek(0);
+			final JSONPullParser json = new JSONPullParser(stream);
+			if (json.next() != Event.START_OBJECT) {
+				throw new FormatException("N5 attributes must be a JSON object");
+			}
+			meta.setCompression(RAW);
+			while (json.next() == Event.NAME) {
+				switch (json.getText()) {
+					case "dimensions":
+						meta.setDimensions(readLongs(json));
+						break;
+					case "blockSize":
+						final long[] blockSize = readLongs(json);
+						final int[] block = new int[blockSize.length];
+						for (int d = 0; d < block.length; d++) {
+							if (blockSize[d] < 1 || blockSize[d] > Integer.MAX_VALUE) {
+								throw new FormatException("Invalid N5 block size: " + Arrays
+									.toString(blockSize));
+							}
+							block[d] = (int) blockSize[d];
+						}
+						meta.setBlockSize(block);
+						break;
+					case "dataType":
+						meta.setDataType(readValue(json));
+						break;
+					case "compression":
+						meta.setCompression(readCompression(json));
+						break;
+					case "compressionType":
+						// N5 versions before 1.0 name the compression directly
+						meta.setCompression(readValue(json));
+						break;
+					case "axes":
+						meta.setAxes(readStrings(json));
+						break;
+					default:
+						skipValue(json);
+				}
+			}
+
+			final long[] dimensions = meta.getDimensions();
+			final int[] blockSize = meta.getBlockSize();
+			if (dimensions == null || blockSize == null ||
+				dimensions.length != blockSize.length || dimensions.length == 0)
+			{
+				throw new FormatException("N5 attributes must give dimensions and " +
+					"a block size for each of them");
+			}
+			if (getPixelType(meta.getDataType()) < 0) {
+				throw new FormatException("Unsupported N5 data type: " + meta
+					.getDataType());
+			}
+			final String compression = meta.getCompression();
+			if (!RAW.equals(compression) && !GZIP.equals(compression) && !ZLIB
+				.equals(compression))
+			{
+				throw new FormatException("Unsupported N5 compression: " +
+					compression);
+			}
+		}
+
+		// -- Helper methods --
+
+		/**
+		 * Reads a {@code compression} object, mapping gzip without its header to
+		 * {@link #ZLIB}.
+		 */
+		private String readCompression(final JSONPullParser json)
+			throws IOException, FormatException
+		{
+			if (json.next() != Event.START_OBJECT) {
+				throw new FormatException("N5 compression must be a JSON object");
+			}
+			String type = null;
+			boolean useZlib = false;
+			while (json.next() == Event.NAME) {
+				switch (json.getText()) {
+					case "type":
+						type = readValue(json);
+						break;
+					case "useZlib":
+						useZlib = Boolean.parseBoolean(readValue(json));
+						break;
+					default:
+						skipValue(json);
+				}
+			}
+			return useZlib && GZIP.equals(type) ? ZLIB : type;
+		}
+
+		private String readValue(final JSONPullParser json) throws IOException,
+			FormatException
+		{
+			if (json.next() != Event.VALUE) {
+				throw new FormatException("Expected a JSON value at offset " + json
+					.getOffset());
+			}
+			return json.getText();
+		}
+
+		private String[] readStrings(final JSONPullParser json)
+			throws IOException, FormatException
+		{
+			if (json.next() != Event.START_ARRAY) {
+				throw new FormatException("Expected a JSON array at offset " + json
+					.getOffset());
+			}
+			final List<String> values = new ArrayList<>();
+			Event event;
+			while ((event = json.next()) == Event.VALUE) {
+				values.add(json.getText());
+			}
+			if (event != Event.END_ARRAY) {
+				throw new FormatException("Expected a flat JSON array at offset " +
+					json.getOffset());
+			}
+			return values.toArray(new String[values.size()]);
+		}
+
+		private long[] readLongs(final JSONPullParser json) throws IOException,
+			FormatException
+		{
+			final String[] values = readStrings(json);
+			final long[] longs = new long[values.length];
+			try {
+				for (int i = 0; i < longs.length; i++) {
+					longs[i] = Long.parseLong(values[i]);
+				}
+			}
+			catch (final NumberFormatException e) {
+				throw new FormatException("Invalid N5 integer array: " + Arrays
+					.toString(values), e);
+			}
+			return longs;
+		}
+	}
+
+	public static class Reader extends ByteArrayReader<Metadata> {
+
+		// -- Constants --
+
+		/** Number of decoded chunks kept for reuse. */
+		private static final int CACHE_SIZE = 16;
+
+		// -- Fields --
+
+		@Parameter
+		private CodecService codecService;
+
+		/** Most recently used chunks, keyed by their path in the dataset. */
+		private final Map<String, Chunk> cache = new LinkedHashMap<String, Chunk>(
+			CACHE_SIZE, 0.75f, true)
+		{
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, Chunk> e) {
+				return size() > CACHE_SIZE;
+			}
+		};
+
+		// -- AbstractReader API Methods --
+
+		@Override
+		protected String[] createDomainArray() {
+			return new String[] { FormatTools.UNKNOWN_DOMAIN };
+		}
+
+		// -- Reader API Methods --
+
+		@Override
+		public ByteArrayPlane openPlane(final int imageIndex,
+			final long planeIndex, final ByteArrayPlane plane,
+			final long[] planeMin, final long[] planeMax, final SCIFIOConfig config)
+			throws FormatException, IOException
+		{
+			final Metadata meta = getMetadata();
+			final ImageMetadata imageMeta = meta.get(imageIndex);
+			final byte[] buf = plane.getData();
+			FormatTools.checkPlaneForReading(meta, imageIndex, planeIndex,
+				buf.length, planeMin, planeMax);
+
+			final int bpp = FormatTools.getBytesPerPixel(imageMeta.getPixelType());
+			final int[] block = meta.getBlockSize();
+			final int n = block.length;
+			final long[] min = new long[n], size = new long[n];
+			planeBox(imageMeta, planeIndex, planeMin, planeMax, min, size);
+
+			final long[] gridMin = new long[n], gridMax = new long[n];
+			for (int d = 0; d < n; d++) {
+				gridMin[d] = min[d] / block[d];
+				gridMax[d] = (min[d] + size[d] - 1) / block[d];
+			}
+			final long[] grid = gridMin.clone();
+			final long[] chunkMin = new long[n];
+			final long[] interMin = new long[n], interSize = new long[n];
+			do {
+				overlap(grid, block, min, size, chunkMin, interMin, interSize);
+				final Chunk chunk = readChunk(grid, bpp);
+				if (chunk.data != null) {
+					for (int d = 0; d < n; d++) {
+						if (interMin[d] + interSize[d] - chunkMin[d] > chunk.size[d]) {
+							throw new FormatException("N5 chunk " + chunkPath(grid) +
+								" is smaller than its place in the grid");
+						}
+					}
+				}
+				copyBox(chunk.data, chunkMin, chunk.size, buf, min, size, interMin,
+					interSize, bpp);
+			}
+			while (next(grid, gridMin, gridMax));
+			return plane;
+		}
+
+		@Override
+		public long getOptimalTileWidth(final int imageIndex) {
+			final int d = getMetadata().get(imageIndex).getAxisIndex(Axes.X);
+			return d < 0 ? super.getOptimalTileWidth(imageIndex) : Math.min(
+				getMetadata().getBlockSize()[d], getMetadata().getDimensions()[d]);
+		}
+
+		@Override
+		public long getOptimalTileHeight(final int imageIndex) {
+			final int d = getMetadata().get(imageIndex).getAxisIndex(Axes.Y);
+			return d < 0 ? super.getOptimalTileHeight(imageIndex) : Math.min(
+				getMetadata().getBlockSize()[d], getMetadata().getDimensions()[d]);
+		}
+
+		// -- HasSource API Methods --
+
+		@Override
+		public void close(final boolean fileOnly) throws IOException {
+			synchronized (cache) {
+				cache.clear();
+			}
+			super.close(fileOnly);
+		}
+
+		// -- Helper methods --
+
+		/**
+		 * Reads and decompresses the chunk at the given grid position, or returns
+		 * a chunk without data if its file does not exist.
+		 */
+		private Chunk readChunk(final long[] grid, final int bpp)
+			throws FormatException, IOException
+		{
+			final String key = chunkPath(grid);
+			synchronized (cache) {
+				final Chunk cached = cache.get(key);
+				if (cached != null) return cached;
+			}
+
+			final Chunk chunk = new Chunk();
+			final Location file = new Location(getContext(), getMetadata()
+				.getDirectory(), key);
+			if (file.exists()) {
+				try (final RandomAccessInputStream in = new RandomAccessInputStream(
+					getContext(), file.getAbsolutePath()))
+				{
+					in.order(false);
+					final int mode = in.readShort();
+					final int n = in.readShort();
+					if (mode != 0 && mode != 1) {
+						throw new FormatException("Unsupported N5 chunk mode: " + mode);
+					}
+					if (n != grid.length) {
+						throw new FormatException("N5 chunk " + key + " has " + n +
+							" dimensions instead of " + grid.length);
+					}
+					chunk.size = new long[n];
+					long count = 1;
+					for (int d = 0; d < n; d++) {
+						chunk.size[d] = in.readInt() & 0xffffffffL;
+						count *= chunk.size[d];
+					}
+					// varlength chunks give their element count, which for numeric
+					// samples matches the product of the dimensions
+					if (mode == 1) in.skipBytes(4);
+					final byte[] payload = new byte[(int) (in.length() - in
+						.getFilePointer())];
+					in.readFully(payload);
+					final int length = (int) (count * bpp);
+					chunk.data = decompress(codecService, getMetadata()
+						.getCompression(), payload, length);
+					if (chunk.data.length < length) {
+						throw new FormatException("N5 chunk " + key + " holds " +
+							chunk.data.length + " bytes instead of " + length);
+					}
+				}
+			}
+			synchronized (cache) {
+				cache.put(key, chunk);
+			}
+			return chunk;
+		}
+	}
+
+	public static class Writer extends AbstractWriter<Metadata> {
+
+		// -- Fields --
+
+		@Parameter
+		private CodecService codecService;
+
+		/** Chunks written in several pieces, keyed by their path. */
+		private final Map<String, PartialChunk> partials =
+			new ConcurrentHashMap<>();
+
+		private Path directory;
+
+		private int bpp;
+
+		private boolean swap;
+
+		// -- AbstractWriter Methods --
+
+		@Override
+		protected String[] makeCompressionTypes() {
+			return new String[] { ZLIB, GZIP, RAW };
+		}
+
+		// -- Writer API Methods --
+
+		@Override
+		public void setDest(final RandomAccessOutputStream stream,
+			final int imageIndex, final SCIFIOConfig config) throws FormatException,
+			IOException
+		{
+			super.setDest(stream, imageIndex, config);
+			final Metadata meta = getMetadata();
+			if (meta.getDatasetName() == null) {
+				throw new FormatException(
+					"N5 datasets can only be written to a named attributes file");
+			}
+			final ImageMetadata imageMeta = meta.get(0);
+			final int pixelType = imageMeta.getPixelType();
+			if (pixelType < 0 || pixelType >= DATA_TYPES.length) {
+				throw new FormatException("Unsupported image type '" + FormatTools
+					.getPixelTypeString(pixelType) + "'.");
+			}
+			isSupportedCompression(getCompression() == null ? ZLIB
+				: getCompression());
+
+			final long[] dimensions = imageMeta.getAxesLengths();
+			final int n = dimensions.length;
+			int[] blockSize = meta.getBlockSize();
+			if (blockSize == null || blockSize.length != n) {
+				// chunks hold one plane's worth of X/Y tiles
+				blockSize = new int[n];
+				final int planarAxisCount = imageMeta.getPlanarAxisCount();
+				for (int d = 0; d < n; d++) {
+					final AxisType type = imageMeta.getAxis(d).type();
+					blockSize[d] = type == Axes.X || type == Axes.Y ? (int) Math.min(
+						DEFAULT_BLOCK_SIZE, dimensions[d]) : d < planarAxisCount
+							? (int) dimensions[d] : 1;
+				}
+			}
+			final String[] axes = new String[n];
+			for (int d = 0; d < n; d++) {
+				axes[d] = imageMeta.getAxis(d).type().getLabel();
+			}
+			meta.setDimensions(dimensions);
+			meta.setBlockSize(blockSize);
+			meta.setDataType(DATA_TYPES[pixelType]);
+			meta.setCompression(getCompression());
+			meta.setAxes(axes);
+
+			directory = Paths.get(meta.getDirectory());
+			bpp = FormatTools.getBytesPerPixel(pixelType);
+			swap = imageMeta.isLittleEndian() && bpp > 1;
+			writeAttributes();
+		}
+
+		@Override
+		public void writePlane(final int imageIndex, final long planeIndex,
+			final Plane plane, final long[] planeMin, final long[] planeMax)
+			throws FormatException, IOException
+		{
+			final byte[] buf = plane.getBytes();
+			checkParams(imageIndex, planeIndex, buf, planeMin, planeMax);
+			if (imageIndex != 0) {
+				throw new FormatException("N5 datasets hold a single image");
+			}
+
+			final Metadata meta = getMetadata();
+			final long[] dimensions = meta.getDimensions();
+			final int[] block = meta.getBlockSize();
+			final int n = block.length;
+			final long[] min = new long[n], size = new long[n];
+			planeBox(meta.get(0), planeIndex, planeMin, planeMax, min, size);
+
+			final long[] gridMin = new long[n], gridMax = new long[n];
+			for (int d = 0; d < n; d++) {
+				gridMin[d] = min[d] / block[d];
+				gridMax[d] = (min[d] + size[d] - 1) / block[d];
+			}
+			final long[] grid = gridMin.clone();
+			final long[] chunkMin = new long[n], chunkSize = new long[n];
+			final long[] interMin = new long[n], interSize = new long[n];
+			do {
+				overlap(grid, block, min, size, chunkMin, interMin, interSize);
+				long count = 1, covered = 1;
+				for (int d = 0; d < n; d++) {
+					chunkSize[d] = Math.min(block[d], dimensions[d] - chunkMin[d]);
+					count *= chunkSize[d];
+					covered *= interSize[d];
+				}
+
+				if (covered == count) {
+					final byte[] data = new byte[(int) (count * bpp)];
+					copyBox(buf, min, size, data, chunkMin, chunkSize, interMin,
+						interSize, bpp);
+					writeChunk(grid, chunkSize, data);
+					continue;
+				}
+
+				// gather the pieces of this chunk until all of them have arrived
+				final String key = chunkPath(grid);
+				final PartialChunk partial = partials.computeIfAbsent(key,
+					k -> new PartialChunk(grid, chunkSize, bpp));
+				boolean complete = false;
+				synchronized (partial) {
+					copyBox(buf, min, size, partial.data, chunkMin, chunkSize, interMin,
+						interSize, bpp);
+					// regions saved more than once only count once
+					markBox(partial.written, chunkMin, chunkSize, interMin, interSize);
+					if (partial.written.cardinality() >= count) {
+						complete = partials.remove(key, partial);
+					}
+				}
+				if (complete) writeChunk(partial.grid, partial.size, partial.data);
+			}
+			while (next(grid, gridMin, gridMax));
+		}
+
+		@Override
+		public boolean canDoStacks() {
+			return true;
+		}
+
+		@Override
+		public int[] getPixelTypes(final String codec) {
+			return new int[] { FormatTools.INT8, FormatTools.UINT8,
+				FormatTools.INT16, FormatTools.UINT16, FormatTools.INT32,
+				FormatTools.UINT32, FormatTools.FLOAT, FormatTools.DOUBLE };
+		}
+
+		// -- HasSource API Methods --
+
+		@Override
+		public void close(final boolean fileOnly) throws IOException {
+			// chunks only partly written keep zeros where no plane covered them
+			try {
+				for (final PartialChunk partial : partials.values()) {
+					writeChunk(partial.grid, partial.size, partial.data);
+				}
+			}
+			catch (final FormatException e) {
+				throw new IOException(e);
+			}
+			finally {
+				partials.clear();
+				super.close(fileOnly);
+			}
+		}
+
+		// -- Helper methods --
+
+		private void writeAttributes() throws IOException {
+			final Metadata meta = getMetadata();
+			final StringBuilder sb = new StringBuilder("{\"dimensions\":");
+			sb.append(Arrays.toString(meta.getDimensions()).replace(" ", ""));
+			sb.append(",\"blockSize\":");
+			sb.append(Arrays.toString(meta.getBlockSize()).replace(" ", ""));
+			sb.append(",\"dataType\":\"").append(meta.getDataType());
+			sb.append("\",\"compression\":{\"type\":\"");
+			final String compression = meta.getCompression();
+			sb.append(RAW.equals(compression) ? RAW : GZIP).append('"');
+			if (!RAW.equals(compression)) {
+				sb.append(",\"useZlib\":").append(ZLIB.equals(compression));
+			}
+			sb.append("},\"axes\":[");
+			final String[] axes = meta.getAxes();
+			for (int d = 0; d < axes.length; d++) {
+				if (d > 0) sb.append(',');
+				sb.append('"').append(axes[d].replace("\\", "\\\\").replace("\"",
+					"\\\"")).append('"');
+			}
+			sb.append("]}\n");
+
+			final RandomAccessOutputStream out = getStream();
+			out.seek(0);
+			out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+			// blank out the rest of any longer header written before
+			final long remaining = out.length() - out.getFilePointer();
+			if (remaining > 0) {
+				final byte[] blank = new byte[(int) remaining];
+				Arrays.fill(blank, (byte) ' ');
+				out.write(blank);
+			}
+		}
+
+		/**
+		 * Compresses the given samples and stores them as the chunk at the given
+		 * grid position, replacing any earlier version of it.
+		 */
+		private void writeChunk(final long[] grid, final long[] size,
+			final byte[] data) throws FormatException, IOException
+		{
+			if (swap) {
+				for (int i = 0; i < data.length; i += bpp) {
+					for (int j = 0; j < bpp / 2; j++) {
+						final byte b = data[i + j];
+						data[i + j] = data[i + bpp - 1 - j];
+						data[i + bpp - 1 - j] = b;
+					}
+				}
+			}
+			final byte[] payload = compress(codecService, getMetadata()
+				.getCompression(), data, getCodecOptions());
+
+			final ByteBuffer header = ByteBuffer.allocate(4 + 4 * size.length);
+			header.putShort((short) 0);
+			header.putShort((short) size.length);
+			for (final long length : size) {
+				header.putInt((int) length);
+			}
+
+			final Path path = directory.resolve(chunkPath(grid));
+			Files.createDirectories(path.getParent());
+			try (final OutputStream out = Files.newOutputStream(path)) {
+				out.write(header.array());
+				out.write(payload);
+			}
+		}
+	}
+
+	@Plugin(type = Translator.class, priority = Priority.LOW_PRIORITY)
+	public static class N5Translator extends DefaultTranslator {
+
+		// -- Translator API Methods --
+
+		@Override
+		public Class<? extends io.scif.Metadata> source() {
+			return io.scif.Metadata.class;
+		}
+
+		@Override
+		public Class<? extends io.scif.Metadata> dest() {
+			return Metadata.class;
+		}
+	}
+
+	// -- Helper classes --
+
+	/** Decoded samples of a chunk, with null data for a missing chunk. */
+	private static class Chunk {
+
+		private long[] size;
+
+		private byte[] data;
+	}
+
+	/** A chunk whose samples arrive from several planes or tiles. */
+	private static class PartialChunk {
+
+		private final long[] grid;
+
+		private final long[] size;
+
+		private final byte[] data;
+
+		/** Samples copied in so far, first axis fastest. */
+		private final BitSet written;
+
+		private PartialChunk(final long[] grid, final long[] size,
+			final int bpp)
+		{
+			this.grid = grid.clone();
+			this.size = size.clone();
+			long count = 1;
+			for (final long length : size) {
+				count *= length;
+			}
+			data = new byte[(int) count * bpp];
+			written = new BitSet((int) count);
+		}
+	}
+
+	// -- Helper methods --
+
+	/** @return The pixel type of the given N5 data type, or -1 if unknown. */
+	private static int getPixelType(final String dataType) {
+		for (int i = 0; i < DATA_TYPES.length; i++) {
+			if (DATA_TYPES[i].equals(dataType)) return i;
+		}
+		return -1;
+	}
+
+	/** Maps an axis name, in full or as a single letter, to its type. */
+	private static AxisType getAxisType(final String name) {
+		switch (name.toLowerCase()) {
+			case "x":
+				return Axes.X;
+			case "y":
+				return Axes.Y;
+			case "z":
+				return Axes.Z;
+			case "c":
+			case "channel":
+				return Axes.CHANNEL;
+			case "t":
+			case "time":
+				return Axes.TIME;
+			default:
+				return Axes.get(name);
+		}
+	}
+
+	/** Passes over the value following a name, whatever its kind. */
+	private static void skipValue(final JSONPullParser json) throws IOException {
+		final Event event = json.next();
+		if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+			json.skipChildren();
+		}
+	}
+
+	/** @return The path of the chunk at a grid position, below the dataset. */
+	private static String chunkPath(final long[] grid) {
+		final StringBuilder sb = new StringBuilder();
+		for (int d = 0; d < grid.length; d++) {
+			if (d > 0) sb.append('/');
+			sb.append(grid[d]);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Computes the N-D box covered by a plane region, one sample deep along the
+	 * non-planar axes.
+	 */
+	private static void planeBox(final ImageMetadata imageMeta,
+		final long planeIndex, final long[] planeMin, final long[] planeMax,
+		final long[] min, final long[] size)
+	{
+		final int planarAxisCount = imageMeta.getPlanarAxisCount();
+		final long[] pos = FormatTools.rasterToPosition(imageMeta
+			.getAxesLengthsNonPlanar(), planeIndex);
+		for (int d = 0; d < min.length; d++) {
+			final boolean planar = d < planarAxisCount;
+			min[d] = planar ? planeMin[d] : pos[d - planarAxisCount];
+			size[d] = planar ? planeMax[d] : 1;
+		}
+	}
+
+	/**
+	 * Computes the origin of the chunk at a grid position, and the part of the
+	 * box {@code [min, min + size)} falling inside it.
+	 */
+	private static void overlap(final long[] grid, final int[] block,
+		final long[] min, final long[] size, final long[] chunkMin,
+		final long[] interMin, final long[] interSize)
+	{
+		for (int d = 0; d < grid.length; d++) {
+			chunkMin[d] = grid[d] * block[d];
+			interMin[d] = Math.max(min[d], chunkMin[d]);
+			interSize[d] = Math.min(min[d] + size[d], chunkMin[d] + block[d]) -
+				interMin[d];
+		}
+	}
+
+	/**
+	 * Advances a grid position through {@code [gridMin, gridMax]}, first axis
+	 * fastest.
+	 *
+	 * @return false once every position has been visited.
+	 */
+	private static boolean next(final long[] grid, final long[] gridMin,
+		final long[] gridMax)
+	{
+		for (int d = 0; d < grid.length; d++) {
+			if (++grid[d] <= gridMax[d]) return true;
+			grid[d] = gridMin[d];
+		}
+		return false;
+	}
+
+	/**
+	 * Copies the box {@code [min, min + size)} between two arrays, each holding
+	 * the samples of a larger box with the first axis varying fastest. A null
+	 * source fills the box with zeros.
+	 */
+	private static void copyBox(final byte[] src, final long[] srcMin,
+		final long[] srcSize, final byte[] dest, final long[] destMin,
+		final long[] destSize, final long[] min, final long[] size,
+		final int bpp)
+	{
+		final int n = min.length;
+		final int run = (int) size[0] * bpp;
+		final long[] pos = new long[n];
+		while (true) {
+			long s = 0, d = 0;
+			for (int i = n - 1; i >= 0; i--) {
+				final long c = min[i] + pos[i];
+				if (src != null) s = s * srcSize[i] + c - srcMin[i];
+				d = d * destSize[i] + c - destMin[i];
+			}
+			final int destOffset = (int) (d * bpp);
+			if (src == null) Arrays.fill(dest, destOffset, destOffset + run,
+				(byte) 0);
+			else System.arraycopy(src, (int) (s * bpp), dest, destOffset, run);
+
+			int i = 1;
+			while (i < n && ++pos[i] == size[i]) {
+				pos[i++] = 0;
+			}
+			if (i == n) return;
+		}
+	}
+
+	/**
+	 * Marks the samples of the box {@code [min, min + size)} within a larger
+	 * box, whose samples are numbered with the first axis varying fastest.
+	 */
+	private static void markBox(final BitSet marks, final long[] destMin,
+		final long[] destSize, final long[] min, final long[] size)
+	{
+		final int n = min.length;
+		final long[] pos = new long[n];
+		while (true) {
+			long d = 0;
+			for (int i = n - 1; i >= 0; i--) {
+				d = d * destSize[i] + min[i] + pos[i] - destMin[i];
+			}
+			marks.set((int) d, (int) (d + size[0]));
+
+			int i = 1;
+			while (i < n && ++pos[i] == size[i]) {
+				pos[i++] = 0;
+			}
+			if (i == n) return;
+		}
+	}
+
+	private static byte[] compress(final CodecService codecService,
+		final String compression, final byte[] data, final CodecOptions options)
+		throws FormatException, IOException
+	{
+		if (ZLIB.equals(compression)) {
+			return codecService.getCodec(ZlibCodec.class).compress(data, options);
+		}
+		if (GZIP.equals(compression)) {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (final GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+				out.write(data);
+			}
+			return bytes.toByteArray();
+		}
+		return data;
+	}
+
+	private static byte[] decompress(final CodecService codecService,
+		final String compression, final byte[] data, final int length)
+		throws FormatException, IOException
+	{
+		if (ZLIB.equals(compression)) {
+			final CodecOptions options = new CodecOptions();
+			options.maxBytes = length;
+			return codecService.getCodec(ZlibCodec.class).decompress(data,
+				options);
+		}
+		if (GZIP.equals(compression)) {
+			final byte[] buf = new byte[length];
+			try (final DataInputStream in = new DataInputStream(
+				new GZIPInputStream(new ByteArrayInputStream(data))))
+			{
+				in.readFully(buf);
+			}
+			return buf;
+		}
+		return data;
+	}
+}
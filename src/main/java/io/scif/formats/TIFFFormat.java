@@ -50,6 +50,8 @@ import io.scif.formats.tiff.IFDList;
 import io.scif.formats.tiff.PhotoInterp;
 import io.scif.formats.tiff.TiffCompression;
 import io.scif.formats.tiff.TiffParser;
+import io.scif.formats.tiff.TiffPyramidBuilder;
+import io.scif.formats.tiff.TiffPyramidBuilder.Downsampling;
 import io.scif.formats.tiff.TiffRational;
 import io.scif.formats.tiff.TiffSaver;
 import io.scif.gui.AWTImageTools;
@@ -64,8 +66,10 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -138,7 +142,8 @@ public class TIFFFormat extends AbstractFormat {
 
 		private byte[][] lut;
 
-		private List<ColorTable> colorTable;
+		/** Color tables derived from {@link #lut}. */
+		private transient List<ColorTable> colorTable;
 
 		// -- TIFFMetadata getters and setters --
 
@@ -1369,11 +1374,39 @@ public class TIFFFormat extends AbstractFormat {
 
 		public static final String BIG_TIFF_KEY = "WRITE_BIG_TIFF";
 
+		public static final String STREAMING_KEY = "WRITE_STREAMING_TIFF";
+
+		public static final String PYRAMID_RESOLUTIONS_KEY =
+			"WRITE_PYRAMID_RESOLUTIONS";
+
+		public static final String PYRAMID_DOWNSAMPLING_KEY =
+			"WRITE_PYRAMID_DOWNSAMPLING";
+
+		public static final String TILE_SIZE_KEY = "WRITE_TILE_SIZE";
+
+		/** Default tile size of pyramidal TIFFs. */
+		public static final int DEFAULT_TILE_SIZE = 256;
+
 		// -- Fields --
 
 		/** Whether or not the output file is a BigTIFF file. */
 		private Boolean isBigTIFF = null;
 
+		/** Whether or not the output file is written in a single forward pass. */
+		private boolean streaming = false;
+
+		/** Number of resolutions written for each plane. */
+		private int resolutions = 1;
+
+		/** Kernel used to compute reduced resolutions. */
+		private Downsampling downsampling = Downsampling.AVERAGE;
+
+		/** Tile width and height, or 0 to write strips. */
+		private int tileSize = 0;
+
+		/** Pyramids of the planes being written, keyed by plane index. */
+		private final Map<Long, TiffPyramidBuilder> pyramids = new TreeMap<>();
+
 		/** The TiffSaver that will do most of the writing. */
 		private TiffSaver tiffSaver;
 
@@ -1408,6 +1441,71 @@ public class TIFFFormat extends AbstractFormat {
 			return isBigTIFF == null ? false : isBigTIFF;
 		}
 
+		/**
+		 * Sets whether or not files should be written in a single forward pass,
+		 * with all IFDs in a trailing block written when the writer is closed.
+		 * Streamed files switch to BigTIFF automatically if they outgrow 4 GB.
+		 * This flag is not reset when close() is called.
+		 *
+		 * @see TiffSaver#setStreaming(boolean)
+		 */
+		public void setStreaming(final boolean streaming) {
+			this.streaming = streaming;
+		}
+
+		/**
+		 * @return Whether or not this Writer is configured to write files in a
+		 *         single forward pass.
+		 */
+		public boolean isStreaming() {
+			return streaming || resolutions > 1;
+		}
+
+		/**
+		 * Sets the number of resolutions to write for each plane, including the
+		 * full resolution. Each reduced resolution halves the width and height of
+		 * the previous one, and is written as a tiled SubIFD of the plane. Planes
+		 * of pyramidal files must be written top to bottom in full width bands of
+		 * rows, and the file is always streamed. This flag is not reset when
+		 * close() is called.
+		 */
+		public void setPyramidResolutions(final int resolutions) {
+			this.resolutions = Math.max(1, resolutions);
+		}
+
+		/** @return The number of resolutions written for each plane. */
+		public int getPyramidResolutions() {
+			return resolutions;
+		}
+
+		/**
+		 * Sets the kernel used to compute the reduced resolutions of pyramidal
+		 * files. This flag is not reset when close() is called.
+		 */
+		public void setDownsampling(final Downsampling downsampling) {
+			this.downsampling = downsampling;
+		}
+
+		/** @return The kernel used to compute reduced resolutions. */
+		public Downsampling getDownsampling() {
+			return downsampling;
+		}
+
+		/**
+		 * Sets the width and height of tiles, which must be a multiple of 16, or 0
+		 * to write strips. Pyramidal files are always tiled, with
+		 * {@link #DEFAULT_TILE_SIZE} if no size is set. This flag is not reset
+		 * when close() is called.
+		 */
+		public void setTileSize(final int tileSize) {
+			this.tileSize = tileSize;
+		}
+
+		/** @return The width and height of tiles, or 0 if writing strips. */
+		public int getTileSize() {
+			return tileSize;
+		}
+
 		/**
 		 * Saves the given image to the specified series in the current file. The
 		 * IFD hashtable allows specification of TIFF parameters such as bit depth,
@@ -1435,6 +1533,17 @@ public class TIFFFormat extends AbstractFormat {
 				}
 			}
 
+			final int size = tileSize > 0 ? tileSize : resolutions > 1
+				? DEFAULT_TILE_SIZE : 0;
+			if (size > 0 && !ifd.containsKey(IFD.TILE_WIDTH)) {
+				ifd.putIFDValue(IFD.TILE_WIDTH, (long) size);
+				ifd.putIFDValue(IFD.TILE_LENGTH, (long) size);
+			}
+			if (resolutions > 1) {
+				savePyramidRows(index, buf, ifd, type, x, y, w, h);
+				return;
+			}
+
 			tiffSaver.writeImage(buf, ifd, index, type, x, y, w, h,
 				planeIndex == getMetadata().get(imageIndex).getPlaneCount() - 1 &&
 					imageIndex == getMetadata().getImageCount() - 1);
@@ -1497,12 +1606,38 @@ public class TIFFFormat extends AbstractFormat {
 				}
 			}
 
+			if (config.containsKey(STREAMING_KEY)) {
+				final Object o = config.get(STREAMING_KEY);
+				streaming =
+					o instanceof Boolean ? (Boolean) o : String.valueOf(o).toLowerCase()
+						.startsWith("t");
+			}
+			if (config.containsKey(PYRAMID_RESOLUTIONS_KEY)) {
+				setPyramidResolutions(Integer.parseInt(String.valueOf(config.get(
+					PYRAMID_RESOLUTIONS_KEY))));
+			}
+			if (config.containsKey(PYRAMID_DOWNSAMPLING_KEY)) {
+				final Object o = config.get(PYRAMID_DOWNSAMPLING_KEY);
+				downsampling = o instanceof Downsampling ? (Downsampling) o
+					: Downsampling.valueOf(String.valueOf(o).toUpperCase());
+			}
+			if (config.containsKey(TILE_SIZE_KEY)) {
+				tileSize =
+					Integer.parseInt(String.valueOf(config.get(TILE_SIZE_KEY)));
+			}
+
 			// if isBigTIFF is not explicitly set and the dataset is > 2GB,
 			// write
-			// bigTIFF to be safe.
-			if (isBigTIFF == null && getMetadata().getDatasetSize() > 2147483648L) {
+			// bigTIFF to be safe. Streamed files decide this when closed.
+			if (isBigTIFF == null && !isStreaming() &&
+				getMetadata().getDatasetSize() > 2147483648L)
+			{
 				isBigTIFF = true;
 			}
+			synchronized (this) {
+				tiffSaver.setBigTiff(isBigTiff());
+				tiffSaver.setStreaming(isStreaming());
+			}
 		}
 
 		@Override
@@ -1511,7 +1646,7 @@ public class TIFFFormat extends AbstractFormat {
 			throws FormatException, IOException
 		{
 			IFD ifd = new IFD(log());
-			if (!writeSequential()) {
+			if (!writeSequential() && !isStreaming()) {
 				final TiffParser parser =
 					new TiffParser(getContext(), getMetadata().getDatasetName());
 				try {
@@ -1555,6 +1690,18 @@ public class TIFFFormat extends AbstractFormat {
 
 		@Override
 		public void close() throws IOException {
+			if (tiffSaver != null && getStream() != null) {
+				try {
+					for (final TiffPyramidBuilder pyramid : pyramids.values()) {
+						pyramid.flush();
+					}
+					pyramids.clear();
+					tiffSaver.finish();
+				}
+				catch (final FormatException e) {
+					throw new IOException(e);
+				}
+			}
 			super.close();
 			if (in != null) {
 				in.close();
@@ -1563,6 +1710,40 @@ public class TIFFFormat extends AbstractFormat {
 
 		// -- Helper methods --
 
+		/**
+		 * Passes a band of rows to the pyramid of the given plane, which writes
+		 * all resolutions as the rows come in.
+		 */
+		private void savePyramidRows(final long index, final byte[] buf,
+			final IFD ifd, final int type, final int x, final int y, final int w,
+			final int h) throws FormatException, IOException
+		{
+			if (x != 0 || w != ifd.getImageWidth()) {
+				throw new FormatException(
+					"Pyramidal TIFFs must be written in full width bands of rows");
+			}
+			final TiffPyramidBuilder pyramid;
+			synchronized (pyramids) {
+				TiffPyramidBuilder p = pyramids.get(index);
+				if (p == null) {
+					final int nChannels =
+						buf.length / (w * h * FormatTools.getBytesPerPixel(type));
+					p = new TiffPyramidBuilder(tiffSaver, ifd, index, type, nChannels,
+						resolutions, downsampling);
+					pyramids.put(index, p);
+				}
+				pyramid = p;
+			}
+			synchronized (pyramid) {
+				pyramid.writeRows(buf, y, h);
+				if (pyramid.isComplete()) {
+					synchronized (pyramids) {
+						pyramids.remove(index);
+					}
+				}
+			}
+		}
+
 		/**
 		 * Sets the compression code for the specified IFD.
 		 *
@@ -1643,7 +1824,7 @@ public class TIFFFormat extends AbstractFormat {
 			ifd.put(IFD.Y_RESOLUTION, new TiffRational(
 				(long) (physicalSizeY * 1000 * 10000), 1000));
 
-			if (!isBigTiff()) {
+			if (!isBigTiff() && !isStreaming()) {
 				isBigTIFF =
 					(getStream().length() + 2 * (width * height * c * bytesPerPixel)) >= 4294967296L;
 				if (isBigTiff()) {
@@ -59,6 +59,7 @@ import io.scif.io.RandomAccessInputStream;
 import io.scif.io.RandomAccessOutputStream;
 import io.scif.services.FormatService;
 import io.scif.services.TranslatorService;
+import io.scif.util.CheckpointCache;
 import io.scif.util.FormatTools;
 import io.scif.util.SCIFIOMetadataTools;
 
@@ -130,6 +131,9 @@ public class NativeQTFormat extends AbstractFormat {
 		/** Flag indicating whether we can safely use prevPixels. */
 		private boolean canUsePrevious;
 
+		/** Decoded checkpoint frames of inter-frame compressed movies. */
+		private transient CheckpointCache checkpoints;
+
 		/** Video codec used by this movie. */
 		private String codec;
 
@@ -219,6 +223,14 @@ public class NativeQTFormat extends AbstractFormat {
 			this.canUsePrevious = canUsePrevious;
 		}
 
+		public CheckpointCache getCheckpoints() {
+			return checkpoints;
+		}
+
+		public void setCheckpoints(final CheckpointCache checkpoints) {
+			this.checkpoints = checkpoints;
+		}
+
 		public String getCodec() {
 			return codec;
 		}
@@ -315,6 +327,8 @@ public class NativeQTFormat extends AbstractFormat {
 				pixelOffset = pixelBytes = bitsPerPixel = rawSize = 0;
 				prevPlane = altPlanes = 0;
 				canUsePrevious = false;
+				if (checkpoints != null) checkpoints.close();
+				checkpoints = null;
 				scale = 0;
 				chunkSizes = null;
 				interlaced = spork = flip = false;
@@ -482,6 +496,8 @@ public class NativeQTFormat extends AbstractFormat {
 			if (planeIndex >= meta.get(imageIndex).getPlaneCount() -
 				meta.getAltPlanes()) code = meta.altCodec;
 
+			if (code.equals("rle ")) seekCheckpoint(imageIndex, planeIndex, config);
+
 			int offset = meta.getOffsets().get((int) planeIndex).intValue();
 			int nextOffset = (int) meta.getPixelBytes();
 
@@ -530,6 +546,9 @@ public class NativeQTFormat extends AbstractFormat {
 
 			meta.setPrevPixels(t);
 			meta.setPrevPlane(planeIndex);
+			if (code.equals("rle ") && meta.getCheckpoints() != null) {
+				meta.getCheckpoints().put(planeIndex, t);
+			}
 
 			// determine whether we need to strip out any padding bytes
 
@@ -608,6 +627,53 @@ public class NativeQTFormat extends AbstractFormat {
 			}
 			return plane;
 		}
+
+		// -- Helper methods --
+
+		/**
+		 * Decodes the planes preceding the given one, starting from the previous
+		 * plane if it comes earlier, from the last checkpoint before the given
+		 * plane if it is closer, or else from the start of the movie.
+		 */
+		private void seekCheckpoint(final int imageIndex, final long planeIndex,
+			final SCIFIOConfig config) throws FormatException, IOException
+		{
+			final Metadata meta = getMetadata();
+			if (planeIndex == 0 || meta.getPrevPixels() != null &&
+				(meta.getPrevPlane() == planeIndex ||
+					meta.getPrevPlane() == planeIndex - 1))
+			{
+				return;
+			}
+			if (meta.getCheckpoints() == null &&
+				config.readerGetCheckpointInterval() > 0)
+			{
+				meta.setCheckpoints(new CheckpointCache(config
+					.readerGetCheckpointInterval(), config.readerGetCheckpointMemory(),
+					config.readerGetCheckpointDirectory()));
+			}
+			final CheckpointCache checkpoints = meta.getCheckpoints();
+			long next =
+				meta.getPrevPixels() != null && meta.getPrevPlane() < planeIndex
+					? meta.getPrevPlane() + 1 : 0;
+			final long checkpoint =
+				checkpoints == null ? -1 : checkpoints.nearest(planeIndex - 1);
+			if (checkpoint >= next) {
+				meta.setPrevPixels(checkpoints.get(checkpoint));
+				meta.setPrevPlane(checkpoint);
+				next = checkpoint + 1;
+			}
+			else if (next == 0) {
+				meta.setPrevPixels(null);
+			}
+
+			final long[] lengths = meta.get(imageIndex).getAxesLengthsPlanar();
+			final ByteArrayPlane tmpPlane =
+				createPlane(new long[lengths.length], lengths);
+			for (long p = next; p < planeIndex; p++) {
+				openPlane(imageIndex, p, tmpPlane, config);
+			}
+		}
 	}
 
 	public static class Writer extends AbstractWriter<Metadata> {
@@ -41,6 +41,11 @@ import org.scijava.util.Bytes;
 
 /**
  * Default service for working with TIFF files.
+ * <p>
+ * Horizontal differencing (predictor 2) is applied row by row, with
+ * specialized loops for 8-, 16- and 32-bit samples. The floating-point
+ * predictor (predictor 3) is also supported.
+ * </p>
  *
  * @author Curtis Rueden
  */
@@ -58,18 +63,17 @@ public class DefaultTiffService extends AbstractService implements TiffService {
 		if (predictor == 2) {
 			log.debug("performing horizontal differencing");
 			final int[] bitsPerSample = ifd.getBitsPerSample();
-			final long width = ifd.getImageWidth();
+			final long width = ifd.getTileWidth();
 			final boolean little = ifd.isLittleEndian();
 			final int planarConfig = ifd.getPlanarConfiguration();
 			final int bytes = ifd.getBytesPerSample()[0];
 			final int len = bytes * (planarConfig == 2 ? 1 : bitsPerSample.length);
 
-			for (int b = input.length - bytes; b >= 0; b -= bytes) {
-				if (b / len % width == 0) continue;
-				int value = Bytes.toInt(input, b, bytes, little);
-				value -= Bytes.toInt(input, b - len, bytes, little);
-				Bytes.unpack(value, input, b, bytes, little);
-			}
+			horizontal(input, bytes, len, width, little, true);
+		}
+		else if (predictor == 3) {
+			log.debug("performing floating point differencing");
+			floatingPoint(input, ifd, true);
 		}
 		else if (predictor != 1) {
 			throw new FormatException("Unknown Predictor (" + predictor + ")");
@@ -85,7 +89,7 @@ public class DefaultTiffService extends AbstractService implements TiffService {
 			log.debug("reversing horizontal differencing");
 			final int[] bitsPerSample = ifd.getBitsPerSample();
 			int len = bitsPerSample.length;
-			final long width = ifd.getImageWidth();
+			final long width = ifd.getTileWidth();
 			final boolean little = ifd.isLittleEndian();
 			final int planarConfig = ifd.getPlanarConfiguration();
 
@@ -94,16 +98,218 @@ public class DefaultTiffService extends AbstractService implements TiffService {
 			if (planarConfig == 2 || bitsPerSample[len - 1] == 0) len = 1;
 			len *= bytes;
 
-			for (int b = 0; b <= input.length - bytes; b += bytes) {
-				if (b / len % width == 0) continue;
-				int value = Bytes.toInt(input, b, bytes, little);
-				value += Bytes.toInt(input, b - len, bytes, little);
-				Bytes.unpack(value, input, b, bytes, little);
-			}
+			horizontal(input, bytes, len, width, little, false);
+		}
+		else if (predictor == 3) {
+			log.debug("reversing floating point differencing");
+			floatingPoint(input, ifd, false);
 		}
 		else if (predictor != 1) {
 			throw new FormatException("Unknown Predictor (" + predictor + ")");
 		}
 	}
 
+	// -- Helper methods --
+
+	/**
+	 * Applies or reverses horizontal differencing in place, one row of
+	 * {@code width} pixels at a time.
+	 *
+	 * @param input The samples to process.
+	 * @param bytes The number of bytes per sample.
+	 * @param len The number of bytes per pixel.
+	 * @param width The number of pixels per row.
+	 * @param little Whether the samples are little-endian.
+	 * @param forward True to difference, false to undo differencing.
+	 */
+	private void horizontal(final byte[] input, final int bytes, final int len,
+		final long width, final boolean little, final boolean forward)
+	{
+		final int end = input.length - input.length % bytes;
+		final long rowLength = width * len;
+		if (rowLength <= 0) return;
+		for (long rowStart = 0; rowStart < end; rowStart += rowLength) {
+			final int from = (int) rowStart + len;
+			final int to = (int) Math.min(rowStart + rowLength, end);
+			if (from >= to) continue;
+			switch (bytes) {
+				case 1:
+					if (forward) difference8(input, from, to, len);
+					else undifference8(input, from, to, len);
+					break;
+				case 2:
+					if (forward) difference16(input, from, to, len, little);
+					else undifference16(input, from, to, len, little);
+					break;
+				case 4:
+					if (forward) difference32(input, from, to, len, little);
+					else undifference32(input, from, to, len, little);
+					break;
+				default:
+					differenceGeneric(input, from, to, bytes, len, little, forward);
+			}
+		}
+	}
+
+	private void difference8(final byte[] b, final int from, final int to,
+		final int len)
+	{
+		for (int i = to - 1; i >= from; i--) {
+			b[i] -= b[i - len];
+		}
+	}
+
+	private void undifference8(final byte[] b, final int from, final int to,
+		final int len)
+	{
+		for (int i = from; i < to; i++) {
+			b[i] += b[i - len];
+		}
+	}
+
+	private void difference16(final byte[] b, final int from, final int to,
+		final int len, final boolean little)
+	{
+		for (int i = to - 2; i >= from; i -= 2) {
+			put16(b, i, get16(b, i, little) - get16(b, i - len, little), little);
+		}
+	}
+
+	private void undifference16(final byte[] b, final int from, final int to,
+		final int len, final boolean little)
+	{
+		for (int i = from; i <= to - 2; i += 2) {
+			put16(b, i, get16(b, i, little) + get16(b, i - len, little), little);
+		}
+	}
+
+	private void difference32(final byte[] b, final int from, final int to,
+		final int len, final boolean little)
+	{
+		for (int i = to - 4; i >= from; i -= 4) {
+			put32(b, i, get32(b, i, little) - get32(b, i - len, little), little);
+		}
+	}
+
+	private void undifference32(final byte[] b, final int from, final int to,
+		final int len, final boolean little)
+	{
+		for (int i = from; i <= to - 4; i += 4) {
+			put32(b, i, get32(b, i, little) + get32(b, i - len, little), little);
+		}
+	}
+
+	/** Horizontal differencing for sample sizes without a dedicated loop. */
+	private void differenceGeneric(final byte[] b, final int from, final int to,
+		final int bytes, final int len, final boolean little,
+		final boolean forward)
+	{
+		if (forward) {
+			for (int i = to - bytes; i >= from; i -= bytes) {
+				int value = Bytes.toInt(b, i, bytes, little);
+				value -= Bytes.toInt(b, i - len, bytes, little);
+				Bytes.unpack(value, b, i, bytes, little);
+			}
+		}
+		else {
+			for (int i = from; i <= to - bytes; i += bytes) {
+				int value = Bytes.toInt(b, i, bytes, little);
+				value += Bytes.toInt(b, i - len, bytes, little);
+				Bytes.unpack(value, b, i, bytes, little);
+			}
+		}
+	}
+
+	/**
+	 * Applies or reverses the floating point predictor described in Adobe
+	 * Photoshop TIFF Technical Note 3. Within each row, the bytes of each sample
+	 * are regrouped so that all most significant bytes come first, and the
+	 * resulting byte sequence is then horizontally differenced.
+	 */
+	private void floatingPoint(final byte[] input, final IFD ifd,
+		final boolean forward) throws FormatException
+	{
+		final int bytes = ifd.getBytesPerSample()[0];
+		final boolean little = ifd.isLittleEndian();
+		final int stride =
+			ifd.getPlanarConfiguration() == 2 ? 1 : ifd.getBitsPerSample().length;
+		final long rowSamples = ifd.getTileWidth() * stride;
+		final int end = input.length - input.length % bytes;
+		if (rowSamples <= 0 || end == 0) return;
+		final byte[] row = new byte[(int) Math.min(rowSamples * bytes, end)];
+
+		for (int rowStart = 0; rowStart < end; rowStart += row.length) {
+			final int count = Math.min(row.length, end - rowStart) / bytes;
+			final int rowBytes = count * bytes;
+			if (forward) {
+				for (int n = 0; n < count; n++) {
+					for (int b = 0; b < bytes; b++) {
+						row[b * count + n] =
+							input[rowStart + n * bytes + (little ? bytes - 1 - b : b)];
+					}
+				}
+				for (int i = rowBytes - 1; i >= stride; i--) {
+					row[i] -= row[i - stride];
+				}
+				System.arraycopy(row, 0, input, rowStart, rowBytes);
+			}
+			else {
+				System.arraycopy(input, rowStart, row, 0, rowBytes);
+				for (int i = stride; i < rowBytes; i++) {
+					row[i] += row[i - stride];
+				}
+				for (int n = 0; n < count; n++) {
+					for (int b = 0; b < bytes; b++) {
+						input[rowStart + n * bytes + (little ? bytes - 1 - b : b)] =
+							row[b * count + n];
+					}
+				}
+			}
+		}
+	}
+
+	private static int get16(final byte[] b, final int i, final boolean little) {
+		return little ? (b[i] & 0xff) | (b[i + 1] & 0xff) << 8 : (b[i] & 0xff) << 8 |
+			(b[i + 1] & 0xff);
+	}
+
+	private static void put16(final byte[] b, final int i, final int v,
+		final boolean little)
+	{
+		if (little) {
+			b[i] = (byte) v;
+			b[i + 1] = (byte) (v >> 8);
+		}
+		else {
+			b[i] = (byte) (v >> 8);
+			b[i + 1] = (byte) v;
+		}
+	}
+
+	private static int get32(final byte[] b, final int i, final boolean little) {
+		if (little) {
+			return (b[i] & 0xff) | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff) << 16 |
+				(b[i + 3] & 0xff) << 24;
+		}
+		return (b[i] & 0xff) << 24 | (b[i + 1] & 0xff) << 16 |
+			(b[i + 2] & 0xff) << 8 | (b[i + 3] & 0xff);
+	}
+
+	private static void put32(final byte[] b, final int i, final int v,
+		final boolean little)
+	{
+		if (little) {
+			b[i] = (byte) v;
+			b[i + 1] = (byte) (v >> 8);
+			b[i + 2] = (byte) (v >> 16);
+			b[i + 3] = (byte) (v >> 24);
+		}
+		else {
+			b[i] = (byte) (v >> 24);
+			b[i + 1] = (byte) (v >> 16);
+			b[i + 2] = (byte) (v >> 8);
+			b[i + 3] = (byte) v;
+		}
+	}
+
 }
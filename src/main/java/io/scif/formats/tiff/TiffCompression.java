@@ -44,6 +44,7 @@ import io.scif.codec.NikonCodec;
 import io.scif.codec.PackbitsCodec;
 import io.scif.codec.PassthroughCodec;
 import io.scif.codec.ZlibCodec;
+import io.scif.codec.ZlibCodecOptions;
 import io.scif.enumeration.CodedEnum;
 import io.scif.enumeration.EnumException;
 
@@ -72,8 +73,27 @@ public enum TiffCompression implements CodedEnum {
 			"LZW"), OLD_JPEG(6, JPEGCodec.class, "Old JPEG"), JPEG(7,
 			JPEGCodec.class, "JPEG"), PACK_BITS(32773, PackbitsCodec.class,
 			"PackBits"),
-		PROPRIETARY_DEFLATE(32946, ZlibCodec.class, "Deflate (Zlib)"), DEFLATE(8,
-			ZlibCodec.class, "Deflate (Zlib)"), THUNDERSCAN(32809, null,
+		PROPRIETARY_DEFLATE(32946, ZlibCodec.class, "Deflate (Zlib)") {
+
+			@Override
+			public CodecOptions getCompressionCodecOptions(final IFD ifd,
+				final CodecOptions opt) throws FormatException
+			{
+				return getZlibCodecOptions(super.getCompressionCodecOptions(ifd, opt),
+					opt);
+			}
+		},
+		DEFLATE(8, ZlibCodec.class, "Deflate (Zlib)") {
+
+			@Override
+			public CodecOptions getCompressionCodecOptions(final IFD ifd,
+				final CodecOptions opt) throws FormatException
+			{
+				return getZlibCodecOptions(super.getCompressionCodecOptions(ifd, opt),
+					opt);
+			}
+		},
+		THUNDERSCAN(32809, null,
 			"Thunderscan"), JPEG_2000(33003, JPEG2000Codec.class, "JPEG-2000") {
 
 			@Override
@@ -313,6 +333,20 @@ public enum TiffCompression implements CodedEnum {
 		return options;
 	}
 
+	/**
+	 * Wraps the given codec options for use with {@link ZlibCodec}, preserving
+	 * the compression level of {@code opt} if it is a {@link ZlibCodecOptions}.
+	 */
+	private static ZlibCodecOptions getZlibCodecOptions(
+		final CodecOptions options, final CodecOptions opt)
+	{
+		final ZlibCodecOptions zlib = new ZlibCodecOptions(options);
+		if (opt instanceof ZlibCodecOptions) {
+			zlib.compressionLevel = ((ZlibCodecOptions) opt).compressionLevel;
+		}
+		return zlib;
+	}
+
 	/** Encodes a strip of data. */
 	public byte[] compress(final CodecService codecService, final byte[] input,
 		final CodecOptions options) throws FormatException
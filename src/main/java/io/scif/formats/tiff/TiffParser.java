@@ -37,9 +37,16 @@ import io.scif.codec.CodecOptions;
 import io.scif.common.Constants;
 import io.scif.enumeration.EnumException;
 import io.scif.io.RandomAccessInputStream;
+import io.scif.io.ReadRequest;
+import io.scif.io.ReadScheduler;
+import io.scif.services.BufferPoolService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import org.scijava.AbstractContextual;
@@ -88,6 +95,8 @@ public class TiffParser extends AbstractContextual {
 
 	private final LogService log;
 
+	private final BufferPoolService bufferPool;
+
 	/** Codec options to be used when decoding compressed pixel data. */
 	private CodecOptions codecOptions = CodecOptions.getDefaultOptions();
 
@@ -105,6 +114,7 @@ public class TiffParser extends AbstractContextual {
 		setContext(context);
 		scifio = new SCIFIO(context);
 		log = scifio.log();
+		bufferPool = scifio.get(BufferPoolService.class);
 		this.in = in;
 		doCaching = true;
 		try {
@@ -224,28 +234,38 @@ public class TiffParser extends AbstractContextual {
 			final IFD ifd = getIFD(offset);
 			if (ifd == null) continue;
 			if (ifd.containsKey(IFD.IMAGE_WIDTH)) ifds.add(ifd);
-			long[] subOffsets = null;
-			try {
-				if (!doCaching && ifd.containsKey(IFD.SUB_IFD)) {
-					fillInIFD(ifd);
-				}
-				subOffsets = ifd.getIFDLongArray(IFD.SUB_IFD);
-			}
-			catch (final FormatException e) {}
-			if (subOffsets != null) {
-				for (final long subOffset : subOffsets) {
-					final IFD sub = getIFD(subOffset);
-					if (sub != null) {
-						ifds.add(sub);
-					}
-				}
-			}
+			ifds.addAll(getSubIFDs(ifd));
 		}
 		if (doCaching) ifdList = ifds;
 
 		return ifds;
 	}
 
+	/**
+	 * Returns the IFDs referenced by the SubIFDs tag of the given IFD, typically
+	 * reduced resolution copies of its image.
+	 */
+	public IFDList getSubIFDs(final IFD ifd) throws IOException {
+		final IFDList subIFDs = new IFDList();
+		long[] subOffsets = null;
+		try {
+			if (!doCaching && ifd.containsKey(IFD.SUB_IFD)) {
+				fillInIFD(ifd);
+			}
+			subOffsets = ifd.getIFDLongArray(IFD.SUB_IFD);
+		}
+		catch (final FormatException e) {}
+		if (subOffsets != null) {
+			for (final long subOffset : subOffsets) {
+				final IFD sub = getIFD(subOffset);
+				if (sub != null) {
+					subIFDs.add(sub);
+				}
+			}
+		}
+		return subIFDs;
+	}
+
 	/** Returns thumbnail IFDs. */
 	public IFDList getThumbnailIFDs() throws IOException {
 		final IFDList ifds = getIFDs();
@@ -632,8 +652,18 @@ public class TiffParser extends AbstractContextual {
 	// -- TiffParser methods - image reading --
 
 	public byte[]
-		getTile(final IFD ifd, byte[] buf, final int row, final int col)
+		getTile(final IFD ifd, final byte[] buf, final int row, final int col)
 			throws FormatException, IOException
+	{
+		return getTile(ifd, buf, row, col, null);
+	}
+
+	/**
+	 * Decodes the given tile, whose compressed bytes have already been read if
+	 * {@code tile} is not null.
+	 */
+	private byte[] getTile(final IFD ifd, byte[] buf, final int row,
+		final int col, byte[] tile) throws FormatException, IOException
 	{
 		final byte[] jpegTable = (byte[]) ifd.getIFDValue(IFD.JPEG_TABLES);
 
@@ -646,50 +676,27 @@ public class TiffParser extends AbstractContextual {
 		final int planarConfig = ifd.getPlanarConfiguration();
 		final TiffCompression compression = ifd.getCompression();
 
-		final long numTileCols = ifd.getTilesPerRow();
-
 		final int pixel = ifd.getBytesPerSample()[0];
 		final int effectiveChannels = planarConfig == 2 ? 1 : samplesPerPixel;
 
-		final long[] stripByteCounts = ifd.getStripByteCounts();
-		final long[] rowsPerStrip = ifd.getRowsPerStrip();
-
-		final int offsetIndex = (int) (row * numTileCols + col);
-		int countIndex = offsetIndex;
-		if (equalStrips) {
-			countIndex = 0;
-		}
-		if (stripByteCounts[countIndex] == (rowsPerStrip[0] * tileWidth) &&
-			pixel > 1)
-		{
-			stripByteCounts[countIndex] *= pixel;
-		}
-
-		long stripOffset = 0;
-		long nStrips = 0;
-
-		if (ifd.getOnDemandStripOffsets() != null) {
-			final OnDemandLongArray stripOffsets = ifd.getOnDemandStripOffsets();
-			stripOffset = stripOffsets.get(offsetIndex);
-			nStrips = stripOffsets.size();
-		}
-		else {
-			final long[] stripOffsets = ifd.getStripOffsets();
-			stripOffset = stripOffsets[offsetIndex];
-			nStrips = stripOffsets.length;
-		}
+		final long[] region = getTileRegion(ifd, row, col);
+		final long stripOffset = region[0];
+		final long byteCount = region[1];
+		final long nStrips = region[2];
 
 		final int size = (int) (tileWidth * tileLength * pixel * effectiveChannels);
 
 		if (buf == null) buf = new byte[size];
-		if (stripByteCounts[countIndex] == 0 || stripOffset >= in.length()) {
+		if (byteCount == 0 || stripOffset >= in.length()) {
 			return buf;
 		}
-		byte[] tile = new byte[(int) stripByteCounts[countIndex]];
-
-		log.debug("Reading tile Length " + tile.length + " Offset " + stripOffset);
-		in.seek(stripOffset);
-		in.read(tile);
+		if (tile == null) {
+			tile = new byte[(int) byteCount];
+			log.debug("Reading tile Length " + tile.length + " Offset " +
+				stripOffset);
+			in.seek(stripOffset);
+			in.read(tile);
+		}
 
 		codecOptions.maxBytes = Math.max(size, tile.length);
 		codecOptions.ycbcr =
@@ -828,6 +835,8 @@ public class TiffParser extends AbstractContextual {
 					(int) (((y + height) / tileLength) * numTileCols + column);
 				lastTile = Math.min(lastTile, stripOffsets.length - 1);
 
+				// read all strips at once, merging contiguous ones
+				final List<ReadRequest> requests = new ArrayList<>();
 				int offset = 0;
 				for (int tile = firstTile; tile <= lastTile; tile++) {
 					long byteCount =
@@ -836,11 +845,11 @@ public class TiffParser extends AbstractContextual {
 						byteCount *= pixel;
 					}
 
-					in.seek(stripOffsets[tile]);
 					final int len = (int) Math.min(buf.length - offset, byteCount);
-					in.read(buf, offset, len);
+					requests.add(new ReadRequest(stripOffsets[tile], len, buf, offset));
 					offset += len;
 				}
+				in.readVectored(requests);
 			}
 			return adjustFillOrder(ifd, buf);
 		}
@@ -867,81 +876,113 @@ public class TiffParser extends AbstractContextual {
 		final int bufferSize =
 			(int) tileWidth * (int) tileLength * bufferSizeSamplesPerPixel * bpp;
 
-		cachedTileBuffer = new byte[bufferSize];
+		cachedTileBuffer = bufferPool.allocate(bufferSize);
 
-		final IntRect tileBounds =
-			new IntRect(0, 0, (int) tileWidth, (int) tileLength);
-
-		for (int row = 0; row < numTileRows; row++) {
-			// make the first row shorter to account for row overlap
-			if (row == 0) {
-				tileBounds.height = (int) (tileLength - overlapY);
+		try {
+			final IntRect tileBounds =
+				new IntRect(0, 0, (int) tileWidth, (int) tileLength);
+
+			// find the tiles to decode, whose bytes are then read in batches
+			final List<int[]> tiles = new ArrayList<>();
+			for (int row = 0; row < numTileRows; row++) {
+				if (row == 0) tileBounds.height = (int) (tileLength - overlapY);
+				for (int col = 0; col < numTileCols; col++) {
+					if (col == 0) tileBounds.width = (int) (tileWidth - overlapX);
+					tileBounds.x = col * (int) (tileWidth - overlapX);
+					tileBounds.y = row * (int) (tileLength - overlapY);
+					if (planarConfig == 2) {
+						tileBounds.y = (int) ((row % nrows) * (tileLength - overlapY));
+					}
+					if (imageBounds.intersects(tileBounds)) {
+						tiles.add(new int[] { row, col });
+					}
+				}
 			}
-
-			for (int col = 0; col < numTileCols; col++) {
-				// make the first column narrower to account for column overlap
-				if (col == 0) {
-					tileBounds.width = (int) (tileWidth - overlapX);
+			final Map<Integer, byte[]> fetched = new HashMap<>();
+			int nextFetch = 0;
+			tileBounds.width = (int) tileWidth;
+			tileBounds.height = (int) tileLength;
+
+			for (int row = 0; row < numTileRows; row++) {
+				// make the first row shorter to account for row overlap
+				if (row == 0) {
+					tileBounds.height = (int) (tileLength - overlapY);
 				}
 
-				tileBounds.x = col * (int) (tileWidth - overlapX);
-				tileBounds.y = row * (int) (tileLength - overlapY);
+				for (int col = 0; col < numTileCols; col++) {
+					// make the first column narrower to account for column overlap
+					if (col == 0) {
+						tileBounds.width = (int) (tileWidth - overlapX);
+					}
 
-				if (planarConfig == 2) {
-					tileBounds.y = (int) ((row % nrows) * (tileLength - overlapY));
-				}
+					tileBounds.x = col * (int) (tileWidth - overlapX);
+					tileBounds.y = row * (int) (tileLength - overlapY);
+
+					if (planarConfig == 2) {
+						tileBounds.y = (int) ((row % nrows) * (tileLength - overlapY));
+					}
 
-				if (!imageBounds.intersects(tileBounds)) continue;
+					if (!imageBounds.intersects(tileBounds)) continue;
 
-				getTile(ifd, cachedTileBuffer, row, col);
+					final int tileIndex = (int) (row * numTileCols + col);
+					if (!fetched.containsKey(tileIndex)) {
+						nextFetch = fetchTiles(ifd, tiles, nextFetch, fetched);
+					}
+					getTile(ifd, cachedTileBuffer, row, col, fetched.remove(tileIndex));
 
-				// adjust tile bounds, if necessary
+					// adjust tile bounds, if necessary
 
-				final int tileX = Math.max(tileBounds.x, x);
-				final int tileY = Math.max(tileBounds.y, y);
-				int realX = tileX % (int) (tileWidth - overlapX);
-				int realY = tileY % (int) (tileLength - overlapY);
+					final int tileX = Math.max(tileBounds.x, x);
+					final int tileY = Math.max(tileBounds.y, y);
+					int realX = tileX % (int) (tileWidth - overlapX);
+					int realY = tileY % (int) (tileLength - overlapY);
 
-				int twidth = (int) Math.min(endX - tileX, tileWidth - realX);
-				if (twidth <= 0) {
-					twidth = (int) Math.max(endX - tileX, tileWidth - realX);
-				}
-				int theight = (int) Math.min(endY - tileY, tileLength - realY);
-				if (theight <= 0) {
-					theight = (int) Math.max(endY - tileY, tileLength - realY);
-				}
+					int twidth = (int) Math.min(endX - tileX, tileWidth - realX);
+					if (twidth <= 0) {
+						twidth = (int) Math.max(endX - tileX, tileWidth - realX);
+					}
+					int theight = (int) Math.min(endY - tileY, tileLength - realY);
+					if (theight <= 0) {
+						theight = (int) Math.max(endY - tileY, tileLength - realY);
+					}
 
-				// copy appropriate portion of the tile to the output buffer
+					// copy appropriate portion of the tile to the output buffer
 
-				final int copy = pixel * twidth;
+					final int copy = pixel * twidth;
 
-				realX *= pixel;
-				realY *= rowLen;
+					realX *= pixel;
+					realY *= rowLen;
 
-				for (int q = 0; q < effectiveChannels; q++) {
-					int src = q * tileSize + realX + realY;
-					int dest =
-						q * planeSize + pixel * (tileX - x) + outputRowLen * (tileY - y);
-					if (planarConfig == 2) dest += (planeSize * (row / nrows));
+					for (int q = 0; q < effectiveChannels; q++) {
+						int src = q * tileSize + realX + realY;
+						int dest =
+							q * planeSize + pixel * (tileX - x) + outputRowLen * (tileY - y);
+						if (planarConfig == 2) dest += (planeSize * (row / nrows));
 
-					// copying the tile directly will only work if there is no
-					// overlap;
-					// otherwise, we may be overwriting a previous tile
-					// (or the current tile may be overwritten by a subsequent
-					// tile)
-					if (rowLen == outputRowLen && overlapX == 0 && overlapY == 0) {
-						System.arraycopy(cachedTileBuffer, src, buf, dest, copy * theight);
-					}
-					else {
-						for (int tileRow = 0; tileRow < theight; tileRow++) {
-							System.arraycopy(cachedTileBuffer, src, buf, dest, copy);
-							src += rowLen;
-							dest += outputRowLen;
+						// copying the tile directly will only work if there is no
+						// overlap;
+						// otherwise, we may be overwriting a previous tile
+						// (or the current tile may be overwritten by a subsequent
+						// tile)
+						if (rowLen == outputRowLen && overlapX == 0 && overlapY == 0) {
+							System.arraycopy(cachedTileBuffer, src, buf, dest, copy *
+								theight);
+						}
+						else {
+							for (int tileRow = 0; tileRow < theight; tileRow++) {
+								System.arraycopy(cachedTileBuffer, src, buf, dest, copy);
+								src += rowLen;
+								dest += outputRowLen;
+							}
 						}
 					}
 				}
 			}
 		}
+		finally {
+			bufferPool.release(cachedTileBuffer);
+			cachedTileBuffer = null;
+		}
 
 		return adjustFillOrder(ifd, buf);
 	}
@@ -973,6 +1014,89 @@ public class TiffParser extends AbstractContextual {
 		return new TiffIFDEntry(entryTag, entryType, valueCount, offset);
 	}
 
+	// -- Helper methods - image reading --
+
+	/**
+	 * Gets the offset and byte count of the given tile, and the number of strips
+	 * or tiles of the IFD.
+	 */
+	private long[] getTileRegion(final IFD ifd, final int row, final int col)
+		throws FormatException
+	{
+		final long tileWidth = ifd.getTileWidth();
+		final long numTileCols = ifd.getTilesPerRow();
+		final int pixel = ifd.getBytesPerSample()[0];
+
+		final long[] stripByteCounts = ifd.getStripByteCounts();
+		final long[] rowsPerStrip = ifd.getRowsPerStrip();
+
+		final int offsetIndex = (int) (row * numTileCols + col);
+		int countIndex = offsetIndex;
+		if (equalStrips) {
+			countIndex = 0;
+		}
+		if (stripByteCounts[countIndex] == (rowsPerStrip[0] * tileWidth) &&
+			pixel > 1)
+		{
+			stripByteCounts[countIndex] *= pixel;
+		}
+
+		long stripOffset = 0;
+		long nStrips = 0;
+
+		if (ifd.getOnDemandStripOffsets() != null) {
+			final OnDemandLongArray stripOffsets = ifd.getOnDemandStripOffsets();
+			stripOffset = stripOffsets.get(offsetIndex);
+			nStrips = stripOffsets.size();
+		}
+		else {
+			final long[] stripOffsets = ifd.getStripOffsets();
+			stripOffset = stripOffsets[offsetIndex];
+			nStrips = stripOffsets.length;
+		}
+		return new long[] { stripOffset, stripByteCounts[countIndex], nStrips };
+	}
+
+	/**
+	 * Reads the compressed bytes of the given tiles, starting at index
+	 * {@code from}, with one vectored read of at most
+	 * {@link ReadScheduler#MAX_READ} bytes (or a single larger tile). Tiles with
+	 * no bytes to read are mapped to null.
+	 *
+	 * @return The index of the first tile not read.
+	 */
+	private int fetchTiles(final IFD ifd, final List<int[]> tiles,
+		final int from, final Map<Integer, byte[]> fetched)
+		throws FormatException, IOException
+	{
+		final long numTileCols = ifd.getTilesPerRow();
+		final long length = in.length();
+		final List<ReadRequest> requests = new ArrayList<>();
+		final List<Integer> indices = new ArrayList<>();
+		long total = 0;
+		int t = from;
+		for (; t < tiles.size(); t++) {
+			final int[] tile = tiles.get(t);
+			final int tileIndex = (int) (tile[0] * numTileCols + tile[1]);
+			final long[] region = getTileRegion(ifd, tile[0], tile[1]);
+			if (region[1] == 0 || region[0] >= length) {
+				fetched.put(tileIndex, null);
+				continue;
+			}
+			if (!requests.isEmpty() && total + region[1] > ReadScheduler.MAX_READ) {
+				break;
+			}
+			requests.add(new ReadRequest(region[0], (int) region[1]));
+			indices.add(tileIndex);
+			total += region[1];
+		}
+		in.readVectored(requests);
+		for (int i = 0; i < requests.size(); i++) {
+			fetched.put(indices.get(i), requests.get(i).getDest());
+		}
+		return t;
+	}
+
 	// -- Helper methods - byte stream decoding --
 
 	/**
@@ -1013,8 +1137,6 @@ public class TiffParser extends AbstractContextual {
 		final int nSamples = samples.length / (nChannels * numBytes);
 
 		final boolean noDiv8 = bps0 % 8 != 0;
-		final boolean bps8 = bps0 == 8;
-		final boolean bps16 = bps0 == 16;
 
 		final boolean littleEndian = ifd.isLittleEndian();
 
@@ -1029,7 +1151,9 @@ public class TiffParser extends AbstractContextual {
 		// semi-large datasets this can save **billions** of method calls.
 		// Wed Aug 5 19:04:59 BST 2009
 		// Chris Allan <callan@glencoesoftware.com>
-		if ((bps8 || bps16) && bytes.length <= samples.length && nChannels == 1 &&
+		// The same holds for any whole number of bytes per sample, e.g. 32-bit
+		// and 64-bit floating point data.
+		if (!noDiv8 && bytes.length <= samples.length && nChannels == 1 &&
 			photoInterp != PhotoInterp.WHITE_IS_ZERO &&
 			photoInterp != PhotoInterp.CMYK && photoInterp != PhotoInterp.Y_CB_CR)
 		{
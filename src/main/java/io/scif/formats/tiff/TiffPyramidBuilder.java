@@ -0,0 +1,454 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+
+package io.scif.formats.tiff;
+
+import io.scif.FormatException;
+import io.scif.util.FormatTools;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.scijava.AbstractContextual;
+import org.scijava.log.LogService;
+import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
+import org.scijava.util.Bytes;
+
+/**
+ * Writes a plane as a tiled, multi-resolution pyramid through a streaming
+ * {@link TiffSaver}. Rows of the full resolution plane are passed in from top
+ * to bottom, in bands of any height. As each row of tiles is completed it is
+ * compressed and written in the background while the next resolution is
+ * computed from it, so only about one row of tiles per resolution is held in
+ * memory. Each resolution halves the width and height of the previous one and
+ * is written as a SubIFD of the plane.
+ *
+ * @author agent
+ */
+public class TiffPyramidBuilder extends AbstractContextual {
+
+	// -- Constants --
+
+	/** Maximum number of tile rows being written in the background. */
+	private static final int MAX_PENDING_WRITES = 8;
+
+	// -- Enums --
+
+	/** Kernels for computing each resolution from the previous one. */
+	public enum Downsampling {
+
+		/** Keeps the top left sample of each 2x2 block. */
+		NEAREST {
+
+			@Override
+			double reduce(final double a, final double b, final double c,
+				final double d)
+			{
+				return a;
+			}
+		},
+
+		/** Averages the samples of each 2x2 block. */
+		AVERAGE {
+
+			@Override
+			double reduce(final double a, final double b, final double c,
+				final double d)
+			{
+				return (a + b + c + d) / 4;
+			}
+		},
+
+		/** Keeps the largest sample of each 2x2 block. */
+		MAX {
+
+			@Override
+			double reduce(final double a, final double b, final double c,
+				final double d)
+			{
+				return Math.max(Math.max(a, b), Math.max(c, d));
+			}
+		};
+
+		/** Combines the samples of a 2x2 block, in row major order. */
+		abstract double reduce(double a, double b, double c, double d);
+	}
+
+	// -- Fields --
+
+	@Parameter
+	private ThreadService threadService;
+
+	@Parameter
+	private LogService log;
+
+	private final TiffSaver saver;
+
+	private final long planeIndex;
+
+	private final int pixelType;
+
+	private final int bytesPerPixel;
+
+	private final boolean little;
+
+	private final int nChannels;
+
+	/** Number of separately stored sample planes: channels if not interleaved. */
+	private final int samplePlanes;
+
+	/** Number of samples per pixel within each sample plane. */
+	private final int samplesPerPixel;
+
+	private final Downsampling downsampling;
+
+	private final Level[] levels;
+
+	/** Background writes of completed tile rows, oldest first. */
+	private final Deque<Future<Void>> pending = new ArrayDeque<>();
+
+	/** The next full resolution row expected by {@link #writeRows}. */
+	private int nextRow;
+
+	// -- Constructor --
+
+	/**
+	 * Constructs a new pyramid builder for one plane.
+	 *
+	 * @param saver The streaming TIFF saver to write with.
+	 * @param ifd The tiled IFD of the full resolution plane.
+	 * @param planeIndex The image index within the current file, starting from 0.
+	 * @param pixelType The type of pixels.
+	 * @param nChannels The number of channels.
+	 * @param resolutions The number of resolutions to write, including the full
+	 *          resolution. Fewer are written if the plane is reduced to a single
+	 *          pixel before then.
+	 * @param downsampling The kernel used to compute each reduced resolution.
+	 */
+	public TiffPyramidBuilder(final TiffSaver saver, final IFD ifd,
+		final long planeIndex, final int pixelType, final int nChannels,
+		final int resolutions, final Downsampling downsampling)
+		throws FormatException
+	{
+		if (!saver.isStreaming()) {
+			throw new FormatException("Pyramids can only be written in streaming mode");
+		}
+		if (!ifd.isTiled()) {
+			throw new FormatException("Pyramids must be tiled");
+		}
+		final int tileWidth = (int) ifd.getTileWidth();
+		final int tileLength = (int) ifd.getTileLength();
+		if (tileWidth % 16 != 0 || tileLength % 16 != 0) {
+			throw new FormatException("Tile dimensions must be multiples of 16: " +
+				tileWidth + "x" + tileLength);
+		}
+		setContext(saver.getContext());
+		this.saver = saver;
+		this.planeIndex = planeIndex;
+		this.pixelType = pixelType;
+		this.nChannels = nChannels;
+		this.downsampling = downsampling;
+		bytesPerPixel = FormatTools.getBytesPerPixel(pixelType);
+		little = saver.isLittleEndian();
+		final boolean interleaved = ifd.getPlanarConfiguration() == 1;
+		samplePlanes = interleaved ? 1 : nChannels;
+		samplesPerPixel = interleaved ? nChannels : 1;
+
+		int width = (int) ifd.getImageWidth();
+		int height = (int) ifd.getImageLength();
+		int count = 1;
+		while (count < resolutions && (width > 1 || height > 1)) {
+			width = (width + 1) / 2;
+			height = (height + 1) / 2;
+			count++;
+		}
+		levels = new Level[count];
+		width = (int) ifd.getImageWidth();
+		height = (int) ifd.getImageLength();
+		for (int r = 0; r < count; r++) {
+			IFD levelIFD = ifd;
+			if (r > 0) {
+				width = (width + 1) / 2;
+				height = (height + 1) / 2;
+				levelIFD = new IFD(ifd, log);
+				for (final int tag : new int[] { IFD.IMAGE_DESCRIPTION,
+					IFD.STRIP_OFFSETS, IFD.STRIP_BYTE_COUNTS, IFD.TILE_OFFSETS,
+					IFD.TILE_BYTE_COUNTS, IFD.SUB_IFD })
+				{
+					levelIFD.remove(tag);
+				}
+				levelIFD.putIFDValue(IFD.IMAGE_WIDTH, (long) width);
+				levelIFD.putIFDValue(IFD.IMAGE_LENGTH, (long) height);
+			}
+			levels[r] = new Level(r, levelIFD, width, height, tileLength);
+		}
+		for (int r = 0; r < count - 1; r++) {
+			levels[r].next = levels[r + 1];
+		}
+	}
+
+	// -- TiffPyramidBuilder methods --
+
+	/** Returns the number of resolutions that will be written. */
+	public int getResolutionCount() {
+		return levels.length;
+	}
+
+	/**
+	 * Writes the next band of full resolution rows, and every reduced resolution
+	 * tile row that can be completed from them.
+	 *
+	 * @param buf The full width rows, with channels laid out as for
+	 *          {@link TiffSaver#writeImage}.
+	 * @param y The first row of the band; must follow the previous band.
+	 * @param h The number of rows in the band.
+	 */
+	public void writeRows(final byte[] buf, final int y, final int h)
+		throws FormatException, IOException
+	{
+		final Level full = levels[0];
+		if (y != nextRow) {
+			throw new FormatException("Rows must be written top to bottom: " +
+				"expected row " + nextRow + " but got " + y);
+		}
+		if (h <= 0 || y + h > full.height) {
+			throw new FormatException("Invalid band of rows: " + y + "-" +
+				(y + h - 1));
+		}
+		final int planeBytes = h * full.rowBytes;
+		if (buf.length < planeBytes * samplePlanes) {
+			throw new FormatException("Expected " + planeBytes * samplePlanes +
+				" bytes but got " + buf.length);
+		}
+		for (int row = 0; row < h; row++) {
+			full.appendRow(buf, row * full.rowBytes, planeBytes);
+		}
+		nextRow += h;
+		if (isComplete()) flush();
+	}
+
+	/** Returns whether all rows of the plane have been written. */
+	public boolean isComplete() {
+		return nextRow == levels[0].height;
+	}
+
+	/** Waits for all tile rows being written in the background. */
+	public void flush() throws FormatException, IOException {
+		while (!pending.isEmpty()) {
+			await(pending.removeFirst());
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Writes a completed tile row in the background. */
+	private void submit(final Level level, final byte[][] rows, final int y,
+		final int h) throws FormatException, IOException
+	{
+		final int rowBytes = level.rowBytes;
+		final byte[] buf = new byte[h * rowBytes * samplePlanes];
+		for (int p = 0; p < samplePlanes; p++) {
+			System.arraycopy(rows[p], 0, buf, p * h * rowBytes, h * rowBytes);
+		}
+		// each band gets its own copy of the IFD, so that one band's offsets can
+		// be recorded while another is being compressed
+		final IFD ifd = new IFD(level.ifd, log);
+		while (pending.size() >= MAX_PENDING_WRITES) {
+			await(pending.removeFirst());
+		}
+		pending.add(threadService.run(() -> {
+			if (level.resolution == 0) {
+				saver.writeImage(buf, ifd, planeIndex, pixelType, 0, y, level.width, h,
+					false, nChannels, false);
+			}
+			else {
+				saver.writeSubResolution(buf, ifd, planeIndex, level.resolution,
+					pixelType, 0, y, level.width, h, nChannels);
+			}
+			return null;
+		}));
+	}
+
+	private void await(final Future<Void> future) throws FormatException,
+		IOException
+	{
+		try {
+			future.get();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+		catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof FormatException) throw (FormatException) cause;
+			if (cause instanceof IOException) throw (IOException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Computes the next resolution of a tile row, pairing up rows and columns
+	 * and repeating the last one where the count is odd.
+	 */
+	private void reduce(final Level level, final byte[][] rows, final int h)
+		throws FormatException, IOException
+	{
+		final Level next = level.next;
+		final int width = level.width;
+		final int pixelBytes = samplesPerPixel * bytesPerPixel;
+		final int planeBytes = (h + 1) / 2 * next.rowBytes;
+		final byte[] out = new byte[planeBytes * samplePlanes];
+		for (int p = 0; p < samplePlanes; p++) {
+			final byte[] in = rows[p];
+			for (int oy = 0; oy < (h + 1) / 2; oy++) {
+				final int row0 = 2 * oy * level.rowBytes;
+				final int row1 = Math.min(2 * oy + 1, h - 1) * level.rowBytes;
+				int o = p * planeBytes + oy * next.rowBytes;
+				for (int ox = 0; ox < next.width; ox++) {
+					final int x0 = 2 * ox * pixelBytes;
+					final int x1 = Math.min(2 * ox + 1, width - 1) * pixelBytes;
+					for (int s = 0; s < samplesPerPixel; s++) {
+						final int off = s * bytesPerPixel;
+						put(out, o, downsampling.reduce(get(in, row0 + x0 + off), get(in,
+							row0 + x1 + off), get(in, row1 + x0 + off), get(in, row1 + x1 +
+								off)));
+						o += bytesPerPixel;
+					}
+				}
+			}
+		}
+		for (int row = 0; row < (h + 1) / 2; row++) {
+			next.appendRow(out, row * next.rowBytes, planeBytes);
+		}
+	}
+
+	private double get(final byte[] b, final int off) {
+		switch (pixelType) {
+			case FormatTools.INT8:
+				return b[off];
+			case FormatTools.UINT8:
+				return b[off] & 0xff;
+			case FormatTools.INT16:
+				return (short) Bytes.toInt(b, off, 2, little);
+			case FormatTools.UINT16:
+				return Bytes.toInt(b, off, 2, little) & 0xffff;
+			case FormatTools.INT32:
+				return Bytes.toInt(b, off, 4, little);
+			case FormatTools.UINT32:
+				return Bytes.toInt(b, off, 4, little) & 0xffffffffL;
+			case FormatTools.FLOAT:
+				return Bytes.toFloat(b, off, 4, little);
+			default:
+				return Bytes.toDouble(b, off, 8, little);
+		}
+	}
+
+	private void put(final byte[] b, final int off, final double value) {
+		switch (pixelType) {
+			case FormatTools.FLOAT:
+				Bytes.unpack(Float.floatToIntBits((float) value), b, off, 4, little);
+				break;
+			case FormatTools.DOUBLE:
+				Bytes.unpack(Double.doubleToLongBits(value), b, off, 8, little);
+				break;
+			default:
+				Bytes.unpack(Math.round(value), b, off, bytesPerPixel, little);
+		}
+	}
+
+	// -- Helper classes --
+
+	/** The tile row being filled at one resolution. */
+	private class Level {
+
+		private final int resolution;
+
+		private final IFD ifd;
+
+		private final int width;
+
+		private final int height;
+
+		private final int tileLength;
+
+		/** Bytes per row in each sample plane. */
+		private final int rowBytes;
+
+		private Level next;
+
+		/** Rows of the current tile row, per sample plane. */
+		private final byte[][] rows;
+
+		/** Number of rows in the current tile row. */
+		private int count;
+
+		/** Index of the first row of the current tile row. */
+		private int y;
+
+		private Level(final int resolution, final IFD ifd, final int width,
+			final int height, final int tileLength)
+		{
+			this.resolution = resolution;
+			this.ifd = ifd;
+			this.width = width;
+			this.height = height;
+			this.tileLength = tileLength;
+			rowBytes = width * samplesPerPixel * bytesPerPixel;
+			rows = new byte[samplePlanes][tileLength * rowBytes];
+		}
+
+		/**
+		 * Appends one row, whose sample planes are {@code planeBytes} apart in
+		 * {@code src}, and passes on the tile row once it is complete.
+		 */
+		private void appendRow(final byte[] src, final int offset,
+			final int planeBytes) throws FormatException, IOException
+		{
+			for (int p = 0; p < samplePlanes; p++) {
+				System.arraycopy(src, p * planeBytes + offset, rows[p], count *
+					rowBytes, rowBytes);
+			}
+			count++;
+			if (count == tileLength || y + count == height) {
+				// the rows are copied for writing, so the buffer can be reused
+				submit(this, rows, y, count);
+				if (next != null) reduce(this, rows, count);
+				y += count;
+				count = 0;
+			}
+		}
+	}
+}
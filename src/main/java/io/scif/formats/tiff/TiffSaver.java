@@ -36,14 +36,15 @@ import io.scif.codec.CodecOptions;
 import io.scif.io.ByteArrayHandle;
 import io.scif.io.RandomAccessInputStream;
 import io.scif.io.RandomAccessOutputStream;
+import io.scif.services.BufferPoolService;
 import io.scif.util.FormatTools;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.scijava.AbstractContextual;
@@ -76,6 +77,15 @@ public class TiffSaver extends AbstractContextual {
 
 	private boolean sequentialWrite = false;
 
+	/** Whether or not IFDs are deferred until {@link #finish()}. */
+	private boolean streaming = false;
+
+	/**
+	 * IFDs of planes written in streaming mode, keyed by plane index and then by
+	 * resolution index.
+	 */
+	private final Map<Long, Map<Integer, IFD>> pendingIFDs = new TreeMap<>();
+
 	/** The codec options if set. */
 	private CodecOptions options;
 
@@ -83,6 +93,8 @@ public class TiffSaver extends AbstractContextual {
 
 	private LogService log;
 
+	private BufferPoolService bufferPool;
+
 	// -- Constructors --
 
 	/**
@@ -118,6 +130,7 @@ public class TiffSaver extends AbstractContextual {
 		setContext(ctx);
 		scifio = new SCIFIO(ctx);
 		log = scifio.log();
+		bufferPool = scifio.get(BufferPoolService.class);
 	}
 
 	/**
@@ -152,6 +165,23 @@ public class TiffSaver extends AbstractContextual {
 		sequentialWrite = sequential;
 	}
 
+	/**
+	 * Sets whether or not the TIFF should be written in a single forward pass.
+	 * In streaming mode, tiles and strips are appended to the output as they are
+	 * written and the IFDs are kept in memory, to be written in one trailing
+	 * block by {@link #finish()}. The only backward seek is the final rewrite of
+	 * the fixed-size header, which also allows BigTIFF to be chosen once the
+	 * final size of the file is known.
+	 */
+	public void setStreaming(final boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	/** Returns whether or not the TIFF is written in streaming mode. */
+	public boolean isStreaming() {
+		return streaming;
+	}
+
 	/** Gets the stream from which TIFF data is being saved. */
 	public RandomAccessOutputStream getStream() {
 		return out;
@@ -188,36 +218,79 @@ public class TiffSaver extends AbstractContextual {
 
 	/** Writes the TIFF file header. */
 	public void writeHeader() throws IOException {
-		// write endianness indicator
-		out.seek(0);
-		if (isLittleEndian()) {
-			out.writeByte(TiffConstants.LITTLE);
-			out.writeByte(TiffConstants.LITTLE);
+		if (streaming) {
+			// the first IFD offset is not known until finish(), so reserve room
+			// for a BigTIFF header in case the file outgrows 4 GB
+			writeHeader(0);
+			if (!bigTiff) out.writeLong(0);
 		}
-		else {
-			out.writeByte(TiffConstants.BIG);
-			out.writeByte(TiffConstants.BIG);
+		else writeHeader(bigTiff ? 16 : 8);
+	}
+
+	/**
+	 * Completes a TIFF written in streaming mode by appending the IFDs of all
+	 * written planes, in plane order, and then filling in the header. Reduced
+	 * resolutions of a plane follow its IFD and are referenced from it as
+	 * SubIFDs. If the file cannot be addressed with 32-bit offsets, it is
+	 * written as BigTIFF. Does nothing if not streaming or if no planes have been
+	 * written since the last call.
+	 */
+	public synchronized void finish() throws FormatException, IOException {
+		if (!streaming || pendingIFDs.isEmpty()) return;
+
+		// lay out each plane's IFD followed by its SubIFDs
+		final List<IFD> ifds = new ArrayList<>();
+		final List<Integer> planeIFDs = new ArrayList<>();
+		for (final Map.Entry<Long, Map<Integer, IFD>> entry : pendingIFDs
+			.entrySet())
+		{
+			final Map<Integer, IFD> resolutions = entry.getValue();
+			final IFD ifd = resolutions.get(0);
+			if (ifd == null) {
+				throw new FormatException("No full resolution image for plane " +
+					entry.getKey());
+			}
+			if (resolutions.size() > 1) {
+				// placeholder of the right length; filled in once laid out
+				ifd.putIFDValue(IFD.SUB_IFD, new long[resolutions.size() - 1]);
+			}
+			planeIFDs.add(ifds.size());
+			ifds.addAll(resolutions.values());
 		}
-		// write magic number
-		if (bigTiff) {
-			out.writeShort(TiffConstants.BIG_TIFF_MAGIC_NUMBER);
+		planeIFDs.add(ifds.size());
+
+		// IFDs must begin on a word boundary
+		final long firstIFD = out.length() + (out.length() & 1);
+		long[] lengths = getIFDLengths(ifds);
+		long[] positions = getIFDPositions(firstIFD, lengths);
+		if (!bigTiff && positions[ifds.size()] > 0xffffffffL) {
+			bigTiff = true;
+			lengths = getIFDLengths(ifds);
+			positions = getIFDPositions(firstIFD, lengths);
 		}
-		else out.writeShort(TiffConstants.MAGIC_NUMBER);
 
-		// write the offset to the first IFD
-
-		// for vanilla TIFFs, 8 is the offset to the first IFD
-		// for BigTIFFs, 8 is the number of bytes in an offset
-		if (bigTiff) {
-			out.writeShort(8);
-			out.writeShort(0);
-
-			// write the offset to the first IFD for BigTIFF files
-			out.writeLong(16);
+		final long[] next = new long[ifds.size()];
+		for (int p = 0; p < planeIFDs.size() - 1; p++) {
+			final int first = planeIFDs.get(p);
+			final int subs = planeIFDs.get(p + 1) - first - 1;
+			if (subs > 0) {
+				ifds.get(first).putIFDValue(IFD.SUB_IFD, Arrays.copyOfRange(positions,
+					first + 1, first + 1 + subs));
+			}
+			if (p < planeIFDs.size() - 2) next[first] = positions[first + subs + 1];
 		}
-		else {
-			out.writeInt(8);
+
+		out.seek(out.length());
+		for (int i = 0; i < ifds.size(); i++) {
+			while (out.getFilePointer() < positions[i]) {
+				out.writeByte(0);
+			}
+			writeIFD(ifds.get(i), next[i]);
 		}
+		pendingIFDs.clear();
+
+		writeHeader(firstIFD);
+		out.seek(out.length());
 	}
 
 	/**
@@ -278,8 +351,60 @@ public class TiffSaver extends AbstractContextual {
 
 	public void writeImage(final byte[] buf, final IFD ifd,
 		final long planeIndex, final int pixelType, final int x, final int y,
-		final int w, final int h, final boolean last, Integer nChannels,
+		final int w, final int h, final boolean last, final Integer nChannels,
 		final boolean copyDirectly) throws FormatException, IOException
+	{
+		writeImage(buf, ifd, planeIndex, 0, pixelType, x, y, w, h, last, nChannels,
+			copyDirectly);
+	}
+
+	/**
+	 * Writes to any rectangle of a reduced resolution version of a plane. The
+	 * reduced resolutions of a plane are written as SubIFDs of the plane's IFD,
+	 * ordered by resolution index. This is only possible in streaming mode,
+	 * since the IFDs are not laid out until {@link #finish()}.
+	 *
+	 * @param buf The block that is to be written.
+	 * @param ifd The IFD of the reduced resolution image, with its own width
+	 *          and height. Mustn't be {@code null}.
+	 * @param planeIndex The image index within the current file, starting from 0.
+	 * @param resolution The resolution index, starting from 1 for the first
+	 *          reduced resolution.
+	 * @param pixelType The type of pixels.
+	 * @param x The X-coordinate of the top-left corner.
+	 * @param y The Y-coordinate of the top-left corner.
+	 * @param w The width of the rectangle.
+	 * @param h The height of the rectangle.
+	 * @param nChannels The number of channels, or {@code null} to derive it
+	 *          from the length of the block.
+	 * @throws FormatException
+	 * @throws IOException
+	 */
+	public void writeSubResolution(final byte[] buf, final IFD ifd,
+		final long planeIndex, final int resolution, final int pixelType,
+		final int x, final int y, final int w, final int h,
+		final Integer nChannels) throws FormatException, IOException
+	{
+		if (!streaming) {
+			throw new FormatException(
+				"Reduced resolutions can only be written in streaming mode");
+		}
+		if (resolution < 1) {
+			throw new FormatException("Invalid resolution index: " + resolution);
+		}
+		if (ifd == null) {
+			throw new FormatException("IFD cannot be null");
+		}
+		ifd.putIFDValue(IFD.NEW_SUBFILE_TYPE, 1L);
+		writeImage(buf, ifd, planeIndex, resolution, pixelType, x, y, w, h, false,
+			nChannels, false);
+	}
+
+	private void writeImage(final byte[] buf, final IFD ifd,
+		final long planeIndex, final int resolution, final int pixelType,
+		final int x, final int y, final int w, final int h, final boolean last,
+		Integer nChannels, final boolean copyDirectly) throws FormatException,
+		IOException
 	{
 		log.debug("Attempting to write image.");
 		// b/c method is public should check parameters again
@@ -295,7 +420,7 @@ public class TiffSaver extends AbstractContextual {
 		TiffCompression compression;
 		int tileWidth, tileHeight, nStrips;
 		boolean interleaved;
-		ByteArrayOutputStream[] stripBuf;
+		final byte[][] strips;
 		synchronized (this) {
 			final int bytesPerPixel = FormatTools.getBytesPerPixel(pixelType);
 			final int blockSize = w * h * bytesPerPixel;
@@ -312,60 +437,44 @@ public class TiffSaver extends AbstractContextual {
 			tileWidth = (int) ifd.getTileWidth();
 			tileHeight = (int) ifd.getTileLength();
 			final int tilesPerRow = (int) ifd.getTilesPerRow();
-			final int rowsPerStrip = (int) ifd.getRowsPerStrip()[0];
-			int stripSize = rowsPerStrip * tileWidth * bytesPerPixel;
 			nStrips =
 				((w + tileWidth - 1) / tileWidth) * ((h + tileHeight - 1) / tileHeight);
 
-			if (interleaved) stripSize *= nChannels;
-			else nStrips *= nChannels;
+			// every channel now has bytesPerPixel bytes per sample (see
+			// makeValidIFD), so each tile row is a contiguous run of the source
+			final int pixelBytes = interleaved ? bytesPerPixel * nChannels
+				: bytesPerPixel;
+			final int stripSize = tileHeight * tileWidth * pixelBytes;
 
-			stripBuf = new ByteArrayOutputStream[nStrips];
-			final DataOutputStream[] stripOut = new DataOutputStream[nStrips];
-			for (int strip = 0; strip < nStrips; strip++) {
-				stripBuf[strip] = new ByteArrayOutputStream(stripSize);
-				stripOut[strip] = new DataOutputStream(stripBuf[strip]);
-			}
-			final int[] bps = ifd.getBitsPerSample();
-			int off;
+			if (!interleaved) nStrips *= nChannels;
+
+			strips = new byte[nStrips][];
 
 			// write pixel strips to output buffers
 			final int effectiveStrips = !interleaved ? nStrips / nChannels : nStrips;
 			if (effectiveStrips == 1 && copyDirectly) {
-				stripOut[0].write(buf);
+				strips[0] = buf.clone();
+				for (int strip = 1; strip < nStrips; strip++) {
+					strips[strip] = new byte[0];
+				}
 			}
 			else {
-				for (int strip = 0; strip < effectiveStrips; strip++) {
-					final int xOffset = (strip % tilesPerRow) * tileWidth;
-					final int yOffset = (strip / tilesPerRow) * tileHeight;
-					for (int row = 0; row < tileHeight; row++) {
-						for (int col = 0; col < tileWidth; col++) {
-							final int ndx =
-								((row + yOffset) * w + col + xOffset) * bytesPerPixel;
-							for (int c = 0; c < nChannels; c++) {
-								for (int n = 0; n < bps[c] / 8; n++) {
-									if (interleaved) {
-										off = ndx * nChannels + c * bytesPerPixel + n;
-										if (row >= h || col >= w) {
-											stripOut[strip].writeByte(0);
-										}
-										else {
-											stripOut[strip].writeByte(buf[off]);
-										}
-									}
-									else {
-										off = c * blockSize + ndx + n;
-										if (row >= h || col >= w) {
-											stripOut[strip].writeByte(0);
-										}
-										else {
-											stripOut[c * (nStrips / nChannels) + strip]
-												.writeByte(buf[off]);
-										}
-									}
-								}
-							}
+				final int planes = interleaved ? 1 : nChannels;
+				for (int c = 0; c < planes; c++) {
+					for (int strip = 0; strip < effectiveStrips; strip++) {
+						final byte[] stripBuf = bufferPool.allocate(stripSize);
+						final int xOffset = (strip % tilesPerRow) * tileWidth;
+						final int yOffset = (strip / tilesPerRow) * tileHeight;
+						// pixels past the edge of the image are left as zeros
+						final int cols = Math.min(tileWidth, w - xOffset);
+						final int rows = Math.min(tileHeight, h - yOffset);
+						for (int row = 0; cols > 0 && row < rows; row++) {
+							final int src =
+								c * blockSize + ((row + yOffset) * w + xOffset) * pixelBytes;
+							System.arraycopy(buf, src, stripBuf, row * tileWidth *
+								pixelBytes, cols * pixelBytes);
 						}
+						strips[c * effectiveStrips + strip] = stripBuf;
 					}
 				}
 			}
@@ -376,9 +485,7 @@ public class TiffSaver extends AbstractContextual {
 		// this operation is NOT synchronized and is the ONLY portion of the
 		// TiffWriter.saveBytes() --> TiffSaver.writeImage() stack that is NOT
 		// synchronized.
-		final byte[][] strips = new byte[nStrips][];
 		for (int strip = 0; strip < nStrips; strip++) {
-			strips[strip] = stripBuf[strip].toByteArray();
 			scifio.tiff().difference(strips[strip], ifd);
 			final CodecOptions codecOptions =
 				compression.getCompressionCodecOptions(ifd, options);
@@ -386,8 +493,10 @@ public class TiffSaver extends AbstractContextual {
 			codecOptions.width = tileWidth;
 			codecOptions.channels = interleaved ? nChannels : 1;
 
+			final byte[] uncompressed = strips[strip];
 			strips[strip] =
-				compression.compress(scifio.codec(), strips[strip], codecOptions);
+				compression.compress(scifio.codec(), uncompressed, codecOptions);
+			if (strips[strip] != uncompressed) bufferPool.release(uncompressed);
 			if (log.isDebug()) {
 				log.debug(String.format("Compressed strip %d/%d length %d", strip + 1,
 					nStrips, strips[strip].length));
@@ -396,7 +505,8 @@ public class TiffSaver extends AbstractContextual {
 
 		// This operation is synchronized
 		synchronized (this) {
-			writeImageIFD(ifd, planeIndex, strips, nChannels, last, x, y);
+			writeImageIFD(ifd, planeIndex, resolution, strips, nChannels, last, x,
+				y);
 		}
 	}
 
@@ -406,6 +516,7 @@ public class TiffSaver extends AbstractContextual {
 	 *
 	 * @param ifd The Image File Directories. Mustn't be {@code null}.
 	 * @param planeIndex The image index within the current file, starting from 0.
+	 * @param resolution The resolution index, 0 for the full resolution image.
 	 * @param strips The strips to write to the file.
 	 * @param last Pass {@code true} if it is the last image,
 	 *          {@code false} otherwise.
@@ -415,7 +526,7 @@ public class TiffSaver extends AbstractContextual {
 	 * @throws IOException
 	 */
 	private void writeImageIFD(IFD ifd, final long planeIndex,
-		final byte[][] strips, final int nChannels, final boolean last,
+		final int resolution, final byte[][] strips, final int nChannels, final boolean last,
 		final int x, final int y) throws FormatException, IOException
 	{
 		log.debug("Attempting to write image IFD.");
@@ -424,7 +535,21 @@ public class TiffSaver extends AbstractContextual {
 		final boolean interleaved = ifd.getPlanarConfiguration() == 1;
 		final boolean isTiled = ifd.isTiled();
 
-		if (!sequentialWrite) {
+		if (streaming) {
+			// a plane may arrive in several calls; continue from the tiles or
+			// strips already recorded for it
+			final Map<Integer, IFD> resolutions = pendingIFDs.get(planeIndex);
+			final IFD pending =
+				resolutions == null ? null : resolutions.get(resolution);
+			if (pending != null && pending != ifd) {
+				for (final int tag : new int[] { IFD.STRIP_BYTE_COUNTS,
+					IFD.STRIP_OFFSETS, IFD.TILE_BYTE_COUNTS, IFD.TILE_OFFSETS })
+				{
+					if (pending.containsKey(tag)) ifd.put(tag, pending.get(tag));
+				}
+			}
+		}
+		else if (!sequentialWrite) {
 			RandomAccessInputStream in = null;
 			if (filename != null) {
 				in = new RandomAccessInputStream(getContext(), filename);
@@ -505,7 +630,7 @@ public class TiffSaver extends AbstractContextual {
 		}
 
 		final long fp = out.getFilePointer();
-		writeIFD(ifd, 0);
+		if (!streaming) writeIFD(ifd, 0);
 
 		for (int i = 0; i < strips.length; i++) {
 			out.seek(out.length());
@@ -527,6 +652,16 @@ public class TiffSaver extends AbstractContextual {
 			ifd.putIFDValue(IFD.STRIP_BYTE_COUNTS, toPrimitiveArray(byteCounts));
 			ifd.putIFDValue(IFD.STRIP_OFFSETS, toPrimitiveArray(offsets));
 		}
+		if (streaming) {
+			// the IFD is written by finish(), after all pixel data
+			Map<Integer, IFD> resolutions = pendingIFDs.get(planeIndex);
+			if (resolutions == null) {
+				resolutions = new TreeMap<>();
+				pendingIFDs.put(planeIndex, resolutions);
+			}
+			resolutions.put(resolution, ifd);
+			return;
+		}
 		final long endFP = out.getFilePointer();
 		if (log.isDebug()) {
 			log.debug("Offset before IFD write: " + out.getFilePointer() +
@@ -894,6 +1029,75 @@ public class TiffSaver extends AbstractContextual {
 
 	// -- Helper methods --
 
+	/**
+	 * Writes the TIFF file header.
+	 *
+	 * @param firstIFD The offset to the first IFD.
+	 */
+	private void writeHeader(final long firstIFD) throws IOException {
+		// write endianness indicator
+		out.seek(0);
+		if (isLittleEndian()) {
+			out.writeByte(TiffConstants.LITTLE);
+			out.writeByte(TiffConstants.LITTLE);
+		}
+		else {
+			out.writeByte(TiffConstants.BIG);
+			out.writeByte(TiffConstants.BIG);
+		}
+		// write magic number
+		if (bigTiff) {
+			out.writeShort(TiffConstants.BIG_TIFF_MAGIC_NUMBER);
+		}
+		else out.writeShort(TiffConstants.MAGIC_NUMBER);
+
+		// write the offset to the first IFD
+
+		// for BigTIFFs, 8 is the number of bytes in an offset
+		if (bigTiff) {
+			out.writeShort(8);
+			out.writeShort(0);
+			out.writeLong(firstIFD);
+		}
+		else {
+			out.writeInt((int) firstIFD);
+		}
+	}
+
+	/**
+	 * Measures how many bytes {@link #writeIFD} will produce for each of the
+	 * given IFDs with the current byte order and BigTIFF setting.
+	 */
+	private long[] getIFDLengths(final List<IFD> ifds) throws FormatException,
+		IOException
+	{
+		final long[] lengths = new long[ifds.size()];
+		for (int i = 0; i < lengths.length; i++) {
+			final ByteArrayHandle handle = new ByteArrayHandle();
+			final TiffSaver saver =
+				new TiffSaver(new RandomAccessOutputStream(handle), handle);
+			saver.setLittleEndian(isLittleEndian());
+			saver.setBigTiff(bigTiff);
+			saver.writeIFD(ifds.get(i), 0);
+			lengths[i] = handle.length();
+		}
+		return lengths;
+	}
+
+	/**
+	 * Computes the word aligned positions of consecutive IFDs with the given
+	 * lengths. The extra last element is the position just past the final IFD.
+	 */
+	private long[] getIFDPositions(final long start, final long[] lengths) {
+		final long[] positions = new long[lengths.length + 1];
+		positions[0] = start;
+		for (int i = 0; i < lengths.length; i++) {
+			final long end = positions[i] + lengths[i];
+			positions[i + 1] = end + (end & 1);
+		}
+		return positions;
+	}
+
 	/**
 	 * Coverts a list to a primitive array.
 	 *
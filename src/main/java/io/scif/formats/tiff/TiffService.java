@@ -40,7 +40,11 @@ import io.scif.SCIFIOService;
  */
 public interface TiffService extends SCIFIOService {
 
-	/** Performs in-place differencing according to the given predictor value. */
+	/**
+	 * Performs in-place differencing according to the given predictor value.
+	 * Both horizontal differencing (predictor 2) and floating point
+	 * differencing (predictor 3) are supported.
+	 */
 	void difference(byte[] input, IFD ifd) throws FormatException;
 
 	/** Undoes in-place differencing according to the given predictor value. */
@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.img;
+
+import io.scif.SCIFIOService;
+import io.scif.config.SCIFIOConfig;
+import io.scif.config.SCIFIOConfig.ImgMode;
+import io.scif.services.BatchReport;
+import io.scif.services.BatchService;
+import io.scif.services.FormatService;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.scijava.Context;
+import org.scijava.service.SciJavaService;
+
+/**
+ * Command-line entry point converting every supported file of a directory
+ * tree with the {@link BatchService}.
+ * <p>
+ * Usage:
+ * {@code BatchConvert [-threads N] [-memo DIR] inputDir outputDir extension}.
+ * Each file under {@code inputDir} with an extension supported by SCIFIO is
+ * written to the same relative path under {@code outputDir}, with its
+ * extension replaced by {@code extension}. With {@code -memo}, parsed
+ * metadata is cached in {@code DIR} so that a rerun skips parsing.
+ * </p>
+ *
+ * @author agent
+ */
+public final class BatchConvert {
+
+	private BatchConvert() {
+		// prevent instantiation of utility class
+	}
+
+	// -- Main method --
+
+	public static void main(final String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		File memo = null;
+		int arg = 0;
+		try {
+			for (; arg < args.length && args[arg].startsWith("-"); arg++) {
+				if (args[arg].equals("-threads")) {
+					threads = Integer.parseInt(args[++arg]);
+				}
+				else if (args[arg].equals("-memo")) memo = new File(args[++arg]);
+				else throw new IllegalArgumentException(args[arg]);
+			}
+		}
+		catch (final RuntimeException e) {
+			usage();
+			return;
+		}
+		if (args.length - arg != 3) {
+			usage();
+			return;
+		}
+		final File in = new File(args[arg]);
+		final File out = new File(args[arg + 1]);
+		String extension = args[arg + 2];
+		if (extension.startsWith(".")) extension = extension.substring(1);
+
+		final Context context =
+			new Context(SCIFIOService.class, SciJavaService.class);
+		int failures = 0;
+		try {
+			final Set<String> suffixes = new HashSet<>();
+			for (final String suffix : context.getService(FormatService.class)
+				.getSuffixes())
+			{
+				suffixes.add(suffix.toLowerCase());
+			}
+			final Map<String, String> conversions = new TreeMap<>();
+			collect(in, in, out, extension, suffixes, conversions);
+			System.out.println("Converting " + conversions.size() + " files with " +
+				threads + " threads");
+
+			final SCIFIOConfig config = new SCIFIOConfig()
+				.imgOpenerSetOpenAllImages(true).imgOpenerSetComputeMinMax(false)
+				.imgOpenerSetImgModes(ImgMode.PLANAR).parserSetMemoDirectory(memo);
+			final BatchReport report = context.getService(BatchService.class)
+				.convert(conversions, config, threads);
+			for (final Map.Entry<String, Throwable> failure : report.getFailures()
+				.entrySet())
+			{
+				System.err.println(failure.getKey() + ": " + failure.getValue());
+			}
+			System.out.println(report);
+			failures = report.getFailures().size();
+		}
+		finally {
+			context.dispose();
+		}
+		if (failures > 0) System.exit(1);
+	}
+
+	// -- Helper methods --
+
+	/** Maps each supported file under dir to its destination under out. */
+	private static void collect(final File root, final File dir, final File out,
+		final String extension, final Set<String> suffixes,
+		final Map<String, String> conversions)
+	{
+		final File[] files = dir.listFiles();
+		if (files == null) return;
+		Arrays.sort(files);
+		for (final File file : files) {
+			if (file.isDirectory()) {
+				collect(root, file, out, extension, suffixes, conversions);
+				continue;
+			}
+			final String name = file.getName();
+			final int dot = name.lastIndexOf('.');
+			if (dot < 0 || !suffixes.contains(name.substring(dot + 1)
+				.toLowerCase()))
+			{
+				continue;
+			}
+			final String relative = root.toURI().relativize(file.getParentFile()
+				.toURI()).getPath();
+			final File dest = new File(new File(out, relative), name.substring(0,
+				dot) + "." + extension);
+			conversions.put(file.getPath(), dest.getPath());
+		}
+	}
+
+	private static void usage() {
+		System.out.println("Usage: BatchConvert [-threads N] [-memo DIR] " +
+			"inputDir outputDir extension");
+	}
+}
@@ -102,7 +102,8 @@ public class DefaultImgUtilityService extends AbstractService implements
 		final SCIFIOConfig config)
 	{
 
-		final long[] dimLengths = m.get(imageIndex).getAxesLengths();
+		final long[] dimLengths =
+			m.get(imageIndex).getAxesLengths(config.imgOpenerGetResolution());
 
 		final ImageRegion region = config.imgOpenerGetRegion();
 
@@ -43,14 +43,19 @@ import io.scif.img.cell.SCIFIOCellImgFactory;
 import io.scif.img.converters.PlaneConverter;
 import io.scif.img.converters.PlaneConverterService;
 import io.scif.services.InitializeService;
+import io.scif.services.MetricsService;
 import io.scif.util.FormatTools;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.imagej.ImgPlus;
 import net.imagej.axis.Axes;
@@ -67,6 +72,7 @@ import net.imglib2.type.numeric.RealType;
 import org.scijava.Context;
 import org.scijava.app.StatusService;
 import org.scijava.plugin.Parameter;
+import org.scijava.thread.ThreadService;
 
 /**
  * Reads in an {@link ImgPlus} using SCIFIO.
@@ -87,6 +93,12 @@ public class ImgOpener extends AbstractImgIOComponent {
 	@Parameter
 	private InitializeService initializeService;
 
+	@Parameter
+	private ThreadService threadService;
+
+	@Parameter
+	private MetricsService metricsService;
+
 	// -- Constructors --
 
 	public ImgOpener() {
@@ -349,10 +361,13 @@ public class ImgOpener extends AbstractImgIOComponent {
 				((SCIFIOCellImgFactory<?>) imgFactory).setReader(reader, i(imageIndex));
 				((SCIFIOCellImgFactory<?>) imgFactory).setSubRegion(config
 					.imgOpenerGetRegion());
+				((SCIFIOCellImgFactory<?>) imgFactory).setResolution(config
+					.imgOpenerGetResolution());
 			}
 			final Img<T> img = imgFactory.create(dimLengths, type);
 			final SCIFIOImgPlus<T> imgPlus =
-				makeImgPlus(img, reader, i(imageIndex));
+				makeImgPlus(img, reader, i(imageIndex), config
+					.imgOpenerGetResolution());
 
 			String id = reader.getCurrentFile();
 			imgPlus.setSource(id);
@@ -599,14 +614,22 @@ public class ImgOpener extends AbstractImgIOComponent {
 		return types;
 	}
 
-	/** Compiles an N-dimensional list of calibration values. */
-	private double[] getCalibration(final int imageIndex, final Metadata m) {
+	/**
+	 * Compiles an N-dimensional list of calibration values, scaled to the pixel
+	 * size of the given resolution level.
+	 */
+	private double[] getCalibration(final int imageIndex, final Metadata m,
+		final int resolution)
+	{
+		final long[] lengths = m.get(imageIndex).getAxesLengths();
+		final long[] levelLengths = m.get(imageIndex).getAxesLengths(resolution);
 
 		final double[] calibration = new double[m.get(imageIndex).getAxes().size()];
 		for (int i = 0; i < calibration.length; i++) {
 			calibration[i] =
 				FormatTools
-					.getScale(m, imageIndex, m.get(imageIndex).getAxis(i).type());
+					.getScale(m, imageIndex, m.get(imageIndex).getAxis(i).type()) *
+					lengths[i] / levelLengths[i];
 		}
 
 		return calibration;
@@ -617,7 +640,8 @@ public class ImgOpener extends AbstractImgIOComponent {
 	 * corresponding to the specified initialized {@link Reader}.
 	 */
 	private <T extends RealType<T>> SCIFIOImgPlus<T> makeImgPlus(
-		final Img<T> img, final Reader r, final int imageIndex)
+		final Img<T> img, final Reader r, final int imageIndex,
+		final int resolution)
 	{
 		final String id = r.getCurrentFile();
 		String name = null;
@@ -629,7 +653,8 @@ public class ImgOpener extends AbstractImgIOComponent {
 
 		if (name == null) name = "Image: " + r.getFormatName();
 
-		final double[] cal = getCalibration(imageIndex, r.getMetadata());
+		final double[] cal =
+			getCalibration(imageIndex, r.getMetadata(), resolution);
 		final AxisType[] dimTypes = getAxisTypes(imageIndex, r.getMetadata());
 
 		final Reader base;
@@ -739,6 +764,9 @@ public class ImgOpener extends AbstractImgIOComponent {
 		final Range[] npRanges =
 			new Range[m.get(imageIndex).getAxesNonPlanar().size()];
 		final long[] npIndices = new long[npRanges.length];
+		// Planar lengths at the requested resolution level
+		final long[] levelLengths =
+			m.get(imageIndex).getAxesLengthsPlanar(config.imgOpenerGetResolution());
 
 		// populate plane dimensions
 		int index = 0;
@@ -750,7 +778,7 @@ public class ImgOpener extends AbstractImgIOComponent {
 			}
 			else {
 				planarMin[index] = 0;
-				planarLength[index] = m.get(imageIndex).getAxisLength(planarAxis);
+				planarLength[index] = levelLengths[index];
 			}
 			index++;
 		}
@@ -781,11 +809,168 @@ public class ImgOpener extends AbstractImgIOComponent {
 			else converter = pcService.getDefaultConverter();
 		}
 
-		read(imageIndex, imgPlus, r, config, converter, planarMin, planarLength,
-			npRanges, npIndices);
+		if (!readParallel(imageIndex, imgPlus, r, config, converter, planarMin,
+			planarLength, npRanges, npIndices))
+		{
+			read(imageIndex, imgPlus, r, config, converter, planarMin, planarLength,
+				npRanges, npIndices);
+
+			if (config.imgOpenerIsComputeMinMax()) populateMinMax(imgPlus,
+				imageIndex, r);
+		}
+	}
+
+	/**
+	 * Reads the planes with {@link SCIFIOConfig#imgOpenerGetThreads()} workers,
+	 * each with its own reader on the same source, filling disjoint planes of
+	 * the given {@link ImgPlus}.
+	 *
+	 * @return false, having read nothing, if parallel reading is disabled or
+	 *         the workers' readers do not match the given one.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private boolean readParallel(final int imageIndex, final ImgPlus imgPlus,
+		final Reader r, final SCIFIOConfig config, final PlaneConverter converter,
+		final long[] planarMin, final long[] planarLength, final Range[] npRanges,
+		final long[] npIndices) throws FormatException, IOException
+	{
+		final String source = r.getCurrentFile();
+		final int[] planes = getPlaneIndices(r, npRanges, npIndices);
+		final int threads = Math.min(config.imgOpenerGetThreads(), planes.length);
+		if (threads <= 1 || source == null) return false;
+
+		// the given reader is the first worker
+		final List<Future<Reader>> opening = new ArrayList<>();
+		for (int i = 1; i < threads; i++) {
+			opening.add(threadService.run(() -> createReader(source, config)));
+		}
+		final List<Reader> readers = new ArrayList<>();
+		readers.add(r);
+		try {
+			for (final Future<Reader> future : opening) {
+				readers.add(get(future));
+			}
+			final Metadata meta = r.getMetadata();
+			for (final Reader worker : readers) {
+				final Metadata workerMeta = worker.getMetadata();
+				if (workerMeta.getImageCount() != meta.getImageCount() ||
+					!Arrays.equals(workerMeta.get(imageIndex).getAxesLengths(), meta
+						.get(imageIndex).getAxesLengths()))
+				{
+					return false;
+				}
+			}
+
+			final AtomicInteger next = new AtomicInteger();
+			final AtomicInteger done = new AtomicInteger();
+			final List<Future<Void>> reading = new ArrayList<>();
+			for (final Reader worker : readers) {
+				reading.add(threadService.run(() -> {
+					Plane plane = null;
+					try {
+						for (int p = next.getAndIncrement(); p < planes.length; p =
+							next.getAndIncrement())
+						{
+							plane = plane == null ? worker.openPlane(imageIndex, planes[p],
+								planarMin, planarLength, config) : worker.openPlane(
+									imageIndex, planes[p], plane, planarMin, planarLength, config);
+							convert(converter, worker, imageIndex, p, plane, imgPlus, config);
+							synchronized (imgPlus) {
+								imgPlus.setColorTable(plane.getColorTable(), p);
+							}
+							statusService.showProgress(done.incrementAndGet(),
+								planes.length);
+						}
+					}
+					catch (final Exception e) {
+						// stop the other workers
+						next.set(planes.length);
+						throw e;
+					}
+					return null;
+				}));
+			}
+			// wait for every worker before their readers are closed
+			Exception failure = null;
+			for (final Future<Void> future : reading) {
+				try {
+					get(future);
+				}
+				catch (final FormatException | IOException e) {
+					if (failure == null) failure = e;
+				}
+			}
+			if (failure instanceof FormatException) throw (FormatException) failure;
+			if (failure != null) throw (IOException) failure;
+
+			if (config.imgOpenerIsComputeMinMax()) {
+				populateMinMax(imgPlus, imageIndex, readers.toArray(new Reader[0]));
+			}
+			return true;
+		}
+		finally {
+			// close the workers' readers, including any still being opened
+			for (final Future<Reader> future : opening) {
+				try {
+					future.get().close();
+				}
+				catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				catch (final ExecutionException | IOException e) {
+					log().debug("Could not close worker reader", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Lists the plane indices within the given ranges, in the order they are
+	 * stored in the image, i.e. with the first non-planar axis varying fastest.
+	 */
+	private int[] getPlaneIndices(final Reader r, final Range[] npRanges,
+		final long[] npIndices)
+	{
+		int count = 1;
+		for (final Range range : npRanges) {
+			count *= range.size();
+		}
+		final int[] planes = new int[count];
+		final int[] position = new int[npRanges.length];
+		for (int p = 0; p < count; p++) {
+			for (int i = 0; i < npRanges.length; i++) {
+				npIndices[i] = npRanges[i].get(position[i]);
+			}
+			planes[p] = (int) FormatTools.positionToRaster(0, r, npIndices);
+			for (int i = 0; i < position.length && ++position[i] == npRanges[i]
+				.size(); i++)
+			{
+				position[i] = 0;
+			}
+		}
+		return planes;
+	}
 
-		if (config.imgOpenerIsComputeMinMax()) populateMinMax(r, imgPlus,
-			imageIndex);
+	/** Waits for the given task, rethrowing its exception. */
+	private <V> V get(final Future<V> future) throws FormatException,
+		IOException
+	{
+		try {
+			return future.get();
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+		catch (final ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ImgIOException && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof FormatException) throw (FormatException) cause;
+			if (cause instanceof IOException) throw (IOException) cause;
+			throw new IOException(cause);
+		}
 	}
 
 	@SuppressWarnings("rawtypes")
@@ -825,10 +1010,11 @@ public class ImgOpener extends AbstractImgIOComponent {
 				(int) FormatTools.positionToRaster(0, r, npIndices);
 
 			if (config.imgOpenerIsComputeMinMax()) {
-				populateMinMax(r, imgPlus, imageIndex);
+				populateMinMax(imgPlus, imageIndex, r);
 			}
 			if (tmpPlane == null) {
-				tmpPlane = r.openPlane(imageIndex, planeIndex, planarMin, planarLength);
+				tmpPlane =
+					r.openPlane(imageIndex, planeIndex, planarMin, planarLength, config);
 			}
 			else {
 				tmpPlane =
@@ -837,8 +1023,8 @@ public class ImgOpener extends AbstractImgIOComponent {
 			}
 
 			// copy the data to the ImgPlus
-			converter.populatePlane(r, imageIndex, planeCount[0],
-				tmpPlane.getBytes(), imgPlus, config);
+			convert(converter, r, imageIndex, planeCount[0], tmpPlane, imgPlus,
+				config);
 
 			// store color table
 			imgPlus.setColorTable(tmpPlane.getColorTable(), planeCount[0]);
@@ -850,18 +1036,44 @@ public class ImgOpener extends AbstractImgIOComponent {
 		return tmpPlane;
 	}
 
-	private void populateMinMax(final Reader r, final ImgPlus<?> imgPlus,
-		final int imageIndex)
+	/**
+	 * Copies a plane into the given {@link ImgPlus}, recording the time taken as
+	 * a {@link MetricsService#CONVERT} event of the reader's file.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void convert(final PlaneConverter converter, final Reader r,
+		final int imageIndex, final int planeIndex, final Plane plane,
+		final ImgPlus imgPlus, final SCIFIOConfig config)
+	{
+		final long start = System.nanoTime();
+		converter.populatePlane(r, imageIndex, planeIndex, plane.getBytes(),
+			imgPlus, config);
+		metricsService.record(r.getCurrentFile(), MetricsService.CONVERT, System
+			.nanoTime() - start, plane.getBytes().length);
+	}
+
+	/**
+	 * Sets the channel extrema of the given {@link ImgPlus} from the
+	 * {@link MinMaxFilter}s of the readers which opened its planes.
+	 */
+	private void populateMinMax(final ImgPlus<?> imgPlus, final int imageIndex,
+		final Reader... readers)
 	{
 		final int sizeC =
-			(int) r.getMetadata().get(imageIndex).getAxisLength(Axes.CHANNEL);
-		final ReaderFilter rf = (ReaderFilter) r;
-		final MinMaxFilter minMax = rf.enable(MinMaxFilter.class);
+			(int) readers[0].getMetadata().get(imageIndex).getAxisLength(
+				Axes.CHANNEL);
 		for (int c = 0; c < sizeC; c++) {
-			final Double min =
-				minMax.getAxisKnownMinimum(imageIndex, Axes.CHANNEL, c);
-			final Double max =
-				minMax.getAxisKnownMinimum(imageIndex, Axes.CHANNEL, c);
+			Double min = null, max = null;
+			for (final Reader r : readers) {
+				final ReaderFilter rf = (ReaderFilter) r;
+				final MinMaxFilter minMax = rf.enable(MinMaxFilter.class);
+				final Double rMin =
+					minMax.getAxisKnownMinimum(imageIndex, Axes.CHANNEL, c);
+				final Double rMax =
+					minMax.getAxisKnownMaximum(imageIndex, Axes.CHANNEL, c);
+				if (rMin != null && (min == null || rMin < min)) min = rMin;
+				if (rMax != null && (max == null || rMax > max)) max = rMax;
+			}
 			imgPlus.setChannelMinimum(c, min == null ? Double.NaN : min);
 			imgPlus.setChannelMaximum(c, max == null ? Double.NaN : max);
 		}
@@ -41,7 +41,9 @@ import io.scif.Metadata;
 import io.scif.Translator;
 import io.scif.Writer;
 import io.scif.config.SCIFIOConfig;
+import io.scif.metrics.MetricsScope;
 import io.scif.services.FormatService;
+import io.scif.services.MetricsService;
 import io.scif.services.TranslatorService;
 import io.scif.util.FormatTools;
 import io.scif.util.SCIFIOMetadataTools;
@@ -98,6 +100,9 @@ public class ImgSaver extends AbstractImgIOComponent {
 	@Parameter
 	private TranslatorService translatorService;
 
+	@Parameter
+	private MetricsService metricsService;
+
 	// -- Constructors --
 
 	public ImgSaver() {
@@ -506,26 +511,33 @@ public class ImgSaver extends AbstractImgIOComponent {
 		final SCIFIOConfig config, final int sliceCount) throws ImgIOException,
 		IncompatibleTypeException
 	{
-		if (w.getMetadata() == null) {
-			if (id == null || id.length() == 0) {
-				throw new ImgIOException(
-					"A Writer with no Metadata was provided, with no way to determine "
-						+ "the desired output path. Default value: ImgPlus's source.");
-			}
-			try {
-				populateMeta(w, imgPlus, config, id, imageIndex);
-			}
-			catch (final FormatException e) {
-				throw new ImgIOException(e, "SCIFIO exception when writing to file " +
-					id + ":\n" + e.getMessage());
-			}
-			catch (final IOException e) {
-				throw new ImgIOException(e, "I/O exception writing to file " + id +
-					":\n" + e.getMessage());
+		try (MetricsScope scope = metricsService.isEnabled() ? metricsService
+			.enter(id, w.getFormatName()) : null)
+		{
+			if (w.getMetadata() == null) {
+				if (id == null || id.length() == 0) {
+					throw new ImgIOException(
+						"A Writer with no Metadata was provided, with no way to determine "
+							+ "the desired output path. Default value: ImgPlus's source.");
+				}
+				final long start = System.nanoTime();
+				try {
+					populateMeta(w, imgPlus, config, id, imageIndex);
+				}
+				catch (final FormatException e) {
+					throw new ImgIOException(e, "SCIFIO exception when writing to file " +
+						id + ":\n" + e.getMessage());
+				}
+				catch (final IOException e) {
+					throw new ImgIOException(e, "I/O exception writing to file " + id +
+						":\n" + e.getMessage());
+				}
+				metricsService.record(MetricsService.SAVE_METADATA, System.nanoTime() -
+					start, 0);
 			}
-		}
 
-		return writeImg(w, imgPlus, imageIndex, sliceCount);
+			return writeImg(w, imgPlus, imageIndex, sliceCount);
+		}
 	}
 
 	/**
@@ -610,6 +622,7 @@ public class ImgSaver extends AbstractImgIOComponent {
 				"Saving plane " + (planeIndex + 1) + "/" + planeOutCount);
 			// save bytes
 			try {
+				final long start = System.nanoTime();
 				final Metadata meta = w.getMetadata();
 
 				final long[] planarLengths =
@@ -678,7 +691,13 @@ public class ImgSaver extends AbstractImgIOComponent {
 							sourcePlane.length, sourcePlane.length);
 					}
 				}
+				final long converted = System.nanoTime();
+				metricsService.record(MetricsService.SAVE_CONVERT, converted - start,
+					destPlane.getData().length);
 				w.savePlane(imageIndex, planeIndex, destPlane);
+				metricsService.record(MetricsService.SAVE_WRITE, System.nanoTime() -
+					converted, destPlane.getData().length);
+				destPlane.release();
 			}
 			catch (final FormatException e) {
 				throw new ImgIOException(e);
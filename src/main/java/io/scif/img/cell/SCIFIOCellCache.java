@@ -33,6 +33,7 @@ package io.scif.img.cell;
 import io.scif.img.cell.cache.CacheService;
 import io.scif.img.cell.loaders.SCIFIOArrayLoader;
 import io.scif.refs.RefManagerService;
+import io.scif.services.MetricsService;
 
 import java.lang.ref.WeakReference;
 import java.util.Map;
@@ -68,6 +69,9 @@ public class SCIFIOCellCache<A extends ArrayDataAccess<A>>
 	@Parameter
 	private LogService logService;
 
+	@Parameter
+	private MetricsService metricsService;
+
 	// -- Fields --
 
 	/**
@@ -135,15 +139,19 @@ public class SCIFIOCellCache<A extends ArrayDataAccess<A>>
 		SCIFIOCell<A> cell = checkCache(cacheId, index);
 
 		if (cell != null) {
+			metricsService.record(MetricsService.CACHE_HIT, -1, 0);
 			return cell;
 		}
 
+		final long start = System.nanoTime();
 		cell =
 			new SCIFIOCell<>(cacheService, cacheId, index, cellDims, cellMin, loader
 				.loadArray(cellDims, cellMin));
 		refManagerService.manage(cell);
 
 		cache(cacheService.getKey(cacheId, index), cell);
+		metricsService.record(MetricsService.CACHE_MISS, System.nanoTime() - start,
+			0);
 
 		return cell;
 	}
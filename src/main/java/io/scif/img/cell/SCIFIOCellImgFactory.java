@@ -79,6 +79,8 @@ public final class SCIFIOCellImgFactory<T extends NativeType<T>> extends NativeI
 
 	private ImageRegion subregion;
 
+	private int resolution;
+
 	// -- Constuctors --
 
 	private int[] defaultCellDimensions;
@@ -207,6 +209,14 @@ public final class SCIFIOCellImgFactory<T extends NativeType<T>> extends NativeI
 		subregion = region;
 	}
 
+	/**
+	 * @param resolution The resolution level that will be loaded by any created
+	 *          {@link SCIFIOCellImg}s.
+	 */
+	public void setResolution(final int resolution) {
+		this.resolution = resolution;
+	}
+
 	// -- Helper Methods --
 
 	private <A extends ArrayDataAccess<A>, L extends SCIFIOArrayLoader<A>>
@@ -221,6 +231,7 @@ public final class SCIFIOCellImgFactory<T extends NativeType<T>> extends NativeI
 		final CellGrid grid = new CellGrid( dimensions, cellDimensions );
 
 		loader.setIndex(index);
+		loader.setResolution(resolution);
 
 		final SCIFIOCellCache<A> cache =
 			new SCIFIOCellCache<>(reader.getContext(), loader);
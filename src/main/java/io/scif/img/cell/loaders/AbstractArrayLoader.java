@@ -34,6 +34,7 @@ import io.scif.FormatException;
 import io.scif.Metadata;
 import io.scif.Plane;
 import io.scif.Reader;
+import io.scif.config.SCIFIOConfig;
 import io.scif.img.ImageRegion;
 import io.scif.img.ImgUtilityService;
 import io.scif.img.Range;
@@ -63,6 +64,8 @@ public abstract class AbstractArrayLoader<A> implements SCIFIOArrayLoader<A> {
 
 	private int index = 0;
 
+	private SCIFIOConfig config = new SCIFIOConfig();
+
 	final private Reader reader;
 
 	final private ImageRegion subRegion;
@@ -90,6 +93,11 @@ public abstract class AbstractArrayLoader<A> implements SCIFIOArrayLoader<A> {
 		this.index = index;
 	}
 
+	@Override
+	public void setResolution(final int resolution) {
+		config = new SCIFIOConfig().imgOpenerSetResolution(resolution);
+	}
+
 	@Override
 	public ColorTable loadTable(final int imageIndex, final int planeIndex)
 		throws FormatException, IOException
@@ -221,9 +229,10 @@ public abstract class AbstractArrayLoader<A> implements SCIFIOArrayLoader<A> {
 				(int) FormatTools.positionToRaster(0, reader, npIndices);
 
 			if (tmpPlane == null) tmpPlane =
-				reader.openPlane(index, planeIndex, planarMin, planarLength);
+				reader.openPlane(index, planeIndex, planarMin, planarLength, config);
 			else tmpPlane =
-				reader.openPlane(index, planeIndex, tmpPlane, planarMin, planarLength);
+				reader.openPlane(index, planeIndex, tmpPlane, planarMin, planarLength,
+					config);
 			convertBytes(data, tmpPlane.getBytes(), planeCount);
 
 			// update color table
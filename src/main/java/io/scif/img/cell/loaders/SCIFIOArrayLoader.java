@@ -69,6 +69,12 @@ public interface SCIFIOArrayLoader<A> {
 	 */
 	void setIndex(int index);
 
+	/**
+	 * @param resolution The resolution level this loader should use when opening
+	 *          planes.
+	 */
+	void setResolution(int resolution);
+
 	/**
 	 * Returns the {@link ColorTable} for a given set of indices. If the desired
 	 * plane has already been opened, the table should be cached. Otherwise, this
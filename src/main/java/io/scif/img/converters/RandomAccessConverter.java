@@ -37,17 +37,34 @@ import io.scif.config.SCIFIOConfig;
 import io.scif.img.ImgUtilityService;
 import io.scif.util.FormatTools;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import net.imagej.ImgPlus;
+import net.imglib2.Cursor;
 import net.imglib2.RandomAccess;
+import net.imglib2.img.basictypeaccess.array.ArrayDataAccess;
+import net.imglib2.img.cell.AbstractCellImg;
+import net.imglib2.img.cell.Cell;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
 
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
+import org.scijava.thread.ThreadService;
 
 /**
  * Generalized {@link PlaneConverter} implementation. Can populate any
- * {@link ImgPlus} using its {@link RandomAccess}. May be slower than other,
- * optimized methods.
+ * {@link ImgPlus}. Planes of cell images whose storage matches the pixel type
+ * are copied into the cells row by row, using
+ * {@link SCIFIOConfig#imgOpenerGetThreads()} threads over the cells. Other
+ * images are filled by flat iteration over the interval of the plane, which
+ * may be slower than other, optimized methods.
  *
  * @author Mark Hiner
  */
@@ -57,11 +74,9 @@ public class RandomAccessConverter extends AbstractPlaneConverter {
 	@Parameter
 	private ImgUtilityService imgUtilService;
 
-	/**
-	 * Uses a cursor to populate the plane. This solution is general and works
-	 * regardless of container, but at the expense of performance both now and
-	 * later.
-	 */
+	@Parameter
+	private ThreadService threadService;
+
 	@Override
 	public <T extends RealType<T>> void populatePlane(final Reader reader,
 		final int imageIndex, final int planeIndex, final byte[] plane,
@@ -76,35 +91,33 @@ public class RandomAccessConverter extends AbstractPlaneConverter {
 			imgUtilService.getDimLengths(m, imageIndex, config);
 		final long[] pos = new long[dimLengths.length];
 
-		final int planeX = 0;
-		final int planeY = 1;
-
 		getPosition(m, imageIndex, planeIndex, pos);
 
-		final int sX = (int) img.dimension(0);
-		final int sY = (int) img.dimension(1);
+		if (img.getImg() instanceof AbstractCellImg &&
+			populateCells((AbstractCellImg<?, ?, ?, ?>) img.getImg(), plane,
+				pixelType, little, pos, config.imgOpenerGetThreads()))
+		{
+			return;
+		}
 
-		final RandomAccess<T> randomAccess = img.randomAccess();
+		// iterate over the plane in the order of its pixels
+		final long[] min = pos.clone();
+		final long[] max = pos.clone();
+		min[0] = min[1] = 0;
+		max[0] = img.dimension(0) - 1;
+		max[1] = img.dimension(1) - 1;
+		final Cursor<T> cursor =
+			Views.flatIterable(Views.interval(img, min, max)).cursor();
 
 		int index = 0;
-
-		for (int y = 0; y < sY; ++y) {
-			pos[planeX] = 0;
-			pos[planeY] = y;
-
-			randomAccess.setPosition(pos);
-
-			for (int x = 1; x < sX; ++x) {
-				randomAccess.get().setReal(
-					imgUtilService.decodeWord(plane, index++, pixelType, little));
-				randomAccess.fwd(planeX);
-			}
-
-			randomAccess.get().setReal(
+		while (cursor.hasNext()) {
+			cursor.next().setReal(
 				imgUtilService.decodeWord(plane, index++, pixelType, little));
 		}
 	}
 
+	// -- Helper methods --
+
 	/** Copies the current dimensional position into the given array. */
 	private void getPosition(final Metadata m, final int imageIndex,
 		final int planeIndex, final long[] pos)
@@ -118,4 +131,161 @@ public class RandomAccessConverter extends AbstractPlaneConverter {
 			pos[i + offset] = axesPositions[i];
 		}
 	}
+
+	/**
+	 * Copies the plane into the cells it intersects, if their storage arrays
+	 * hold one element per pixel of the plane's type.
+	 *
+	 * @return false, having copied nothing, if the cells are not compatible.
+	 */
+	private <A, C extends Cell<A>> boolean populateCells(
+		final AbstractCellImg<?, A, C, ?> img, final byte[] plane,
+		final int pixelType, final boolean little, final long[] pos,
+		final int threads)
+	{
+		final RandomAccess<C> cells = img.getCells().randomAccess();
+		final C first = cells.get();
+		if (!isCompatible(first.getData(), pixelType)) return false;
+
+		// the first cell always has the full cell size
+		final long[] cellSize = new long[pos.length];
+		final long[] cellPos = new long[pos.length];
+		for (int d = 0; d < pos.length; d++) {
+			cellSize[d] = first.dimension(d);
+			cellPos[d] = pos[d] / cellSize[d];
+		}
+		final int sX = (int) img.dimension(0);
+		final int cellsX =
+			(int) ((img.dimension(0) + cellSize[0] - 1) / cellSize[0]);
+		final int cellsY =
+			(int) ((img.dimension(1) + cellSize[1] - 1) / cellSize[1]);
+		final int count = cellsX * cellsY;
+		final ByteOrder order =
+			little ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+
+		final AtomicInteger next = new AtomicInteger();
+		final Runnable copy = () -> {
+			final RandomAccess<C> access = img.getCells().randomAccess();
+			final long[] p = cellPos.clone();
+			for (int c = next.getAndIncrement(); c < count; c =
+				next.getAndIncrement())
+			{
+				p[0] = c % cellsX;
+				p[1] = c / cellsX;
+				access.setPosition(p);
+				copyToCell(access.get(), plane, order, pos, sX);
+			}
+		};
+
+		final int workers = Math.min(threads, count);
+		if (workers <= 1) {
+			copy.run();
+			return true;
+		}
+		final List<Future<?>> tasks = new ArrayList<>();
+		for (int t = 0; t < workers; t++) {
+			tasks.add(threadService.run(copy));
+		}
+		try {
+			for (final Future<?> task : tasks) {
+				task.get();
+			}
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		catch (final ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the given cell data is a storage array with one element
+	 * of the same size as each pixel of the given type.
+	 */
+	private boolean isCompatible(final Object data, final int pixelType) {
+		if (!(data instanceof ArrayDataAccess)) return false;
+		final Object store =
+			((ArrayDataAccess<?>) data).getCurrentStorageArray();
+		switch (pixelType) {
+			case FormatTools.INT8:
+			case FormatTools.UINT8:
+				return store instanceof byte[];
+			case FormatTools.INT16:
+			case FormatTools.UINT16:
+				return store instanceof short[];
+			case FormatTools.INT32:
+			case FormatTools.UINT32:
+				return store instanceof int[];
+			case FormatTools.FLOAT:
+				return store instanceof float[];
+			case FormatTools.DOUBLE:
+				return store instanceof double[];
+			default:
+				return false;
+		}
+	}
+
+	/** Copies the part of the plane within the given cell, row by row. */
+	private void copyToCell(final Cell<?> cell, final byte[] plane,
+		final ByteOrder order, final long[] pos, final int sX)
+	{
+		final Object store =
+			((ArrayDataAccess<?>) cell.getData()).getCurrentStorageArray();
+
+		// offset of the plane within the cell, from the non-planar position
+		int offset = 0;
+		int step = 1;
+		for (int d = 0; d < pos.length; d++) {
+			if (d >= 2) offset += (int) (pos[d] - cell.min(d)) * step;
+			step *= cell.dimension(d);
+		}
+
+		final int w = cell.dimension(0);
+		final int h = cell.dimension(1);
+		final int src = (int) (cell.min(1) * sX + cell.min(0));
+		if (w == sX) {
+			copy(plane, order, src, store, offset, w * h);
+		}
+		else {
+			for (int y = 0; y < h; y++) {
+				copy(plane, order, src + y * sX, store, offset + y * w, w);
+			}
+		}
+	}
+
+	/**
+	 * Copies {@code count} pixels of the plane, starting at pixel {@code src},
+	 * into the storage array at {@code dest}.
+	 */
+	private void copy(final byte[] plane, final ByteOrder order, final int src,
+		final Object store, final int dest, final int count)
+	{
+		if (store instanceof byte[]) {
+			System.arraycopy(plane, src, store, dest, count);
+			return;
+		}
+		final ByteBuffer bytes = ByteBuffer.wrap(plane).order(order);
+		if (store instanceof short[]) {
+			bytes.position(2 * src);
+			bytes.asShortBuffer().get((short[]) store, dest, count);
+		}
+		else if (store instanceof int[]) {
+			bytes.position(4 * src);
+			bytes.asIntBuffer().get((int[]) store, dest, count);
+		}
+		else if (store instanceof float[]) {
+			bytes.position(4 * src);
+			bytes.asFloatBuffer().get((float[]) store, dest, count);
+		}
+		else {
+			bytes.position(8 * src);
+			bytes.asDoubleBuffer().get((double[]) store, dest, count);
+		}
+	}
 }
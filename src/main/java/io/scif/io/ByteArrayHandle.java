@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.List;
 
 /**
  * A wrapper for a byte array that implements the IRandomAccess interface.
@@ -171,6 +172,14 @@ public class ByteArrayHandle extends AbstractNIOHandle {
 		return len;
 	}
 
+	@Override
+	public void readVectored(final List<ReadRequest> requests)
+		throws IOException
+	{
+		// the bytes are already in memory, so merging reads gains nothing
+		ReadScheduler.read(this, requests, -1, 0);
+	}
+
 	@Override
 	public void seek(final long pos) throws IOException {
 		if (pos > length()) setLength(pos);
@@ -35,6 +35,7 @@ import java.io.DataOutput;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.List;
 
 /**
  * Interface for random access into structures (e.g., files or arrays).
@@ -96,6 +97,23 @@ public interface IRandomAccess extends DataInput, DataOutput {
 	 */
 	int read(ByteBuffer buffer, int offset, int len) throws IOException;
 
+	/**
+	 * Reads several regions of this stream, each into its own destination, with
+	 * as few reads as possible. Regions beyond the end of the stream are read
+	 * partially or not at all, as recorded by
+	 * {@link ReadRequest#getBytesRead()}. The stream pointer is unchanged.
+	 * <p>
+	 * By default, nearby regions are merged by {@link ReadScheduler}.
+	 * </p>
+	 *
+	 * @see ReadScheduler
+	 */
+	default void readVectored(final List<ReadRequest> requests)
+		throws IOException
+	{
+		ReadScheduler.read(this, requests);
+	}
+
 	/**
 	 * Sets the stream pointer offset, measured from the beginning of this stream,
 	 * at which the next read or write occurs.
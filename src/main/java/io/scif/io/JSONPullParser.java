@@ -0,0 +1,317 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull-based JSON tokenizer reading from a {@link RandomAccessInputStream}.
+ * <p>
+ * Documents are tokenized in bounded memory, so arbitrarily large files can be
+ * walked without reading them into a {@code String}. Names and values are only
+ * decoded when {@link #getText()} is called, and unwanted objects or arrays
+ * can be passed over with {@link #skipChildren()}. The stream offset of each
+ * token is available from {@link #getOffset()}, so that parts of a document
+ * can be parsed again later by seeking to that offset.
+ * </p>
+ * <p>
+ * The tokenizer is lenient: commas and colons are treated as separators, so
+ * that missing or trailing commas are tolerated, and unquoted values are read
+ * up to the next whitespace or delimiter. Within objects, tokens alternate
+ * between names and values.
+ * </p>
+ * <p>
+ * NB: the stream is read ahead of the current token, in blocks.
+ * </p>
+ *
+ * @author agent
+ */
+public class JSONPullParser {
+
+	// -- Constants --
+
+	/** Kinds of tokens. */
+	public enum Event {
+			START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, NAME, VALUE,
+			END_DOCUMENT
+	}
+
+	private static final int BUFFER_SIZE = 65536;
+
+	// -- Fields --
+
+	private final RandomAccessInputStream in;
+
+	private final long length;
+
+	private final byte[] buf = new byte[BUFFER_SIZE];
+
+	/** Stream offset of the first byte in the buffer. */
+	private long bufferOffset;
+
+	private int pos, limit;
+
+	/** Bytes of the current name or value. */
+	private byte[] token = new byte[256];
+
+	private int tokenLength;
+
+	private boolean quoted;
+
+	/** Decoded current name or value. */
+	private String text;
+
+	private long offset;
+
+	/** Open containers, true for objects. */
+	private boolean[] stack = new boolean[16];
+
+	private int depth;
+
+	private boolean expectName;
+
+	// -- Constructor --
+
+	/**
+	 * Creates a parser reading from the current position of the given stream.
+	 */
+	public JSONPullParser(final RandomAccessInputStream in) throws IOException {
+		this.in = in;
+		length = in.length();
+		bufferOffset = in.getFilePointer();
+	}
+
+	// -- JSONPullParser API methods --
+
+	/** Advances to the next token. */
+	public Event next() throws IOException {
+		text = null;
+		tokenLength = 0;
+		quoted = false;
+		int c = read();
+		while (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' ||
+			c == ':')
+		{
+			c = read();
+		}
+		offset = bufferOffset + pos - 1;
+		switch (c) {
+			case -1:
+				if (depth > 0) throw new EOFException("Unterminated JSON document");
+				return Event.END_DOCUMENT;
+			case '{':
+				push(true);
+				return Event.START_OBJECT;
+			case '[':
+				push(false);
+				return Event.START_ARRAY;
+			case '}':
+			case ']':
+				if (depth == 0 || stack[depth - 1] != (c == '}')) {
+					throw new IOException("Unbalanced '" + (char) c + "' at offset " +
+						offset);
+				}
+				depth--;
+				expectName = depth > 0 && stack[depth - 1];
+				return c == '}' ? Event.END_OBJECT : Event.END_ARRAY;
+			case '"':
+				quoted = true;
+				readString();
+				break;
+			default:
+				readLiteral(c);
+		}
+		if (expectName) {
+			expectName = false;
+			return Event.NAME;
+		}
+		expectName = depth > 0 && stack[depth - 1];
+		return Event.VALUE;
+	}
+
+	/**
+	 * @return The current name or value, with string values unescaped and
+	 *         other values as written.
+	 */
+	public String getText() {
+		if (text == null) {
+			text = new String(token, 0, tokenLength, StandardCharsets.UTF_8);
+		}
+		return text;
+	}
+
+	/** @return True if the current name or value is a quoted string. */
+	public boolean isString() {
+		return quoted;
+	}
+
+	/** @return The stream offset of the current token. */
+	public long getOffset() {
+		return offset;
+	}
+
+	/** @return The number of objects and arrays enclosing the next token. */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Passes over the contents of the object or array just started, leaving the
+	 * parser on its end.
+	 */
+	public void skipChildren() throws IOException {
+		final int target = depth - 1;
+		while (depth > target) {
+			if (next() == Event.END_DOCUMENT) {
+				throw new EOFException("Unterminated JSON document");
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	private void push(final boolean object) {
+		if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+		stack[depth++] = object;
+		expectName = object;
+	}
+
+	private void readString() throws IOException {
+		while (true) {
+			int c = read();
+			if (c == '"') return;
+			if (c == -1) throw new EOFException("Unterminated JSON string");
+			if (c == '\\') {
+				c = read();
+				switch (c) {
+					case 'b':
+						c = '\b';
+						break;
+					case 'f':
+						c = '\f';
+						break;
+					case 'n':
+						c = '\n';
+						break;
+					case 'r':
+						c = '\r';
+						break;
+					case 't':
+						c = '\t';
+						break;
+					case 'u':
+						appendUTF8(readCodePoint());
+						continue;
+					case -1:
+						throw new EOFException("Unterminated JSON string");
+				}
+			}
+			append(c);
+		}
+	}
+
+	/** Reads the hex digits of a unicode escape, and of a low surrogate. */
+	private int readCodePoint() throws IOException {
+		final int c = readHex();
+		if (!Character.isHighSurrogate((char) c) || peek() != '\\') return c;
+		read();
+		if (read() != 'u') throw new IOException("Invalid surrogate pair");
+		return Character.toCodePoint((char) c, (char) readHex());
+	}
+
+	private int readHex() throws IOException {
+		int v = 0;
+		for (int i = 0; i < 4; i++) {
+			final int digit = Character.digit(read(), 16);
+			if (digit < 0) {
+				throw new IOException("Invalid unicode escape before offset " +
+					(bufferOffset + pos));
+			}
+			v = (v << 4) | digit;
+		}
+		return v;
+	}
+
+	private void appendUTF8(final int codePoint) {
+		for (final byte b : new String(Character.toChars(codePoint))
+			.getBytes(StandardCharsets.UTF_8))
+		{
+			append(b & 0xff);
+		}
+	}
+
+	private void readLiteral(int c) throws IOException {
+		while (true) {
+			append(c);
+			c = peek();
+			if (c == -1 || c == ' ' || c == '\t' || c == '\n' || c == '\r' ||
+				c == ',' || c == ':' || c == '{' || c == '}' || c == '[' ||
+				c == ']' || c == '"')
+			{
+				return;
+			}
+			pos++;
+		}
+	}
+
+	private void append(final int c) {
+		if (tokenLength == token.length) {
+			token = Arrays.copyOf(token, tokenLength * 2);
+		}
+		token[tokenLength++] = (byte) c;
+	}
+
+	private int read() throws IOException {
+		if (pos == limit && !fill()) return -1;
+		return buf[pos++] & 0xff;
+	}
+
+	private int peek() throws IOException {
+		if (pos == limit && !fill()) return -1;
+		return buf[pos] & 0xff;
+	}
+
+	private boolean fill() throws IOException {
+		bufferOffset += limit;
+		pos = 0;
+		limit = (int) Math.min(buf.length, length - bufferOffset);
+		if (limit <= 0) {
+			limit = 0;
+			return false;
+		}
+		in.seek(bufferOffset);
+		in.readFully(buf, 0, limit);
+		return true;
+	}
+}
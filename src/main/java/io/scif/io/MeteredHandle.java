@@ -0,0 +1,405 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.io;
+
+import io.scif.services.MetricsService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * An {@link IRandomAccess} which reports the reads, writes and seeks made on
+ * another handle to the {@link MetricsService}.
+ * <p>
+ * Bulk reads and writes are timed individually. Reads and writes of single
+ * values are not timed; their bytes are added to the next recorded bulk read
+ * or write, so that reading a header field by field costs no more than a few
+ * additions. Seeks are counted when they move the file pointer.
+ * </p>
+ *
+ * @author agent
+ */
+public class MeteredHandle implements IRandomAccess {
+
+	// -- Fields --
+
+	private final IRandomAccess handle;
+
+	private final String id;
+
+	private final MetricsService metricsService;
+
+	/** Bytes read by single value reads, not yet recorded. */
+	private long pending;
+
+	/** Bytes written by single value writes, not yet recorded. */
+	private long pendingWritten;
+
+	// -- Constructor --
+
+	/**
+	 * @param handle The handle to measure.
+	 * @param id The dataset to which to attribute measurements made outside of
+	 *          any {@link io.scif.metrics.MetricsScope}.
+	 * @param metricsService The service to report to.
+	 */
+	public MeteredHandle(final IRandomAccess handle, final String id,
+		final MetricsService metricsService)
+	{
+		this.handle = handle;
+		this.id = id;
+		this.metricsService = metricsService;
+	}
+
+	// -- MeteredHandle API methods --
+
+	/** @return The handle being measured. */
+	public IRandomAccess getHandle() {
+		return handle;
+	}
+
+	// -- IRandomAccess API methods --
+
+	@Override
+	public void close() throws IOException {
+		if (pending > 0) {
+			metricsService.record(id, MetricsService.READ, -1, pending);
+			pending = 0;
+		}
+		if (pendingWritten > 0) {
+			metricsService.record(id, MetricsService.WRITE, -1, pendingWritten);
+			pendingWritten = 0;
+		}
+		handle.close();
+	}
+
+	@Override
+	public long getFilePointer() throws IOException {
+		return handle.getFilePointer();
+	}
+
+	@Override
+	public long length() throws IOException {
+		return handle.length();
+	}
+
+	@Override
+	public ByteOrder getOrder() {
+		return handle.getOrder();
+	}
+
+	@Override
+	public void setOrder(final ByteOrder order) {
+		handle.setOrder(order);
+	}
+
+	@Override
+	public int read(final byte[] b) throws IOException {
+		final long start = System.nanoTime();
+		return read(handle.read(b), start);
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len)
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		return read(handle.read(b, off, len), start);
+	}
+
+	@Override
+	public int read(final ByteBuffer buffer) throws IOException {
+		final long start = System.nanoTime();
+		return read(handle.read(buffer), start);
+	}
+
+	@Override
+	public int read(final ByteBuffer buffer, final int offset, final int len)
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		return read(handle.read(buffer, offset, len), start);
+	}
+
+	@Override
+	public void readVectored(final List<ReadRequest> requests)
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		handle.readVectored(requests);
+		long n = 0;
+		for (final ReadRequest request : requests) {
+			n += request.getBytesRead();
+		}
+		read((int) Math.min(n, Integer.MAX_VALUE), start);
+	}
+
+	@Override
+	public void seek(final long pos) throws IOException {
+		final long distance = pos - handle.getFilePointer();
+		handle.seek(pos);
+		if (distance != 0) {
+			metricsService.record(id, MetricsService.SEEK, -1, Math.abs(distance));
+		}
+	}
+
+	@Override
+	public void write(final ByteBuffer buf) throws IOException {
+		final long start = System.nanoTime();
+		final int len = buf.remaining();
+		handle.write(buf);
+		written(len, start);
+	}
+
+	@Override
+	public void write(final ByteBuffer buf, final int off, final int len)
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		handle.write(buf, off, len);
+		written(len, start);
+	}
+
+	// -- DataInput API methods --
+
+	@Override
+	public void readFully(final byte[] b) throws IOException {
+		readFully(b, 0, b.length);
+	}
+
+	@Override
+	public void readFully(final byte[] b, final int off, final int len)
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		handle.readFully(b, off, len);
+		read(len, start);
+	}
+
+	@Override
+	public int skipBytes(final int n) throws IOException {
+		final int skipped = handle.skipBytes(n);
+		if (skipped > 0) {
+			metricsService.record(id, MetricsService.SEEK, -1, skipped);
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean readBoolean() throws IOException {
+		pending++;
+		return handle.readBoolean();
+	}
+
+	@Override
+	public byte readByte() throws IOException {
+		pending++;
+		return handle.readByte();
+	}
+
+	@Override
+	public int readUnsignedByte() throws IOException {
+		pending++;
+		return handle.readUnsignedByte();
+	}
+
+	@Override
+	public short readShort() throws IOException {
+		pending += 2;
+		return handle.readShort();
+	}
+
+	@Override
+	public int readUnsignedShort() throws IOException {
+		pending += 2;
+		return handle.readUnsignedShort();
+	}
+
+	@Override
+	public char readChar() throws IOException {
+		pending += 2;
+		return handle.readChar();
+	}
+
+	@Override
+	public int readInt() throws IOException {
+		pending += 4;
+		return handle.readInt();
+	}
+
+	@Override
+	public long readLong() throws IOException {
+		pending += 8;
+		return handle.readLong();
+	}
+
+	@Override
+	public float readFloat() throws IOException {
+		pending += 4;
+		return handle.readFloat();
+	}
+
+	@Override
+	public double readDouble() throws IOException {
+		pending += 8;
+		return handle.readDouble();
+	}
+
+	@Override
+	public String readLine() throws IOException {
+		final long pos = handle.getFilePointer();
+		final String line = handle.readLine();
+		pending += handle.getFilePointer() - pos;
+		return line;
+	}
+
+	@Override
+	public String readUTF() throws IOException {
+		final long pos = handle.getFilePointer();
+		final String s = handle.readUTF();
+		pending += handle.getFilePointer() - pos;
+		return s;
+	}
+
+	// -- DataOutput API methods --
+
+	@Override
+	public void write(final byte[] b) throws IOException {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len)
+		throws IOException
+	{
+		final long start = System.nanoTime();
+		handle.write(b, off, len);
+		written(len, start);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		pendingWritten++;
+		handle.write(b);
+	}
+
+	@Override
+	public void writeBoolean(final boolean v) throws IOException {
+		pendingWritten++;
+		handle.writeBoolean(v);
+	}
+
+	@Override
+	public void writeByte(final int v) throws IOException {
+		pendingWritten++;
+		handle.writeByte(v);
+	}
+
+	@Override
+	public void writeShort(final int v) throws IOException {
+		pendingWritten += 2;
+		handle.writeShort(v);
+	}
+
+	@Override
+	public void writeChar(final int v) throws IOException {
+		pendingWritten += 2;
+		handle.writeChar(v);
+	}
+
+	@Override
+	public void writeInt(final int v) throws IOException {
+		pendingWritten += 4;
+		handle.writeInt(v);
+	}
+
+	@Override
+	public void writeLong(final long v) throws IOException {
+		pendingWritten += 8;
+		handle.writeLong(v);
+	}
+
+	@Override
+	public void writeFloat(final float v) throws IOException {
+		pendingWritten += 4;
+		handle.writeFloat(v);
+	}
+
+	@Override
+	public void writeDouble(final double v) throws IOException {
+		pendingWritten += 8;
+		handle.writeDouble(v);
+	}
+
+	@Override
+	public void writeBytes(final String s) throws IOException {
+		pendingWritten += s.length();
+		handle.writeBytes(s);
+	}
+
+	@Override
+	public void writeChars(final String s) throws IOException {
+		pendingWritten += 2 * s.length();
+		handle.writeChars(s);
+	}
+
+	@Override
+	public void writeUTF(final String str) throws IOException {
+		final long pos = handle.getFilePointer();
+		handle.writeUTF(str);
+		pendingWritten += handle.getFilePointer() - pos;
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return handle.toString();
+	}
+
+	// -- Helper methods --
+
+	private int read(final int n, final long start) {
+		final long nanos = System.nanoTime() - start;
+		metricsService.record(id, MetricsService.READ, nanos, Math.max(n, 0) +
+			pending);
+		pending = 0;
+		return n;
+	}
+
+	private void written(final int n, final long start) {
+		metricsService.record(id, MetricsService.WRITE, System.nanoTime() - start,
+			n + pendingWritten);
+		pendingWritten = 0;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.io;
+
+import java.io.IOException;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An {@link javax.imageio.stream.ImageInputStream} reading from a
+ * {@link RandomAccessInputStream}. Unlike the caching streams of
+ * {@link javax.imageio.ImageIO}, seeking moves the underlying stream, so
+ * ImageIO readers can skip to the data they need without buffering everything
+ * before it.
+ *
+ * @author agent
+ */
+public class RandomAccessImageInputStream extends ImageInputStreamImpl {
+
+	// -- Fields --
+
+	private final RandomAccessInputStream in;
+
+	// -- Constructor --
+
+	public RandomAccessImageInputStream(final RandomAccessInputStream in)
+		throws IOException
+	{
+		this.in = in;
+		in.seek(0);
+	}
+
+	// -- RandomAccessImageInputStream methods --
+
+	/** Gets the stream this image stream reads from. */
+	public RandomAccessInputStream getStream() {
+		return in;
+	}
+
+	// -- ImageInputStream API methods --
+
+	@Override
+	public int read() throws IOException {
+		checkClosed();
+		bitOffset = 0;
+		if (streamPos >= in.length()) return -1;
+		final int b = in.readByte() & 0xff;
+		streamPos++;
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len)
+		throws IOException
+	{
+		checkClosed();
+		bitOffset = 0;
+		if (len == 0) return 0;
+		final long remaining = in.length() - streamPos;
+		if (remaining <= 0) return -1;
+		final int n = in.read(b, off, (int) Math.min(len, remaining));
+		if (n <= 0) return -1;
+		streamPos += n;
+		return n;
+	}
+
+	@Override
+	public long length() {
+		try {
+			return in.length();
+		}
+		catch (final IOException e) {
+			return -1;
+		}
+	}
+
+	@Override
+	public void seek(final long pos) throws IOException {
+		super.seek(pos);
+		in.seek(pos);
+	}
+
+	@Override
+	public boolean isCached() {
+		return false;
+	}
+}
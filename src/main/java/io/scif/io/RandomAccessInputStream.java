@@ -39,6 +39,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.scijava.Context;
 import org.scijava.log.LogService;
@@ -481,6 +483,48 @@ public class RandomAccessInputStream extends InputStream implements DataInput {
 		raf.readFully(array, offset, n);
 	}
 
+	/**
+	 * Reads several regions of the stream, merging nearby regions into a few
+	 * large reads. Regions are clipped to the {@link #length()} of the stream.
+	 * The file pointer is unchanged.
+	 *
+	 * @see IRandomAccess#readVectored(List)
+	 */
+	public void readVectored(final List<ReadRequest> requests)
+		throws IOException
+	{
+		final long pointer = getFilePointer();
+		try {
+			if (length < 0) {
+				raf.readVectored(requests);
+				return;
+			}
+			// read only the part of each region within the truncated length
+			final ReadRequest[] clipped = new ReadRequest[requests.size()];
+			final List<ReadRequest> reads = new ArrayList<>(requests.size());
+			for (int i = 0; i < clipped.length; i++) {
+				final ReadRequest r = requests.get(i);
+				r.setBytesRead(0);
+				final long available = length - r.getOffset();
+				if (available >= r.getLength()) clipped[i] = r;
+				else if (available > 0) {
+					clipped[i] = new ReadRequest(r.getOffset(), (int) available, r
+						.getDest(), r.getDestOffset());
+				}
+				if (clipped[i] != null) reads.add(clipped[i]);
+			}
+			raf.readVectored(reads);
+			for (int i = 0; i < clipped.length; i++) {
+				if (clipped[i] != null && clipped[i] != requests.get(i)) {
+					requests.get(i).setBytesRead(clipped[i].getBytesRead());
+				}
+			}
+		}
+		finally {
+			seek(pointer);
+		}
+	}
+
 	// -- InputStream API methods --
 
 	@Override
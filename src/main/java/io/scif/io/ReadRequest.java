@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.io;
+
+/**
+ * One region of a vectored read: {@code length} bytes at {@code offset} of a
+ * handle, to be copied into {@code dest} starting at {@code destOffset}.
+ *
+ * @see IRandomAccess#readVectored(java.util.List)
+ * @author agent
+ */
+public class ReadRequest {
+
+	// -- Fields --
+
+	private final long offset;
+
+	private final int length;
+
+	private final byte[] dest;
+
+	private final int destOffset;
+
+	private int bytesRead;
+
+	// -- Constructors --
+
+	/** Creates a request for a whole new array of {@code length} bytes. */
+	public ReadRequest(final long offset, final int length) {
+		this(offset, length, new byte[length], 0);
+	}
+
+	public ReadRequest(final long offset, final int length, final byte[] dest,
+		final int destOffset)
+	{
+		if (offset < 0 || length < 0 || destOffset < 0 ||
+			destOffset + length > dest.length)
+		{
+			throw new IllegalArgumentException("Invalid read request: offset=" +
+				offset + ", length=" + length + ", destOffset=" + destOffset);
+		}
+		this.offset = offset;
+		this.length = length;
+		this.dest = dest;
+		this.destOffset = destOffset;
+	}
+
+	// -- ReadRequest API methods --
+
+	/** @return The position of the region in the handle. */
+	public long getOffset() {
+		return offset;
+	}
+
+	/** @return The number of bytes requested. */
+	public int getLength() {
+		return length;
+	}
+
+	/** @return The array receiving the bytes. */
+	public byte[] getDest() {
+		return dest;
+	}
+
+	/** @return The position in {@link #getDest()} of the first byte. */
+	public int getDestOffset() {
+		return destOffset;
+	}
+
+	/**
+	 * @return The number of bytes copied into {@link #getDest()}, which is less
+	 *         than {@link #getLength()} if the region extends beyond the end of
+	 *         the handle.
+	 */
+	public int getBytesRead() {
+		return bytesRead;
+	}
+
+	public void setBytesRead(final int bytesRead) {
+		this.bytesRead = bytesRead;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.io;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Performs the vectored reads of {@link IRandomAccess} handles.
+ * <p>
+ * The requested regions are sorted by offset, and regions separated by no
+ * more than {@link #MAX_GAP} bytes are merged into a single read of at most
+ * {@link #MAX_READ} bytes, whose bytes are then copied to each region. This
+ * turns the many small seeks and reads of scattered strips or tiles into a
+ * few large sequential reads, at the cost of reading the small gaps between
+ * them.
+ * </p>
+ *
+ * @author agent
+ */
+public final class ReadScheduler {
+
+	// -- Constants --
+
+	/** Largest gap between two regions which are read together. */
+	public static final int MAX_GAP = 64 * 1024;
+
+	/** Largest single read made to merge several regions. */
+	public static final int MAX_READ = 8 * 1024 * 1024;
+
+	private static final Comparator<ReadRequest> BY_OFFSET =
+		new Comparator<ReadRequest>()
+		{
+
+			@Override
+			public int compare(final ReadRequest r1, final ReadRequest r2) {
+				return Long.compare(r1.getOffset(), r2.getOffset());
+			}
+		};
+
+	// -- Constructor --
+
+	private ReadScheduler() {
+		// prevent instantiation of utility class
+	}
+
+	// -- Utility methods --
+
+	/**
+	 * Reads the given regions of the given handle, merging nearby regions. The
+	 * file pointer of the handle is restored afterwards.
+	 */
+	public static void read(final IRandomAccess handle,
+		final List<ReadRequest> requests) throws IOException
+	{
+		read(handle, requests, MAX_GAP, MAX_READ);
+	}
+
+	/**
+	 * Reads the given regions of the given handle, merging regions separated by
+	 * at most {@code maxGap} bytes into reads of at most {@code maxRead} bytes.
+	 * With a negative {@code maxGap}, only overlapping regions are merged. The
+	 * file pointer of the handle is restored afterwards.
+	 */
+	public static void read(final IRandomAccess handle,
+		final List<ReadRequest> requests, final int maxGap, final int maxRead)
+		throws IOException
+	{
+		if (requests.isEmpty()) return;
+		final long pointer = handle.getFilePointer();
+		try {
+			read(handle, requests, maxGap, maxRead, handle.length());
+		}
+		finally {
+			handle.seek(pointer);
+		}
+	}
+
+	// -- Helper methods --
+
+	private static void read(final IRandomAccess handle,
+		final List<ReadRequest> requests, final int maxGap, final int maxRead,
+		final long length) throws IOException
+	{
+		final ReadRequest[] sorted = requests.toArray(new ReadRequest[0]);
+		Arrays.sort(sorted, BY_OFFSET);
+
+		byte[] block = null;
+		int first = 0;
+		while (first < sorted.length) {
+			final long start = sorted[first].getOffset();
+			long end = start + sorted[first].getLength();
+			int last = first;
+			while (last + 1 < sorted.length) {
+				final ReadRequest next = sorted[last + 1];
+				if (next.getOffset() - end > maxGap) break;
+				final long merged = Math.max(end, next.getOffset() + next.getLength());
+				if (merged - start > maxRead) break;
+				end = merged;
+				last++;
+			}
+			end = Math.min(end, length);
+
+			if (start >= length) {
+				// nothing left to read
+				for (int i = first; i < sorted.length; i++) {
+					sorted[i].setBytesRead(0);
+				}
+				break;
+			}
+			handle.seek(start);
+			if (first == last) {
+				final ReadRequest r = sorted[first];
+				r.setBytesRead(fill(handle, r.getDest(), r.getDestOffset(),
+					(int) (end - start)));
+			}
+			else {
+				final int size = (int) (end - start);
+				if (block == null || block.length < size) block = new byte[size];
+				final int n = fill(handle, block, 0, size);
+				for (int i = first; i <= last; i++) {
+					final ReadRequest r = sorted[i];
+					final int from = (int) (r.getOffset() - start);
+					final int copy = Math.max(0, Math.min(r.getLength(), n - from));
+					System.arraycopy(block, from, r.getDest(), r.getDestOffset(), copy);
+					r.setBytesRead(copy);
+				}
+			}
+			first = last + 1;
+		}
+	}
+
+	/** Reads up to len bytes, stopping early only at the end of the data. */
+	private static int fill(final IRandomAccess handle, final byte[] b,
+		final int off, final int len) throws IOException
+	{
+		int n = 0;
+		while (n < len) {
+			final int r = handle.read(b, off + n, len - n);
+			if (r <= 0) break;
+			n += r;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter of events, of the amount (typically bytes) they carried, and a
+ * histogram of their latencies.
+ * <p>
+ * Latencies are kept in power-of-two buckets: bucket {@code b} counts events
+ * which took less than {@code 2^b} but at least {@code 2^(b-1)} nanoseconds,
+ * so percentiles are exact to within a factor of two. Events recorded with a
+ * negative latency are counted, but not timed. All methods are thread-safe
+ * and lock-free.
+ * </p>
+ *
+ * @author agent
+ */
+public class Metric {
+
+	// -- Constants --
+
+	private static final int BUCKETS = 64;
+
+	// -- Fields --
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong amount = new AtomicLong();
+
+	private final AtomicLong timedCount = new AtomicLong();
+
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+	// -- Metric API methods --
+
+	/**
+	 * Records one event.
+	 *
+	 * @param nanos Latency of the event, or a negative value if untimed.
+	 * @param amount Amount carried by the event, e.g. a number of bytes.
+	 */
+	public void record(final long nanos, final long amount) {
+		count.incrementAndGet();
+		if (amount != 0) this.amount.addAndGet(amount);
+		if (nanos < 0) return;
+		timedCount.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+		buckets.incrementAndGet(bucket(nanos));
+		for (long max = maxNanos.get(); nanos > max; max = maxNanos.get()) {
+			if (maxNanos.compareAndSet(max, nanos)) break;
+		}
+	}
+
+	/** @return The number of events recorded. */
+	public long getCount() {
+		return count.get();
+	}
+
+	/** @return The total amount carried by the recorded events. */
+	public long getAmount() {
+		return amount.get();
+	}
+
+	/** @return The number of timed events recorded. */
+	public long getTimedCount() {
+		return timedCount.get();
+	}
+
+	/** @return The summed latency of the timed events. */
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	/** @return The mean latency of the timed events. */
+	public long getMeanNanos() {
+		final long n = timedCount.get();
+		return n == 0 ? 0 : totalNanos.get() / n;
+	}
+
+	/** @return The largest latency recorded. */
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	/** @return The median latency, to within a factor of two. */
+	public long getMedianNanos() {
+		return getPercentileNanos(0.5);
+	}
+
+	/** @return The 99th percentile latency, to within a factor of two. */
+	public long getP99Nanos() {
+		return getPercentileNanos(0.99);
+	}
+
+	/**
+	 * @param fraction Fraction of the timed events, between 0 and 1.
+	 * @return An upper bound on the latency of the given fraction of the timed
+	 *         events.
+	 */
+	public long getPercentileNanos(final double fraction) {
+		final long[] histogram = getHistogram();
+		long n = 0;
+		for (final long c : histogram) {
+			n += c;
+		}
+		if (n == 0) return 0;
+		final long rank = Math.max(1, (long) Math.ceil(fraction * n));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += histogram[b];
+			if (seen >= rank) {
+				final long bound = b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+				return Math.min(bound, getMaxNanos());
+			}
+		}
+		return getMaxNanos();
+	}
+
+	/**
+	 * @return The number of timed events in each bucket: entry {@code b} counts
+	 *         latencies below {@code 2^b} nanoseconds not counted by entry
+	 *         {@code b - 1}.
+	 */
+	public long[] getHistogram() {
+		final long[] histogram = new long[BUCKETS];
+		for (int b = 0; b < BUCKETS; b++) {
+			histogram[b] = buckets.get(b);
+		}
+		return histogram;
+	}
+
+	/** Clears all recorded events. */
+	public void reset() {
+		count.set(0);
+		amount.set(0);
+		timedCount.set(0);
+		totalNanos.set(0);
+		maxNanos.set(0);
+		for (int b = 0; b < BUCKETS; b++) {
+			buckets.set(b, 0);
+		}
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("count=").append(getCount());
+		sb.append(" amount=").append(getAmount());
+		if (getTimedCount() > 0) {
+			sb.append(String.format(" total=%.3fms mean=%.1fus p50<=%.1fus " +
+				"p99<=%.1fus max=%.1fus", getTotalNanos() / 1e6, getMeanNanos() / 1e3,
+				getMedianNanos() / 1e3, getP99Nanos() / 1e3, getMaxNanos() / 1e3));
+		}
+		return sb.toString();
+	}
+
+	// -- Helper methods --
+
+	private static int bucket(final long nanos) {
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A named group of {@link Metric}s, such as all those recorded for one
+ * dataset or one format.
+ *
+ * @author agent
+ */
+public class Metrics {
+
+	// -- Fields --
+
+	private final String name;
+
+	private final ConcurrentMap<String, Metric> metrics =
+		new ConcurrentHashMap<>();
+
+	// -- Constructor --
+
+	public Metrics(final String name) {
+		this.name = name;
+	}
+
+	// -- Metrics API methods --
+
+	/** @return The name of this group. */
+	public String getName() {
+		return name;
+	}
+
+	/** @return The named metric of this group, created if needed. */
+	public Metric get(final String metric) {
+		Metric m = metrics.get(metric);
+		if (m == null) {
+			final Metric created = new Metric();
+			m = metrics.putIfAbsent(metric, created);
+			if (m == null) m = created;
+		}
+		return m;
+	}
+
+	/** @return The metrics of this group, sorted by name. */
+	public Map<String, Metric> getAll() {
+		return Collections.unmodifiableMap(new TreeMap<>(metrics));
+	}
+
+	/**
+	 * Records one event of the named metric.
+	 *
+	 * @see Metric#record(long, long)
+	 */
+	public void record(final String metric, final long nanos,
+		final long amount)
+	{
+		get(metric).record(nanos, amount);
+	}
+
+	/** Clears all metrics of this group. */
+	public void reset() {
+		metrics.clear();
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(name);
+		for (final Map.Entry<String, Metric> entry : getAll().entrySet()) {
+			sb.append("\n  ").append(entry.getKey()).append(": ").append(entry
+				.getValue());
+		}
+		return sb.toString();
+	}
+}
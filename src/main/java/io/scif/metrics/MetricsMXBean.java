@@ -0,0 +1,69 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of a {@link io.scif.services.MetricsService}, registered under
+ * {@code io.scif:type=Metrics} while metrics are enabled.
+ *
+ * @author agent
+ */
+public interface MetricsMXBean {
+
+	/** @return Whether measurements are being recorded. */
+	boolean isEnabled();
+
+	/** @param enabled Whether to record measurements. */
+	void setEnabled(boolean enabled);
+
+	/** Clears all recorded measurements. */
+	void reset();
+
+	/** @return The datasets with recorded measurements. */
+	String[] getDatasets();
+
+	/** @return The formats with recorded measurements. */
+	String[] getFormats();
+
+	/** @return The measurements summed over all datasets. */
+	Map<String, Metric> getTotals();
+
+	/** @return The measurements of the given dataset. */
+	Map<String, Metric> datasetMetrics(String dataset);
+
+	/** @return The measurements of the given format. */
+	Map<String, Metric> formatMetrics(String format);
+
+	/** @return All measurements, formatted for reading. */
+	String getReport();
+}
@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome of a {@link BatchService} run: how many sources succeeded, why the
+ * others failed, and how fast the batch went.
+ *
+ * @author agent
+ */
+public class BatchReport {
+
+	// -- Fields --
+
+	private final int sourceCount;
+
+	private final AtomicLong succeeded = new AtomicLong();
+
+	private final Map<String, Throwable> failures = new LinkedHashMap<>();
+
+	private final AtomicLong inputBytes = new AtomicLong();
+
+	private final AtomicLong decodedBytes = new AtomicLong();
+
+	private final AtomicLong imageCount = new AtomicLong();
+
+	private final AtomicLong planeCount = new AtomicLong();
+
+	private final AtomicLong openNanos = new AtomicLong();
+
+	private final AtomicLong sinkNanos = new AtomicLong();
+
+	private final long start = System.nanoTime();
+
+	private long elapsedNanos = -1;
+
+	// -- Constructor --
+
+	public BatchReport(final int sourceCount) {
+		this.sourceCount = sourceCount;
+	}
+
+	// -- BatchReport methods --
+
+	/** Number of sources in the batch. */
+	public int getSourceCount() {
+		return sourceCount;
+	}
+
+	/** Number of sources opened and consumed without error. */
+	public long getSucceeded() {
+		return succeeded.get();
+	}
+
+	/** Sources that could not be opened or consumed, with the cause. */
+	public synchronized Map<String, Throwable> getFailures() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+	}
+
+	/** Total on-disk size of the sources opened successfully. */
+	public long getInputBytes() {
+		return inputBytes.get();
+	}
+
+	/** Total size of the pixel data opened. */
+	public long getDecodedBytes() {
+		return decodedBytes.get();
+	}
+
+	/** Number of images opened. */
+	public long getImageCount() {
+		return imageCount.get();
+	}
+
+	/** Number of planes opened. */
+	public long getPlaneCount() {
+		return planeCount.get();
+	}
+
+	/** Time spent opening sources, summed over all workers. */
+	public long getOpenNanos() {
+		return openNanos.get();
+	}
+
+	/** Time spent in the sink, summed over all workers. */
+	public long getSinkNanos() {
+		return sinkNanos.get();
+	}
+
+	/** Wall-clock duration of the batch, or of the batch so far if running. */
+	public long getElapsedNanos() {
+		return elapsedNanos < 0 ? System.nanoTime() - start : elapsedNanos;
+	}
+
+	/** Sources completed per second of wall-clock time. */
+	public double getFilesPerSecond() {
+		return perSecond(succeeded.get() + failureCount());
+	}
+
+	/** Megabytes of input read per second of wall-clock time. */
+	public double getMegabytesPerSecond() {
+		return perSecond(inputBytes.get()) / (1024 * 1024);
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return String.format("%d/%d sources converted, %d failed, " +
+			"%d images (%d planes) in %.2fs: %.1f files/s, %.1f MB/s " +
+			"(open %.2fs, sink %.2fs)", succeeded.get(), sourceCount,
+			failureCount(), imageCount.get(), planeCount.get(),
+			getElapsedNanos() / 1e9, getFilesPerSecond(), getMegabytesPerSecond(),
+			openNanos.get() / 1e9, sinkNanos.get() / 1e9);
+	}
+
+	// -- Helper methods --
+
+	void opened(final long bytes, final long decoded, final int images,
+		final long planes, final long nanos)
+	{
+		inputBytes.addAndGet(bytes);
+		decodedBytes.addAndGet(decoded);
+		imageCount.addAndGet(images);
+		planeCount.addAndGet(planes);
+		openNanos.addAndGet(nanos);
+	}
+
+	void consumed(final long nanos) {
+		sinkNanos.addAndGet(nanos);
+		succeeded.incrementAndGet();
+	}
+
+	synchronized void failed(final String source, final Throwable cause) {
+		failures.put(source, cause);
+	}
+
+	void finish() {
+		elapsedNanos = System.nanoTime() - start;
+	}
+
+	private synchronized int failureCount() {
+		return failures.size();
+	}
+
+	private double perSecond(final long amount) {
+		final long nanos = getElapsedNanos();
+		return nanos == 0 ? 0 : amount * 1e9 / nanos;
+	}
+}
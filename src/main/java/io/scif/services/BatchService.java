@@ -0,0 +1,93 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import io.scif.SCIFIOService;
+import io.scif.config.SCIFIOConfig;
+import io.scif.img.SCIFIOImgPlus;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A service for opening or converting many datasets at once. Sources are
+ * opened by a bounded pool of workers and handed to a {@link Sink} through a
+ * bounded queue, so that reading the next files overlaps with consuming the
+ * current ones, while format detection and (if
+ * {@link SCIFIOConfig#parserGetMemoDirectory()} is set) parsed metadata are
+ * shared between all files of the batch.
+ *
+ * @author agent
+ */
+public interface BatchService extends SCIFIOService {
+
+	/**
+	 * Consumer of the images opened from each source of a batch. Sinks are
+	 * called concurrently from several threads.
+	 */
+	interface Sink {
+
+		/**
+		 * @param source The source the images were opened from.
+		 * @param imgs All images of the source requested by the configuration.
+		 */
+		void accept(String source, List<SCIFIOImgPlus<?>> imgs)
+			throws IOException;
+	}
+
+	/**
+	 * Opens each of the given sources and passes its images to the given sink.
+	 * A failure in one source is recorded in the returned report and does not
+	 * stop the batch.
+	 *
+	 * @param sources The sources to open.
+	 * @param config {@link SCIFIOConfig} used to open every source.
+	 * @param threads Number of sources opened, and consumed, concurrently.
+	 * @param sink Consumer of the opened images.
+	 * @return Counts, failures and throughput of the batch.
+	 */
+	BatchReport ingest(List<String> sources, SCIFIOConfig config, int threads,
+		Sink sink);
+
+	/**
+	 * Converts each source to its destination, in the format implied by the
+	 * destination's extension. A source holding several images is written to
+	 * one file per image, with {@code _<index>} inserted before the extension.
+	 *
+	 * @param conversions Destinations, keyed by source.
+	 * @param config {@link SCIFIOConfig} used to open and save every source.
+	 * @param threads Number of sources converted concurrently.
+	 * @return Counts, failures and throughput of the batch.
+	 */
+	BatchReport convert(Map<String, String> conversions, SCIFIOConfig config,
+		int threads);
+}
@@ -0,0 +1,102 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import io.scif.SCIFIOService;
+
+/**
+ * A pool of byte arrays for planes and other large scratch buffers, shared by
+ * readers, codecs and writers so that steady reading or writing reuses the
+ * same few arrays instead of allocating one per plane.
+ * <p>
+ * Arrays are pooled by exact length, since their length is used as the length
+ * of their data. Only buffers whose length is fixed by the image layout, such
+ * as planes, decoded tiles and strips, should be drawn from the pool: buffers
+ * sized to compressed data would hardly ever be reused. Arrays shorter than
+ * {@link #MIN_POOLED_LENGTH} are not pooled. Arrays which are never released
+ * are simply garbage collected.
+ * </p>
+ *
+ * @author agent
+ */
+public interface BufferPoolService extends SCIFIOService {
+
+	/** Length below which arrays are allocated directly and never pooled. */
+	int MIN_POOLED_LENGTH = 4096;
+
+	/**
+	 * Gets a zeroed array of the given length, reusing a released one if
+	 * possible.
+	 */
+	byte[] allocate(int length);
+
+	/**
+	 * Returns the given array to the pool. The caller must own the array: it
+	 * must not be used, by the caller or anyone else, after it is released.
+	 * Arrays which were not allocated from the pool, or which were already
+	 * released, are ignored.
+	 */
+	void release(byte[] buffer);
+
+	/** @return The number of allocations served by a pooled array. */
+	long getHitCount();
+
+	/** @return The number of allocations which created a new array. */
+	long getMissCount();
+
+	/** @return The fraction of allocations served by a pooled array. */
+	double getHitRate();
+
+	/**
+	 * @return The bytes allocated from the pool and not yet released, nor
+	 *         garbage collected.
+	 */
+	long getOutstandingBytes();
+
+	/** @return The bytes of the arrays currently held by the pool. */
+	long getPooledBytes();
+
+	/** @return The maximum number of bytes held by the pool. */
+	long getMaxPooledBytes();
+
+	/**
+	 * @param maxBytes The maximum number of bytes held by the pool. Beyond this,
+	 *          the arrays released longest ago are left to the garbage
+	 *          collector.
+	 */
+	void setMaxPooledBytes(long maxBytes);
+
+	/**
+	 * Drops all pooled arrays and resets the hit and miss counts. Arrays still
+	 * allocated remain outstanding.
+	 */
+	void clear();
+}
@@ -0,0 +1,329 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import io.scif.Format;
+import io.scif.FormatException;
+import io.scif.config.SCIFIOConfig;
+import io.scif.filters.Memoizer;
+import io.scif.filters.MetricsFilter;
+import io.scif.filters.ReaderFilter;
+import io.scif.img.ImgIOException;
+import io.scif.img.ImgOpener;
+import io.scif.img.ImgSaver;
+import io.scif.img.SCIFIOImgPlus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.imglib2.exception.IncompatibleTypeException;
+
+import org.scijava.log.LogService;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.service.AbstractService;
+import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Default {@link BatchService} implementation.
+ * <p>
+ * Each batch runs {@code threads} openers, which claim sources in order and
+ * put the opened images on a queue holding at most {@code threads} sources,
+ * and as many consumers, which take them off the queue and call the sink.
+ * Openers stall when the consumers fall behind, which bounds the memory held
+ * by the batch. The format detected for each file extension is tried first
+ * for later files with the same extension.
+ * </p>
+ *
+ * @author agent
+ */
+@Plugin(type = Service.class)
+public class DefaultBatchService extends AbstractService implements
+	BatchService
+{
+
+	/** Marks the end of the queue for one consumer. */
+	private static final Opened END = new Opened(null, null, null);
+
+	// -- Parameters --
+
+	@Parameter
+	private FormatService formatService;
+
+	@Parameter
+	private MetricsService metricsService;
+
+	@Parameter
+	private ThreadService threadService;
+
+	@Parameter
+	private LogService log;
+
+	// -- BatchService API Methods --
+
+	@Override
+	public BatchReport ingest(final List<String> sources, SCIFIOConfig config,
+		int threads, final Sink sink)
+	{
+		final BatchReport report = new BatchReport(sources.size());
+		if (sources.isEmpty()) {
+			report.finish();
+			return report;
+		}
+		if (config == null) config = new SCIFIOConfig();
+		threads = Math.max(1, Math.min(threads, sources.size()));
+
+		final SCIFIOConfig cfg = config;
+		final BlockingQueue<Opened> queue = new ArrayBlockingQueue<>(threads);
+		final Map<String, Format> formats = new ConcurrentHashMap<>();
+		final AtomicInteger next = new AtomicInteger();
+
+		final List<Future<?>> openers = new ArrayList<>();
+		final List<Future<?>> consumers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			openers.add(threadService.run(() -> open(sources, next, cfg, formats,
+				queue, report)));
+			consumers.add(threadService.run(() -> consume(queue, sink, report)));
+		}
+
+		try {
+			waitFor(openers);
+			for (int i = 0; i < threads; i++) {
+				queue.put(END);
+			}
+			waitFor(consumers);
+		}
+		catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			for (final Future<?> future : openers) {
+				future.cancel(true);
+			}
+			for (final Future<?> future : consumers) {
+				future.cancel(true);
+			}
+			for (Opened item = queue.poll(); item != null; item = queue.poll()) {
+				close(item.reader);
+			}
+		}
+		report.finish();
+		return report;
+	}
+
+	@Override
+	public BatchReport convert(final Map<String, String> conversions,
+		final SCIFIOConfig config, final int threads)
+	{
+		return ingest(new ArrayList<>(conversions.keySet()), config, threads, (
+			source, imgs) -> {
+			final String dest = conversions.get(source);
+			final File parent = new File(dest).getAbsoluteFile().getParentFile();
+			if (parent != null && !parent.exists() && !parent.mkdirs() && !parent
+				.exists())
+			{
+				throw new IOException("Cannot create directory: " + parent);
+			}
+			final ImgSaver saver = new ImgSaver(getContext());
+			for (int i = 0; i < imgs.size(); i++) {
+				final String id = imgs.size() == 1 ? dest : indexed(dest, i);
+				try {
+					saver.saveImg(id, imgs.get(i), 0, config);
+				}
+				catch (final ImgIOException | IncompatibleTypeException e) {
+					throw new IOException(e);
+				}
+			}
+		});
+	}
+
+	// -- Helper methods --
+
+	/** Opens sources until there are none left to claim. */
+	private void open(final List<String> sources, final AtomicInteger next,
+		final SCIFIOConfig config, final Map<String, Format> formats,
+		final BlockingQueue<Opened> queue, final BatchReport report)
+	{
+		final ImgOpener opener = new ImgOpener(getContext());
+		for (int i = next.getAndIncrement(); i < sources.size(); i = next
+			.getAndIncrement())
+		{
+			final String source = sources.get(i);
+			final long start = System.nanoTime();
+			ReaderFilter reader = null;
+			try {
+				reader = createReader(source, config, formats);
+				final List<SCIFIOImgPlus<?>> imgs = opener.openImgs(reader, config);
+				long decoded = 0, planes = 0;
+				for (final SCIFIOImgPlus<?> img : imgs) {
+					decoded += img.getImageMetadata().getSize();
+					planes += img.getImageMetadata().getPlaneCount();
+				}
+				report.opened(new File(source).length(), decoded, imgs.size(), planes,
+					System.nanoTime() - start);
+				queue.put(new Opened(source, reader, imgs));
+			}
+			catch (final InterruptedException e) {
+				close(reader);
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (final Exception | Error e) {
+				// errors must not end the opener while sources are left unclaimed
+				close(reader);
+				log.debug("Could not open " + source, e);
+				report.failed(source, e);
+			}
+		}
+	}
+
+	/** Passes opened sources to the sink until the end marker is taken. */
+	private void consume(final BlockingQueue<Opened> queue, final Sink sink,
+		final BatchReport report)
+	{
+		while (true) {
+			final Opened item;
+			try {
+				item = queue.take();
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (item == END) return;
+			final long start = System.nanoTime();
+			try {
+				sink.accept(item.source, item.imgs);
+				report.consumed(System.nanoTime() - start);
+			}
+			catch (final Exception | Error e) {
+				// errors must not end the consumer, or the openers block on the
+				// full queue
+				log.debug("Could not consume " + item.source, e);
+				report.failed(item.source, e);
+			}
+			finally {
+				close(item.reader);
+			}
+		}
+	}
+
+	/**
+	 * Creates a reader for the given source, trying the format last detected
+	 * for its extension before a full detection.
+	 */
+	private ReaderFilter createReader(final String source,
+		final SCIFIOConfig config, final Map<String, Format> formats)
+		throws FormatException, IOException
+	{
+		final String suffix = suffix(source);
+		Format format = formats.get(suffix);
+		if (format == null || !format.createChecker().isFormat(source, config)) {
+			format = formatService.getFormat(source, config);
+			formats.put(suffix, format);
+		}
+		final ReaderFilter reader = new ReaderFilter(format.createReader());
+		// enable the filters which initializeReader would enable
+		if (metricsService.isEnabled()) reader.enable(MetricsFilter.class);
+		if (config.parserGetMemoDirectory() != null) {
+			// share parsed metadata across batches
+			reader.enable(Memoizer.class);
+		}
+		reader.setSource(source, config);
+		return reader;
+	}
+
+	private void waitFor(final List<Future<?>> futures)
+		throws InterruptedException
+	{
+		for (final Future<?> future : futures) {
+			try {
+				future.get();
+			}
+			catch (final ExecutionException e) {
+				log.error(e.getCause());
+			}
+		}
+	}
+
+	private void close(final ReaderFilter reader) {
+		if (reader == null) return;
+		try {
+			reader.close();
+		}
+		catch (final IOException e) {
+			log.debug(e);
+		}
+	}
+
+	private static String suffix(final String source) {
+		final int dot = source.lastIndexOf('.');
+		if (dot < 0 || dot < source.lastIndexOf(File.separatorChar)) return "";
+		return source.substring(dot + 1).toLowerCase();
+	}
+
+	/** Inserts "_index" before the extension of the given path. */
+	private static String indexed(final String path, final int index) {
+		final int dot = path.lastIndexOf('.');
+		if (dot < 0 || dot < path.lastIndexOf(File.separatorChar)) {
+			return path + "_" + index;
+		}
+		return path.substring(0, dot) + "_" + index + path.substring(dot);
+	}
+
+	// -- Helper classes --
+
+	/** A source whose images are waiting for the sink. */
+	private static class Opened {
+
+		private final String source;
+
+		private final ReaderFilter reader;
+
+		private final List<SCIFIOImgPlus<?>> imgs;
+
+		public Opened(final String source, final ReaderFilter reader,
+			final List<SCIFIOImgPlus<?>> imgs)
+		{
+			this.source = source;
+			this.reader = reader;
+			this.imgs = imgs;
+		}
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.service.AbstractService;
+import org.scijava.service.Service;
+
+/**
+ * Default {@link BufferPoolService} implementation. Released arrays are kept
+ * per length, most recently released first, up to a sixteenth of the maximum
+ * heap size by default. When the pool is full, arrays of the lengths least
+ * recently allocated or released are dropped first, so lengths which are no
+ * longer used do not hold on to memory.
+ * <p>
+ * Allocated arrays are tracked weakly until released, so that arrays which
+ * are never released still count as outstanding only until they are garbage
+ * collected, and so that an array released twice is only pooled once.
+ * </p>
+ *
+ * @author agent
+ */
+@Plugin(type = Service.class)
+public class DefaultBufferPoolService extends AbstractService implements
+	BufferPoolService
+{
+
+	// -- Parameters --
+
+	@Parameter
+	private MetricsService metricsService;
+
+	// -- Fields --
+
+	/** Released arrays by length, in order of last use of the length. */
+	private final Map<Integer, Deque<byte[]>> pools = new LinkedHashMap<>(16,
+		0.75f, true);
+
+	/** Bytes of the arrays in {@link #pools}, guarded by it. */
+	private long pooledBytes;
+
+	/**
+	 * Arrays allocated and not yet released. Arrays are hashed and compared by
+	 * identity, so this is a weak identity set.
+	 */
+	private final Map<byte[], Boolean> outstanding = new WeakHashMap<>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private volatile long maxPooledBytes =
+		Runtime.getRuntime().maxMemory() / 16;
+
+	// -- BufferPoolService API methods --
+
+	@Override
+	public byte[] allocate(final int length) {
+		if (length < MIN_POOLED_LENGTH) return new byte[length];
+
+		byte[] buffer = null;
+		synchronized (pools) {
+			final Deque<byte[]> pool = pools.get(length);
+			if (pool != null) {
+				buffer = pool.pollFirst();
+				if (buffer != null) pooledBytes -= length;
+				if (pool.isEmpty()) pools.remove(length);
+			}
+		}
+		if (buffer != null) {
+			hits.incrementAndGet();
+			metricsService.record(MetricsService.POOL_HIT, -1, length);
+			Arrays.fill(buffer, (byte) 0);
+		}
+		else {
+			misses.incrementAndGet();
+			metricsService.record(MetricsService.POOL_MISS, -1, length);
+			buffer = new byte[length];
+		}
+		synchronized (outstanding) {
+			outstanding.put(buffer, Boolean.TRUE);
+		}
+		return buffer;
+	}
+
+	@Override
+	public void release(final byte[] buffer) {
+		if (buffer == null || buffer.length < MIN_POOLED_LENGTH) return;
+		synchronized (outstanding) {
+			// not from the pool, or released already
+			if (outstanding.remove(buffer) == null) return;
+		}
+		final int length = buffer.length;
+		synchronized (pools) {
+			if (length > maxPooledBytes) return;
+			Deque<byte[]> pool = pools.get(length);
+			if (pool == null) {
+				pool = new ArrayDeque<>();
+				pools.put(length, pool);
+			}
+			pool.offerFirst(buffer);
+			pooledBytes += length;
+			trim(maxPooledBytes);
+		}
+	}
+
+	@Override
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	@Override
+	public double getHitRate() {
+		final long hitCount = hits.get();
+		final long total = hitCount + misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	@Override
+	public long getOutstandingBytes() {
+		long bytes = 0;
+		synchronized (outstanding) {
+			for (final byte[] buffer : outstanding.keySet()) {
+				bytes += buffer.length;
+			}
+		}
+		return bytes;
+	}
+
+	@Override
+	public long getPooledBytes() {
+		synchronized (pools) {
+			return pooledBytes;
+		}
+	}
+
+	@Override
+	public long getMaxPooledBytes() {
+		return maxPooledBytes;
+	}
+
+	@Override
+	public void setMaxPooledBytes(final long maxBytes) {
+		maxPooledBytes = maxBytes;
+		synchronized (pools) {
+			trim(maxBytes);
+		}
+	}
+
+	@Override
+	public void clear() {
+		synchronized (pools) {
+			pools.clear();
+			pooledBytes = 0;
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	// -- Disposable methods --
+
+	@Override
+	public void dispose() {
+		clear();
+		synchronized (outstanding) {
+			outstanding.clear();
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Drops arrays until the pool fits in the given number of bytes, oldest
+	 * first. The caller must hold the lock on {@link #pools}.
+	 */
+	private void trim(final long maxBytes) {
+		final Iterator<Deque<byte[]>> iter = pools.values().iterator();
+		while (pooledBytes > maxBytes && iter.hasNext()) {
+			final Deque<byte[]> pool = iter.next();
+			while (pooledBytes > maxBytes && !pool.isEmpty()) {
+				pooledBytes -= pool.pollLast().length;
+			}
+			if (pool.isEmpty()) iter.remove();
+		}
+	}
+}
@@ -37,6 +37,8 @@ import io.scif.Parser;
 import io.scif.Reader;
 import io.scif.Writer;
 import io.scif.config.SCIFIOConfig;
+import io.scif.filters.Memoizer;
+import io.scif.filters.MetricsFilter;
 import io.scif.filters.ReaderFilter;
 
 import java.io.IOException;
@@ -73,6 +75,9 @@ public class DefaultInitializeService extends AbstractService implements
 	@Parameter
 	private LocationService locationService;
 
+	@Parameter
+	private MetricsService metricsService;
+
 	// -- InitializeService API Methods --
 
 	@Override
@@ -87,6 +92,15 @@ public class DefaultInitializeService extends AbstractService implements
 		final SCIFIOConfig config) throws FormatException, IOException
 	{
 		final Reader r = formatService.getFormat(id, config).createReader();
+		final boolean memoize = config.parserGetMemoDirectory() != null;
+		if (memoize || metricsService.isEnabled()) {
+			// these filters have to see the source being set
+			final ReaderFilter filter = new ReaderFilter(r);
+			if (metricsService.isEnabled()) filter.enable(MetricsFilter.class);
+			if (memoize) filter.enable(Memoizer.class);
+			filter.setSource(id, config);
+			return filter;
+		}
 		r.setSource(id, config);
 		return new ReaderFilter(r);
 	}
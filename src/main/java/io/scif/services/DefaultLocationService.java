@@ -32,6 +32,7 @@ package io.scif.services;
 
 import io.scif.io.IRandomAccess;
 import io.scif.io.IStreamAccess;
+import io.scif.io.MeteredHandle;
 import io.scif.io.NIOFileHandle;
 import io.scif.io.NIOService;
 import io.scif.io.VirtualHandle;
@@ -72,6 +73,9 @@ public class DefaultLocationService extends AbstractService implements
 	@Parameter
 	private PluginService pluginService;
 
+	@Parameter
+	private MetricsService metricsService;
+
 	/** Map from given filenames to actual filenames. */
 	private HashMap<String, Object> idMap = new HashMap<>();
 
@@ -233,6 +237,9 @@ public class DefaultLocationService extends AbstractService implements
 				// but VirtualHandle is an intermediate fix.
 				return new VirtualHandle(mapId);
 			}
+			if (metricsService.isEnabled()) {
+				handle = new MeteredHandle(handle, id, metricsService);
+			}
 		}
 		log.trace("Location.getHandle: " + id + " -> " + handle);
 		return handle;
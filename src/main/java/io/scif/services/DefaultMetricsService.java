@@ -0,0 +1,341 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import io.scif.metrics.Metric;
+import io.scif.metrics.Metrics;
+import io.scif.metrics.MetricsMXBean;
+import io.scif.metrics.MetricsScope;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.scijava.log.LogService;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.service.AbstractService;
+import org.scijava.service.Service;
+
+/**
+ * Default {@link MetricsService} implementation.
+ *
+ * @author agent
+ */
+@Plugin(type = Service.class)
+public class DefaultMetricsService extends AbstractService implements
+	MetricsService
+{
+
+	// -- Constants --
+
+	/** System property enabling metrics when the service is initialized. */
+	public static final String ENABLED_PROPERTY = "scifio.metrics";
+
+	/** Number of most recently measured datasets whose metrics are kept. */
+	public static final int MAX_DATASETS = 1024;
+
+	// -- Parameters --
+
+	@Parameter
+	private LogService log;
+
+	// -- Fields --
+
+	private volatile boolean enabled;
+
+	private final Metrics totals = new Metrics("total");
+
+	/** Metrics of each dataset, least recently measured first. */
+	private final Map<String, Metrics> datasets =
+		new LinkedHashMap<String, Metrics>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(
+				final Map.Entry<String, Metrics> eldest)
+			{
+				return size() > MAX_DATASETS;
+			}
+		};
+
+	private final ConcurrentMap<String, Metrics> formats =
+		new ConcurrentHashMap<>();
+
+	private final ThreadLocal<Scope> scope = new ThreadLocal<>();
+
+	/** Name of the registered MXBean, or null if not registered. */
+	private ObjectName objectName;
+
+	// -- MetricsService API methods --
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+		if (enabled) register();
+	}
+
+	@Override
+	public MetricsScope enter(final String dataset, final String format) {
+		final Scope previous = scope.get();
+		final Scope entered = new Scope(dataset != null || previous == null
+			? dataset : previous.dataset, format != null || previous == null
+				? format : previous.format, previous);
+		scope.set(entered);
+		return entered;
+	}
+
+	@Override
+	public void record(final String metric, final long nanos,
+		final long amount)
+	{
+		record(null, metric, nanos, amount);
+	}
+
+	@Override
+	public void record(final String dataset, final String metric,
+		final long nanos, final long amount)
+	{
+		if (!enabled) return;
+		totals.record(metric, nanos, amount);
+		final Scope current = scope.get();
+		final String d = current != null && current.dataset != null
+			? current.dataset : dataset;
+		if (d != null) dataset(d).record(metric, nanos, amount);
+		if (current != null && current.format != null) {
+			group(formats, current.format).record(metric, nanos, amount);
+		}
+	}
+
+	@Override
+	public Metrics getTotals() {
+		return totals;
+	}
+
+	@Override
+	public Map<String, Metrics> getDatasetMetrics() {
+		synchronized (datasets) {
+			return Collections.unmodifiableMap(new TreeMap<>(datasets));
+		}
+	}
+
+	@Override
+	public Map<String, Metrics> getFormatMetrics() {
+		return Collections.unmodifiableMap(new TreeMap<>(formats));
+	}
+
+	@Override
+	public void reset() {
+		totals.reset();
+		synchronized (datasets) {
+			datasets.clear();
+		}
+		formats.clear();
+	}
+
+	// -- Service methods --
+
+	@Override
+	public void initialize() {
+		if (Boolean.getBoolean(ENABLED_PROPERTY)) setEnabled(true);
+	}
+
+	// -- Disposable methods --
+
+	@Override
+	public void dispose() {
+		enabled = false;
+		unregister();
+	}
+
+	// -- Helper methods --
+
+	private Metrics dataset(final String name) {
+		synchronized (datasets) {
+			Metrics metrics = datasets.get(name);
+			if (metrics == null) {
+				metrics = new Metrics(name);
+				datasets.put(name, metrics);
+			}
+			return metrics;
+		}
+	}
+
+	private Metrics group(final ConcurrentMap<String, Metrics> groups,
+		final String name)
+	{
+		Metrics metrics = groups.get(name);
+		if (metrics == null) {
+			final Metrics created = new Metrics(name);
+			metrics = groups.putIfAbsent(name, created);
+			if (metrics == null) metrics = created;
+		}
+		return metrics;
+	}
+
+	private synchronized void register() {
+		if (objectName != null) return;
+		try {
+			final ObjectName name = new ObjectName("io.scif:type=Metrics,context=" +
+				Integer.toHexString(System.identityHashCode(getContext())));
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (!server.isRegistered(name)) server.registerMBean(new MXBean(), name);
+			objectName = name;
+		}
+		catch (final JMException | SecurityException e) {
+			log.warn("Could not register metrics with JMX", e);
+		}
+	}
+
+	private synchronized void unregister() {
+		if (objectName == null) return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		}
+		catch (final JMException | SecurityException e) {
+			log.debug(e);
+		}
+		objectName = null;
+	}
+
+	private static Map<String, Metric> all(final Metrics metrics) {
+		return metrics == null ? Collections.<String, Metric> emptyMap() : metrics
+			.getAll();
+	}
+
+	// -- Helper classes --
+
+	/** A {@link MetricsScope} restoring the previous scope of its thread. */
+	private class Scope implements MetricsScope {
+
+		private final String dataset;
+
+		private final String format;
+
+		private final Scope previous;
+
+		public Scope(final String dataset, final String format,
+			final Scope previous)
+		{
+			this.dataset = dataset;
+			this.format = format;
+			this.previous = previous;
+		}
+
+		@Override
+		public String getDataset() {
+			return dataset;
+		}
+
+		@Override
+		public String getFormat() {
+			return format;
+		}
+
+		@Override
+		public void close() {
+			if (previous == null) scope.remove();
+			else scope.set(previous);
+		}
+	}
+
+	/** JMX view of this service. */
+	private class MXBean implements MetricsMXBean {
+
+		@Override
+		public boolean isEnabled() {
+			return DefaultMetricsService.this.isEnabled();
+		}
+
+		@Override
+		public void setEnabled(final boolean enabled) {
+			DefaultMetricsService.this.setEnabled(enabled);
+		}
+
+		@Override
+		public void reset() {
+			DefaultMetricsService.this.reset();
+		}
+
+		@Override
+		public String[] getDatasets() {
+			return getDatasetMetrics().keySet().toArray(new String[0]);
+		}
+
+		@Override
+		public String[] getFormats() {
+			return getFormatMetrics().keySet().toArray(new String[0]);
+		}
+
+		@Override
+		public Map<String, Metric> getTotals() {
+			return totals.getAll();
+		}
+
+		@Override
+		public Map<String, Metric> datasetMetrics(final String dataset) {
+			final Metrics metrics;
+			synchronized (datasets) {
+				metrics = datasets.get(dataset);
+			}
+			return all(metrics);
+		}
+
+		@Override
+		public Map<String, Metric> formatMetrics(final String format) {
+			return all(formats.get(format));
+		}
+
+		@Override
+		public String getReport() {
+			final StringBuilder sb = new StringBuilder(totals.toString());
+			for (final Metrics metrics : getFormatMetrics().values()) {
+				sb.append("\nformat ").append(metrics);
+			}
+			for (final Metrics metrics : getDatasetMetrics().values()) {
+				sb.append("\ndataset ").append(metrics);
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import io.scif.FormatException;
+import io.scif.ImageMetadata;
+import io.scif.Reader;
+import io.scif.util.FormatTools;
+import io.scif.util.KeyedFileStore;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.scijava.log.LogService;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+import org.scijava.service.AbstractService;
+import org.scijava.service.Service;
+
+/**
+ * Default {@link ThumbnailService} implementation.
+ * <p>
+ * Thumbnails are kept in a {@link KeyedFileStore}. Each is named after the
+ * file's canonical path, the SCIFIO version, the {@link io.scif.Format}, the
+ * image and plane indices and the thumbnail size, and records the file's size
+ * and modification time, so stale thumbnails are replaced. Sources which are
+ * not local files are never stored.
+ * </p>
+ *
+ * @author agent
+ */
+@Plugin(type = Service.class)
+public class DefaultThumbnailService extends AbstractService implements
+	ThumbnailService
+{
+
+	private static final String SUFFIX = ".thumb";
+
+	// -- Parameters --
+
+	@Parameter
+	private FormatService formatService;
+
+	@Parameter
+	private LogService log;
+
+	// -- Fields --
+
+	private File directory;
+
+	// -- ThumbnailService API Methods --
+
+	@Override
+	public File getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public void setDirectory(final File directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public byte[] openThumbBytes(final Reader reader, final int imageIndex,
+		final long planeIndex) throws FormatException, IOException
+	{
+		final String source = reader.getCurrentFile();
+		final File file = source == null ? null : new File(source);
+		final KeyedFileStore store =
+			directory == null ? null : new KeyedFileStore(directory, SUFFIX, log);
+		if (store == null || file == null || !file.isFile() || !store.isTrusted())
+		{
+			return FormatTools.openThumbBytes(reader, imageIndex, planeIndex);
+		}
+
+		final String id = key(reader, file, imageIndex, planeIndex);
+		final String state = KeyedFileStore.state(file);
+		final String key = id + "|" + state;
+		byte[] thumb = store.load(id, key, in -> {
+			final byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return bytes;
+		});
+		if (thumb == null) {
+			thumb = FormatTools.openThumbBytes(reader, imageIndex, planeIndex);
+			// do not store a thumbnail of a file which changed meanwhile
+			if (state.equals(KeyedFileStore.state(file))) {
+				final byte[] bytes = thumb;
+				store.save(id, key, out -> {
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				});
+			}
+		}
+		return thumb;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * @return A key identifying the given file, and the thumbnail requested.
+	 */
+	private String key(final Reader reader, final File file,
+		final int imageIndex, final long planeIndex) throws IOException
+	{
+		final ImageMetadata iMeta = reader.getMetadata().get(imageIndex);
+		return KeyedFileStore.id(file, formatService.getVersion(), reader
+			.getFormat().getClass().getName(), imageIndex, planeIndex, iMeta
+				.getThumbSizeX() + "x" + iMeta.getThumbSizeY());
+	}
+}
@@ -137,6 +137,9 @@ public class JAIIIOServiceImpl extends AbstractService implements JAIIIOService
 		if (options.resolution != null) {
 			param.setResolution(options.resolution.intValue());
 		}
+		if (options.region != null) {
+			param.setSourceRegion(options.region);
+		}
 		return reader.read(0, param);
 	}
 
@@ -160,6 +163,9 @@ public class JAIIIOServiceImpl extends AbstractService implements JAIIIOService
 		if (options.resolution != null) {
 			param.setResolution(options.resolution.intValue());
 		}
+		if (options.region != null) {
+			param.setSourceRegion(options.region);
+		}
 		return reader.readRaster(0, param);
 	}
 
@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import io.scif.SCIFIOService;
+import io.scif.metrics.Metric;
+import io.scif.metrics.Metrics;
+import io.scif.metrics.MetricsScope;
+
+import java.util.Map;
+
+/**
+ * Opt-in instrumentation of SCIFIO's I/O and decoding paths.
+ * <p>
+ * While enabled, handles from the {@link LocationService} count the bytes
+ * read and written and the seeks made, readers from the
+ * {@link InitializeService} time parsing and {@code openPlane}, and codecs,
+ * plane conversion, the cell cache, the buffer pool and the
+ * {@link io.scif.img.ImgSaver} record their own stages. Each measurement is
+ * added to the totals, to the dataset and to the format of the current
+ * {@link MetricsScope}. Metrics can also be enabled with the
+ * {@code scifio.metrics} system property, and are then exposed over JMX as a
+ * {@link io.scif.metrics.MetricsMXBean}.
+ * </p>
+ *
+ * @author agent
+ */
+public interface MetricsService extends SCIFIOService {
+
+	// -- Metric names --
+
+	/** Bulk reads from a handle; amount is bytes. */
+	String READ = "io.read";
+
+	/** Seeks to a new position of a handle; amount is the distance. */
+	String SEEK = "io.seek";
+
+	/** Bulk writes to a handle; amount is bytes. */
+	String WRITE = "io.write";
+
+	/** Parsing of a dataset by {@code Reader.setSource}. */
+	String PARSE = "reader.parse";
+
+	/** Calls to {@code Reader.openPlane}; amount is bytes. */
+	String OPEN_PLANE = "reader.openPlane";
+
+	/** Prefix of codec decompressions, followed by the codec name. */
+	String DECOMPRESS = "codec.decompress.";
+
+	/** Conversion of planes into images by a {@code PlaneConverter}. */
+	String CONVERT = "opener.convert";
+
+	/** Cells found in the cell cache. */
+	String CACHE_HIT = "cache.hit";
+
+	/** Cells loaded because they were not in the cell cache. */
+	String CACHE_MISS = "cache.miss";
+
+	/** Setup of the writer's metadata by the {@code ImgSaver}. */
+	String SAVE_METADATA = "saver.metadata";
+
+	/** Extraction of planes from an image by the {@code ImgSaver}. */
+	String SAVE_CONVERT = "saver.convert";
+
+	/** Calls to {@code Writer.savePlane}; amount is bytes. */
+	String SAVE_WRITE = "saver.write";
+
+	/** Arrays reused from the {@link BufferPoolService}; amount is bytes. */
+	String POOL_HIT = "pool.hit";
+
+	/** Arrays the {@link BufferPoolService} had to create; amount is bytes. */
+	String POOL_MISS = "pool.miss";
+
+	// -- MetricsService API methods --
+
+	/** @return Whether measurements are being recorded. */
+	boolean isEnabled();
+
+	/**
+	 * @param enabled Whether to record measurements. Components check this
+	 *          when they are created, so enable metrics before opening the
+	 *          datasets to measure.
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Attributes the measurements made on this thread to the given dataset and
+	 * format, until the returned scope is closed.
+	 *
+	 * @param dataset The dataset, or null to keep the current one.
+	 * @param format The format name, or null to keep the current one.
+	 */
+	MetricsScope enter(String dataset, String format);
+
+	/**
+	 * Records an event in the current scope.
+	 *
+	 * @see Metric#record(long, long)
+	 */
+	void record(String metric, long nanos, long amount);
+
+	/**
+	 * Records an event in the current scope, or for the given dataset if the
+	 * scope has none.
+	 *
+	 * @see Metric#record(long, long)
+	 */
+	void record(String dataset, String metric, long nanos, long amount);
+
+	/** @return The measurements summed over all datasets. */
+	Metrics getTotals();
+
+	/**
+	 * @return The measurements of each dataset, by dataset. Implementations may
+	 *         keep only the most recently measured datasets.
+	 */
+	Map<String, Metrics> getDatasetMetrics();
+
+	/** @return The measurements of each format, by format name. */
+	Map<String, Metrics> getFormatMetrics();
+
+	/** Clears all recorded measurements. */
+	void reset();
+}
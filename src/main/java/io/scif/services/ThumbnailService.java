@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import io.scif.FormatException;
+import io.scif.Reader;
+import io.scif.SCIFIOService;
+import io.scif.util.FormatTools;
+import io.scif.util.KeyedFileStore;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A service for thumbnails of many files, such as those shown by a file
+ * browser. Thumbnails are built by {@link FormatTools#openThumbBytes}, the
+ * default implementation of {@link Reader#openThumbPlane(int, long)}, from the
+ * smallest suitable resolution level. If a store directory is set, they are
+ * then kept there, so that a file is only decoded again once it changes.
+ *
+ * @author agent
+ */
+public interface ThumbnailService extends SCIFIOService {
+
+	/**
+	 * @return The directory of the thumbnail store, or null (the default) if
+	 *         thumbnails are not stored.
+	 */
+	File getDirectory();
+
+	/**
+	 * @param directory The directory of the thumbnail store, or null to not store
+	 *          thumbnails. It must be owned by the current user and writable by
+	 *          no one else, as described by {@link KeyedFileStore}.
+	 */
+	void setDirectory(File directory);
+
+	/**
+	 * Gets the thumbnail of the given plane, from the store if it holds one for
+	 * the current state of the reader's file.
+	 *
+	 * @return The bytes of the thumbnail, as from
+	 *         {@link FormatTools#openThumbBytes}.
+	 */
+	byte[] openThumbBytes(Reader reader, int imageIndex, long planeIndex)
+		throws FormatException, IOException;
+}
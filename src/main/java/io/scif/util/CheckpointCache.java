@@ -0,0 +1,201 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A bounded cache of decoded frames of an inter-frame compressed movie, kept
+ * every few frames so that any frame can be reached by decoding at most that
+ * many frames forward from a checkpoint.
+ * <p>
+ * Checkpoints are held in memory up to a byte budget, least recently used
+ * first out. When a spill directory is given, evicted checkpoints are written
+ * there instead of being dropped; the files are deleted on {@link #close()}.
+ * Frames are copied in and out, since codecs decode into their reference
+ * frame in place.
+ * </p>
+ *
+ * @author agent
+ */
+public class CheckpointCache implements Closeable {
+
+	// -- Fields --
+
+	/** Number of frames between two checkpoints. */
+	private final int interval;
+
+	/** Maximum number of bytes of checkpoints held in memory. */
+	private final long maxMemory;
+
+	/** Directory for evicted checkpoints, or null to drop them. */
+	private final File directory;
+
+	/** Indices of all available checkpoints. */
+	private final TreeSet<Long> frames = new TreeSet<>();
+
+	/** Checkpoints held in memory, least recently used first. */
+	private final LinkedHashMap<Long, byte[]> resident = new LinkedHashMap<>(16,
+		0.75f, true);
+
+	/** Checkpoints written to the spill directory. */
+	private final Map<Long, File> spilled = new HashMap<>();
+
+	/** Number of bytes of checkpoints held in memory. */
+	private long memory;
+
+	// -- Constructor --
+
+	/**
+	 * @param interval Number of frames between two checkpoints.
+	 * @param maxMemory Maximum number of bytes of checkpoints held in memory.
+	 * @param directory Directory for checkpoints evicted from memory, or null to
+	 *          drop them.
+	 */
+	public CheckpointCache(final int interval, final long maxMemory,
+		final File directory)
+	{
+		if (interval < 1) {
+			throw new IllegalArgumentException("Invalid interval: " + interval);
+		}
+		this.interval = interval;
+		this.maxMemory = maxMemory;
+		this.directory = directory;
+	}
+
+	// -- CheckpointCache methods --
+
+	/**
+	 * @return The number of frames between two checkpoints.
+	 */
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return True if the given frame should be kept as a checkpoint.
+	 */
+	public boolean isCheckpoint(final long frame) {
+		return frame % interval == 0;
+	}
+
+	/**
+	 * Keeps a copy of the given decoded frame, if it is a checkpoint not yet
+	 * held.
+	 */
+	public synchronized void put(final long frame, final byte[] pixels)
+		throws IOException
+	{
+		if (!isCheckpoint(frame) || frames.contains(frame)) return;
+		frames.add(frame);
+		resident.put(frame, pixels.clone());
+		memory += pixels.length;
+		evict();
+	}
+
+	/**
+	 * @return The index of the last checkpoint at or before the given frame, or
+	 *         -1 if there is none.
+	 */
+	public synchronized long nearest(final long frame) {
+		final Long checkpoint = frames.floor(frame);
+		return checkpoint == null ? -1 : checkpoint;
+	}
+
+	/**
+	 * @return A copy of the given checkpoint, or null if it is not held.
+	 */
+	public synchronized byte[] get(final long frame) throws IOException {
+		byte[] pixels = resident.get(frame);
+		if (pixels == null) {
+			final File file = spilled.get(frame);
+			if (file == null) return null;
+			pixels = Files.readAllBytes(file.toPath());
+			resident.put(frame, pixels);
+			memory += pixels.length;
+			evict();
+		}
+		return pixels.clone();
+	}
+
+	// -- Closeable API methods --
+
+	@Override
+	public synchronized void close() {
+		for (final File file : spilled.values()) {
+			file.delete();
+		}
+		spilled.clear();
+		resident.clear();
+		frames.clear();
+		memory = 0;
+	}
+
+	// -- Helper methods --
+
+	/** Moves least recently used checkpoints out of memory, over budget. */
+	private void evict() throws IOException {
+		final Iterator<Map.Entry<Long, byte[]>> iter =
+			resident.entrySet().iterator();
+		while (memory > maxMemory && iter.hasNext()) {
+			final Map.Entry<Long, byte[]> entry = iter.next();
+			final Long frame = entry.getKey();
+			final byte[] pixels = entry.getValue();
+			if (directory == null) {
+				frames.remove(frame);
+			}
+			else if (!spilled.containsKey(frame)) {
+				// NB: no deleteOnExit, whose list would grow with every spilled
+				// checkpoint; the files are deleted on close instead
+				final File file = File.createTempFile("checkpoint-" + frame, ".raw",
+					directory);
+				try {
+					Files.write(file.toPath(), pixels);
+				}
+				catch (final IOException e) {
+					file.delete();
+					throw e;
+				}
+				spilled.put(frame, file);
+			}
+			memory -= pixels.length;
+			iter.remove();
+		}
+	}
+}
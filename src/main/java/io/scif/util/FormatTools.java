@@ -36,8 +36,6 @@ import io.scif.Metadata;
 import io.scif.Plane;
 import io.scif.Reader;
 import io.scif.Writer;
-import io.scif.common.ReflectException;
-import io.scif.common.ReflectedUniverse;
 import io.scif.config.SCIFIOConfig;
 import io.scif.io.RandomAccessInputStream;
 
@@ -998,95 +996,59 @@ public final class FormatTools {
 	// -- Utility methods -- other
 
 	/**
-	 * Default implementation for {@link Reader#openThumbPlane(int, long)}. At the
-	 * moment, it uses {@link java.awt.image.BufferedImage} objects to resize
-	 * thumbnails, so it is not safe for use in headless contexts. In the future,
-	 * we may reimplement the image scaling logic purely with byte arrays, but
-	 * handling every case would be substantial effort, so doing so is currently a
-	 * low priority item.
+	 * Default implementation for {@link Reader#openThumbPlane(int, long)}. The
+	 * plane is opened at the smallest resolution level at least as large as the
+	 * thumbnail, and scaled down with {@link ImageTools#scaleBox}. The result
+	 * has the layout and pixel type of the image, with the X and Y lengths of
+	 * {@link ImageMetadata#getThumbSizeX()} and
+	 * {@link ImageMetadata#getThumbSizeY()}.
 	 */
 	public static byte[] openThumbBytes(final Reader reader,
 		final int imageIndex, final long planeIndex) throws FormatException,
 		IOException
 	{
-		// NB: Dependency on AWT here is unfortunate, but very difficult to
-		// eliminate in general. We use reflection to limit class loading
-		// problems with AWT on Mac OS X.
-		final ReflectedUniverse r = new ReflectedUniverse(reader.log());
-		byte[][] bytes = null;
-		try {
-			r.exec("import io.scif.gui.AWTImageTools");
-
-			final long planeSize = getPlaneSize(reader, imageIndex);
-			Plane plane = null;
-			if (planeSize < 0) {
-				final Metadata m = reader.getMetadata();
-				final long[] planeMax = m.get(imageIndex).getAxesLengthsPlanar();
-				final long[] planeMin = new long[planeMax.length];
-
-				final int xIndex = m.get(imageIndex).getAxisIndex(Axes.X);
-				final int yIndex = m.get(imageIndex).getAxisIndex(Axes.Y);
-				final long width = m.get(imageIndex).getThumbSizeX() * 4;
-				final long height = m.get(imageIndex).getThumbSizeY() * 4;
-
-				planeMin[xIndex] =
-					(m.get(imageIndex).getAxisLength(Axes.X) - width) / 2;
-				planeMin[yIndex] =
-					(m.get(imageIndex).getAxisLength(Axes.Y) - height) / 2;
-				planeMax[xIndex] = width;
-				planeMax[yIndex] = height;
-
-				plane = reader.openPlane(imageIndex, planeIndex, planeMin, planeMax);
-			}
-			else {
-				plane = reader.openPlane(imageIndex, planeIndex);
+		final ImageMetadata iMeta = reader.getMetadata().get(imageIndex);
+		final int xIndex = iMeta.getAxisIndex(Axes.X);
+		final int yIndex = iMeta.getAxisIndex(Axes.Y);
+		final long thumbSizeX = iMeta.getThumbSizeX();
+		final long thumbSizeY = iMeta.getThumbSizeY();
+
+		// the smallest resolution level at least as large as the thumbnail
+		int resolution = 0;
+		for (int r = iMeta.getResolutionCount() - 1; r > 0; r--) {
+			final long[] lengths = iMeta.getAxesLengthsPlanar(r);
+			if (lengths[xIndex] >= thumbSizeX && lengths[yIndex] >= thumbSizeY) {
+				resolution = r;
+				break;
 			}
-
-			r.setVar("plane", plane);
-			r.setVar("reader", reader);
-			r.setVar("sizeX", reader.getMetadata().get(imageIndex).getAxisLength(
-				Axes.X));
-			r.setVar("sizeY", reader.getMetadata().get(imageIndex).getAxisLength(
-				Axes.Y));
-			r.setVar("thumbSizeX", reader.getMetadata().get(imageIndex)
-				.getThumbSizeX());
-			r.setVar("thumbSizeY", reader.getMetadata().get(imageIndex)
-				.getThumbSizeY());
-			r.setVar("little", reader.getMetadata().get(imageIndex).isLittleEndian());
-			r.setVar("imageIndex", imageIndex);
-			r.exec("thumb = AWTImageTools.openThumbImage(plane, reader, imageIndex, sizeX, sizeY,"
-				+ " thumbSizeX, thumbSizeY, false)");
-
-			bytes = (byte[][]) r.exec("AWTImageTools.getPixelBytes(thumb, little)");
-		}
-		catch (final ReflectException exc) {
-			throw new FormatException(exc);
 		}
 
-		if (bytes.length == 1) return bytes[0];
-		final long rgbChannelCount =
-			reader.getMetadata().get(imageIndex).getAxisLength(Axes.CHANNEL);
-		final byte[] rtn = new byte[(int) rgbChannelCount * bytes[0].length];
-
-		if (!(reader.getMetadata().get(imageIndex).getInterleavedAxisCount() > 0)) {
-			for (int i = 0; i < rgbChannelCount; i++) {
-				System
-					.arraycopy(bytes[i], 0, rtn, bytes[0].length * i, bytes[i].length);
-			}
+		final long[] planeMax = iMeta.getAxesLengthsPlanar(resolution);
+		final long[] planeMin = new long[planeMax.length];
+		if (resolution == 0 && getPlaneSize(reader, imageIndex) < 0) {
+			// too large for one array: use the middle of the plane instead
+			final long width = Math.min(thumbSizeX * 4, planeMax[xIndex]);
+			final long height = Math.min(thumbSizeY * 4, planeMax[yIndex]);
+			planeMin[xIndex] = (planeMax[xIndex] - width) / 2;
+			planeMin[yIndex] = (planeMax[yIndex] - height) / 2;
+			planeMax[xIndex] = width;
+			planeMax[yIndex] = height;
 		}
-		else {
-			final int bpp =
-				FormatTools.getBytesPerPixel(reader.getMetadata().get(imageIndex)
-					.getPixelType());
-
-			for (int i = 0; i < bytes[0].length / bpp; i += bpp) {
-				for (int j = 0; j < rgbChannelCount; j++) {
-					System.arraycopy(bytes[j], i, rtn, (int) (i * rgbChannelCount) + j *
-						bpp, bpp);
-				}
-			}
+		final Plane plane =
+			reader.openPlane(imageIndex, planeIndex, resolution, planeMin, planeMax);
+
+		// samples of the axes before X vary fastest, then X, Y and the rest
+		int inner = 1, outer = 1;
+		for (int i = 0; i < planeMax.length; i++) {
+			if (i < xIndex) inner *= planeMax[i];
+			else if (i > yIndex) outer *= planeMax[i];
 		}
-		return rtn;
+		final int pixelType = iMeta.getPixelType();
+		return ImageTools.scaleBox(plane.getBytes(), (int) planeMax[xIndex],
+			(int) planeMax[yIndex], inner, outer, getBytesPerPixel(pixelType),
+			isFloatingPoint(pixelType), iMeta.isLittleEndian(), isSigned(pixelType),
+			(int) Math.min(thumbSizeX, planeMax[xIndex]), (int) Math.min(
+				thumbSizeY, planeMax[yIndex]));
 	}
 
 	// -- Conversion convenience methods --
@@ -30,6 +30,8 @@
 
 package io.scif.util;
 
+import java.util.Arrays;
+
 import org.scijava.util.ArrayUtils;
 import org.scijava.util.Bytes;
 
@@ -217,7 +219,8 @@ public final class ImageTools {
 	{
 		if (planeLength == array.length) {
 			if (rtn != null) {
-				System.arraycopy(array, 0, rtn, 0, rtn.length);
+				System.arraycopy(array, 0, rtn, 0, Math.min(array.length,
+					rtn.length));
 			}
 			return array;
 		}
@@ -239,17 +242,34 @@ public final class ImageTools {
 				(int) planeLength);
 		}
 		else {
-			int next = 0;
 			// TODO may need to do more to sort out the actual axis order
-			for (int i = 0; i < array.length; i +=
-				bytes * ArrayUtils.safeMultiply32(maxLengths))
-			{
-				for (int k = 0; k < bytes; k++) {
-					if (next < rtn.length) rtn[next] =
-						array[(int) (i + index * bytes + k)];
-					next++;
+			final int stride = bytes * ArrayUtils.safeMultiply32(maxLengths);
+			final int groups = (array.length + stride - 1) / stride;
+			final int pixels = Math.min(groups, rtn.length / bytes);
+			int src = (int) (index * bytes);
+			if (bytes == 1) {
+				for (int next = 0; next < pixels; next++, src += stride) {
+					rtn[next] = array[src];
+				}
+			}
+			else if (bytes == 2) {
+				for (int next = 0; next < 2 * pixels; next += 2, src += stride) {
+					rtn[next] = array[src];
+					rtn[next + 1] = array[src + 1];
 				}
 			}
+			else {
+				for (int next = 0; next < bytes * pixels; next += bytes, src += stride)
+				{
+					System.arraycopy(array, src, rtn, next, bytes);
+				}
+			}
+			// copy what fits of a trailing pixel
+			final int tail = rtn.length - bytes * pixels;
+			if (pixels < groups && tail > 0) {
+				System.arraycopy(array, (int) (index * bytes) + pixels * stride, rtn,
+					bytes * pixels, tail);
+			}
 		}
 		return rtn;
 	}
@@ -571,6 +591,84 @@ public final class ImageTools {
 		return dest;
 	}
 
+	/**
+	 * Scales a plane down by averaging the source pixels covered by each
+	 * destination pixel. The plane is laid out as {@code outer} blocks of
+	 * {@code height} rows of {@code width} pixels, each of {@code inner}
+	 * samples; so an interleaved RGB plane has {@code inner = 3} and a planar
+	 * one {@code outer = 3}.
+	 *
+	 * @param src Source plane.
+	 * @param width Width of the source plane.
+	 * @param height Height of the source plane.
+	 * @param inner Number of samples per pixel.
+	 * @param outer Number of consecutive width x height blocks.
+	 * @param bpp Number of bytes per sample.
+	 * @param fp Whether samples are floating point.
+	 * @param little Whether samples are little-endian.
+	 * @param signed Whether integer samples are signed.
+	 * @param newWidth Width of the scaled plane, at most {@code width}.
+	 * @param newHeight Height of the scaled plane, at most {@code height}.
+	 * @return The scaled plane, in the same layout and sample type.
+	 */
+	public static byte[] scaleBox(final byte[] src, final int width,
+		final int height, final int inner, final int outer, final int bpp,
+		final boolean fp, final boolean little, final boolean signed,
+		final int newWidth, final int newHeight)
+	{
+		final byte[] dest = new byte[newWidth * newHeight * inner * outer * bpp];
+
+		// source columns and rows covered by each destination pixel
+		final int[] x0 = new int[newWidth + 1];
+		final int[] y0 = new int[newHeight + 1];
+		for (int x = 0; x <= newWidth; x++) {
+			x0[x] = (int) ((long) x * width / newWidth);
+		}
+		for (int y = 0; y <= newHeight; y++) {
+			y0[y] = (int) ((long) y * height / newHeight);
+		}
+
+		final int rowLen = width * inner;
+		final double[] sums = new double[newWidth * inner];
+		for (int o = 0; o < outer; o++) {
+			final int srcBlock = o * height * rowLen;
+			final int destBlock = o * newHeight * newWidth * inner;
+			for (int y = 0; y < newHeight; y++) {
+				Arrays.fill(sums, 0);
+				for (int row = y0[y]; row < y0[y + 1]; row++) {
+					final int srcRow = srcBlock + row * rowLen;
+					for (int x = 0; x < newWidth; x++) {
+						for (int col = x0[x]; col < x0[x + 1]; col++) {
+							for (int i = 0; i < inner; i++) {
+								sums[x * inner + i] +=
+									sample(src, (srcRow + col * inner + i) * bpp, bpp, fp,
+										little, signed);
+							}
+						}
+					}
+				}
+				final int destRow = destBlock + y * newWidth * inner;
+				for (int x = 0; x < newWidth; x++) {
+					final int count = (x0[x + 1] - x0[x]) * (y0[y + 1] - y0[y]);
+					for (int i = 0; i < inner; i++) {
+						final double mean = sums[x * inner + i] / count;
+						final int ndx = (destRow + x * inner + i) * bpp;
+						if (fp && bpp == 4) {
+							Bytes.unpack(Float.floatToIntBits((float) mean), dest, ndx, bpp,
+								little);
+						}
+						else if (fp) {
+							Bytes.unpack(Double.doubleToLongBits(mean), dest, ndx, bpp,
+								little);
+						}
+						else Bytes.unpack(Math.round(mean), dest, ndx, bpp, little);
+					}
+				}
+			}
+		}
+		return dest;
+	}
+
 	// -- Indexed color conversion --
 
 	/** Converts a LUT and an array of indices into an array of RGB tuples. */
@@ -585,6 +683,64 @@ public final class ImageTools {
 		return rtn;
 	}
 
+	/**
+	 * Expands an array of indices into the values of the given lookup tables,
+	 * one table per channel. The channels are written into {@code buf}
+	 * interleaved (RGBRGB...) or planar (RR...GG...BB...), until it is full.
+	 *
+	 * @param lut lookup tables, indexed by channel and then by index value
+	 * @param b the indices, each {@code bytesPerIndex} bytes long
+	 * @param bytesPerIndex number of bytes per index
+	 * @param le true if multi-byte indices are little-endian
+	 * @param interleaved true to interleave the channels
+	 * @param buf the buffer to fill
+	 */
+	public static void indexedToRGB(final byte[][] lut, final byte[] b,
+		final int bytesPerIndex, final boolean le, final boolean interleaved,
+		final byte[] buf)
+	{
+		final int channels = lut.length;
+		final int count = b.length / bytesPerIndex;
+		if (interleaved) {
+			final int n = Math.min(count, buf.length / channels);
+			if (bytesPerIndex == 1 && channels == 3) {
+				final byte[] r = lut[0], g = lut[1], bl = lut[2];
+				for (int i = 0, pt = 0; i < n; i++, pt += 3) {
+					final int v = b[i] & 0xff;
+					buf[pt] = r[v];
+					buf[pt + 1] = g[v];
+					buf[pt + 2] = bl[v];
+				}
+			}
+			else {
+				int pt = 0;
+				for (int i = 0; i < n; i++) {
+					final int v = index(b, i, bytesPerIndex, le);
+					for (int j = 0; j < channels; j++) {
+						buf[pt++] = lut[j][v];
+					}
+				}
+			}
+		}
+		else {
+			int pt = 0;
+			for (int j = 0; j < channels && pt < buf.length; j++) {
+				final byte[] table = lut[j];
+				final int n = Math.min(count, buf.length - pt);
+				if (bytesPerIndex == 1) {
+					for (int i = 0; i < n; i++) {
+						buf[pt++] = table[b[i] & 0xff];
+					}
+				}
+				else {
+					for (int i = 0; i < n; i++) {
+						buf[pt++] = table[index(b, i, bytesPerIndex, le)];
+					}
+				}
+			}
+		}
+	}
+
 	/** Converts a LUT and an array of indices into an array of RGB tuples. */
 	public static short[][] indexedToRGB(final short[][] lut, final byte[] b,
 		final boolean le)
@@ -800,4 +956,29 @@ public final class ImageTools {
 		}
 	}
 
+	// -- Helper methods --
+
+	/** Reads one sample of the given type. */
+	private static double sample(final byte[] b, final int ndx, final int bpp,
+		final boolean fp, final boolean little, final boolean signed)
+	{
+		if (fp && bpp == 4) return Bytes.toFloat(b, ndx, bpp, little);
+		if (fp) return Bytes.toDouble(b, ndx, bpp, little);
+		final long value = Bytes.toLong(b, ndx, bpp, little);
+		if (!signed || bpp == 8) return value;
+		final int shift = 64 - 8 * bpp;
+		return (value << shift) >> shift;
+	}
+
+	/** Reads the index at the given position of an array of indices. */
+	private static int index(final byte[] b, final int i,
+		final int bytesPerIndex, final boolean le)
+	{
+		if (bytesPerIndex == 2) {
+			final int o = 2 * i;
+			return le ? (b[o] & 0xff) | (b[o + 1] & 0xff) << 8 : (b[o] & 0xff) << 8 |
+				(b[o + 1] & 0xff);
+		}
+		return Bytes.toInt(b, i * bytesPerIndex, bytesPerIndex, le);
+	}
 }
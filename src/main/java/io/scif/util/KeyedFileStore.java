@@ -0,0 +1,290 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.scijava.log.LogService;
+
+/**
+ * A directory of persistent entries, such as memoized metadata or thumbnails.
+ * <p>
+ * Each entry is stored in a file named after the digest of its id, and holds
+ * a key describing what it was computed from, e.g. the size and modification
+ * time of a file. An entry is only returned while its key matches, so stale
+ * entries are replaced rather than orphaned. Entries are written to a
+ * temporary file and then moved into place, so concurrent readers never see
+ * partial entries; entries which can not be decoded are deleted.
+ * </p>
+ * <p>
+ * As entries are trusted when decoded, the directory must be owned by the
+ * current user and, where POSIX permissions are supported, writable by no one
+ * else; see {@link #isTrusted()}.
+ * </p>
+ *
+ * @author agent
+ */
+public class KeyedFileStore {
+
+	// -- Nested types --
+
+	/** Writes the content of an entry. */
+	public interface Encoder {
+
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	/** Reads the content of an entry. */
+	public interface Decoder<T> {
+
+		T read(DataInputStream in) throws IOException;
+	}
+
+	// -- Fields --
+
+	private final File directory;
+
+	private final String suffix;
+
+	private final LogService log;
+
+	// -- Constructor --
+
+	/**
+	 * @param directory The directory holding the entries.
+	 * @param suffix The suffix of the entry file names.
+	 * @param log Where to report entries which can not be used.
+	 */
+	public KeyedFileStore(final File directory, final String suffix,
+		final LogService log)
+	{
+		this.directory = directory;
+		this.suffix = suffix;
+		this.log = log;
+	}
+
+	// -- KeyedFileStore API methods --
+
+	/** @return The directory holding the entries. */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/** @return The file which holds, or would hold, the entry of the given id. */
+	public File getFile(final String id) {
+		return new File(directory, digest(id) + suffix);
+	}
+
+	/**
+	 * Ensures the directory exists, creating it accessible to the current user
+	 * only.
+	 *
+	 * @return True if the directory is owned by the current user and, where
+	 *         POSIX permissions are supported, not writable by anyone else.
+	 */
+	public boolean isTrusted() {
+		final Path path = directory.toPath();
+		try {
+			if (!directory.isDirectory()) {
+				if (path.getFileSystem().supportedFileAttributeViews().contains(
+					"posix"))
+				{
+					Files.createDirectories(path, PosixFilePermissions
+						.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+				}
+				else Files.createDirectories(path);
+			}
+			final UserPrincipal user =
+				path.getFileSystem().getUserPrincipalLookupService()
+					.lookupPrincipalByName(System.getProperty("user.name"));
+			if (!user.equals(Files.getOwner(path))) {
+				log.warn("Not using " + directory + ": it is not owned by " + user);
+				return false;
+			}
+			if (Files.getFileStore(path).supportsFileAttributeView(
+				PosixFileAttributeView.class))
+			{
+				final Set<PosixFilePermission> perms =
+					Files.getPosixFilePermissions(path);
+				if (perms.contains(PosixFilePermission.GROUP_WRITE) ||
+					perms.contains(PosixFilePermission.OTHERS_WRITE))
+				{
+					log.warn("Not using " + directory + ": it is writable by others");
+					return false;
+				}
+			}
+			return true;
+		}
+		catch (final IOException | RuntimeException e) {
+			log.debug("Unable to use " + directory, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the entry of the given id, if its key matches. Entries with another
+	 * key, or which can not be decoded, are deleted.
+	 *
+	 * @return The decoded entry, or null if there is none for the key.
+	 */
+	public <T> T load(final String id, final String key,
+		final Decoder<T> decoder)
+	{
+		final File file = getFile(id);
+		if (!file.isFile()) return null;
+		try (DataInputStream in =
+			new DataInputStream(new InflaterInputStream(new BufferedInputStream(
+				new FileInputStream(file)))))
+		{
+			if (!key.equals(in.readUTF())) {
+				log.debug("Discarding stale entry " + file);
+				delete(file);
+				return null;
+			}
+			return decoder.read(in);
+		}
+		catch (final IOException | RuntimeException e) {
+			log.debug("Discarding unreadable entry " + file, e);
+			delete(file);
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the entry of the given id. Failures only prevent the entry from
+	 * being stored.
+	 *
+	 * @return True if the entry was stored.
+	 */
+	public boolean save(final String id, final String key,
+		final Encoder encoder)
+	{
+		final File file = getFile(id);
+		File temp = null;
+		try {
+			temp =
+				Files.createTempFile(directory.toPath(), file.getName(), ".tmp")
+					.toFile();
+			try (DataOutputStream out =
+				new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(
+					new FileOutputStream(temp)), new Deflater(Deflater.BEST_SPEED))))
+			{
+				out.writeUTF(key);
+				encoder.write(out);
+			}
+			try {
+				Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (final AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		}
+		catch (final IOException | RuntimeException e) {
+			log.debug("Unable to store " + file, e);
+			if (temp != null) delete(temp);
+			return false;
+		}
+	}
+
+	// -- Utility methods --
+
+	/**
+	 * @return An id for the entry of the given file, made of its canonical path
+	 *         and the given parts, e.g. how the file is read.
+	 */
+	public static String id(final File file, final Object... parts)
+		throws IOException
+	{
+		final StringBuilder sb = new StringBuilder(file.getCanonicalPath());
+		for (final Object part : parts) {
+			sb.append('|').append(part);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return A key identifying the current state of the given file: its size
+	 *         and modification time.
+	 */
+	public static String state(final File file) {
+		return file.length() + "|" + file.lastModified();
+	}
+
+	// -- Helper methods --
+
+	private void delete(final File file) {
+		if (file.exists() && !file.delete()) {
+			log.debug("Unable to delete " + file);
+		}
+	}
+
+	private static String digest(final String s) {
+		try {
+			final byte[] hash =
+				MessageDigest.getInstance("SHA-1").digest(
+					s.getBytes(StandardCharsets.UTF_8));
+			final StringBuilder sb = new StringBuilder();
+			for (final byte b : hash) {
+				sb.append(String.format("%02x", b & 0xff));
+			}
+			return sb.toString();
+		}
+		catch (final NoSuchAlgorithmException e) {
+			// SHA-1 is required of every Java platform
+			throw new IllegalStateException(e);
+		}
+	}
+}
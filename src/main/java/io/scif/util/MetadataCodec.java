@@ -0,0 +1,851 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.util;
+
+import io.scif.Format;
+import io.scif.ImageMetadata;
+import io.scif.MetaTable;
+import io.scif.Metadata;
+import io.scif.SCIFIO;
+import io.scif.codec.CodecOptions;
+import io.scif.io.RandomAccessInputStream;
+import io.scif.services.FormatService;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.Vector;
+
+import net.imagej.axis.Axes;
+import net.imagej.axis.AxisType;
+import net.imagej.axis.CalibratedAxis;
+
+import org.scijava.Context;
+import org.scijava.Contextual;
+import org.scijava.service.Service;
+
+/**
+ * Compact binary encoding of fully populated {@link Metadata} objects.
+ * <p>
+ * Unlike {@link MetadataSerializer}, this encoding does not rely on Java
+ * serialization: the non-static, non-transient fields of each object are
+ * written reflectively, with class descriptors and repeated objects written
+ * only once. References to context-bound objects - the {@link Context}, its
+ * {@link Service}s, {@link Format}s and {@link RandomAccessInputStream}s - are
+ * not encoded but re-bound when decoding, the latter to the source stream of
+ * the decoded {@code Metadata}. Fields declared by SciJava classes are left to
+ * the {@code Metadata} instance created by its {@code Format}, and decoded
+ * {@link Contextual} objects are given the decoding context.
+ * </p>
+ * <p>
+ * Only metadata model types are decoded: {@code Metadata},
+ * {@code ImageMetadata}, {@code MetaTable} and {@code CodecOptions}
+ * implementations, the IFD types of {@code io.scif.formats.tiff}, other helper
+ * classes nested in a {@code Format}, calibrated axes, and the common
+ * {@code java.util} collections. These are created with their no-argument
+ * constructor or, failing that, their shortest constructor given default
+ * arguments, before their fields are restored. Encoding fails with a
+ * {@link NotSerializableException} when the graph holds any other object,
+ * except for boxed primitives, strings, files and arrays.
+ * </p>
+ *
+ * @author agent
+ */
+public class MetadataCodec {
+
+	// -- Constants --
+
+	private static final int MAGIC = 0x53434d43;
+
+	private static final int VERSION = 1;
+
+	private static final int NULL = 0, REF = 1, STRING = 2, BOOLEAN = 3,
+			BYTE = 4, SHORT = 5, CHAR = 6, INT = 7, LONG = 8, FLOAT = 9, DOUBLE = 10,
+			ENUM = 11, ARRAY = 12, OBJECT = 13, COLLECTION = 14, MAP = 15,
+			AXIS = 16, FILE = 17, CLASS = 18, STREAM = 19, CONTEXT = 20,
+			SERVICE = 21, FORMAT = 22, GATEWAY = 23;
+
+	/** Platform collections which may be decoded. */
+	private static final Set<Class<?>> COLLECTION_TYPES = new HashSet<>(Arrays
+		.asList(ArrayList.class, LinkedList.class, Vector.class, HashSet.class,
+			LinkedHashSet.class, TreeSet.class, HashMap.class, LinkedHashMap.class,
+			TreeMap.class, Hashtable.class));
+
+	/** Platform types which may be the component type of a decoded array. */
+	private static final Set<Class<?>> VALUE_TYPES = new HashSet<>(Arrays
+		.asList(Object.class, String.class, Boolean.class, Byte.class,
+			Short.class, Character.class, Integer.class, Long.class, Float.class,
+			Double.class, Number.class, File.class, Class.class));
+
+	// -- Fields --
+
+	private final Context context;
+
+	/** Cached encoded fields of each class. */
+	private final Map<Class<?>, Field[]> fieldCache = new HashMap<>();
+
+	/** Classes known to be decodable. */
+	private final Set<Class<?>> encodable = new HashSet<>();
+
+	// -- Constructor --
+
+	public MetadataCodec(final Context context) {
+		this.context = context;
+	}
+
+	// -- MetadataCodec API --
+
+	/**
+	 * Encodes the given {@link Metadata}.
+	 *
+	 * @throws NotSerializableException if the metadata references an object
+	 *           which can not be encoded.
+	 */
+	public void write(final Metadata meta, final DataOutput out)
+		throws IOException
+	{
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		new Encoder(out).writeRoot(meta);
+	}
+
+	/**
+	 * Decodes {@link Metadata} written by {@link #write} into the given instance,
+	 * which should be freshly created by its {@link Format}. All stream
+	 * references are bound to {@code source}.
+	 */
+	public void read(final Metadata meta, final DataInput in,
+		final RandomAccessInputStream source) throws IOException
+	{
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new StreamCorruptedException("Not an encoded Metadata stream");
+		}
+		new Decoder(in, source).readRoot(meta);
+		meta.setSource(source);
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * @return true if the given class is not part of the metadata model, and
+	 *         thus can not be encoded reflectively.
+	 */
+	private static boolean isPlatform(final Class<?> c) {
+		final String name = c.getName();
+		return name.startsWith("java.") || name.startsWith("javax.") ||
+			name.startsWith("sun.") || name.startsWith("org.scijava.");
+	}
+
+	/**
+	 * @return The non-static, non-transient fields declared by the given class
+	 *         and its non-platform superclasses.
+	 */
+	private Field[] fields(final Class<?> c) {
+		Field[] fields = fieldCache.get(c);
+		if (fields == null) {
+			final List<Field> list = new ArrayList<>();
+			for (Class<?> k = c; k != null && !isPlatform(k); k = k.getSuperclass()) {
+				for (final Field f : k.getDeclaredFields()) {
+					final int mods = f.getModifiers();
+					if (Modifier.isStatic(mods) || Modifier.isTransient(mods)) continue;
+					f.setAccessible(true);
+					list.add(f);
+				}
+			}
+			fields = list.toArray(new Field[list.size()]);
+			fieldCache.put(c, fields);
+		}
+		return fields;
+	}
+
+	/** @return true if instances of the given class are encoded field-wise. */
+	private static boolean hasFields(final Class<?> c) {
+		return !c.isArray() && !c.isEnum() && !isPlatform(c) &&
+			!Service.class.isAssignableFrom(c) && !Format.class.isAssignableFrom(c);
+	}
+
+	private static String key(final Field f) {
+		return f.getDeclaringClass().getName() + "#" + f.getName();
+	}
+
+	/**
+	 * @return true if instances of the given class may be decoded: arrays of
+	 *         primitive, interface, boxed or decodable types, the platform
+	 *         collections of {@link #COLLECTION_TYPES}, and metadata model types.
+	 */
+	private static boolean isAllowed(final Class<?> c) {
+		if (c.isArray()) {
+			final Class<?> type = c.getComponentType();
+			return type.isPrimitive() || type.isInterface() ||
+				VALUE_TYPES.contains(type) || isAllowed(type);
+		}
+		if (COLLECTION_TYPES.contains(c)) return true;
+		final String name = c.getName();
+		if (name.startsWith("net.imagej.axis.")) {
+			return c.isEnum() || CalibratedAxis.class.isAssignableFrom(c);
+		}
+		if (!name.startsWith("io.scif.")) return false;
+		if (c.isEnum() || Metadata.class.isAssignableFrom(c) ||
+			ImageMetadata.class.isAssignableFrom(c) ||
+			MetaTable.class.isAssignableFrom(c) ||
+			CodecOptions.class.isAssignableFrom(c))
+		{
+			return true;
+		}
+		// no parsers, readers, services or other context-bound helpers
+		if (Contextual.class.isAssignableFrom(c)) return false;
+		// IFDs, their entries and values
+		if (c.getPackage() != null &&
+			c.getPackage().getName().equals("io.scif.formats.tiff"))
+		{
+			return true;
+		}
+		// format-specific records
+		for (Class<?> k = c.getEnclosingClass(); k != null; k =
+			k.getEnclosingClass())
+		{
+			if (Format.class.isAssignableFrom(k)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The class used to encode a platform collection or map, or null if
+	 *         it can not be encoded.
+	 */
+	private static Class<?> platformType(final Object o) {
+		final Class<?> c = o.getClass();
+		if (o instanceof SortedSet) {
+			return ((SortedSet<?>) o).comparator() == null ? TreeSet.class : null;
+		}
+		if (o instanceof SortedMap) {
+			return ((SortedMap<?, ?>) o).comparator() == null ? TreeMap.class
+				: null;
+		}
+		if (COLLECTION_TYPES.contains(c)) return c;
+		if (o instanceof List) return ArrayList.class;
+		if (o instanceof Set) return LinkedHashSet.class;
+		if (o instanceof Map) return LinkedHashMap.class;
+		return null;
+	}
+
+	/**
+	 * Creates an instance of the given class with its no-argument constructor
+	 * or, failing that, its shortest constructor given null, zero or false
+	 * arguments. The fields of the instance are overwritten when decoding.
+	 */
+	private static Object instantiate(final Class<?> c) throws IOException {
+		try {
+			Constructor<?> ctor = null;
+			for (final Constructor<?> candidate : c.getDeclaredConstructors()) {
+				final int count = candidate.getParameterTypes().length;
+				if (ctor == null || count < ctor.getParameterTypes().length) {
+					ctor = candidate;
+				}
+			}
+			if (ctor == null) throw new NoSuchMethodException(c.getName());
+			final Class<?>[] types = ctor.getParameterTypes();
+			final Object[] args = new Object[types.length];
+			for (int i = 0; i < types.length; i++) {
+				if (types[i].isPrimitive()) {
+					args[i] = Array.get(Array.newInstance(types[i], 1), 0);
+				}
+			}
+			ctor.setAccessible(true);
+			return ctor.newInstance(args);
+		}
+		catch (final ReflectiveOperationException | RuntimeException e) {
+			final IOException exc =
+				new InvalidClassException(c.getName(), "Can not instantiate");
+			exc.initCause(e);
+			throw exc;
+		}
+	}
+
+	/**
+	 * @return The class of the given name, if it may be decoded or is a
+	 *         {@link Service} or {@link Format} class.
+	 */
+	private static Class<?> loadClass(final String name) throws IOException {
+		final Class<?> c;
+		try {
+			c = Class.forName(name, false, MetadataCodec.class.getClassLoader());
+		}
+		catch (final ClassNotFoundException e) {
+			final IOException exc = new InvalidClassException(name, "Not found");
+			exc.initCause(e);
+			throw exc;
+		}
+		if (!isAllowed(c) && !Service.class.isAssignableFrom(c) &&
+			!Format.class.isAssignableFrom(c))
+		{
+			throw new InvalidClassException(name, "Not a metadata type");
+		}
+		return c;
+	}
+
+	private static void writeVarInt(final DataOutput out, int v)
+		throws IOException
+	{
+		while ((v & ~0x7f) != 0) {
+			out.writeByte((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	private static int readVarInt(final DataInput in) throws IOException {
+		int v = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final int b = in.readUnsignedByte();
+			v |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) return v;
+		}
+		throw new StreamCorruptedException("Malformed length");
+	}
+
+	private static void writeString(final DataOutput out, final String s)
+		throws IOException
+	{
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(final DataInput in) throws IOException {
+		final byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// -- Helper classes --
+
+	/** Writes one object graph. */
+	private class Encoder {
+
+		private final DataOutput out;
+
+		private final Map<Object, Integer> handles = new IdentityHashMap<>();
+
+		private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+		public Encoder(final DataOutput out) {
+			this.out = out;
+		}
+
+		public void writeRoot(final Metadata meta) throws IOException {
+			handles.put(meta, handles.size());
+			writeClass(meta.getClass());
+			writeFields(meta);
+		}
+
+		/**
+		 * Ensures that instances of the given class can be decoded, so that
+		 * metadata which could not be restored is never written.
+		 */
+		private void checkEncodable(final Class<?> c) throws IOException {
+			if (encodable.contains(c)) return;
+			if (!isAllowed(c)) throw new NotSerializableException(c.getName());
+			if (!c.isArray() && !c.isEnum()) {
+				try {
+					instantiate(c);
+				}
+				catch (final IOException e) {
+					final IOException exc = new NotSerializableException(c.getName());
+					exc.initCause(e);
+					throw exc;
+				}
+			}
+			encodable.add(c);
+		}
+
+		private void writeClass(final Class<?> c) throws IOException {
+			final Integer index = classes.get(c);
+			if (index != null) {
+				writeVarInt(out, index);
+				return;
+			}
+			writeVarInt(out, classes.size());
+			classes.put(c, classes.size());
+			writeString(out, c.getName());
+			final Field[] fields = hasFields(c) ? fields(c) : new Field[0];
+			writeVarInt(out, fields.length);
+			for (final Field f : fields) {
+				writeString(out, key(f));
+			}
+		}
+
+		private void writeFields(final Object o) throws IOException {
+			try {
+				for (final Field f : fields(o.getClass())) {
+					final Class<?> type = f.getType();
+					if (type == boolean.class) out.writeBoolean(f.getBoolean(o));
+					else if (type == byte.class) out.writeByte(f.getByte(o));
+					else if (type == short.class) out.writeShort(f.getShort(o));
+					else if (type == char.class) out.writeChar(f.getChar(o));
+					else if (type == int.class) out.writeInt(f.getInt(o));
+					else if (type == long.class) out.writeLong(f.getLong(o));
+					else if (type == float.class) out.writeFloat(f.getFloat(o));
+					else if (type == double.class) out.writeDouble(f.getDouble(o));
+					else writeValue(f.get(o));
+				}
+			}
+			catch (final IllegalAccessException e) {
+				throw new IOException(e);
+			}
+		}
+
+		private void writeValue(final Object o) throws IOException {
+			if (o == null) {
+				out.writeByte(NULL);
+				return;
+			}
+			final Integer handle = handles.get(o);
+			if (handle != null) {
+				out.writeByte(REF);
+				writeVarInt(out, handle);
+				return;
+			}
+			if (o instanceof String) {
+				handles.put(o, handles.size());
+				out.writeByte(STRING);
+				writeString(out, (String) o);
+			}
+			else if (o instanceof Boolean) {
+				out.writeByte(BOOLEAN);
+				out.writeBoolean((Boolean) o);
+			}
+			else if (o instanceof Byte) {
+				out.writeByte(BYTE);
+				out.writeByte((Byte) o);
+			}
+			else if (o instanceof Short) {
+				out.writeByte(SHORT);
+				out.writeShort((Short) o);
+			}
+			else if (o instanceof Character) {
+				out.writeByte(CHAR);
+				out.writeChar((Character) o);
+			}
+			else if (o instanceof Integer) {
+				out.writeByte(INT);
+				out.writeInt((Integer) o);
+			}
+			else if (o instanceof Long) {
+				out.writeByte(LONG);
+				out.writeLong((Long) o);
+			}
+			else if (o instanceof Float) {
+				out.writeByte(FLOAT);
+				out.writeFloat((Float) o);
+			}
+			else if (o instanceof Double) {
+				out.writeByte(DOUBLE);
+				out.writeDouble((Double) o);
+			}
+			else if (o instanceof Enum) {
+				checkEncodable(((Enum<?>) o).getDeclaringClass());
+				out.writeByte(ENUM);
+				writeClass(((Enum<?>) o).getDeclaringClass());
+				writeString(out, ((Enum<?>) o).name());
+			}
+			else if (o instanceof AxisType) {
+				out.writeByte(AXIS);
+				writeString(out, ((AxisType) o).getLabel());
+				out.writeBoolean(((AxisType) o).isSpatial());
+			}
+			else if (o instanceof File) {
+				out.writeByte(FILE);
+				writeString(out, ((File) o).getPath());
+			}
+			else if (o instanceof Class) {
+				final Class<?> c = (Class<?>) o;
+				if (!isAllowed(c) && !Service.class.isAssignableFrom(c) &&
+					!Format.class.isAssignableFrom(c))
+				{
+					throw new NotSerializableException(c.getName());
+				}
+				out.writeByte(CLASS);
+				writeString(out, c.getName());
+			}
+			else if (o instanceof RandomAccessInputStream) {
+				out.writeByte(STREAM);
+			}
+			else if (o instanceof Context) {
+				out.writeByte(CONTEXT);
+			}
+			else if (o instanceof Service) {
+				out.writeByte(SERVICE);
+				writeClass(o.getClass());
+			}
+			else if (o instanceof Format) {
+				out.writeByte(FORMAT);
+				writeClass(o.getClass());
+			}
+			else if (o instanceof SCIFIO) {
+				out.writeByte(GATEWAY);
+			}
+			else if (o.getClass().isArray()) {
+				writeArray(o);
+			}
+			else if (o instanceof Collection || o instanceof Map) {
+				final boolean platform = isPlatform(o.getClass());
+				final Class<?> c = platform ? platformType(o) : o.getClass();
+				if (c == null) throw new NotSerializableException(o.getClass().getName());
+				checkEncodable(c);
+				handles.put(o, handles.size());
+				if (o instanceof Collection) {
+					out.writeByte(COLLECTION);
+					writeClass(c);
+					final Collection<?> collection = (Collection<?>) o;
+					writeVarInt(out, collection.size());
+					for (final Object element : collection) {
+						writeValue(element);
+					}
+				}
+				else {
+					out.writeByte(MAP);
+					writeClass(c);
+					final Map<?, ?> map = (Map<?, ?>) o;
+					writeVarInt(out, map.size());
+					for (final Map.Entry<?, ?> entry : map.entrySet()) {
+						writeValue(entry.getKey());
+						writeValue(entry.getValue());
+					}
+				}
+				if (!platform) writeFields(o);
+			}
+			else if (isPlatform(o.getClass())) {
+				throw new NotSerializableException(o.getClass().getName());
+			}
+			else {
+				checkEncodable(o.getClass());
+				handles.put(o, handles.size());
+				out.writeByte(OBJECT);
+				writeClass(o.getClass());
+				writeFields(o);
+			}
+		}
+
+		private void writeArray(final Object array) throws IOException {
+			checkEncodable(array.getClass());
+			handles.put(array, handles.size());
+			out.writeByte(ARRAY);
+			writeClass(array.getClass());
+			final int length = Array.getLength(array);
+			writeVarInt(out, length);
+			final Class<?> type = array.getClass().getComponentType();
+			if (type == byte.class) {
+				out.write((byte[]) array);
+			}
+			else if (type.isPrimitive()) {
+				for (int i = 0; i < length; i++) {
+					if (type == boolean.class) out.writeBoolean(Array.getBoolean(array, i));
+					else if (type == short.class) out.writeShort(Array.getShort(array, i));
+					else if (type == char.class) out.writeChar(Array.getChar(array, i));
+					else if (type == int.class) out.writeInt(Array.getInt(array, i));
+					else if (type == long.class) out.writeLong(Array.getLong(array, i));
+					else if (type == float.class) out.writeFloat(Array.getFloat(array, i));
+					else out.writeDouble(Array.getDouble(array, i));
+				}
+			}
+			else {
+				for (final Object element : (Object[]) array) {
+					writeValue(element);
+				}
+			}
+		}
+	}
+
+	/** Reads one object graph. */
+	private class Decoder {
+
+		private final DataInput in;
+
+		private final RandomAccessInputStream source;
+
+		private final List<Object> handles = new ArrayList<>();
+
+		private final List<Class<?>> classes = new ArrayList<>();
+
+		private final List<Field[]> classFields = new ArrayList<>();
+
+		private final List<Contextual> contextuals = new ArrayList<>();
+
+		public Decoder(final DataInput in, final RandomAccessInputStream source) {
+			this.in = in;
+			this.source = source;
+		}
+
+		public void readRoot(final Metadata meta) throws IOException {
+			handles.add(meta);
+			final int index = readClass();
+			if (classes.get(index) != meta.getClass()) {
+				throw new InvalidClassException(meta.getClass().getName(),
+					"Encoded metadata is a " + classes.get(index).getName());
+			}
+			readFields(meta, index);
+			for (final Contextual c : contextuals) {
+				c.setContext(context);
+			}
+		}
+
+		private int readClass() throws IOException {
+			final int index = readVarInt(in);
+			if (index < classes.size()) return index;
+			if (index != classes.size()) {
+				throw new StreamCorruptedException("Invalid class index: " + index);
+			}
+			final String name = readString(in);
+			final Class<?> c = loadClass(name);
+			final Map<String, Field> available = new HashMap<>();
+			if (hasFields(c)) {
+				for (final Field f : fields(c)) {
+					available.put(key(f), f);
+				}
+			}
+			final Field[] fields = new Field[readVarInt(in)];
+			for (int i = 0; i < fields.length; i++) {
+				final String key = readString(in);
+				fields[i] = available.get(key);
+				if (fields[i] == null) {
+					throw new InvalidClassException(name, "No field " + key);
+				}
+			}
+			classes.add(c);
+			classFields.add(fields);
+			return index;
+		}
+
+		/**
+		 * Reads a class descriptor, ensuring that the class can be decoded with
+		 * the given tag.
+		 */
+		private int readClass(final int tag) throws IOException {
+			final int index = readClass();
+			final Class<?> c = classes.get(index);
+			final boolean valid;
+			switch (tag) {
+				case ENUM:
+					valid = c.isEnum();
+					break;
+				case ARRAY:
+					valid = c.isArray();
+					break;
+				case SERVICE:
+					valid = Service.class.isAssignableFrom(c);
+					break;
+				case FORMAT:
+					valid = Format.class.isAssignableFrom(c);
+					break;
+				case COLLECTION:
+					valid = isAllowed(c) && Collection.class.isAssignableFrom(c);
+					break;
+				case MAP:
+					valid = isAllowed(c) && Map.class.isAssignableFrom(c);
+					break;
+				default:
+					valid = isAllowed(c) && hasFields(c);
+			}
+			if (!valid) {
+				throw new InvalidClassException(c.getName(), "Unexpected for tag " +
+					tag);
+			}
+			return index;
+		}
+
+		private void readFields(final Object o, final int classIndex)
+			throws IOException
+		{
+			try {
+				for (final Field f : classFields.get(classIndex)) {
+					final Class<?> type = f.getType();
+					if (type == boolean.class) f.setBoolean(o, in.readBoolean());
+					else if (type == byte.class) f.setByte(o, in.readByte());
+					else if (type == short.class) f.setShort(o, in.readShort());
+					else if (type == char.class) f.setChar(o, in.readChar());
+					else if (type == int.class) f.setInt(o, in.readInt());
+					else if (type == long.class) f.setLong(o, in.readLong());
+					else if (type == float.class) f.setFloat(o, in.readFloat());
+					else if (type == double.class) f.setDouble(o, in.readDouble());
+					else f.set(o, readValue());
+				}
+			}
+			catch (final IllegalAccessException | IllegalArgumentException e) {
+				final IOException exc =
+					new InvalidClassException(o.getClass().getName(), e.getMessage());
+				exc.initCause(e);
+				throw exc;
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object readValue() throws IOException {
+			final int tag = in.readUnsignedByte();
+			switch (tag) {
+				case NULL:
+					return null;
+				case REF:
+					final int handle = readVarInt(in);
+					if (handle >= handles.size()) {
+						throw new StreamCorruptedException("Invalid reference: " + handle);
+					}
+					return handles.get(handle);
+				case STRING:
+					final String s = readString(in);
+					handles.add(s);
+					return s;
+				case BOOLEAN:
+					return in.readBoolean();
+				case BYTE:
+					return in.readByte();
+				case SHORT:
+					return in.readShort();
+				case CHAR:
+					return in.readChar();
+				case INT:
+					return in.readInt();
+				case LONG:
+					return in.readLong();
+				case FLOAT:
+					return in.readFloat();
+				case DOUBLE:
+					return in.readDouble();
+				case ENUM:
+					final Class enumClass = classes.get(readClass(ENUM));
+					try {
+						return Enum.valueOf(enumClass, readString(in));
+					}
+					catch (final IllegalArgumentException e) {
+						throw new InvalidClassException(enumClass.getName(), e.getMessage());
+					}
+				case AXIS:
+					final String label = readString(in);
+					return Axes.get(label, in.readBoolean());
+				case FILE:
+					return new File(readString(in));
+				case CLASS:
+					return loadClass(readString(in));
+				case STREAM:
+					return source;
+				case CONTEXT:
+					return context;
+				case SERVICE:
+					return context.getService((Class<Service>) classes.get(
+						readClass(SERVICE)));
+				case FORMAT:
+					return context.getService(FormatService.class).getFormatFromClass(
+						(Class<Format>) classes.get(readClass(FORMAT)));
+				case GATEWAY:
+					return new SCIFIO(context);
+				case ARRAY:
+					return readArray();
+				case OBJECT:
+				case COLLECTION:
+				case MAP:
+					final int index = readClass(tag);
+					final Object o = instantiate(classes.get(index));
+					handles.add(o);
+					if (tag == COLLECTION) {
+						final Collection collection = (Collection) o;
+						for (int i = readVarInt(in); i > 0; i--) {
+							collection.add(readValue());
+						}
+					}
+					else if (tag == MAP) {
+						final Map map = (Map) o;
+						for (int i = readVarInt(in); i > 0; i--) {
+							map.put(readValue(), readValue());
+						}
+					}
+					readFields(o, index);
+					if (o instanceof Contextual) contextuals.add((Contextual) o);
+					return o;
+				default:
+					throw new StreamCorruptedException("Invalid tag: " + tag);
+			}
+		}
+
+		private Object readArray() throws IOException {
+			final Class<?> type = classes.get(readClass(ARRAY)).getComponentType();
+			final int length = readVarInt(in);
+			final Object array = Array.newInstance(type, length);
+			handles.add(array);
+			if (type == byte.class) {
+				in.readFully((byte[]) array);
+			}
+			else if (type.isPrimitive()) {
+				for (int i = 0; i < length; i++) {
+					if (type == boolean.class) Array.setBoolean(array, i, in.readBoolean());
+					else if (type == short.class) Array.setShort(array, i, in.readShort());
+					else if (type == char.class) Array.setChar(array, i, in.readChar());
+					else if (type == int.class) Array.setInt(array, i, in.readInt());
+					else if (type == long.class) Array.setLong(array, i, in.readLong());
+					else if (type == float.class) Array.setFloat(array, i, in.readFloat());
+					else Array.setDouble(array, i, in.readDouble());
+				}
+			}
+			else {
+				final Object[] elements = (Object[]) array;
+				for (int i = 0; i < length; i++) {
+					elements[i] = readValue();
+				}
+			}
+			return array;
+		}
+	}
+}
@@ -47,6 +47,8 @@ import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.regex.Matcher;
@@ -57,6 +59,10 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
@@ -115,6 +121,29 @@ public class DefaultXMLService extends AbstractService implements XMLService {
 			}
 		};
 
+	/*
+	 * Java XML factories and parsers are not declared to be thread safe, so each
+	 * thread reuses its own. A parser is taken out of its slot while in use, so
+	 * that parsing reentrantly from a handler gets a fresh one.
+	 */
+
+	private final ThreadLocal<SAXParser> saxParsers = new ThreadLocal<>();
+
+	private final ThreadLocal<DocumentBuilder> documentBuilders =
+		new ThreadLocal<>();
+
+	private final ThreadLocal<XMLInputFactory> inputFactories =
+		new ThreadLocal<XMLInputFactory>() {
+
+			@Override
+			protected XMLInputFactory initialValue() {
+				final XMLInputFactory factory = XMLInputFactory.newInstance();
+				factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+					false);
+				return factory;
+			}
+		};
+
 	// -- XML to/from DOM --
 
 	@Override
@@ -154,11 +183,32 @@ public class DefaultXMLService extends AbstractService implements XMLService {
 			is.markSupported() ? is : new BufferedInputStream(is);
 		checkUTF8(in);
 
-		// Java XML factories are not declared to be thread safe
-		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		final DocumentBuilder db = factory.newDocumentBuilder();
-		db.setErrorHandler(new ParserErrorHandler(log));
-		return db.parse(in);
+		DocumentBuilder db = documentBuilders.get();
+		documentBuilders.remove();
+		if (db == null) {
+			db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		}
+		try {
+			db.setErrorHandler(new ParserErrorHandler(log));
+			return db.parse(in);
+		}
+		finally {
+			try {
+				db.reset();
+				documentBuilders.set(db);
+			}
+			catch (final UnsupportedOperationException exc) {
+				log.debug("DocumentBuilder can not be reused", exc);
+			}
+		}
+	}
+
+	@Override
+	public Document parseDOM(final RandomAccessInputStream stream,
+		final long offset, final long length) throws ParserConfigurationException,
+		SAXException, IOException
+	{
+		return parseDOM(new StreamRegion(stream, offset, length));
 	}
 
 	@Override
@@ -335,10 +385,9 @@ public class DefaultXMLService extends AbstractService implements XMLService {
 	public void parseXML(final InputStream xml, final DefaultHandler handler)
 		throws IOException
 	{
+		SAXParser parser = null;
 		try {
-			// Java XML factories are not declared to be thread safe
-			final SAXParserFactory factory = SAXParserFactory.newInstance();
-			final SAXParser parser = factory.newSAXParser();
+			parser = acquireSAXParser();
 			parser.parse(xml, handler);
 		}
 		catch (final ParserConfigurationException exc) {
@@ -351,6 +400,80 @@ public class DefaultXMLService extends AbstractService implements XMLService {
 			e.initCause(exc);
 			throw e;
 		}
+		finally {
+			if (parser != null) releaseSAXParser(parser);
+		}
+	}
+
+	@Override
+	public void parseXML(final RandomAccessInputStream stream, final long offset,
+		final long length, final DefaultHandler handler) throws IOException
+	{
+		parseXML(new StreamRegion(stream, offset, length), handler);
+	}
+
+	@Override
+	public void extractXML(final InputStream xml, final Set<String> names,
+		final XMLElementHandler handler) throws IOException
+	{
+		XMLStreamReader reader = null;
+		try {
+			reader = inputFactories.get().createXMLStreamReader(xml);
+			final StringBuilder text = new StringBuilder();
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) continue;
+				final String name = reader.getLocalName();
+				if (!names.contains(name)) continue;
+
+				final Map<String, String> attributes = new LinkedHashMap<>();
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					attributes.put(reader.getAttributeLocalName(i), reader
+						.getAttributeValue(i));
+				}
+				text.setLength(0);
+				int depth = 1;
+				while (depth > 0) {
+					switch (reader.next()) {
+						case XMLStreamConstants.START_ELEMENT:
+							depth++;
+							break;
+						case XMLStreamConstants.END_ELEMENT:
+							depth--;
+							break;
+						case XMLStreamConstants.CHARACTERS:
+						case XMLStreamConstants.CDATA:
+						case XMLStreamConstants.SPACE:
+							text.append(reader.getTextCharacters(), reader.getTextStart(),
+								reader.getTextLength());
+							break;
+					}
+				}
+				if (!handler.element(name, attributes, text.toString())) break;
+			}
+		}
+		catch (final XMLStreamException exc) {
+			final IOException e = new IOException();
+			e.initCause(exc);
+			throw e;
+		}
+		finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				}
+				catch (final XMLStreamException exc) {
+					log.debug("", exc);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void extractXML(final RandomAccessInputStream stream,
+		final long offset, final long length, final Set<String> names,
+		final XMLElementHandler handler) throws IOException
+	{
+		extractXML(new StreamRegion(stream, offset, length), names, handler);
 	}
 
 	// -- XSLT --
@@ -488,10 +611,9 @@ public class DefaultXMLService extends AbstractService implements XMLService {
 		// get path to schema from root element using SAX
 		log.info("Parsing schema path");
 		final ValidationSAXHandler saxHandler = new ValidationSAXHandler(log);
+		SAXParser saxParser = null;
 		try {
-			// Java XML factories are not declared to be thread safe
-			final SAXParserFactory factory = SAXParserFactory.newInstance();
-			final SAXParser saxParser = factory.newSAXParser();
+			saxParser = acquireSAXParser();
 			final InputStream is =
 				new ByteArrayInputStream(xml.getBytes(Constants.ENCODING));
 			saxParser.parse(is, saxHandler);
@@ -505,6 +627,9 @@ public class DefaultXMLService extends AbstractService implements XMLService {
 		catch (final IOException exc) {
 			exception = exc;
 		}
+		finally {
+			if (saxParser != null) releaseSAXParser(saxParser);
+		}
 		if (exception != null) {
 			log.warn("Error parsing schema path from " + label, exception);
 			return false;
@@ -574,6 +699,27 @@ public class DefaultXMLService extends AbstractService implements XMLService {
 
 	// -- Helper methods --
 
+	/** Takes this thread's SAX parser, creating one if it is in use. */
+	private SAXParser acquireSAXParser() throws ParserConfigurationException,
+		SAXException
+	{
+		final SAXParser parser = saxParsers.get();
+		if (parser == null) return SAXParserFactory.newInstance().newSAXParser();
+		saxParsers.remove();
+		return parser;
+	}
+
+	/** Resets the given SAX parser for reuse by this thread. */
+	private void releaseSAXParser(final SAXParser parser) {
+		try {
+			parser.reset();
+			saxParsers.set(parser);
+		}
+		catch (final UnsupportedOperationException exc) {
+			log.debug("SAXParser can not be reused", exc);
+		}
+	}
+
 	/**
 	 * Checks the given stream for a UTF-8 BOM header, skipping it if present. If
 	 * no UTF-8 BOM is present, the position of the stream is unchanged.
@@ -592,7 +738,79 @@ public class DefaultXMLService extends AbstractService implements XMLService {
 		}
 	}
 
-	// -- Helper class --
+	// -- Helper classes --
+
+	/**
+	 * Input stream over a region of a {@link RandomAccessInputStream}, which is
+	 * read in place and not closed.
+	 */
+	private static class StreamRegion extends InputStream {
+
+		private final RandomAccessInputStream stream;
+
+		private final long end;
+
+		private long pos, mark;
+
+		public StreamRegion(final RandomAccessInputStream stream,
+			final long offset, final long length) throws IOException
+		{
+			this.stream = stream;
+			pos = mark = offset;
+			end = Math.min(offset + length, stream.length());
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len)
+			throws IOException
+		{
+			if (len == 0) return 0;
+			if (pos >= end) return -1;
+			final int n = (int) Math.min(len, end - pos);
+			stream.seek(pos);
+			stream.readFully(b, off, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public long skip(final long n) {
+			final long skipped = Math.max(0, Math.min(n, end - pos));
+			pos += skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(Integer.MAX_VALUE, end - pos);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public synchronized void mark(final int readlimit) {
+			mark = pos;
+		}
+
+		@Override
+		public synchronized void reset() {
+			pos = mark;
+		}
+
+		@Override
+		public void close() {
+			// NB: the underlying stream belongs to the caller.
+		}
+	}
 
 	/** ErrorListener implementation that logs errors and warnings. */
 	private class XMLListener implements ErrorListener {
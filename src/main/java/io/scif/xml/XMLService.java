@@ -37,6 +37,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Hashtable;
+import java.util.Set;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Source;
@@ -67,6 +68,13 @@ public interface XMLService extends SCIFIOService {
 	Document parseDOM(InputStream is) throws ParserConfigurationException,
 		SAXException, IOException;
 
+	/**
+	 * Parses a DOM from the XML in the given region of a stream, without copying
+	 * the region into memory. The stream is not closed.
+	 */
+	Document parseDOM(RandomAccessInputStream stream, long offset, long length)
+		throws ParserConfigurationException, SAXException, IOException;
+
 	/** Converts the given DOM back to a string. */
 	String getXML(Document doc) throws TransformerConfigurationException,
 		TransformerException;
@@ -123,6 +131,32 @@ public interface XMLService extends SCIFIOService {
 	 */
 	void parseXML(InputStream xml, DefaultHandler handler) throws IOException;
 
+	/**
+	 * Parses the XML in the given region of a stream using the specified XML
+	 * handler, without copying the region into memory. Unlike
+	 * {@link #parseXML(RandomAccessInputStream, DefaultHandler)}, the stream is
+	 * not closed.
+	 */
+	void parseXML(RandomAccessInputStream stream, long offset, long length,
+		DefaultHandler handler) throws IOException;
+
+	/**
+	 * Streams the given XML, passing each element with one of the given local
+	 * names to the handler. No document tree is built, so formats which only
+	 * need a few elements can parse arbitrarily large XML in constant memory.
+	 * Selected elements nested within another selected element are not reported
+	 * separately. The input stream is not closed.
+	 */
+	void extractXML(InputStream xml, Set<String> names,
+		XMLElementHandler handler) throws IOException;
+
+	/**
+	 * As {@link #extractXML(InputStream, Set, XMLElementHandler)}, for the XML in
+	 * the given region of a stream.
+	 */
+	void extractXML(RandomAccessInputStream stream, long offset, long length,
+		Set<String> names, XMLElementHandler handler) throws IOException;
+
 	/** Gets an XSLT template from the given resource location. */
 	Templates getStylesheet(String resourcePath, Class<?> sourceClass);
 
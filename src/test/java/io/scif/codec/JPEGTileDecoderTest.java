@@ -0,0 +1,301 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.codec;
+
+import static org.junit.Assert.assertEquals;
+
+import io.scif.FormatException;
+import io.scif.SCIFIO;
+import io.scif.UnsupportedCompressionException;
+import io.scif.io.RandomAccessInputStream;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+/**
+ * Tests {@link JPEGTileDecoder}.
+ *
+ * @author agent
+ */
+public class JPEGTileDecoderTest {
+
+	private static final String JPEG_METADATA = "javax_imageio_jpeg_image_1.0";
+
+	private static final int WIDTH = 301;
+
+	private static final int HEIGHT = 217;
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/** Tests decoding regions of an image without restart markers. */
+	@Test
+	public void testNoRestarts() throws FormatException, IOException {
+		testRegions(createJPEG(createGrayImage(), 0, null, false));
+	}
+
+	/** Tests decoding regions of an image with short restart intervals. */
+	@Test
+	public void testRestarts() throws FormatException, IOException {
+		testRegions(createJPEG(createGrayImage(), 3, null, false));
+	}
+
+	/**
+	 * Tests decoding regions of an image with restart intervals longer than
+	 * the spacing of the index.
+	 */
+	@Test
+	public void testLongRestarts() throws FormatException, IOException {
+		testRegions(createJPEG(createGrayImage(), 100, null, false));
+	}
+
+	/**
+	 * Tests decoding regions of a YCbCr image with chroma subsampled by two in
+	 * both directions, which is interpolated from the neighbouring MCU rows.
+	 */
+	@Test
+	public void testYCbCr420() throws FormatException, IOException {
+		testRegions(createJPEG(createColorImage(), 0, new int[] { 2, 2 },
+			false));
+	}
+
+	/** Tests a YCbCr image with chroma subsampled by two horizontally. */
+	@Test
+	public void testYCbCr422() throws FormatException, IOException {
+		testRegions(createJPEG(createColorImage(), 3, new int[] { 2, 1 },
+			false));
+	}
+
+	/**
+	 * Tests a YCbCr image with chroma subsampled by two vertically, which
+	 * libjpeg replicates rather than interpolates.
+	 */
+	@Test
+	public void testYCbCr440() throws FormatException, IOException {
+		testRegions(createJPEG(createColorImage(), 0, new int[] { 1, 2 },
+			false));
+	}
+
+	/** Tests decoding regions of a YCbCr image without subsampling. */
+	@Test
+	public void testYCbCr444() throws FormatException, IOException {
+		testRegions(createJPEG(createColorImage(), 0, new int[] { 1, 1 },
+			false));
+	}
+
+	/**
+	 * Tests decoding regions of an RGB image, which is marked by an Adobe
+	 * segment without color transform.
+	 */
+	@Test
+	public void testAdobeRGB() throws FormatException, IOException {
+		testRegions(createJPEG(createColorImage(), 0, new int[] { 1, 1 }, true));
+	}
+
+	/**
+	 * Tests that progressive images are rejected as unsupported, so that
+	 * readers can decode them by other means.
+	 */
+	@Test(expected = UnsupportedCompressionException.class)
+	public void testProgressive() throws FormatException, IOException {
+		final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg")
+			.next();
+		final ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+		final byte[] jpeg = write(writer, createColorImage(), param, null);
+
+		final RandomAccessInputStream in = new RandomAccessInputStream(scifio
+			.getContext(), jpeg);
+		final JPEGTileDecoder decoder = new JPEGTileDecoder(scifio.getContext());
+		try {
+			decoder.initialize(in);
+		}
+		finally {
+			decoder.close();
+			in.close();
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Checks that regions decoded from a JPEG, by one thread and by several,
+	 * match the pixels decoded by ImageIO.
+	 */
+	private void testRegions(final byte[] jpeg) throws FormatException,
+		IOException
+	{
+		final BufferedImage expected = ImageIO.read(new ByteArrayInputStream(
+			jpeg));
+		final int channels = expected.getRaster().getNumBands();
+
+		final RandomAccessInputStream in = new RandomAccessInputStream(scifio
+			.getContext(), jpeg);
+		final JPEGTileDecoder decoder = new JPEGTileDecoder(scifio.getContext());
+		try {
+			decoder.initialize(in);
+			assertEquals(WIDTH, decoder.getWidth());
+			assertEquals(HEIGHT, decoder.getHeight());
+			assertEquals(channels, decoder.getChannels());
+
+			final int[][] regions = { { 0, 0, WIDTH, HEIGHT }, { 37, 45, 50, 61 },
+				{ WIDTH - 1, HEIGHT - 1, 1, 1 }, { 100, 0, 201, 17 },
+				{ 16, 16, 16, 16 }, { 15, 15, 3, 3 }, { 1, 31, 299, 2 } };
+			for (final int threads : new int[] { 1, 3 }) {
+				decoder.setThreads(threads);
+				for (final int[] r : regions) {
+					final byte[] buf = new byte[r[2] * r[3] * channels];
+					decoder.decode(in, buf, r[0], r[1], r[2], r[3]);
+					for (int y = 0; y < r[3]; y++) {
+						for (int x = 0; x < r[2]; x++) {
+							for (int c = 0; c < channels; c++) {
+								assertEquals(expected.getRaster().getSample(r[0] + x, r[1] + y,
+									c), buf[(y * r[2] + x) * channels + c] & 0xff);
+							}
+						}
+					}
+				}
+			}
+		}
+		finally {
+			decoder.close();
+			in.close();
+		}
+	}
+
+	private static BufferedImage createGrayImage() {
+		final BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+			BufferedImage.TYPE_BYTE_GRAY);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				image.getRaster().setSample(x, y, 0, (int) (128 + 100 * Math.sin(x /
+					5.0 + y / 7.0)));
+			}
+		}
+		return image;
+	}
+
+	private static BufferedImage createColorImage() {
+		final BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+			BufferedImage.TYPE_3BYTE_BGR);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				for (int c = 0; c < 3; c++) {
+					image.getRaster().setSample(x, y, c, (int) (128 + 60 * Math.sin(x /
+						20.0 + y / 25.0 + c * 2)));
+				}
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Encodes the given image as a baseline JPEG.
+	 *
+	 * @param restartInterval MCUs between restart markers, or 0 for none.
+	 * @param sampling Horizontal and vertical sampling factors of the first
+	 *          component of a color image, or null for the defaults.
+	 * @param adobe Whether to store the color components as RGB, marked by an
+	 *          Adobe segment rather than a JFIF one.
+	 */
+	private static byte[] createJPEG(final BufferedImage image,
+		final int restartInterval, final int[] sampling, final boolean adobe)
+		throws IOException
+	{
+		final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg")
+			.next();
+		final ImageWriteParam param = writer.getDefaultWriteParam();
+		final IIOMetadata meta = writer.getDefaultImageMetadata(
+			new ImageTypeSpecifier(image), param);
+		final IIOMetadataNode root = (IIOMetadataNode) meta.getAsTree(
+			JPEG_METADATA);
+		final Node markers = root.getElementsByTagName("markerSequence").item(0);
+		if (restartInterval > 0) {
+			final IIOMetadataNode dri = new IIOMetadataNode("dri");
+			dri.setAttribute("interval", String.valueOf(restartInterval));
+			markers.insertBefore(dri, markers.getFirstChild());
+		}
+		if (sampling != null) {
+			final IIOMetadataNode luma = (IIOMetadataNode) root
+				.getElementsByTagName("componentSpec").item(0);
+			luma.setAttribute("HsamplingFactor", String.valueOf(sampling[0]));
+			luma.setAttribute("VsamplingFactor", String.valueOf(sampling[1]));
+		}
+		if (adobe) {
+			final Node variety = root.getElementsByTagName("JPEGvariety").item(0);
+			while (variety.getFirstChild() != null) {
+				variety.removeChild(variety.getFirstChild());
+			}
+			final IIOMetadataNode app14 = new IIOMetadataNode("app14Adobe");
+			app14.setAttribute("transform", "0");
+			markers.insertBefore(app14, markers.getFirstChild());
+		}
+		meta.setFromTree(JPEG_METADATA, root);
+		return write(writer, image, param, meta);
+	}
+
+	/** Writes the given image, and disposes of the writer. */
+	private static byte[] write(final ImageWriter writer,
+		final BufferedImage image, final ImageWriteParam param,
+		final IIOMetadata meta) throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ImageOutputStream out = ImageIO.createImageOutputStream(bytes);
+		try {
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(image, null, meta), param);
+		}
+		finally {
+			out.close();
+			writer.dispose();
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import io.scif.FormatException;
+import io.scif.SCIFIO;
+import io.scif.io.RandomAccessInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link LZWCodec}.
+ *
+ * @author agent
+ */
+public class LZWCodecTest {
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/** Tests that compressed data decodes from arrays and from streams. */
+	@Test
+	public void testRoundTrip() throws FormatException, IOException {
+		final byte[] data = new byte[10000];
+		final Random random = new Random(42);
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (random.nextInt(16) + i / 1000);
+		}
+		final LZWCodec codec = scifio.codec().getCodec(LZWCodec.class);
+		final byte[] compressed = codec.compress(data, null);
+		assertArrayEquals(data, codec.decompress(compressed, options(data.length)));
+		assertArrayEquals(data, decompress(codec, compressed, data.length));
+	}
+
+	/**
+	 * Tests decoding a stream which takes more than the initial read window,
+	 * where the end of the window splits a code.
+	 */
+	@Test
+	public void testSplitCode() throws FormatException, IOException {
+		// A clear code before each byte costs 18 bits per decoded byte, more than
+		// the initial window of about 12 bits per byte. For 1029 bytes, that
+		// window ends one byte into the 1393rd code.
+		final byte[] data = new byte[1029];
+		final CodeWriter writer = new CodeWriter();
+		for (int i = 0; i < data.length - 1; i++) {
+			data[i] = (byte) (i * 7);
+			writer.write(256);
+			writer.write(data[i] & 0xff);
+		}
+		data[data.length - 1] = 1;
+		writer.write(1);
+		writer.write(257);
+		final byte[] compressed = writer.toByteArray();
+
+		final LZWCodec codec = scifio.codec().getCodec(LZWCodec.class);
+		assertArrayEquals(data, codec.decompress(compressed, options(data.length)));
+		assertArrayEquals(data, decompress(codec, compressed, data.length));
+	}
+
+	// -- Helper methods --
+
+	private byte[] decompress(final LZWCodec codec, final byte[] compressed,
+		final int length) throws FormatException, IOException
+	{
+		try (RandomAccessInputStream in =
+			new RandomAccessInputStream(scifio.getContext(), compressed))
+		{
+			return codec.decompress(in, options(length));
+		}
+	}
+
+	private static CodecOptions options(final int maxBytes) {
+		final CodecOptions options = new CodecOptions();
+		options.maxBytes = maxBytes;
+		return options;
+	}
+
+	// -- Helper classes --
+
+	/** Packs 9-bit codes, most significant bit first. */
+	private static class CodeWriter {
+
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		private int bits;
+
+		private int count;
+
+		public void write(final int code) {
+			bits = (bits << 9) | code;
+			count += 9;
+			while (count >= 8) {
+				count -= 8;
+				out.write(bits >> count);
+			}
+			bits &= (1 << count) - 1;
+		}
+
+		public byte[] toByteArray() {
+			if (count > 0) out.write(bits << (8 - count));
+			count = 0;
+			return out.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import io.scif.FormatException;
+import io.scif.SCIFIO;
+import io.scif.io.RandomAccessInputStream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link ZlibCodec}.
+ *
+ * @author agent
+ */
+public class ZlibCodecTest {
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/** Tests that data compressed at every level decompresses unchanged. */
+	@Test
+	public void testRoundTrip() throws FormatException, IOException {
+		final byte[] data = data(20000, 42);
+		final ZlibCodec codec = scifio.codec().getCodec(ZlibCodec.class);
+		for (int level = Deflater.DEFAULT_COMPRESSION;
+			level <= Deflater.BEST_COMPRESSION; level++)
+		{
+			final ZlibCodecOptions options = new ZlibCodecOptions();
+			options.compressionLevel = level;
+			final byte[] compressed = codec.compress(data, options);
+			assertArrayEquals(data, codec.decompress(compressed, null));
+			// decoding into a buffer that is too small must grow it
+			assertArrayEquals(data, codec.decompress(compressed, options(100)));
+		}
+	}
+
+	/**
+	 * Tests that the stream is left just past the compressed data, and that
+	 * invalid data does not spoil the pooled inflaters for later calls.
+	 */
+	@Test
+	public void testStream() throws FormatException, IOException {
+		final byte[] data = data(5000, 7);
+		final ZlibCodec codec = scifio.codec().getCodec(ZlibCodec.class);
+		final byte[] compressed = codec.compress(data, null);
+		final byte[] file = Arrays.copyOf(compressed, compressed.length + 3);
+		try (RandomAccessInputStream in =
+			new RandomAccessInputStream(scifio.getContext(), file))
+		{
+			assertArrayEquals(data, codec.decompress(in, options(data.length)));
+			assertEquals(compressed.length, in.getFilePointer());
+		}
+
+		final byte[] invalid = compressed.clone();
+		invalid[0] = 0;
+		try {
+			codec.decompress(invalid, null);
+			fail("Expected FormatException");
+		}
+		catch (final FormatException e) {
+			// expected
+		}
+		assertArrayEquals(data, codec.decompress(compressed, null));
+	}
+
+	/** Tests more concurrent calls than the codec keeps pooled. */
+	@Test
+	public void testConcurrent() throws Exception {
+		final ZlibCodec codec = scifio.codec().getCodec(ZlibCodec.class);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 32; t++) {
+				final byte[] data = data(10000, t);
+				futures.add(executor.submit(() -> {
+					final byte[] compressed = codec.compress(data, null);
+					assertArrayEquals(data, codec.decompress(compressed, null));
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	// -- Helper methods --
+
+	private static byte[] data(final int length, final long seed) {
+		final byte[] data = new byte[length];
+		final Random random = new Random(seed);
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (random.nextInt(16) + i / 1000);
+		}
+		return data;
+	}
+
+	private static CodecOptions options(final int maxBytes) {
+		final CodecOptions options = new CodecOptions();
+		options.maxBytes = maxBytes;
+		return options;
+	}
+}
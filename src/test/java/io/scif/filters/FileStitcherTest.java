@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.filters;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import io.scif.FormatException;
+import io.scif.Plane;
+import io.scif.Reader;
+import io.scif.SCIFIO;
+import io.scif.config.SCIFIOConfig;
+import io.scif.services.LocationService;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link FileStitcher}.
+ *
+ * @author agent
+ */
+public class FileStitcherTest {
+
+	/** Number of stitched files; file {@code f} holds {@code f + 1} images. */
+	private static final int FILES = 4;
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	private final String[] files = new String[FILES];
+
+	@Before
+	public void setUp() {
+		// map the file names, so that the pattern is found among them rather than
+		// on disk
+		final LocationService locationService =
+			scifio.getContext().getService(LocationService.class);
+		for (int f = 0; f < FILES; f++) {
+			files[f] =
+				"stitch&images=" + (f + 1) + "&lengths=8,6,2&axes=X,Y,Time.fake";
+			locationService.mapId(files[f], files[f]);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that each image index maps to the right image of the right file,
+	 * for files holding different numbers of images.
+	 */
+	@Test
+	public void testImageIndex() throws FormatException, IOException {
+		final ReaderFilter reader = scifio.initializer().initializeReader(files[0]);
+		final FileStitcher stitcher = reader.enable(FileStitcher.class);
+		reader.setSource(files[0], new SCIFIOConfig());
+
+		final long[] min = { 0, 0 };
+		final long[] max = { 8, 6 };
+		int imageIndex = 0;
+		for (int f = 0; f < FILES; f++) {
+			final Reader file = scifio.initializer().initializeReader(files[f]);
+			for (int i = 0; i <= f; i++, imageIndex++) {
+				assertEquals(f + 1, stitcher.getReader(imageIndex).getImageCount());
+				final Plane expected = file.openPlane(i, 1);
+				final Plane actual = stitcher.openPlane(imageIndex, 1, expected, min,
+					max, new SCIFIOConfig());
+				assertArrayEquals(expected.getBytes(), actual.getBytes());
+			}
+			file.close();
+		}
+
+		// images past the last file are blank
+		final Plane blank = stitcher.openPlane(imageIndex, 1, reader.openPlane(0,
+			1), min, max, new SCIFIOConfig());
+		assertArrayEquals(new byte[blank.getBytes().length], blank.getBytes());
+		reader.close();
+	}
+
+	/**
+	 * Tests that at most the configured number of files are kept open, closing
+	 * the least recently used ones.
+	 */
+	@Test
+	public void testMaxOpenFiles() throws FormatException, IOException {
+		final ReaderFilter reader = scifio.initializer().initializeReader(files[0]);
+		final FileStitcher stitcher = reader.enable(FileStitcher.class);
+		reader.setSource(files[0], new SCIFIOConfig().groupableSetMaxOpenFiles(3));
+		// the first image of file f
+		final int[] images = { 0, 1, 3, 6 };
+
+		stitcher.getReader(images[1]);
+		final Reader file2 = stitcher.getReader(images[2]);
+		assertEquals(set(0, 1, 2), getOpenFiles(stitcher));
+
+		final Reader file3 = stitcher.getReader(images[3]);
+		assertEquals(set(0, 2, 3), getOpenFiles(stitcher));
+
+		// reading file 2 makes file 3 the least recently used
+		assertSame(file2, stitcher.getReader(images[2]));
+		final Reader file1 = stitcher.getReader(images[1]);
+		assertEquals(set(0, 1, 2), getOpenFiles(stitcher));
+		assertNull(file3.getMetadata());
+		assertNotNull(file2.getMetadata());
+		assertNotNull(file1.getMetadata());
+
+		// the first file is always open
+		stitcher.getReader(images[0]);
+		stitcher.getReader(images[3]);
+		assertEquals(set(0, 1, 3), getOpenFiles(stitcher));
+		reader.close();
+	}
+
+	// -- Helper methods --
+
+	/** @return The indices of the open files. */
+	private static Set<Integer> getOpenFiles(final FileStitcher stitcher) {
+		final Set<Integer> open = new TreeSet<>();
+		for (final Reader r : stitcher.getUnderlyingReaders()) {
+			open.add(r.getImageCount() - 1);
+		}
+		return open;
+	}
+
+	private static Set<Integer> set(final Integer... values) {
+		return new TreeSet<>(Arrays.asList(values));
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.filters;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.FormatException;
+import io.scif.ImageMetadata;
+import io.scif.SCIFIO;
+import io.scif.config.SCIFIOConfig;
+import io.scif.formats.tiff.IFD;
+import io.scif.formats.tiff.TiffPyramidBuilder;
+import io.scif.formats.tiff.TiffSaver;
+import io.scif.util.FormatTools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link Memoizer}.
+ *
+ * @author agent
+ */
+public class MemoizerTest {
+
+	private static final int WIDTH = 70, HEIGHT = 45;
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	private File memoDir;
+
+	private String id;
+
+	private byte[] plane;
+
+	@Before
+	public void setUp() throws FormatException, IOException {
+		memoDir = Files.createTempDirectory("MemoizerTest").toFile();
+		final File file = File.createTempFile("MemoizerTest", ".tif");
+		file.deleteOnExit();
+		id = file.getAbsolutePath();
+
+		plane = new byte[WIDTH * HEIGHT];
+		new Random(0xfeed).nextBytes(plane);
+
+		final TiffSaver saver = new TiffSaver(scifio.getContext(), id);
+		saver.setStreaming(true);
+		saver.writeHeader();
+		final IFD ifd = new IFD(scifio.log());
+		ifd.put(IFD.IMAGE_WIDTH, (long) WIDTH);
+		ifd.put(IFD.IMAGE_LENGTH, (long) HEIGHT);
+		ifd.put(IFD.TILE_WIDTH, 16L);
+		ifd.put(IFD.TILE_LENGTH, 16L);
+		new TiffPyramidBuilder(saver, ifd, 0, FormatTools.UINT8, 1, 2,
+			TiffPyramidBuilder.Downsampling.NEAREST).writeRows(plane, 0, HEIGHT);
+		saver.finish();
+		saver.getStream().close();
+	}
+
+	@After
+	public void tearDown() {
+		for (final File f : memoDir.listFiles()) {
+			f.delete();
+		}
+		memoDir.delete();
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that reopening a file restores its memoized metadata, and that a
+	 * modified file is parsed again.
+	 */
+	@Test
+	public void testReopen() throws FormatException, IOException {
+		final SCIFIOConfig config =
+			new SCIFIOConfig().checkerSetOpen(true).parserSetMemoDirectory(memoDir);
+
+		ReaderFilter reader = scifio.initializer().initializeReader(id, config);
+		final Memoizer memoizer = reader.enable(Memoizer.class);
+		assertFalse(memoizer.isLoadedFromMemo());
+		assertTrue(memoizer.getMemoFile(id, config).isFile());
+		final ImageMetadata parsed = reader.getMetadata().get(0);
+		reader.close();
+
+		reader = scifio.initializer().initializeReader(id, config);
+		assertTrue(reader.enable(Memoizer.class).isLoadedFromMemo());
+		final ImageMetadata restored = reader.getMetadata().get(0);
+		for (int i = 0; i < parsed.getAxes().size(); i++) {
+			assertEquals(parsed.getAxis(i).type(), restored.getAxis(i).type());
+		}
+		assertArrayEquals(parsed.getAxesLengths(), restored.getAxesLengths());
+		assertArrayEquals(parsed.getAxesLengthsPlanar(1), restored
+			.getAxesLengthsPlanar(1));
+		assertEquals(parsed.getPixelType(), restored.getPixelType());
+		assertArrayEquals(plane, reader.openPlane(0, 0).getBytes());
+		reader.close();
+
+		new File(id).setLastModified(System.currentTimeMillis() + 10000);
+		reader = scifio.initializer().initializeReader(id, config);
+		assertFalse(reader.enable(Memoizer.class).isLoadedFromMemo());
+		assertArrayEquals(plane, reader.openPlane(0, 0).getBytes());
+		reader.close();
+	}
+}
@@ -30,13 +30,23 @@
 
 package io.scif.filters;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 
 import io.scif.FormatException;
+import io.scif.Plane;
 import io.scif.Reader;
 import io.scif.SCIFIO;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
 import org.scijava.InstantiableException;
@@ -76,4 +86,65 @@ public class PlaneSeparatorTest {
 		assertEquals(0, filter.getMetadata().get(0).getInterleavedAxisCount());
 		assertEquals(2, filter.getMetadata().get(0).getAxesNonPlanar().size());
 	}
+
+	/**
+	 * Verify that planes opened from several threads at once match the planes
+	 * opened one at a time.
+	 */
+	@Test
+	public void testConcurrentOpenPlane() throws FormatException, IOException,
+		InterruptedException, ExecutionException
+	{
+		final Reader filter =
+			scifio.initializer().initializeReader(
+				"testImg&lengths=3,5,64,48&axes=Channel,Time,X,Y.fake");
+		((ReaderFilter) filter).enable(PlaneSeparator.class);
+		final int planeCount = (int) filter.getPlaneCount(0);
+		assertEquals(15, planeCount);
+		final byte[][] expected = new byte[planeCount][];
+		for (int p = 0; p < planeCount; p++) {
+			expected[p] = filter.openPlane(0, p).getBytes();
+		}
+
+		final ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<byte[]>> planes = new ArrayList<>();
+			for (int i = 0; i < 4 * planeCount; i++) {
+				final int p = i % planeCount;
+				planes.add(pool.submit(() -> filter.openPlane(0, p).getBytes()));
+			}
+			for (int i = 0; i < planes.size(); i++) {
+				assertArrayEquals(expected[i % planeCount], planes.get(i).get());
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+		filter.close();
+	}
+
+	/**
+	 * Verify that the cached plane is never handed out, so that callers which
+	 * modify or reuse their planes do not affect each other.
+	 */
+	@Test
+	public void testCachedPlaneNotShared() throws FormatException, IOException {
+		final Reader filter =
+			scifio.initializer().initializeReader("testImg&pixelType=uint8" +
+				"&indexed=true&lengths=50,50,4&axes=X,Y,Time.fake");
+		((ReaderFilter) filter).enable(PlaneSeparator.class);
+		final Plane first = filter.openPlane(0, 1);
+		final byte[] expected = first.getBytes().clone();
+		Arrays.fill(first.getBytes(), (byte) 0x7f);
+		final Plane second = filter.openPlane(0, 1);
+		assertNotSame(first, second);
+		assertArrayEquals(expected, second.getBytes());
+
+		// a plane supplied by the caller is filled with the cached plane
+		filter.openPlane(0, 1, first);
+		assertArrayEquals(expected, first.getBytes());
+		Arrays.fill(first.getBytes(), (byte) 0x7f);
+		assertArrayEquals(expected, filter.openPlane(0, 1).getBytes());
+		filter.close();
+	}
 }
@@ -0,0 +1,210 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import io.scif.FormatException;
+import io.scif.Reader;
+import io.scif.SCIFIO;
+import io.scif.io.RandomAccessInputStream;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link GIFFormat}.
+ *
+ * @author agent
+ */
+public class GIFFormatTest {
+
+	private static final int WIDTH = 40;
+
+	private static final int HEIGHT = 30;
+
+	/** More frames than the reader caches. */
+	private static final int FRAMES = 20;
+
+	private static final String[] DISPOSAL_METHODS = { "none", "doNotDispose",
+		"restoreToBackgroundColor", "restoreToPrevious" };
+
+	private static final String GIF_IMAGE_FORMAT = "javax_imageio_gif_image_1.0";
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that frames read out of order, with every disposal method and with
+	 * transparent pixels filled in from previous frames, match the frames read
+	 * in sequence.
+	 */
+	@Test
+	public void testOutOfOrder() throws FormatException, IOException {
+		final byte[] gif = createGIF();
+
+		Reader reader = createReader(gif);
+		assertEquals(FRAMES, reader.getPlaneCount(0));
+		final byte[][] expected = new byte[FRAMES][];
+		for (int p = 0; p < FRAMES; p++) {
+			expected[p] = reader.openPlane(0, p).getBytes();
+		}
+		reader.close();
+
+		// frame 1 does not cover the origin, which is filled in from frame 0
+		assertNotEquals(0, expected[0][0]);
+		assertEquals(expected[0][0], expected[1][0]);
+
+		reader = createReader(gif);
+		for (int p = FRAMES - 1; p >= 0; p--) {
+			assertArrayEquals("Frame " + p, expected[p], reader.openPlane(0, p)
+				.getBytes());
+		}
+		final Random random = new Random(1);
+		for (int i = 0; i < 3 * FRAMES; i++) {
+			final int p = random.nextInt(FRAMES);
+			assertArrayEquals("Frame " + p, expected[p], reader.openPlane(0, p)
+				.getBytes());
+		}
+		reader.close();
+	}
+
+	// -- Helper methods --
+
+	private Reader createReader(final byte[] gif) throws FormatException,
+		IOException
+	{
+		final Reader reader = scifio.format().getFormatFromClass(GIFFormat.class)
+			.createReader();
+		reader.setSource(new RandomAccessInputStream(scifio.getContext(), gif));
+		return reader;
+	}
+
+	/**
+	 * Creates an animated GIF whose first frame covers the whole image and whose
+	 * other frames cover moving rectangles, cycling through the disposal
+	 * methods. Color 0 is black, which the reader treats as transparent.
+	 */
+	private static byte[] createGIF() throws IOException {
+		final byte[] r = new byte[16], g = new byte[16], b = new byte[16];
+		for (int i = 1; i < 16; i++) {
+			r[i] = (byte) (i * 16);
+			g[i] = (byte) (255 - i * 8);
+			b[i] = (byte) (i * 4);
+		}
+		final IndexColorModel colorModel = new IndexColorModel(8, 16, r, g, b);
+
+		final ImageWriter writer = ImageIO.getImageWritersByFormatName("gif")
+			.next();
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ImageOutputStream out = ImageIO.createImageOutputStream(bytes);
+		try {
+			writer.setOutput(out);
+			writer.prepareWriteSequence(null);
+			for (int p = 0; p < FRAMES; p++) {
+				final int x = p == 0 ? 0 : p * 3 % 20;
+				final int y = p == 0 ? 0 : 1 + p * 2 % 15;
+				final int w = p == 0 ? WIDTH : 12 + p % 5;
+				final int h = p == 0 ? HEIGHT : 10 + p % 4;
+				final BufferedImage image = new BufferedImage(w, h,
+					BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+				final WritableRaster raster = image.getRaster();
+				for (int yy = 0; yy < h; yy++) {
+					for (int xx = 0; xx < w; xx++) {
+						raster.setSample(xx, yy, 0, p == 0 ? 1 + (xx + yy) % 15
+							: (xx * p + yy) % 16);
+					}
+				}
+
+				final IIOMetadata metadata = writer.getDefaultImageMetadata(
+					ImageTypeSpecifier.createFromRenderedImage(image), null);
+				final IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(
+					GIF_IMAGE_FORMAT);
+				final IIOMetadataNode descriptor = getNode(root, "ImageDescriptor");
+				descriptor.setAttribute("imageLeftPosition", String.valueOf(x));
+				descriptor.setAttribute("imageTopPosition", String.valueOf(y));
+				descriptor.setAttribute("interlaceFlag", p % 3 == 1 ? "TRUE"
+					: "FALSE");
+				final IIOMetadataNode control = getNode(root,
+					"GraphicControlExtension");
+				control.setAttribute("disposalMethod", DISPOSAL_METHODS[p %
+					DISPOSAL_METHODS.length]);
+				control.setAttribute("userInputFlag", "FALSE");
+				control.setAttribute("transparentColorFlag", "TRUE");
+				control.setAttribute("delayTime", "10");
+				control.setAttribute("transparentColorIndex", "0");
+				metadata.setFromTree(GIF_IMAGE_FORMAT, root);
+				writer.writeToSequence(new IIOImage(image, null, metadata), null);
+			}
+			writer.endWriteSequence();
+		}
+		finally {
+			out.close();
+			writer.dispose();
+		}
+		return bytes.toByteArray();
+	}
+
+	/** Gets the child of the given node with the given name, adding it. */
+	private static IIOMetadataNode getNode(final IIOMetadataNode root,
+		final String name)
+	{
+		for (int i = 0; i < root.getLength(); i++) {
+			if (root.item(i).getNodeName().equals(name)) {
+				return (IIOMetadataNode) root.item(i);
+			}
+		}
+		final IIOMetadataNode node = new IIOMetadataNode(name);
+		root.appendChild(node);
+		return node;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.FormatException;
+import io.scif.Reader;
+import io.scif.SCIFIO;
+import io.scif.codec.JPEG2000Codec;
+import io.scif.codec.JPEG2000CodecOptions;
+import io.scif.config.SCIFIOConfig;
+import io.scif.io.RandomAccessInputStream;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link JPEG2000Format}.
+ *
+ * @author agent
+ */
+public class JPEG2000FormatTest {
+
+	private static final int WIDTH = 64;
+
+	private static final int HEIGHT = 48;
+
+	private static final int CHANNELS = 3;
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that regions of a tiled codestream, at full and at reduced
+	 * resolution, match the same region cropped from the whole plane.
+	 */
+	@Test
+	public void testRegions() throws FormatException, IOException {
+		final byte[] j2k = createTiledJ2K();
+		// regions within two tiles, up to the edges, and of some channels
+		final long[][] regions = { { 0, 5, 7, CHANNELS, 20, 10 },
+			{ 0, 30, 0, CHANNELS, 34, 48 }, { 1, 3, 2, 2, 9, 5 } };
+
+		for (final long[] r : regions) {
+			// read the region first, so it is not served from the cached plane
+			final Reader reader = createReader(j2k);
+			assertTrue(((JPEG2000Format.Metadata) reader.getMetadata()).isTiled());
+			final byte[] region = reader.openPlane(0, 0, min(r), max(r)).getBytes();
+			final byte[] plane = reader.openPlane(0, 0).getBytes();
+			assertArrayEquals(crop(plane, WIDTH, HEIGHT, r), region);
+			reader.close();
+		}
+
+		final Reader reader = createReader(j2k);
+		final long[] lengths = reader.getMetadata().get(0).getAxesLengthsPlanar(1);
+		assertArrayEquals(new long[] { CHANNELS, WIDTH / 2, HEIGHT / 2 }, lengths);
+		final byte[] plane = reader.openPlane(0, 0, new SCIFIOConfig()
+			.imgOpenerSetResolution(1)).getBytes();
+		assertEquals(CHANNELS * WIDTH / 2 * HEIGHT / 2, plane.length);
+		final long[][] reduced = { { 0, 3, 5, CHANNELS, 10, 6 },
+			{ 0, 0, 0, CHANNELS, WIDTH / 2, 7 }, { 2, 20, 1, 1, 12, 23 } };
+		for (final long[] r : reduced) {
+			assertArrayEquals(crop(plane, WIDTH / 2, HEIGHT / 2, r), reader
+				.openPlane(0, 0, 1, min(r), max(r)).getBytes());
+		}
+		reader.close();
+	}
+
+	// -- Helper methods --
+
+	private Reader createReader(final byte[] j2k) throws FormatException,
+		IOException
+	{
+		final Reader reader = scifio.format().getFormatFromClass(
+			JPEG2000Format.class).createReader();
+		reader.setSource(new RandomAccessInputStream(scifio.getContext(), j2k));
+		return reader;
+	}
+
+	private byte[] createTiledJ2K() throws FormatException {
+		final byte[] data = new byte[WIDTH * HEIGHT * CHANNELS];
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				final int i = (y * WIDTH + x) * CHANNELS;
+				data[i] = (byte) (x * 4);
+				data[i + 1] = (byte) (y * 5);
+				data[i + 2] = (byte) ((x + y) * 2);
+			}
+		}
+
+		final JPEG2000CodecOptions options =
+			JPEG2000CodecOptions.getDefaultOptions();
+		options.width = WIDTH;
+		options.height = HEIGHT;
+		options.channels = CHANNELS;
+		options.bitsPerSample = 8;
+		options.interleaved = true;
+		options.lossless = true;
+		options.quality = Double.MAX_VALUE;
+		options.tileWidth = 32;
+		options.tileHeight = 32;
+		options.numDecompositionLevels = 2;
+		return scifio.codec().getCodec(JPEG2000Codec.class).compress(data,
+			options);
+	}
+
+	/** @return The minimal bounds of a region given as { min..., max... }. */
+	private static long[] min(final long[] region) {
+		return new long[] { region[0], region[1], region[2] };
+	}
+
+	/** @return The maximal bounds of a region given as { min..., max... }. */
+	private static long[] max(final long[] region) {
+		return new long[] { region[3], region[4], region[5] };
+	}
+
+	/** Crops a region from an interleaved 8-bit plane. */
+	private static byte[] crop(final byte[] plane, final int width,
+		final int height, final long[] region)
+	{
+		final int c0 = (int) region[0], x0 = (int) region[1];
+		final int y0 = (int) region[2], nc = (int) region[3];
+		final int w = (int) region[4], h = (int) region[5];
+		assertTrue(x0 + w <= width && y0 + h <= height);
+		final byte[] out = new byte[nc * w * h];
+		int i = 0;
+		for (int y = y0; y < y0 + h; y++) {
+			for (int x = x0; x < x0 + w; x++) {
+				for (int c = c0; c < c0 + nc; c++) {
+					out[i++] = plane[(y * width + x) * CHANNELS + c];
+				}
+			}
+		}
+		return out;
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.scif.ImageMetadata;
+import io.scif.Plane;
+import io.scif.Reader;
+import io.scif.SCIFIO;
+import io.scif.io.RandomAccessInputStream;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import net.imagej.axis.Axes;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link JPEGFormat}.
+ *
+ * @author agent
+ */
+public class JPEGFormatTest {
+
+	private static final int WIDTH = 40;
+
+	private static final int HEIGHT = 24;
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that a plane can be opened from an in-memory stream, which has no
+	 * file name to reopen it by.
+	 */
+	@Test
+	public void testOpenPlaneFromByteArray() throws Exception {
+		final BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+			BufferedImage.TYPE_BYTE_GRAY);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				image.getRaster().setSample(x, y, 0, (x * 6 + y * 4) & 0xff);
+			}
+		}
+		final byte[] jpeg = encode(image);
+
+		final Reader reader = scifio.format().getFormatFromClass(JPEGFormat.class)
+			.createReader();
+		reader.setSource(new RandomAccessInputStream(scifio.getContext(), jpeg));
+
+		final ImageMetadata meta = reader.getMetadata().get(0);
+		assertEquals(WIDTH, meta.getAxisLength(Axes.X));
+		assertEquals(HEIGHT, meta.getAxisLength(Axes.Y));
+
+		final Plane plane = reader.openPlane(0, 0);
+		final BufferedImage expected = ImageIO.read(new ByteArrayInputStream(
+			jpeg));
+		assertArrayEquals((byte[]) expected.getRaster().getDataElements(0, 0,
+			WIDTH, HEIGHT, null), plane.getBytes());
+		reader.close();
+	}
+
+	// -- Helper methods --
+
+	private static byte[] encode(final BufferedImage image) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "jpeg", out);
+		return out.toByteArray();
+	}
+}
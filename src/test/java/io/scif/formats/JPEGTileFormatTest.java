@@ -0,0 +1,139 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import io.scif.Reader;
+import io.scif.SCIFIO;
+import io.scif.io.RandomAccessInputStream;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import net.imagej.axis.Axes;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link JPEGTileFormat}.
+ *
+ * @author agent
+ */
+public class JPEGTileFormatTest {
+
+	private static final int WIDTH = 64;
+
+	private static final int HEIGHT = 48;
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that progressive JPEGs, which can not be decoded by tiles, are
+	 * decoded whole instead.
+	 */
+	@Test
+	public void testProgressive() throws Exception {
+		final byte[] jpeg = createProgressiveJPEG();
+		final Raster expected = ImageIO.read(new ByteArrayInputStream(jpeg))
+			.getRaster();
+
+		final Reader reader = scifio.format().getFormatFromClass(
+			JPEGTileFormat.class).createReader();
+		reader.setSource(new RandomAccessInputStream(scifio.getContext(), jpeg));
+		assertEquals(WIDTH, reader.getMetadata().get(0).getAxisLength(Axes.X));
+		assertEquals(HEIGHT, reader.getMetadata().get(0).getAxisLength(Axes.Y));
+		assertEquals(3, reader.getMetadata().get(0).getAxisLength(
+			Axes.CHANNEL));
+
+		assertArrayEquals(getBytes(expected, 0, 0, WIDTH, HEIGHT), reader
+			.openPlane(0, 0).getBytes());
+		assertArrayEquals(getBytes(expected, 5, 7, 20, 10), reader.openPlane(0, 0,
+			new long[] { 0, 5, 7 }, new long[] { 3, 20, 10 }).getBytes());
+		reader.close();
+	}
+
+	// -- Helper methods --
+
+	/** @return The samples of a region, with channels interleaved. */
+	private static byte[] getBytes(final Raster raster, final int x,
+		final int y, final int w, final int h)
+	{
+		final int[] samples = raster.getPixels(x, y, w, h, (int[]) null);
+		final byte[] bytes = new byte[samples.length];
+		for (int i = 0; i < samples.length; i++) {
+			bytes[i] = (byte) samples[i];
+		}
+		return bytes;
+	}
+
+	private static byte[] createProgressiveJPEG() throws IOException {
+		final BufferedImage image = new BufferedImage(WIDTH, HEIGHT,
+			BufferedImage.TYPE_3BYTE_BGR);
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				image.setRGB(x, y, (x * 4) << 16 | (y * 5) << 8 | (x + y) * 2);
+			}
+		}
+
+		final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg")
+			.next();
+		final ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ImageOutputStream out = ImageIO.createImageOutputStream(bytes);
+		try {
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(image, null, null), param);
+		}
+		finally {
+			out.close();
+			writer.dispose();
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.FormatException;
+import io.scif.SCIFIO;
+import io.scif.formats.MicromanagerFormat.Position;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link MicromanagerFormat}.
+ *
+ * @author agent
+ */
+public class MicromanagerFormatTest {
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests parsing a metadata file whose frames are listed out of order: each
+	 * plane maps to the file of its frame key, DAC voltages are kept for every
+	 * frame, and the global frame keys hold the values of the last frame.
+	 */
+	@Test
+	public void testFrames() throws FormatException, IOException {
+		final File dir = Files.createTempDirectory("MicromanagerFormatTest")
+			.toFile();
+		dir.deleteOnExit();
+		final File file = new File(dir, "metadata.txt");
+		file.deleteOnExit();
+		try (InputStream in = getClass().getResourceAsStream(
+			"micromanager-metadata.txt"))
+		{
+			Files.copy(in, file.toPath());
+		}
+
+		final MicromanagerFormat.Metadata meta =
+			(MicromanagerFormat.Metadata) scifio.format().getFormatFromClass(
+				MicromanagerFormat.class).createParser().parse(file.getPath());
+		assertEquals(4, meta.get(0).getPlaneCount());
+		final Position p = meta.getPositions().get(0);
+		final String[] files = { "img_000000000_DAPI_000.tif",
+			"img_000000000_GFP_000.tif", "img_000000001_DAPI_000.tif",
+			"img_000000001_GFP_000.tif" };
+		for (int plane = 0; plane < files.length; plane++) {
+			final String tiff = p.getFile(meta, 0, plane);
+			assertTrue(tiff, tiff.endsWith(File.separator + files[plane]));
+		}
+
+		assertEquals(4, p.frameCount);
+		assertEquals(Arrays.asList(1.5, 0.5, 1.0, 0.0), p.voltage);
+		assertArrayEquals(new double[] { 0, 0.1, 0.2, 0.3 }, p.timestamps, 1e-9);
+		assertEquals("40", meta.getTable().get("Exposure-ms"));
+		assertEquals(0.04, p.exposureTime, 1e-9);
+		// only the first frame has a binning
+		assertEquals("2x2", p.binning);
+		assertEquals("tab\tquote\" \u00b5m", p.comment);
+		assertEquals("-12.5e-1", meta.getTable().get("Stage-X"));
+
+		final Map<String, String> frame = meta.getFrameMetadata(0, 1);
+		assertEquals("20", frame.get("Exposure-ms"));
+		assertEquals("a,b", frame.get("Labels"));
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.ByteArrayPlane;
+import io.scif.ImageMetadata;
+import io.scif.Reader;
+import io.scif.SCIFIO;
+import io.scif.Writer;
+import io.scif.config.SCIFIOConfig;
+import io.scif.util.FormatTools;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.imagej.axis.Axes;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link N5Format}.
+ *
+ * @author agent
+ */
+public class N5FormatTest {
+
+	private static final int WIDTH = 70;
+
+	private static final int HEIGHT = 45;
+
+	private static final int DEPTH = 5;
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that planes saved from several threads, with chunks spanning two
+	 * planes and truncated at the edges, are read back intact.
+	 */
+	@Test
+	public void testRoundTrip() throws Exception {
+		final String id = roundTrip(N5Format.ZLIB);
+
+		assertTrue(new File(id).getParentFile().toPath().resolve("1/2/1")
+			.toFile().exists());
+	}
+
+	/** Tests gzip compressed chunks. */
+	@Test
+	public void testGzip() throws Exception {
+		roundTrip(N5Format.GZIP);
+	}
+
+	/** Tests that chunks which were never written read as zeros. */
+	@Test
+	public void testMissingChunks() throws Exception {
+		final String id = roundTrip(N5Format.RAW);
+		Files.delete(new File(id).getParentFile().toPath().resolve("0/0/0"));
+
+		final Reader reader = scifio.initializer().initializeReader(id);
+		try {
+			final byte[] buf = reader.openPlane(0, 1, new long[] { 30, 14 },
+				new long[] { 4, 4 }).getBytes();
+			// only the left half of the top two rows lies in the deleted chunk
+			for (int y = 0; y < 2; y++) {
+				for (int i = 8 * y; i < 8 * y + 4; i++) {
+					assertEquals(0, buf[i]);
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Tests that a chunk is only written once all of it has been saved, even
+	 * if part of it is saved twice.
+	 */
+	@Test
+	public void testRegionSavedTwice() throws Exception {
+		final File dir = Files.createTempDirectory("N5FormatTest").toFile();
+		dir.deleteOnExit();
+		final String id = new File(dir, N5Format.ATTRIBUTES_FILE)
+			.getAbsolutePath();
+		final File chunk = dir.toPath().resolve("0/0/0").toFile();
+
+		final N5Format format = scifio.format().getFormatFromClass(
+			N5Format.class);
+		final N5Format.Metadata meta = (N5Format.Metadata) format
+			.createMetadata();
+		meta.createImageMetadata(1);
+		final ImageMetadata imageMeta = meta.get(0);
+		imageMeta.setAxisTypes(Axes.X, Axes.Y, Axes.Z);
+		imageMeta.setAxisLengths(new long[] { 64, 32, 1 });
+		imageMeta.setPlanarAxisCount(2);
+		imageMeta.setPixelType(FormatTools.UINT8);
+		imageMeta.setBitsPerPixel(8);
+		meta.setBlockSize(new int[] { 64, 32, 1 });
+
+		final byte[] left = new byte[32 * 32], right = new byte[32 * 32];
+		final Random random = new Random(0xfeed);
+		random.nextBytes(left);
+		random.nextBytes(right);
+
+		final Writer writer = format.createWriter();
+		writer.setMetadata(meta);
+		writer.setDest(id);
+		saveRegion(writer, imageMeta, left, 0);
+		saveRegion(writer, imageMeta, left, 0);
+		assertFalse(chunk.exists());
+		saveRegion(writer, imageMeta, right, 32);
+		assertTrue(chunk.exists());
+		writer.close();
+
+		final Reader reader = scifio.initializer().initializeReader(id);
+		try {
+			final byte[] plane = reader.openPlane(0, 0).getBytes();
+			for (int y = 0; y < 32; y++) {
+				for (int x = 0; x < 32; x++) {
+					assertEquals(left[y * 32 + x], plane[y * 64 + x]);
+					assertEquals(right[y * 32 + x], plane[y * 64 + 32 + x]);
+				}
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Saves a 32x32 region of the first plane, starting at the given X. */
+	private void saveRegion(final Writer writer, final ImageMetadata imageMeta,
+		final byte[] data, final long x) throws Exception
+	{
+		final long[] min = { x, 0 }, max = { 32, 32 };
+		final ByteArrayPlane plane = new ByteArrayPlane(scifio.getContext());
+		plane.populate(imageMeta, data, min, max);
+		writer.savePlane(0, 0, plane, min, max);
+	}
+
+	/**
+	 * Writes a little-endian uint16 stack in 32x16x2 chunks and checks that it
+	 * reads back, in big-endian order, as whole planes and as a tile crossing
+	 * several chunks.
+	 *
+	 * @return The path of the dataset's attributes file.
+	 */
+	private String roundTrip(final String compression) throws Exception {
+		final File dir = Files.createTempDirectory("N5FormatTest").toFile();
+		dir.deleteOnExit();
+		final String id = new File(dir, N5Format.ATTRIBUTES_FILE)
+			.getAbsolutePath();
+
+		final short[][] planes = new short[DEPTH][WIDTH * HEIGHT];
+		final Random random = new Random(0xfeed);
+		for (final short[] plane : planes) {
+			for (int i = 0; i < plane.length; i++) {
+				plane[i] = (short) random.nextInt();
+			}
+		}
+
+		final N5Format format = scifio.format().getFormatFromClass(
+			N5Format.class);
+		final N5Format.Metadata meta = (N5Format.Metadata) format
+			.createMetadata();
+		meta.createImageMetadata(1);
+		final ImageMetadata imageMeta = meta.get(0);
+		imageMeta.setAxisTypes(Axes.X, Axes.Y, Axes.Z);
+		imageMeta.setAxisLengths(new long[] { WIDTH, HEIGHT, DEPTH });
+		imageMeta.setPlanarAxisCount(2);
+		imageMeta.setPixelType(FormatTools.UINT16);
+		imageMeta.setBitsPerPixel(16);
+		imageMeta.setLittleEndian(true);
+		meta.setBlockSize(new int[] { 32, 16, 2 });
+
+		final Writer writer = format.createWriter();
+		writer.setMetadata(meta);
+		writer.setDest(id, new SCIFIOConfig().writerSetCompression(compression));
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int z = DEPTH - 1; z >= 0; z--) {
+				final int planeIndex = z;
+				futures.add(executor.submit(() -> {
+					final ByteArrayPlane plane = new ByteArrayPlane(scifio.getContext());
+					plane.populate(imageMeta, toBytes(planes[planeIndex], true),
+						new long[2], new long[] { WIDTH, HEIGHT });
+					writer.savePlane(0, planeIndex, plane);
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+		writer.close();
+
+		final Reader reader = scifio.initializer().initializeReader(id);
+		try {
+			assertTrue(reader.getFormat() instanceof N5Format);
+			final ImageMetadata readMeta = reader.getMetadata().get(0);
+			assertArrayEquals(new long[] { WIDTH, HEIGHT, DEPTH }, readMeta
+				.getAxesLengths());
+			assertEquals(Axes.Z, readMeta.getAxis(2).type());
+			assertEquals(FormatTools.UINT16, readMeta.getPixelType());
+			assertEquals(32, reader.getOptimalTileWidth(0));
+			assertEquals(16, reader.getOptimalTileHeight(0));
+
+			for (int z = 0; z < DEPTH; z++) {
+				assertArrayEquals(toBytes(planes[z], false), reader.openPlane(0, z)
+					.getBytes());
+			}
+
+			final int x0 = 20, y0 = 10, w = 30, h = 25;
+			final short[] tile = new short[w * h];
+			for (int y = 0; y < h; y++) {
+				System.arraycopy(planes[3], (y0 + y) * WIDTH + x0, tile, y * w, w);
+			}
+			assertArrayEquals(toBytes(tile, false), reader.openPlane(0, 3,
+				new long[] { x0, y0 }, new long[] { w, h }).getBytes());
+		}
+		finally {
+			reader.close();
+		}
+		return id;
+	}
+
+	private byte[] toBytes(final short[] values, final boolean little) {
+		final byte[] bytes = new byte[values.length * 2];
+		for (int i = 0; i < values.length; i++) {
+			final int hi = little ? 1 : 0;
+			bytes[2 * i + hi] = (byte) (values[i] >> 8);
+			bytes[2 * i + 1 - hi] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
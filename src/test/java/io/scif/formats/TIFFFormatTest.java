@@ -32,9 +32,23 @@ package io.scif.formats;
 
 import static org.junit.Assert.*;
 
+import io.scif.FormatException;
+import io.scif.ImageMetadata;
+import io.scif.Reader;
+import io.scif.SCIFIO;
+import io.scif.config.SCIFIOConfig;
+import io.scif.formats.tiff.IFD;
+import io.scif.formats.tiff.TiffPyramidBuilder;
+import io.scif.formats.tiff.TiffSaver;
 import io.scif.img.IO;
+import io.scif.img.ImgIOException;
+import io.scif.img.ImgOpener;
+import io.scif.util.FormatTools;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.util.Random;
 
 import net.imagej.ImgPlus;
 import net.imagej.axis.Axes;
@@ -64,4 +78,62 @@ public class TIFFFormatTest {
 		assertEquals(Axes.UNKNOWN_LABEL, img.axis(2).type().getLabel());
 	}
 
+	/**
+	 * Tests that reduced resolutions stored as SubIFDs are exposed as resolution
+	 * levels rather than as additional images.
+	 */
+	@Test
+	public void testPyramidResolutions() throws FormatException, IOException,
+		ImgIOException
+	{
+		final SCIFIO scifio = new SCIFIO();
+		try {
+			final File file = File.createTempFile("TIFFFormatTest", ".tif");
+			file.deleteOnExit();
+			final String id = file.getAbsolutePath();
+
+			final int width = 70, height = 45;
+			final byte[] plane = new byte[width * height];
+			new Random(0xbeef).nextBytes(plane);
+
+			final TiffSaver saver = new TiffSaver(scifio.getContext(), id);
+			saver.setStreaming(true);
+			saver.writeHeader();
+			final IFD ifd = new IFD(scifio.log());
+			ifd.put(IFD.IMAGE_WIDTH, (long) width);
+			ifd.put(IFD.IMAGE_LENGTH, (long) height);
+			ifd.put(IFD.TILE_WIDTH, 16L);
+			ifd.put(IFD.TILE_LENGTH, 16L);
+			final TiffPyramidBuilder pyramid = new TiffPyramidBuilder(saver, ifd, 0,
+				FormatTools.UINT8, 1, 3, TiffPyramidBuilder.Downsampling.NEAREST);
+			pyramid.writeRows(plane, 0, height);
+			saver.finish();
+			saver.getStream().close();
+
+			final Reader reader = scifio.initializer().initializeReader(id);
+			final ImageMetadata meta = reader.getMetadata().get(0);
+			assertEquals(1, reader.getMetadata().getImageCount());
+			assertEquals(3, meta.getResolutionCount());
+			assertArrayEquals(new long[] { 35, 23 }, meta.getAxesLengthsPlanar(1));
+			assertArrayEquals(new long[] { 18, 12 }, meta.getAxesLengthsPlanar(2));
+
+			final byte[] level = reader.openPlane(0, 0, 2, new long[2], new long[] {
+				18, 12 }).getBytes();
+			for (int y = 0; y < 12; y++) {
+				for (int x = 0; x < 18; x++) {
+					assertEquals(plane[4 * y * width + 4 * x], level[y * 18 + x]);
+				}
+			}
+			reader.close();
+
+			final ImgPlus<?> img = new ImgOpener(scifio.getContext()).openImgs(id,
+				new SCIFIOConfig().imgOpenerSetResolution(1)).get(0);
+			assertEquals(35, img.dimension(0));
+			assertEquals(23, img.dimension(1));
+		}
+		finally {
+			scifio.getContext().dispose();
+		}
+	}
+
 }
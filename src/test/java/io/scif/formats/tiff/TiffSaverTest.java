@@ -0,0 +1,208 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats.tiff;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.FormatException;
+import io.scif.SCIFIO;
+import io.scif.util.FormatTools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link TiffSaver} streaming mode.
+ *
+ * @author agent
+ */
+public class TiffSaverTest {
+
+	private static final int WIDTH = 16;
+
+	private static final int HEIGHT = 12;
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that planes written out of order, in several pieces each, are read
+	 * back in plane order with all IFDs after the pixel data.
+	 */
+	@Test
+	public void testStreaming() throws FormatException, IOException {
+		final File file = File.createTempFile("TiffSaverTest", ".tif");
+		file.deleteOnExit();
+		final String id = file.getAbsolutePath();
+
+		final byte[][] planes = new byte[3][WIDTH * HEIGHT];
+		final Random random = new Random(0xdeadbeef);
+		for (final byte[] plane : planes) {
+			random.nextBytes(plane);
+		}
+
+		final TiffSaver saver = new TiffSaver(scifio.getContext(), id);
+		saver.setLittleEndian(true);
+		saver.setStreaming(true);
+		saver.writeHeader();
+		final int half = HEIGHT / 2;
+		for (final int p : new int[] { 2, 0, 1 }) {
+			for (int y = 0; y < HEIGHT; y += half) {
+				final byte[] rows = new byte[WIDTH * half];
+				System.arraycopy(planes[p], y * WIDTH, rows, 0, rows.length);
+				saver.writeImage(rows, createIFD(half), p, FormatTools.UINT8, 0, y,
+					WIDTH, half, false);
+			}
+		}
+		saver.finish();
+		saver.getStream().close();
+
+		final TiffParser parser = new TiffParser(scifio.getContext(), id);
+		try {
+			assertFalse(parser.isBigTiff());
+			final long[] ifdOffsets = parser.getIFDOffsets();
+			assertEquals(planes.length, ifdOffsets.length);
+			final IFDList ifds = parser.getIFDs();
+			for (int p = 0; p < planes.length; p++) {
+				for (final long offset : ifds.get(p).getStripOffsets()) {
+					assertTrue(offset < ifdOffsets[0]);
+				}
+				final byte[] buf = new byte[WIDTH * HEIGHT];
+				parser.getSamples(ifds.get(p), buf);
+				assertArrayEquals(planes[p], buf);
+			}
+		}
+		finally {
+			parser.getStream().close();
+		}
+	}
+
+	/**
+	 * Tests that a pyramid written in uneven bands of rows stores each reduced
+	 * resolution as a SubIFD holding the 2x2 averages of the previous one.
+	 */
+	@Test
+	public void testPyramid() throws FormatException, IOException {
+		final File file = File.createTempFile("TiffSaverTest", ".tif");
+		file.deleteOnExit();
+		final String id = file.getAbsolutePath();
+
+		final int width = 70, height = 45;
+		final byte[] plane = new byte[width * height];
+		new Random(0xcafe).nextBytes(plane);
+
+		final TiffSaver saver = new TiffSaver(scifio.getContext(), id);
+		saver.setStreaming(true);
+		saver.writeHeader();
+		final IFD ifd = new IFD(scifio.log());
+		ifd.put(IFD.IMAGE_WIDTH, (long) width);
+		ifd.put(IFD.IMAGE_LENGTH, (long) height);
+		ifd.put(IFD.TILE_WIDTH, 16L);
+		ifd.put(IFD.TILE_LENGTH, 16L);
+		final TiffPyramidBuilder pyramid = new TiffPyramidBuilder(saver, ifd, 0,
+			FormatTools.UINT8, 1, 3, TiffPyramidBuilder.Downsampling.AVERAGE);
+		for (int y = 0; y < height; y += 10) {
+			final int h = Math.min(10, height - y);
+			final byte[] rows = new byte[width * h];
+			System.arraycopy(plane, y * width, rows, 0, rows.length);
+			pyramid.writeRows(rows, y, h);
+		}
+		assertTrue(pyramid.isComplete());
+		saver.finish();
+		saver.getStream().close();
+
+		final TiffParser parser = new TiffParser(scifio.getContext(), id);
+		try {
+			final long[] ifdOffsets = parser.getIFDOffsets();
+			assertEquals(1, ifdOffsets.length);
+			final IFD full = parser.getIFD(ifdOffsets[0]);
+			final byte[] buf = new byte[width * height];
+			parser.getSamples(full, buf);
+			assertArrayEquals(plane, buf);
+
+			final long[] subOffsets = full.getIFDLongArray(IFD.SUB_IFD);
+			assertEquals(2, subOffsets.length);
+			byte[] expected = plane;
+			int w = width, h = height;
+			for (final long subOffset : subOffsets) {
+				expected = reduce(expected, w, h);
+				w = (w + 1) / 2;
+				h = (h + 1) / 2;
+				final IFD sub = parser.getIFD(subOffset);
+				assertEquals(w, sub.getImageWidth());
+				assertEquals(h, sub.getImageLength());
+				final byte[] level = new byte[w * h];
+				parser.getSamples(sub, level);
+				assertArrayEquals(expected, level);
+			}
+		}
+		finally {
+			parser.getStream().close();
+		}
+	}
+
+	// -- Helper methods --
+
+	/** Averages 2x2 blocks, repeating the last row and column if odd. */
+	private byte[] reduce(final byte[] in, final int w, final int h) {
+		final int ow = (w + 1) / 2, oh = (h + 1) / 2;
+		final byte[] out = new byte[ow * oh];
+		for (int y = 0; y < oh; y++) {
+			final int y0 = 2 * y * w, y1 = Math.min(2 * y + 1, h - 1) * w;
+			for (int x = 0; x < ow; x++) {
+				final int x0 = 2 * x, x1 = Math.min(2 * x + 1, w - 1);
+				final int sum = (in[y0 + x0] & 0xff) + (in[y0 + x1] & 0xff) +
+					(in[y1 + x0] & 0xff) + (in[y1 + x1] & 0xff);
+				out[y * ow + x] = (byte) Math.round(sum / 4.0);
+			}
+		}
+		return out;
+	}
+
+	private IFD createIFD(final int rowsPerStrip) {
+		final IFD ifd = new IFD(scifio.log());
+		ifd.put(IFD.IMAGE_WIDTH, (long) WIDTH);
+		ifd.put(IFD.IMAGE_LENGTH, (long) HEIGHT);
+		ifd.put(IFD.ROWS_PER_STRIP, new long[] { rowsPerStrip });
+		return ifd;
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.formats.tiff;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import io.scif.FormatException;
+import io.scif.SCIFIO;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link TiffService} predictor handling.
+ *
+ * @author agent
+ */
+public class TiffServiceTest {
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/** Tests that horizontal differencing round-trips for each sample size. */
+	@Test
+	public void testHorizontalDifferencing() throws FormatException {
+		for (final int bits : new int[] { 8, 16, 32 }) {
+			for (final boolean little : new boolean[] { false, true }) {
+				final IFD ifd = createIFD(2, bits, 3, 7, little);
+				final byte[] data = new byte[7 * 3 * (bits / 8) * 5];
+				new Random(bits).nextBytes(data);
+				final byte[] copy = data.clone();
+				scifio.tiff().difference(copy, ifd);
+				scifio.tiff().undifference(copy, ifd);
+				assertArrayEquals(data, copy);
+			}
+		}
+	}
+
+	/** Tests differencing of 16-bit samples against known values. */
+	@Test
+	public void testHorizontalDifferencing16() throws FormatException {
+		final IFD ifd = createIFD(2, 16, 1, 3, false);
+		final byte[] data = { 0, 10, 0, 15, 0, 5, 1, 0, 0, 1, 1, 1 };
+		scifio.tiff().difference(data, ifd);
+		assertArrayEquals(new byte[] { 0, 10, 0, 5, -1, -10, 1, 0, -1, 1, 1, 0 },
+			data);
+	}
+
+	/** Tests that the floating point predictor round-trips. */
+	@Test
+	public void testFloatingPointPredictor() throws FormatException {
+		for (final boolean little : new boolean[] { false, true }) {
+			final IFD ifd = createIFD(3, 32, 2, 6, little);
+			final ByteBuffer buffer = ByteBuffer.allocate(6 * 2 * 4 * 3);
+			buffer.order(little ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+			final Random r = new Random(3);
+			while (buffer.hasRemaining()) {
+				buffer.putFloat(r.nextFloat() * 100);
+			}
+			final byte[] data = buffer.array();
+			final byte[] copy = data.clone();
+			scifio.tiff().difference(copy, ifd);
+			scifio.tiff().undifference(copy, ifd);
+			assertArrayEquals(data, copy);
+		}
+	}
+
+	/** Tests floating point differencing against known values. */
+	@Test
+	public void testFloatingPointPredictorLayout() throws FormatException {
+		final IFD ifd = createIFD(3, 32, 1, 2, false);
+		// 1.0f = 3f 80 00 00, 2.0f = 40 00 00 00
+		final byte[] data = { 0x3f, -0x80, 0, 0, 0x40, 0, 0, 0 };
+		scifio.tiff().difference(data, ifd);
+		// bytes regrouped as 3f 40 80 00 00 00 00 00, then differenced
+		assertArrayEquals(new byte[] { 0x3f, 0x01, 0x40, -0x80, 0, 0, 0, 0 },
+			data);
+	}
+
+	// -- Helper methods --
+
+	private IFD createIFD(final int predictor, final int bits,
+		final int samplesPerPixel, final long width, final boolean little)
+	{
+		final IFD ifd = new IFD(scifio.log());
+		final int[] bitsPerSample = new int[samplesPerPixel];
+		for (int i = 0; i < samplesPerPixel; i++) {
+			bitsPerSample[i] = bits;
+		}
+		ifd.putIFDValue(IFD.PREDICTOR, predictor);
+		ifd.putIFDValue(IFD.BITS_PER_SAMPLE, bitsPerSample);
+		ifd.putIFDValue(IFD.SAMPLES_PER_PIXEL, samplesPerPixel);
+		ifd.putIFDValue(IFD.IMAGE_WIDTH, width);
+		ifd.putIFDValue(IFD.LITTLE_ENDIAN, little);
+		return ifd;
+	}
+
+}
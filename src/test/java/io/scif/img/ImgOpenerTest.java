@@ -51,13 +51,17 @@ import java.util.List;
 import net.imagej.ImgPlus;
 import net.imagej.axis.Axes;
 import net.imagej.axis.AxisType;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccess;
 import net.imglib2.exception.IncompatibleTypeException;
 import net.imglib2.img.ImgFactory;
 import net.imglib2.img.array.ArrayImgFactory;
+import net.imglib2.img.cell.CellImgFactory;
 import net.imglib2.img.planar.PlanarImgFactory;
 import net.imglib2.type.NativeType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
 import net.imglib2.type.numeric.real.DoubleType;
 import net.imglib2.type.numeric.real.FloatType;
 
@@ -136,6 +140,79 @@ public class ImgOpenerTest {
 		}
 	}
 
+	/**
+	 * Tests that reading planes with several threads, each with its own reader,
+	 * fills the same planes in the same order as a single thread.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testParallelPlanes() throws IncompatibleTypeException,
+		ImgIOException
+	{
+		final String stackId =
+			"testImg&lengths=64,48,4,6&axes=X,Y,Z,Time.fake";
+		final NativeType t = new UnsignedByteType();
+		final ImgFactory aif = new ArrayImgFactory().imgFactory(t);
+		final ImgFactory pif = new PlanarImgFactory().imgFactory(t);
+
+		for (final ImgFactory f : new ImgFactory[] { aif, pif }) {
+			final SCIFIOConfig config = new SCIFIOConfig();
+			config.imgOpenerSetRegion(new ImageRegion(new AxisType[] { Axes.TIME },
+				new String[] { "1-5:2" }));
+			final ImgPlus<?> serial = imgOpener.openImgs(stackId, f, config).get(0);
+			final ImgPlus<?> parallel = imgOpener.openImgs(stackId, f, config
+				.clone().imgOpenerSetThreads(3)).get(0);
+
+			assertEquals(serial.size(), parallel.size());
+			final Cursor<? extends RealType> expected =
+				(Cursor<? extends RealType>) serial.cursor();
+			final Cursor<? extends RealType> actual =
+				(Cursor<? extends RealType>) parallel.cursor();
+			while (expected.hasNext()) {
+				assertEquals(expected.next().getRealDouble(), actual.next()
+					.getRealDouble(), 0);
+			}
+		}
+	}
+
+	/**
+	 * Tests that planes copied into the cells of a {@link CellImgFactory} image,
+	 * whose cells do not align with the planes, match an array image. Covers the
+	 * row copy into cells, with one and several threads, and flat iteration for
+	 * a type which does not match the pixel type.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Test
+	public void testCellImgPlanes() throws IncompatibleTypeException,
+		ImgIOException
+	{
+		final String stackId =
+			"testImg&pixelType=uint16&lengths=70,45,3&axes=X,Y,Z.fake";
+		for (final NativeType t : new NativeType[] { new UnsignedShortType(),
+			new FloatType() })
+		{
+			final ImgFactory aif = new ArrayImgFactory().imgFactory(t);
+			final ImgFactory cif = new CellImgFactory(16).imgFactory(t);
+			final SCIFIOConfig config = new SCIFIOConfig();
+			final ImgPlus<?> expected =
+				imgOpener.openImgs(stackId, aif, config).get(0);
+			for (final int threads : new int[] { 1, 3 }) {
+				final ImgPlus<?> actual = imgOpener.openImgs(stackId, cif, config
+					.clone().imgOpenerSetThreads(threads)).get(0);
+				assertEquals(expected.size(), actual.size());
+				final Cursor<? extends RealType> e =
+					(Cursor<? extends RealType>) expected.localizingCursor();
+				final RandomAccess<? extends RealType> a =
+					(RandomAccess<? extends RealType>) actual.randomAccess();
+				while (e.hasNext()) {
+					e.fwd();
+					a.setPosition(e);
+					assertEquals(e.get().getRealDouble(), a.get().getRealDouble(), 0);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Tests that opening datasets with multiple images, via
 	 * {@link SCIFIOConfig#imgOpenerIsOpenAllImages()} is working as intended.
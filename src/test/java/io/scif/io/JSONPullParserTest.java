@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import io.scif.SCIFIO;
+import io.scif.io.JSONPullParser.Event;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests {@link JSONPullParser}.
+ *
+ * @author agent
+ */
+public class JSONPullParserTest {
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/** Tests the events and depths of nested objects and arrays. */
+	@Test
+	public void testNesting() throws IOException {
+		final JSONPullParser json = parser(
+			"{\"a\": {\"b\": [1, [2], {\"c\": 3}]}, \"d\": []}");
+		assertEquals(Event.START_OBJECT, json.next());
+		assertName(json, "a");
+		assertEquals(Event.START_OBJECT, json.next());
+		assertName(json, "b");
+		assertEquals(Event.START_ARRAY, json.next());
+		assertEquals(3, json.getDepth());
+		assertValue(json, "1");
+		assertEquals(Event.START_ARRAY, json.next());
+		assertValue(json, "2");
+		assertEquals(Event.END_ARRAY, json.next());
+		assertEquals(Event.START_OBJECT, json.next());
+		assertName(json, "c");
+		assertValue(json, "3");
+		assertEquals(Event.END_OBJECT, json.next());
+		assertEquals(Event.END_ARRAY, json.next());
+		assertEquals(Event.END_OBJECT, json.next());
+		assertEquals(1, json.getDepth());
+		assertName(json, "d");
+		assertEquals(Event.START_ARRAY, json.next());
+		assertEquals(Event.END_ARRAY, json.next());
+		assertEquals(Event.END_OBJECT, json.next());
+		assertEquals(Event.END_DOCUMENT, json.next());
+	}
+
+	/** Tests that escapes in strings and names are decoded. */
+	@Test
+	public void testEscapes() throws IOException {
+		final JSONPullParser json = parser("{\"na\\\"me\": " +
+			"\"\\\"\\\\\\/\\b\\f\\n\\r\\t \\u00e9 \\ud83d\\ude00 \u00b5\"}");
+		assertEquals(Event.START_OBJECT, json.next());
+		assertName(json, "na\"me");
+		assertEquals(Event.VALUE, json.next());
+		assertTrue(json.isString());
+		assertEquals("\"\\/\b\f\n\r\t \u00e9 \ud83d\ude00 \u00b5", json
+			.getText());
+		assertEquals(Event.END_OBJECT, json.next());
+	}
+
+	/** Tests that numbers and literals are returned as written. */
+	@Test
+	public void testNumbers() throws IOException {
+		final JSONPullParser json = parser(
+			"[-1.5e3, 0, 12345678901234567890, true, null, \"7\"]");
+		assertEquals(Event.START_ARRAY, json.next());
+		for (final String value : Arrays.asList("-1.5e3", "0",
+			"12345678901234567890", "true", "null"))
+		{
+			assertValue(json, value);
+			assertFalse(json.isString());
+		}
+		assertValue(json, "7");
+		assertTrue(json.isString());
+		assertEquals(Event.END_ARRAY, json.next());
+	}
+
+	/**
+	 * Tests that a token spanning two blocks of the stream is read whole, and
+	 * that skipped children leave the parser on the end of their container.
+	 */
+	@Test
+	public void testBlocks() throws IOException {
+		final char[] chars = new char[70000];
+		Arrays.fill(chars, 'x');
+		final String value = new String(chars);
+		final JSONPullParser json = parser("{\"skip\": [{\"a\": [1, 2]}, 3], " +
+			"\"long\": \"" + value + "\", \"n\": 1}");
+		assertEquals(Event.START_OBJECT, json.next());
+		assertName(json, "skip");
+		assertEquals(Event.START_ARRAY, json.next());
+		json.skipChildren();
+		assertEquals(1, json.getDepth());
+		assertName(json, "long");
+		assertValue(json, value);
+		assertName(json, "n");
+		assertEquals(70041, json.getOffset());
+		assertValue(json, "1");
+		assertEquals(Event.END_OBJECT, json.next());
+	}
+
+	/** Tests that truncated documents are reported, not silently ended. */
+	@Test
+	public void testTruncated() throws IOException {
+		for (final String document : Arrays.asList("{\"a\": 1", "{\"a\": [1, 2",
+			"{\"a\": \"unterminated", "{\"a\": \"\\", "[\"\\u00"))
+		{
+			final JSONPullParser json = parser(document);
+			try {
+				while (json.next() != Event.END_DOCUMENT) {
+					// read to the end
+				}
+				fail("No exception for " + document);
+			}
+			catch (final EOFException e) {
+				// expected
+			}
+			catch (final IOException e) {
+				// truncated unicode escapes are invalid rather than unterminated
+				assertTrue(document, document.endsWith("\\u00"));
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	private JSONPullParser parser(final String document) throws IOException {
+		return new JSONPullParser(new RandomAccessInputStream(scifio.getContext(),
+			document.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static void assertName(final JSONPullParser json,
+		final String name) throws IOException
+	{
+		assertEquals(Event.NAME, json.next());
+		assertEquals(name, json.getText());
+	}
+
+	private static void assertValue(final JSONPullParser json,
+		final String value) throws IOException
+	{
+		assertEquals(Event.VALUE, json.next());
+		assertEquals(value, json.getText());
+	}
+}
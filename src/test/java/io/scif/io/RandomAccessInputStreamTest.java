@@ -38,6 +38,7 @@ import io.scif.io.providers.IRandomAccessProviderFactory;
 import io.scif.services.LocationService;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 
 import org.junit.After;
@@ -153,6 +154,24 @@ public class RandomAccessInputStreamTest {
 		}
 	}
 
+	@Test
+	public void testTruncatedVectoredRead() throws IOException {
+		assumeTrue(testLength);
+		stream.setLength(20);
+		stream.seek(3);
+		final ReadRequest a = new ReadRequest(16, 8);
+		final ReadRequest b = new ReadRequest(24, 4);
+		final ReadRequest c = new ReadRequest(4, 4);
+		stream.readVectored(Arrays.asList(a, b, c));
+		assertEquals(4, a.getBytesRead());
+		assertEquals(PAGE[19], a.getDest()[3]);
+		assertEquals(0, a.getDest()[4]);
+		assertEquals(0, b.getBytesRead());
+		assertEquals(4, c.getBytesRead());
+		assertEquals(PAGE[4], c.getDest()[0]);
+		assertEquals(3, stream.getFilePointer());
+	}
+
 	@After
 	public void tearDown() throws IOException {
 		stream.close();
@@ -0,0 +1,162 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import io.scif.io.providers.IRandomAccessProvider;
+import io.scif.io.providers.IRandomAccessProviderFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests for vectored reads from a loci.common.IRandomAccess.
+ *
+ * @see io.scif.io.IRandomAccess#readVectored
+ */
+@RunWith(Parameterized.class)
+public class ReadVectoredTest {
+
+	private static final byte[] PAGE = new byte[] { (byte) 0x01, (byte) 0x02,
+		(byte) 0x03, (byte) 0x04, (byte) 0x05, (byte) 0x06, (byte) 0x07,
+		(byte) 0x08, (byte) 0x09, (byte) 0x0A, (byte) 0x0B, (byte) 0x0C,
+		(byte) 0x0D, (byte) 0x0E, (byte) 0xFF, (byte) 0xFE };
+
+	private static final String MODE = "r";
+
+	private static final int BUFFER_SIZE = 1024;
+
+	private IRandomAccess fileHandle;
+
+	@Parameters
+	public static Collection<Object[]> parameters() {
+		return TestParameters.parameters("readTests");
+	}
+
+	private final String provider;
+
+	private final boolean testLength;
+
+	public ReadVectoredTest(final String provider, final boolean checkGrowth,
+		final boolean testLength)
+	{
+		this.provider = provider;
+		this.testLength = testLength;
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		final IRandomAccessProviderFactory factory =
+			new IRandomAccessProviderFactory();
+		final IRandomAccessProvider instance = factory.getInstance(provider);
+		fileHandle = instance.createMock(PAGE, MODE, BUFFER_SIZE);
+	}
+
+	@Test
+	public void testOutOfOrder() throws IOException {
+		final ReadRequest a = new ReadRequest(12, 2);
+		final ReadRequest b = new ReadRequest(1, 3);
+		final ReadRequest c = new ReadRequest(6, 4);
+		fileHandle.readVectored(Arrays.asList(a, b, c));
+		assertRead(a, 12, 2);
+		assertRead(b, 1, 3);
+		assertRead(c, 6, 4);
+	}
+
+	@Test
+	public void testOverlapping() throws IOException {
+		final ReadRequest a = new ReadRequest(2, 8);
+		final ReadRequest b = new ReadRequest(4, 2);
+		fileHandle.readVectored(Arrays.asList(a, b));
+		assertRead(a, 2, 8);
+		assertRead(b, 4, 2);
+	}
+
+	@Test
+	public void testGapped() throws IOException {
+		final ReadRequest a = new ReadRequest(0, 2);
+		final ReadRequest b = new ReadRequest(14, 2);
+		ReadScheduler.read(fileHandle, Arrays.asList(a, b), 0, 0);
+		assertRead(a, 0, 2);
+		assertRead(b, 14, 2);
+	}
+
+	@Test
+	public void testDestOffset() throws IOException {
+		final byte[] dest = new byte[6];
+		final ReadRequest a = new ReadRequest(8, 3, dest, 3);
+		final ReadRequest b = new ReadRequest(0, 3, dest, 0);
+		fileHandle.readVectored(Arrays.asList(a, b));
+		assertArrayEquals(new byte[] { 0x01, 0x02, 0x03, 0x09, 0x0A, 0x0B },
+			dest);
+	}
+
+	@Test
+	public void testPastEOF() throws IOException {
+		assumeTrue(testLength);
+		final ReadRequest a = new ReadRequest(12, 8);
+		final ReadRequest b = new ReadRequest(20, 4);
+		fileHandle.readVectored(Arrays.asList(a, b));
+		assertEquals(4, a.getBytesRead());
+		assertArrayEquals(Arrays.copyOfRange(PAGE, 12, 16), Arrays.copyOf(a
+			.getDest(), 4));
+		assertEquals(0, b.getBytesRead());
+	}
+
+	@Test
+	public void testFilePointer() throws IOException {
+		fileHandle.seek(5);
+		fileHandle.readVectored(Arrays.asList(new ReadRequest(0, 4),
+			new ReadRequest(10, 4)));
+		assertEquals(5, fileHandle.getFilePointer());
+		assertEquals(6, fileHandle.readByte());
+	}
+
+	// -- Helper methods --
+
+	private void assertRead(final ReadRequest request, final int offset,
+		final int length)
+	{
+		assertEquals(length, request.getBytesRead());
+		assertArrayEquals(Arrays.copyOfRange(PAGE, offset, offset + length),
+			request.getDest());
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.config.SCIFIOConfig;
+import io.scif.config.SCIFIOConfig.ImgMode;
+import io.scif.img.ImgOpener;
+import io.scif.img.SCIFIOImgPlus;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests {@link BatchService}.
+ *
+ * @author agent
+ */
+public class BatchServiceTest {
+
+	private final Context ctx = new Context();
+
+	private final BatchService batchService = ctx.getService(BatchService.class);
+
+	private final List<File> written = new ArrayList<>();
+
+	@After
+	public void tearDown() {
+		for (final File file : written) {
+			file.delete();
+		}
+		ctx.dispose();
+	}
+
+	/**
+	 * Tests that every source reaches the sink exactly once, and that a source
+	 * which cannot be opened is reported without stopping the batch.
+	 */
+	@Test
+	public void testIngest() {
+		final List<String> sources = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			sources.add("img" + i + "&lengths=32,24," + (i % 3 + 1) +
+				"&axes=X,Y,Z.fake");
+		}
+		sources.add("missing.notaformat");
+
+		final AtomicInteger planes = new AtomicInteger();
+		final List<String> seen = Collections.synchronizedList(
+			new ArrayList<String>());
+		final BatchReport report = batchService.ingest(sources, new SCIFIOConfig()
+			.imgOpenerSetImgModes(ImgMode.PLANAR), 4, (source, imgs) -> {
+				seen.add(source);
+				planes.addAndGet((int) imgs.get(0).dimension(2));
+			});
+
+		assertEquals(21, report.getSourceCount());
+		assertEquals(20, report.getSucceeded());
+		assertEquals(Collections.singleton("missing.notaformat"), report
+			.getFailures().keySet());
+		assertEquals(20, seen.size());
+		assertTrue(seen.containsAll(sources.subList(0, 20)));
+		assertEquals(39, planes.get());
+		assertEquals(39, report.getPlaneCount());
+		assertEquals(39L * 32 * 24, report.getDecodedBytes());
+	}
+
+	/**
+	 * Tests that an error thrown by the sink is reported without stopping the
+	 * consumers, which would leave the openers blocked on a full queue.
+	 */
+	@Test(timeout = 60000)
+	public void testSinkError() {
+		final List<String> sources = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			sources.add("img" + i + "&lengths=8,8.fake");
+		}
+		final AssertionError error = new AssertionError("sink error");
+		final BatchReport report = batchService.ingest(sources, new SCIFIOConfig()
+			.imgOpenerSetImgModes(ImgMode.PLANAR), 1, (source, imgs) -> {
+				throw error;
+			});
+
+		assertEquals(0, report.getSucceeded());
+		assertEquals(6, report.getFailures().size());
+		assertSame(error, report.getFailures().get(sources.get(0)));
+	}
+
+	/** Tests converting sources, with several images each, to TIFF files. */
+	@Test
+	public void testConvert() throws IOException {
+		final File dir = File.createTempFile("BatchServiceTest", "");
+		dir.delete();
+		final Map<String, String> conversions = new LinkedHashMap<>();
+		for (int i = 0; i < 3; i++) {
+			final File dest = new File(new File(dir, "sub" + i), "img" + i + ".tif");
+			conversions.put("img" + i + "&images=2&lengths=16,8,2&axes=X,Y,Z.fake",
+				dest.getPath());
+			written.add(new File(dest.getParentFile(), "img" + i + "_0.tif"));
+			written.add(new File(dest.getParentFile(), "img" + i + "_1.tif"));
+			written.add(dest.getParentFile());
+		}
+		written.add(dir);
+
+		final SCIFIOConfig config = new SCIFIOConfig().imgOpenerSetOpenAllImages(
+			true).imgOpenerSetImgModes(ImgMode.PLANAR);
+		final BatchReport report = batchService.convert(conversions, config, 2);
+
+		assertEquals(report.getFailures().toString(), 3, report.getSucceeded());
+		assertEquals(6, report.getImageCount());
+		final ImgOpener opener = new ImgOpener(ctx);
+		for (final File file : written.subList(0, 2)) {
+			assertTrue(file.exists());
+			final SCIFIOImgPlus<?> img = opener.openImgs(file.getPath()).get(0);
+			final long[] dims = new long[img.numDimensions()];
+			img.dimensions(dims);
+			assertArrayEquals(new long[] { 16, 8, 2 }, dims);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import io.scif.ByteArrayPlane;
+import io.scif.DefaultImageMetadata;
+import io.scif.ImageMetadata;
+import io.scif.util.FormatTools;
+
+import net.imagej.axis.Axes;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests {@link BufferPoolService}.
+ *
+ * @author agent
+ */
+public class BufferPoolServiceTest {
+
+	private static final int LENGTH = 64 * 1024;
+
+	private final Context ctx = new Context();
+
+	private final BufferPoolService bufferPool = ctx.getService(
+		BufferPoolService.class);
+
+	@After
+	public void tearDown() {
+		ctx.dispose();
+	}
+
+	/** Tests that released arrays are reused, zeroed, and counted. */
+	@Test
+	public void testReuse() {
+		bufferPool.clear();
+		final byte[] first = bufferPool.allocate(LENGTH);
+		first[0] = 1;
+		assertEquals(LENGTH, bufferPool.getOutstandingBytes());
+		bufferPool.release(first);
+		assertEquals(0, bufferPool.getOutstandingBytes());
+		assertEquals(LENGTH, bufferPool.getPooledBytes());
+
+		final byte[] second = bufferPool.allocate(LENGTH);
+		assertSame(first, second);
+		assertEquals(0, second[0]);
+		assertNotSame(second, bufferPool.allocate(LENGTH));
+		assertEquals(1, bufferPool.getHitCount());
+		assertEquals(2, bufferPool.getMissCount());
+		assertEquals(1 / 3.0, bufferPool.getHitRate(), 1e-9);
+		assertEquals(0, bufferPool.getPooledBytes());
+	}
+
+	/** Tests that small arrays and arrays beyond the limit are not pooled. */
+	@Test
+	public void testLimits() {
+		bufferPool.clear();
+		final byte[] small = bufferPool.allocate(16);
+		bufferPool.release(small);
+		assertEquals(0, bufferPool.getPooledBytes());
+		assertEquals(0, bufferPool.getMissCount());
+
+		bufferPool.setMaxPooledBytes(LENGTH);
+		final byte[] first = bufferPool.allocate(LENGTH);
+		final byte[] second = bufferPool.allocate(LENGTH);
+		bufferPool.release(first);
+		bufferPool.release(second);
+		assertEquals(LENGTH, bufferPool.getPooledBytes());
+		bufferPool.setMaxPooledBytes(0);
+		assertEquals(0, bufferPool.getPooledBytes());
+	}
+
+	/**
+	 * Tests that arrays released twice, or not allocated from the pool, are
+	 * not pooled.
+	 */
+	@Test
+	public void testDoubleRelease() {
+		bufferPool.clear();
+		final byte[] buffer = bufferPool.allocate(LENGTH);
+		bufferPool.release(buffer);
+		bufferPool.release(buffer);
+		bufferPool.release(new byte[LENGTH]);
+		assertEquals(LENGTH, bufferPool.getPooledBytes());
+		assertEquals(0, bufferPool.getOutstandingBytes());
+		assertSame(buffer, bufferPool.allocate(LENGTH));
+		assertNotSame(buffer, bufferPool.allocate(LENGTH));
+	}
+
+	/** Tests that clearing the pool leaves allocated arrays outstanding. */
+	@Test
+	public void testClear() {
+		bufferPool.clear();
+		final byte[] buffer = bufferPool.allocate(LENGTH);
+		bufferPool.clear();
+		assertEquals(LENGTH, bufferPool.getOutstandingBytes());
+		bufferPool.release(buffer);
+		assertEquals(0, bufferPool.getOutstandingBytes());
+		assertEquals(LENGTH, bufferPool.getPooledBytes());
+	}
+
+	/**
+	 * Tests that a full pool drops arrays of the length used longest ago
+	 * first.
+	 */
+	@Test
+	public void testEviction() {
+		bufferPool.clear();
+		bufferPool.setMaxPooledBytes(2 * LENGTH);
+		final byte[] small = bufferPool.allocate(LENGTH);
+		final byte[] large = bufferPool.allocate(2 * LENGTH);
+		bufferPool.release(small);
+		bufferPool.release(large);
+		assertEquals(2 * LENGTH, bufferPool.getPooledBytes());
+		assertNotSame(small, bufferPool.allocate(LENGTH));
+		assertSame(large, bufferPool.allocate(2 * LENGTH));
+	}
+
+	/** Tests that planes draw their blank data from the pool. */
+	@Test
+	public void testPlane() {
+		bufferPool.clear();
+		final ImageMetadata meta = new DefaultImageMetadata();
+		meta.setAxisTypes(Axes.X, Axes.Y);
+		meta.setAxisLengths(new long[] { 256, 256 });
+		meta.setPixelType(FormatTools.UINT8);
+
+		final ByteArrayPlane plane = new ByteArrayPlane(ctx, meta, new long[2],
+			new long[] { 256, 256 });
+		final byte[] data = plane.getData();
+		assertEquals(256 * 256, data.length);
+		assertEquals(1, bufferPool.getMissCount());
+		plane.release();
+		assertNull(plane.getData());
+
+		final ByteArrayPlane next = new ByteArrayPlane(ctx, meta, new long[2],
+			new long[] { 256, 256 });
+		assertSame(data, next.getData());
+		assertEquals(1, bufferPool.getHitCount());
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.config.SCIFIOConfig;
+import io.scif.config.SCIFIOConfig.ImgMode;
+import io.scif.img.ImgOpener;
+import io.scif.img.ImgSaver;
+import io.scif.img.SCIFIOImgPlus;
+import io.scif.metrics.Metric;
+import io.scif.metrics.Metrics;
+import io.scif.metrics.MetricsScope;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests {@link MetricsService}.
+ *
+ * @author agent
+ */
+public class MetricsServiceTest {
+
+	private final Context ctx = new Context();
+
+	private final MetricsService metricsService = ctx.getService(
+		MetricsService.class);
+
+	@After
+	public void tearDown() {
+		ctx.dispose();
+	}
+
+	/** Tests the latency histogram of a single metric. */
+	@Test
+	public void testMetric() {
+		final Metric metric = new Metric();
+		for (int i = 1; i <= 100; i++) {
+			metric.record(i * 1000, 10);
+		}
+		metric.record(-1, 5);
+		assertEquals(101, metric.getCount());
+		assertEquals(100, metric.getTimedCount());
+		assertEquals(1005, metric.getAmount());
+		assertEquals(100000, metric.getMaxNanos());
+		assertEquals(50500, metric.getMeanNanos());
+		// percentiles are upper bounds within a factor of two
+		final long median = metric.getMedianNanos();
+		assertTrue(median >= 50000 && median < 100000);
+		assertEquals(100000, metric.getP99Nanos());
+	}
+
+	/** Tests that nothing is recorded while metrics are disabled. */
+	@Test
+	public void testDisabled() {
+		assertFalse(metricsService.isEnabled());
+		metricsService.record("dataset", MetricsService.READ, 10, 10);
+		assertTrue(metricsService.getTotals().getAll().isEmpty());
+		assertTrue(metricsService.getDatasetMetrics().isEmpty());
+	}
+
+	/** Tests that scopes attribute measurements, and nest. */
+	@Test
+	public void testScopes() {
+		metricsService.setEnabled(true);
+		try (MetricsScope outer = metricsService.enter("a", "fmt")) {
+			metricsService.record("x", MetricsService.READ, 1, 2);
+			try (MetricsScope inner = metricsService.enter("b", null)) {
+				assertEquals("fmt", inner.getFormat());
+				metricsService.record(MetricsService.READ, 1, 3);
+			}
+			metricsService.record(MetricsService.SEEK, -1, 4);
+		}
+		metricsService.record("x", MetricsService.READ, 1, 5);
+
+		assertEquals(10, metricsService.getTotals().get(MetricsService.READ)
+			.getAmount());
+		assertEquals(2, metricsService.getDatasetMetrics().get("a").get(
+			MetricsService.READ).getAmount());
+		assertEquals(3, metricsService.getDatasetMetrics().get("b").get(
+			MetricsService.READ).getAmount());
+		assertEquals(5, metricsService.getDatasetMetrics().get("x").get(
+			MetricsService.READ).getAmount());
+		final Metrics format = metricsService.getFormatMetrics().get("fmt");
+		assertEquals(5, format.get(MetricsService.READ).getAmount());
+		assertEquals(1, format.get(MetricsService.SEEK).getCount());
+	}
+
+	/** Tests that only the most recently measured datasets are kept. */
+	@Test
+	public void testDatasetLimit() {
+		metricsService.setEnabled(true);
+		final int max = DefaultMetricsService.MAX_DATASETS;
+		for (int i = 0; i <= max; i++) {
+			metricsService.record("d" + i, MetricsService.READ, 1, 1);
+		}
+		final Map<String, Metrics> datasets = metricsService.getDatasetMetrics();
+		assertEquals(max, datasets.size());
+		assertFalse(datasets.containsKey("d0"));
+		assertTrue(datasets.containsKey("d" + max));
+		assertEquals(max + 1, metricsService.getTotals().get(MetricsService.READ)
+			.getCount());
+	}
+
+	/**
+	 * Tests that saving and reopening a TIFF, with one and several threads,
+	 * records its writes, reads, planes and stages for the file and the format.
+	 */
+	@Test
+	public void testSaveAndOpen() throws Exception {
+		metricsService.setEnabled(true);
+		final File file = File.createTempFile("MetricsServiceTest", ".tif");
+		file.deleteOnExit();
+		final String id = file.getAbsolutePath();
+		final SCIFIOConfig config = new SCIFIOConfig().imgOpenerSetImgModes(
+			ImgMode.PLANAR);
+
+		final SCIFIOImgPlus<?> img = new ImgOpener(ctx).openImgs(
+			"metrics&lengths=64,32,3&axes=X,Y,Z.fake", config).get(0);
+		save(id, img);
+		final Metrics written = metricsService.getDatasetMetrics().get(id);
+		assertNotNull(written);
+		assertEquals(3, written.get(MetricsService.SAVE_WRITE).getCount());
+		assertEquals(3 * 64 * 32, written.get(MetricsService.SAVE_WRITE)
+			.getAmount());
+		assertTrue(written.get(MetricsService.WRITE).getAmount() >= 3 * 64 * 32);
+
+		metricsService.reset();
+		new ImgOpener(ctx).openImgs(id, config);
+		final Metrics read = metricsService.getDatasetMetrics().get(id);
+		assertNotNull(read);
+		assertEquals(1, read.get(MetricsService.PARSE).getCount());
+		assertEquals(3, read.get(MetricsService.OPEN_PLANE).getCount());
+		assertEquals(3 * 64 * 32, read.get(MetricsService.OPEN_PLANE)
+			.getAmount());
+		assertEquals(3, read.get(MetricsService.CONVERT).getCount());
+		assertTrue(read.get(MetricsService.READ).getAmount() >= 3 * 64 * 32);
+		final Metrics tiff = metricsService.getFormatMetrics().get(
+			"Tagged Image File Format");
+		assertNotNull(tiff);
+		assertEquals(3, tiff.get(MetricsService.OPEN_PLANE).getCount());
+
+		// planes read with several threads are recorded the same way
+		metricsService.reset();
+		new ImgOpener(ctx).openImgs(id, config.clone().imgOpenerSetThreads(3));
+		final Metrics parallel = metricsService.getDatasetMetrics().get(id);
+		assertNotNull(parallel);
+		assertEquals(3, parallel.get(MetricsService.OPEN_PLANE).getCount());
+		assertEquals(3, parallel.get(MetricsService.CONVERT).getCount());
+		assertEquals(3 * 64 * 32, parallel.get(MetricsService.CONVERT)
+			.getAmount());
+	}
+
+	// -- Helper methods --
+
+	private void save(final String id, final SCIFIOImgPlus<?> img)
+		throws IOException
+	{
+		try {
+			new ImgSaver(ctx).saveImg(id, img, 0);
+		}
+		catch (final Exception e) {
+			throw new IOException(e);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.services;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.FormatException;
+import io.scif.Reader;
+import io.scif.SCIFIO;
+import io.scif.util.FormatTools;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link ThumbnailService}.
+ *
+ * @author agent
+ */
+public class ThumbnailServiceTest {
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	private final ThumbnailService thumbnailService = scifio.getContext()
+		.getService(ThumbnailService.class);
+
+	private File dir, file;
+
+	private Reader reader;
+
+	@Before
+	public void setUp() throws FormatException, IOException {
+		dir = Files.createTempDirectory("ThumbnailServiceTest").toFile();
+		dir.deleteOnExit();
+		file = new File(dir, "tiny.tif");
+		file.deleteOnExit();
+		try (InputStream in = getClass().getResourceAsStream(
+			"/io/scif/formats/tiny-10x10x3.tif"))
+		{
+			Files.copy(in, file.toPath());
+		}
+		reader = scifio.initializer().initializeReader(file.getPath());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		reader.close();
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that a stored thumbnail is returned until the file changes, and is
+	 * then replaced.
+	 */
+	@Test
+	public void testStore() throws FormatException, IOException {
+		final File store = new File(dir, "store");
+		store.deleteOnExit();
+		thumbnailService.setDirectory(store);
+		final byte[] expected = FormatTools.openThumbBytes(reader, 0, 1);
+
+		assertArrayEquals(expected, thumbnailService.openThumbBytes(reader, 0, 1));
+		final File[] entries = entries(store);
+		assertEquals(1, entries.length);
+
+		// a hit returns what the store holds
+		final byte[] marker = { 1, 2, 3 };
+		rewrite(entries[0], marker);
+		assertArrayEquals(marker, thumbnailService.openThumbBytes(reader, 0, 1));
+
+		// a changed file replaces the stale thumbnail
+		assertTrue(file.setLastModified(file.lastModified() - 10000));
+		assertArrayEquals(expected, thumbnailService.openThumbBytes(reader, 0, 1));
+		assertEquals(1, entries(store).length);
+		assertArrayEquals(expected, thumbnailService.openThumbBytes(reader, 0, 1));
+	}
+
+	/** Tests that thumbnails are not stored in a directory others can write. */
+	@Test
+	public void testUntrusted() throws FormatException, IOException {
+		final File store = new File(dir, "store");
+		Assume.assumeTrue(store.mkdir() && dir.toPath().getFileSystem()
+			.supportedFileAttributeViews().contains("posix"));
+		store.deleteOnExit();
+		Files.setPosixFilePermissions(store.toPath(), PosixFilePermissions
+			.fromString("rwxrwxrwx"));
+		thumbnailService.setDirectory(store);
+
+		assertArrayEquals(FormatTools.openThumbBytes(reader, 0, 0),
+			thumbnailService.openThumbBytes(reader, 0, 0));
+		assertEquals(0, entries(store).length);
+	}
+
+	// -- Helper methods --
+
+	private static File[] entries(final File store) {
+		final File[] entries = store.listFiles((d, name) -> name.endsWith(
+			".thumb"));
+		for (final File entry : entries) {
+			entry.deleteOnExit();
+		}
+		return entries;
+	}
+
+	/** Replaces the thumbnail held by an entry, keeping its key. */
+	private static void rewrite(final File entry, final byte[] thumb)
+		throws IOException
+	{
+		final String key;
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+			new FileInputStream(entry))))
+		{
+			key = in.readUTF();
+		}
+		try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+			new FileOutputStream(entry))))
+		{
+			out.writeUTF(key);
+			out.writeInt(thumb.length);
+			out.write(thumb);
+		}
+	}
+}
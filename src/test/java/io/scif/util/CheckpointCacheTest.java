@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CheckpointCache}.
+ *
+ * @author agent
+ */
+public class CheckpointCacheTest {
+
+	/**
+	 * Tests that only checkpoint frames are kept, and that the nearest one at or
+	 * before a frame is found.
+	 */
+	@Test
+	public void testNearest() throws IOException {
+		final CheckpointCache cache = new CheckpointCache(4, 1024, null);
+		for (long frame = 0; frame < 10; frame++) {
+			cache.put(frame, frame(frame));
+		}
+		assertEquals(0, cache.nearest(3));
+		assertEquals(4, cache.nearest(4));
+		assertEquals(8, cache.nearest(100));
+		assertNull(cache.get(5));
+		assertArrayEquals(frame(8), cache.get(8));
+		cache.close();
+		assertEquals(-1, cache.nearest(100));
+	}
+
+	/**
+	 * Tests that frames are copied, since codecs decode into their reference
+	 * frame in place.
+	 */
+	@Test
+	public void testCopies() throws IOException {
+		final CheckpointCache cache = new CheckpointCache(1, 1024, null);
+		final byte[] pixels = frame(1);
+		cache.put(1, pixels);
+		pixels[0] = -1;
+		cache.get(1)[1] = -1;
+		assertArrayEquals(frame(1), cache.get(1));
+	}
+
+	/**
+	 * Tests that checkpoints over the memory budget are dropped least recently
+	 * used first without a spill directory.
+	 */
+	@Test
+	public void testEviction() throws IOException {
+		final CheckpointCache cache = new CheckpointCache(1, 16, null);
+		cache.put(0, frame(0));
+		cache.put(1, frame(1));
+		cache.get(0);
+		cache.put(2, frame(2));
+		assertArrayEquals(frame(0), cache.get(0));
+		assertNull(cache.get(1));
+		assertArrayEquals(frame(2), cache.get(2));
+		assertEquals(0, cache.nearest(1));
+	}
+
+	/**
+	 * Tests that evicted checkpoints are read back from the spill directory, and
+	 * deleted on close.
+	 */
+	@Test
+	public void testSpill() throws IOException {
+		final File dir = Files.createTempDirectory("CheckpointCacheTest").toFile();
+		dir.deleteOnExit();
+		final CheckpointCache cache = new CheckpointCache(1, 16, dir);
+		for (long frame = 0; frame < 5; frame++) {
+			cache.put(frame, frame(frame));
+		}
+		assertEquals(3, dir.list().length);
+		for (long frame = 0; frame < 5; frame++) {
+			assertEquals(frame, cache.nearest(frame));
+			assertArrayEquals(frame(frame), cache.get(frame));
+		}
+		cache.close();
+		assertEquals(0, dir.list().length);
+	}
+
+	// -- Helper methods --
+
+	private byte[] frame(final long frame) {
+		final byte[] pixels = new byte[8];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = (byte) (frame * pixels.length + i);
+		}
+		return pixels;
+	}
+}
@@ -40,6 +40,7 @@ import io.scif.SCIFIO;
 import java.io.IOException;
 
 import org.junit.Test;
+import org.scijava.util.Bytes;
 
 /**
  * Unit tests for {@link FormatTools}.
@@ -89,4 +90,46 @@ public class FormatToolsTest {
 		assertEquals((long) Math.pow(2, 7) - 1, FormatTools.defaultMinMax(iMeta
 			.getPixelType())[1]);
 	}
+
+	// -- Thumbnail tests --
+
+	/**
+	 * Tests that {@link FormatTools#openThumbBytes} averages the boxes of the
+	 * full plane covered by each thumbnail pixel, for planar channels.
+	 */
+	@Test
+	public void testOpenThumbBytes() throws FormatException, IOException {
+		final String sampleImage =
+			"thumb&pixelType=uint16&planarDims=3&lengths=300,200,2&axes=X,Y,Channel.fake";
+
+		final Reader reader = scifio.initializer().initializeReader(sampleImage);
+		final ImageMetadata iMeta = reader.getMetadata().get(0);
+		final int w = 300, h = 200, c = 2;
+		final int tw = (int) iMeta.getThumbSizeX();
+		final int th = (int) iMeta.getThumbSizeY();
+		assertEquals(128, tw);
+		assertEquals(85, th);
+
+		final byte[] full = reader.openPlane(0, 0).getBytes();
+		final byte[] thumb = FormatTools.openThumbBytes(reader, 0, 0);
+		assertEquals(tw * th * c * 2, thumb.length);
+		final boolean little = iMeta.isLittleEndian();
+		for (int ch = 0; ch < c; ch++) {
+			for (int ty = 0; ty < th; ty++) {
+				for (int tx = 0; tx < tw; tx++) {
+					double sum = 0;
+					int count = 0;
+					for (int y = ty * h / th; y < (ty + 1) * h / th; y++) {
+						for (int x = tx * w / tw; x < (tx + 1) * w / tw; x++) {
+							sum += Bytes.toInt(full, 2 * ((ch * h + y) * w + x), 2, little);
+							count++;
+						}
+					}
+					assertEquals(Math.round(sum / count), Bytes.toInt(thumb, 2 * ((ch *
+						th + ty) * tw + tx), 2, little));
+				}
+			}
+		}
+		reader.close();
+	}
 }
@@ -0,0 +1,133 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import io.scif.SCIFIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link KeyedFileStore}.
+ *
+ * @author agent
+ */
+public class KeyedFileStoreTest {
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/**
+	 * Tests that an entry is only returned for the key it was stored with, and
+	 * that stale entries are deleted.
+	 */
+	@Test
+	public void testKey() throws IOException {
+		final KeyedFileStore store = createStore();
+		assertTrue(store.isTrusted());
+		assertNull(store.load("id", "key", in -> in.readInt()));
+
+		assertTrue(store.save("id", "key", out -> out.writeInt(42)));
+		assertTrue(store.getFile("id").isFile());
+		assertEquals(42, (int) store.load("id", "key", in -> in.readInt()));
+
+		assertNull(store.load("id", "other", in -> in.readInt()));
+		assertFalse(store.getFile("id").exists());
+	}
+
+	/** Tests that entries which can not be decoded are deleted. */
+	@Test
+	public void testUnreadable() throws IOException {
+		final KeyedFileStore store = createStore();
+		store.save("id", "key", out -> out.write(new byte[] { 1, 2, 3 }));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, store.load("id", "key", in -> {
+			final byte[] bytes = new byte[3];
+			in.readFully(bytes);
+			return bytes;
+		}));
+
+		Files.write(store.getFile("id").toPath(), new byte[] { 1, 2, 3 });
+		assertNull(store.load("id", "key", in -> in.readInt()));
+		assertFalse(store.getFile("id").exists());
+	}
+
+	/** Tests that a directory others can write to is not trusted. */
+	@Test
+	public void testUntrusted() throws IOException {
+		final File dir = Files.createTempDirectory("scifio-store").toFile();
+		dir.deleteOnExit();
+		Assume.assumeTrue(dir.toPath().getFileSystem()
+			.supportedFileAttributeViews().contains("posix"));
+		Files.setPosixFilePermissions(dir.toPath(), PosixFilePermissions
+			.fromString("rwxrwxrwx"));
+		assertFalse(new KeyedFileStore(dir, ".test", scifio.log()).isTrusted());
+	}
+
+	/** Tests the ids and keys derived from files. */
+	@Test
+	public void testFileKeys() throws IOException {
+		final File file = File.createTempFile("scifio-store", ".test");
+		file.deleteOnExit();
+		final String id = KeyedFileStore.id(file, "a", 1);
+		assertEquals(file.getCanonicalPath() + "|a|1", id);
+		assertFalse(id.equals(KeyedFileStore.id(file, "a", 2)));
+
+		final String state = KeyedFileStore.state(file);
+		assertEquals(state, KeyedFileStore.state(file));
+		Files.write(file.toPath(), new byte[] { 1 });
+		assertFalse(state.equals(KeyedFileStore.state(file)));
+	}
+
+	// -- Helper methods --
+
+	private KeyedFileStore createStore() throws IOException {
+		final File dir = Files.createTempDirectory("scifio-store").toFile();
+		dir.deleteOnExit();
+		return new KeyedFileStore(new File(dir, "entries"), ".test", scifio
+			.log());
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * #%L
+ * SCIFIO library for reading and converting scientific file formats.
+ * %%
+ * Copyright (C) 2011 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package io.scif.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import io.scif.SCIFIO;
+import io.scif.io.RandomAccessInputStream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Tests {@link XMLService} parsing of stream regions.
+ *
+ * @author agent
+ */
+public class XMLServiceTest {
+
+	private static final String XML = "<root><entry key=\"a\" value=\"1\"/>" +
+		"<group><entry key=\"b\">text<inner>more</inner></entry></group>" +
+		"<skipped key=\"c\"/></root>";
+
+	private final SCIFIO scifio = new SCIFIO();
+
+	@After
+	public void tearDown() {
+		scifio.getContext().dispose();
+	}
+
+	/** Tests parsing XML embedded in a larger stream, more than once. */
+	@Test
+	public void testParseRegion() throws Exception {
+		final RandomAccessInputStream stream = createStream();
+		for (int i = 0; i < 2; i++) {
+			final List<String> keys = new ArrayList<>();
+			scifio.xml().parseXML(stream, 7, XML.length(), new DefaultHandler() {
+
+				@Override
+				public void startElement(final String uri, final String localName,
+					final String qName, final Attributes attributes)
+				{
+					if (attributes.getValue("key") != null) {
+						keys.add(attributes.getValue("key"));
+					}
+				}
+			});
+			assertEquals(Arrays.asList("a", "b", "c"), keys);
+		}
+
+		final Document doc = scifio.xml().parseDOM(stream, 7, XML.length());
+		assertEquals(2, doc.getElementsByTagName("entry").getLength());
+		stream.close();
+	}
+
+	/** Tests that only the selected elements are extracted. */
+	@Test
+	public void testExtract() throws IOException {
+		final RandomAccessInputStream stream = createStream();
+		final List<String> values = new ArrayList<>();
+		scifio.xml().extractXML(stream, 7, XML.length(), new HashSet<>(Arrays
+			.asList("entry")), (name, attributes, text) -> {
+				values.add(attributes.get("key") + "=" + text);
+				return true;
+			});
+		assertEquals(Arrays.asList("a=", "b=textmore"), values);
+		stream.close();
+	}
+
+	private RandomAccessInputStream createStream() throws IOException {
+		final byte[] bytes = ("garbage" + XML + "trailer").getBytes("UTF-8");
+		return new RandomAccessInputStream(scifio.getContext(), bytes);
+	}
+}